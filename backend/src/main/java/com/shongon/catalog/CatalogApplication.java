@@ -1,13 +1,25 @@
 package com.shongon.catalog;
 
+import com.shongon.catalog.runner.ProductImportRunner;
+import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class CatalogApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(CatalogApplication.class, args);
+		if (!new DefaultApplicationArguments(args).containsOption(ProductImportRunner.IMPORT_OPTION)) {
+			SpringApplication.run(CatalogApplication.class, args);
+			return;
+		}
+		// One-shot import: no web server, and the exit code of ProductImportRunner once it returns
+		SpringApplication application = new SpringApplication(CatalogApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		ConfigurableApplicationContext context = application.run(args);
+		System.exit(SpringApplication.exit(context));
 	}
 
 }
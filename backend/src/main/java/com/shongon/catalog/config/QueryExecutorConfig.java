@@ -0,0 +1,39 @@
+package com.shongon.catalog.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@Slf4j
+public class QueryExecutorConfig {
+    /*
+        Runs the secondary MongoDB query of a request (e.g. the page count) next to the main one.
+        Bounded threads and queue: when saturated the caller runs the task itself -> degrades to sequential
+        instead of queueing without limit or rejecting the request.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService queryExecutor(
+            @Value("${app.query-executor.pool-size}") int poolSize,
+            @Value("${app.query-executor.queue-capacity}") int queueCapacity
+    ) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        log.info("Query executor configured with {} threads, queue of {}", poolSize, queueCapacity);
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -1,6 +1,9 @@
 package com.shongon.catalog.config;
 
+import com.shongon.catalog.controller.ProductFieldsResponseAdvice;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
 import lombok.NonNull;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -8,6 +11,14 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig {
+    // Every ViewAllProductsResponse written through a filter: all fields unless a listing asks for a fieldset
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer productFieldsFilter() {
+        return builder -> builder
+                .mixIn(ViewAllProductsResponse.class, ProductFieldsResponseAdvice.FilteredFields.class)
+                .filters(ProductFieldsResponseAdvice.ALL_FIELDS);
+    }
+
     @Bean
     public WebMvcConfigurer webMvcConfigurer() {
         return new WebMvcConfigurer() {
@@ -0,0 +1,45 @@
+package com.shongon.catalog.controller;
+
+import com.shongon.catalog.dto.response.ApiResponse;
+import com.shongon.catalog.dto.response.ImportStatusResponse;
+import com.shongon.catalog.service.impl.ProductImporter;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin/products")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AdminController {
+    ProductImporter productImporter;
+
+    // Imports a JSON array file of app.import.directory in the background; ?resume=true continues from its checkpoint
+    @PostMapping("/import")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ApiResponse<ImportStatusResponse> startImport(
+            @RequestParam String file,
+            @RequestParam(defaultValue = "false") boolean resume
+    ) {
+        log.info("Import requested: file={}, resume={}", file, resume);
+        return ApiResponse.<ImportStatusResponse>builder()
+                .code(202)
+                .message("Accepted")
+                .result(productImporter.start(file, resume))
+                .build();
+    }
+
+    // Progress of the running import, or the outcome of the last one (null result: none yet)
+    @GetMapping("/import")
+    public ApiResponse<ImportStatusResponse> importStatus() {
+        return ApiResponse.<ImportStatusResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productImporter.status())
+                .build();
+    }
+}
@@ -2,26 +2,53 @@ package com.shongon.catalog.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.shongon.catalog.dto.cache.CacheablePage;
+import com.shongon.catalog.dto.cache.CacheableSlice;
 import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.request.RepriceRequest;
+import com.shongon.catalog.dto.request.UpdatePriceRequest;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
 import com.shongon.catalog.dto.response.*;
+import com.shongon.catalog.enums.ExportFormat;
+import com.shongon.catalog.enums.ProductView;
+import com.shongon.catalog.enums.SearchSortField;
 import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.IProductBulkService;
+import com.shongon.catalog.service.IProductExportService;
 import com.shongon.catalog.service.IProductService;
+import com.shongon.catalog.service.IRelatedProductService;
 import com.shongon.catalog.service.ISearchService;
 import com.shongon.catalog.service.ISortFilterService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Slf4j
 @RestController
@@ -29,50 +56,105 @@ import java.time.Duration;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ProductController {
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10); // 10 minutes TTL
+
     IProductService productService;
     ISortFilterService sortFilterService;
     ICacheService cacheService;
     ISearchService searchService;
+    IRelatedProductService relatedProductService;
+    IProductBulkService productBulkService;
+    IProductExportService productExportService;
+
+    // Async timeout of GET /products/export alone: a dump outlives spring.mvc.async.request-timeout
+    @NonFinal
+    @Value("${app.export.timeout}")
+    Duration exportTimeout;
 
     // CRUD operations
+    // Sparse fieldsets on every listing: ?fields=name,price or ?view=SUMMARY -> projected in MongoDB, own cache keys
     @GetMapping
-    public ApiResponse<Page<ViewAllProductsResponse>> getAllProducts(Pageable pageable) {
+    public ApiResponse<Page<ViewAllProductsResponse>> getAllProducts(
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
+            Pageable pageable
+    ) {
+        ProductFields selected = ProductFields.of(fields, view);
+
         // Generate cache key
         String cacheKey = cacheService.generateCacheKey(
-                "all",
+                withFields("all", selected),
                 "page", pageable.getPageNumber(),
                 "size", pageable.getPageSize()
         );
 
-        // Try to get from cache
-        CacheablePage<ViewAllProductsResponse> cachedResult = cacheService.getFromCache(
-                cacheKey,
-                new TypeReference<>() {
-                }
+        return getOrLoadPage(cacheKey, pageable, () -> productService.viewAllProducts(pageable, selected));
+    }
+
+    // Infinite scroll (?slice=true): content + hasNext only, no count query, cached apart from full pages
+    @GetMapping(params = "slice=true")
+    public ApiResponse<Slice<ViewAllProductsResponse>> getAllProductsSlice(
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
+            Pageable pageable
+    ) {
+        ProductFields selected = ProductFields.of(fields, view);
+
+        String cacheKey = cacheService.generateCacheKey(
+                withFields("all:slice", selected),
+                "page", pageable.getPageNumber(),
+                "size", pageable.getPageSize()
         );
 
-        if (cachedResult != null) {
-            log.info("Cache HIT - Returning cached result for getAllProducts");
-            return ApiResponse.<Page<ViewAllProductsResponse>>builder()
-                    .code(200)
-                    .message("Success (Cached)")
-                    .result(cachedResult.toPage(pageable))
-                    .build();
-        }
+        return getOrLoadSlice(cacheKey, pageable, () -> productService.viewAllProductsSlice(pageable, selected));
+    }
 
-        // Cache MISS - Get from database
-        log.info("Cache MISS - Fetching from database");
-        Page<ViewAllProductsResponse> response = productService.viewAllProducts(pageable);
+    // Keyset pagination (?cursor= for the first page, then nextCursor) -> constant cost at any depth
+    @GetMapping(params = "cursor")
+    public ApiResponse<CursorPage<ViewAllProductsResponse>> getAllProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view
+    ) {
+        return cursorResponse(sortFilterService.filterAndSortProductsByCursor(
+                ProductFilter.NONE, ProductSort.UNSORTED, cursor, size, ProductFields.of(fields, view)));
+    }
 
-        // Save to cache (convert to CacheablePage first)
-        CacheablePage<ViewAllProductsResponse> cacheableResult = CacheablePage.from(response);
-        cacheService.saveToCache(cacheKey, cacheableResult, Duration.ofMinutes(10));
+    // slice=true and cursor together would match both mappings (ambiguous handler): more specific -> picked, 400
+    @GetMapping(value = {"", "/filter", "/sort"}, params = {"slice=true", "cursor"})
+    public ApiResponse<Void> rejectSliceWithCursor() {
+        throw new ProductCatalogException(ErrorCode.PAGINATION_CONFLICT);
+    }
 
-        return ApiResponse.<Page<ViewAllProductsResponse>>builder()
-                .code(200)
-                .message("Success")
-                .result(response)
-                .build();
+    // Catalog dumps: ?format=ndjson|csv + the /filter parameters, streamed from one cursor (no pages, no counts);
+    // gzip when the client accepts it (Accept-Encoding: gzip, not gzip;q=0). Not cached
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            AsyncWebRequest asyncRequest
+    ) {
+        // Validated before the body starts: once it streams, the status can no longer change
+        ExportFormat exportFormat = ExportFormat.of(format);
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        // The body is written asynchronously, under this request's timeout instead of the global one
+        asyncRequest.setTimeout(exportTimeout.toMillis());
+        log.info("export: {}, filter: {}, gzip: {}", exportFormat, filter.cacheKey(), gzip);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + exportFormat.getExtension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> productExportService.exportProducts(filter, exportFormat, gzip, out));
     }
 
     @GetMapping("/{productId}")
@@ -84,6 +166,16 @@ public class ProductController {
                 .build();
     }
 
+    @GetMapping("/{productId}/related")
+    public ApiResponse<List<ViewAllProductsResponse>> getRelatedProducts(@PathVariable String productId) {
+        return ApiResponse.<List<ViewAllProductsResponse>>builder()
+                .code(200)
+                .message("Success")
+                .result(relatedProductService.getRelatedProducts(productId))
+                .build();
+    }
+
+    // Single-product writes publish a product event: cache eviction runs on the event bus, after the response
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public ApiResponse<CreateProductResponse> createProduct(
@@ -91,8 +183,6 @@ public class ProductController {
     ) {
         CreateProductResponse response = productService.createProduct(request);
 
-        invalidateProductCache();
-
         return ApiResponse.<CreateProductResponse>builder()
                 .code(201)
                 .message("Success")
@@ -100,6 +190,42 @@ public class ProductController {
                 .build();
     }
 
+    // Catalog sync: JSON array of CreateProductRequest, streamed -> one result per element, cache evicted per batch
+    @PostMapping("/bulk")
+    public ApiResponse<BulkWriteResponse> createProducts(InputStream body) {
+        return ApiResponse.<BulkWriteResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productBulkService.createProducts(body))
+                .build();
+    }
+
+    // Price syncs: JSON array of PatchProductRequest (id + fields to change), streamed like /bulk creates
+    @PatchMapping("/bulk")
+    public ApiResponse<BulkWriteResponse> updateProducts(InputStream body) {
+        return ApiResponse.<BulkWriteResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productBulkService.updateProducts(body))
+                .build();
+    }
+
+    // Category-wide repricing, ?category=CLOTHING&minPrice=&maxPrice= + {"percent": -10} or {"amount": 5}:
+    // computed inside MongoDB by one updateMany, only the affected cache scopes evicted
+    @PatchMapping("/bulk/price")
+    public ApiResponse<RepriceResponse> repriceProducts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestBody @Valid RepriceRequest request
+    ) {
+        return ApiResponse.<RepriceResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productBulkService.repriceProducts(ProductFilter.of(category, minPrice, maxPrice), request))
+                .build();
+    }
+
     @PutMapping("/{productId}")
     public ApiResponse<UpdateProductResponse> updateProduct(
             @PathVariable String productId,
@@ -107,8 +233,6 @@ public class ProductController {
     ) {
         UpdateProductResponse response = productService.updateProduct(productId, request);
 
-        invalidateProductCache();
-
         return ApiResponse.<UpdateProductResponse>builder()
                 .code(200)
                 .message("Success")
@@ -116,79 +240,169 @@ public class ProductController {
                 .build();
     }
 
+    // Repricing: with app.write-behind.enabled, coalesced per product and written + evicted once per flush
+    @PutMapping("/{productId}/price")
+    public ResponseEntity<ApiResponse<UpdateProductResponse>> updatePrice(
+            @PathVariable String productId,
+            @RequestBody @Valid UpdatePriceRequest request
+    ) {
+        // Written (write-behind disabled, or durability FLUSHED) -> 200; only buffered (ACCEPTED) -> 202
+        return productService.updatePrice(productId, request.getPrice())
+                .map(response -> ResponseEntity.ok(ApiResponse.<UpdateProductResponse>builder()
+                        .code(200)
+                        .message("Success")
+                        .result(response)
+                        .build()))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.<UpdateProductResponse>builder()
+                        .code(202)
+                        .message("Accepted")
+                        .result(UpdateProductResponse.builder()
+                                .message("Price update buffered")
+                                .build())
+                        .build()));
+    }
+
     @DeleteMapping("/{productId}")
     public ApiResponse<Void> deleteProduct(@PathVariable String productId) {
         productService.deleteProduct(productId);
 
-        invalidateProductCache();
-
         return ApiResponse.<Void>builder()
                 .code(200)
                 .message("Success")
                 .build();
     }
 
-    // Filter and Sort operations (MongoDB)
+    // Clean-ups: JSON array of ids, streamed -> one result per id
+    @DeleteMapping("/bulk")
+    public ApiResponse<BulkWriteResponse> deleteProducts(InputStream body) {
+        return ApiResponse.<BulkWriteResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productBulkService.deleteProducts(body))
+                .build();
+    }
+
+    // ?category=FOOD: every product of the category, deleted batch by batch -> counts
+    @DeleteMapping(value = "/bulk", params = "category")
+    public ApiResponse<CategoryDeleteResponse> deleteProductsByCategory(@RequestParam String category) {
+        return ApiResponse.<CategoryDeleteResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(productBulkService.deleteProductsByCategory(category))
+                .build();
+    }
+
+    // Filter and Sort operations (MongoDB): ?category=BOOKS,HOME&minPrice=10&maxPrice=50 on every variant below
     @GetMapping("/filter")
     public ApiResponse<Page<ViewAllProductsResponse>> filterProductsByCategory(
             @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
             Pageable pageable
     ) {
-        // Only cache if filtering by category (no sort parameters)
-        if (category != null && !category.isBlank()) {
+        ProductFields selected = ProductFields.of(fields, view);
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice); // category=BOOKS,HOME -> $in
+
+        // Facets: page + category/price-bucket counts from 1 aggregation, cached together
+        if (facets) {
             String cacheKey = cacheService.generateCacheKey(
-                    "filter", category,
+                    withFields("filter:facets", selected), filter.cacheKey(),
                     "page", pageable.getPageNumber(),
                     "size", pageable.getPageSize()
             );
 
-            // Try to get from cache
-            CacheablePage<ViewAllProductsResponse> cachedResult = cacheService.getFromCache(
-                    cacheKey,
-                    new TypeReference<>() {
-                    }
+            return getOrLoadPage(cacheKey, pageable,
+                    () -> sortFilterService.filterAndSortProductsWithFacets(filter, ProductSort.UNSORTED, pageable, selected));
+        }
+
+        // Only cache if filtering (no sort parameters)
+        if (!filter.isEmpty()) {
+            String cacheKey = cacheService.generateCacheKey(
+                    withFields("filter", selected), filter.cacheKey(),
+                    "page", pageable.getPageNumber(),
+                    "size", pageable.getPageSize()
             );
 
-            if (cachedResult != null) {
-                log.info("Cache HIT - Returning cached result for category filter: {}", category);
-                return ApiResponse.<Page<ViewAllProductsResponse>>builder()
-                        .code(200)
-                        .message("Success (Cached)")
-                        .result(cachedResult.toPage(pageable))
-                        .build();
-            }
+            return getOrLoadPage(cacheKey, pageable,
+                    () -> sortFilterService.filterAndSortProducts(filter, ProductSort.UNSORTED, pageable, selected));
+        }
+        // If no filter, just return normal viewAll (which has its own cache)
+        return getAllProducts(fields, view, pageable);
+    }
 
-            // Cache MISS - Get from database
-            log.info("Cache MISS - Fetching filtered data from database for category: {}", category);
-            Page<ViewAllProductsResponse> result = sortFilterService.filterAndSortProducts(
-                    category, null, null, pageable
-            );
+    @GetMapping(value = "/filter", params = "slice=true")
+    public ApiResponse<Slice<ViewAllProductsResponse>> filterProductsByCategorySlice(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
+            Pageable pageable
+    ) {
+        ProductFields selected = ProductFields.of(fields, view);
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice);
 
-            // Save to cache (convert to CacheablePage first)
-            CacheablePage<ViewAllProductsResponse> cacheableResult = CacheablePage.from(result);
-            cacheService.saveToCache(cacheKey, cacheableResult, Duration.ofMinutes(10));
+        if (!filter.isEmpty()) {
+            String cacheKey = cacheService.generateCacheKey(
+                    withFields("filter:slice", selected), filter.cacheKey(),
+                    "page", pageable.getPageNumber(),
+                    "size", pageable.getPageSize()
+            );
 
-            return ApiResponse.<Page<ViewAllProductsResponse>>builder()
-                    .code(200)
-                    .message("Success")
-                    .result(result)
-                    .build();
+            return getOrLoadSlice(cacheKey, pageable,
+                    () -> sortFilterService.filterAndSortProductsSlice(filter, ProductSort.UNSORTED, pageable, selected));
         }
-        // If no category filter, just return normal viewAll (which has its own cache)
-        return getAllProducts(pageable);
+        return getAllProductsSlice(fields, view, pageable);
+    }
+
+    @GetMapping(value = "/filter", params = "cursor")
+    public ApiResponse<CursorPage<ViewAllProductsResponse>> filterProductsByCategoryByCursor(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view
+    ) {
+        return cursorResponse(sortFilterService.filterAndSortProductsByCursor(
+                ProductFilter.of(category, minPrice, maxPrice), ProductSort.UNSORTED, cursor, size, ProductFields.of(fields, view)));
     }
 
     @GetMapping("/sort")
     public ApiResponse<Page<ViewAllProductsResponse>> filterAndSortProduct(
             @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
             @RequestParam(defaultValue = "") SortField field,
             @RequestParam(defaultValue = "") Sort.Direction direction,
+            @RequestParam(required = false) String orderBy,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
             Pageable pageable
     ) {
-        log.info("category: {}, field: {}, direction: {}", category, field, direction);
+        ProductFields selected = ProductFields.of(fields, view);
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice);
+        ProductSort sort = ProductSort.of(field, direction, orderBy); // orderBy=PRICE:ASC,NAME:ASC wins over field
+        log.info("filter: {}, sort: {}, facets: {}", filter.cacheKey(), sort.cacheKey(), facets);
+
+        if (facets) {
+            String cacheKey = cacheService.generateCacheKey(
+                    withFields("sort:facets", selected), filter.cacheKey(), sort.cacheKey(),
+                    "page", pageable.getPageNumber(),
+                    "size", pageable.getPageSize()
+            );
+
+            return getOrLoadPage(cacheKey, pageable,
+                    () -> sortFilterService.filterAndSortProductsWithFacets(filter, sort, pageable, selected));
+        }
 
         Page<ViewAllProductsResponse> result = sortFilterService.filterAndSortProducts(
-                category, field, direction, pageable
+                filter, sort, pageable, selected
         );
 
         return ApiResponse.<Page<ViewAllProductsResponse>>builder()
@@ -198,15 +412,73 @@ public class ProductController {
                 .build();
     }
 
+    @GetMapping(value = "/sort", params = "slice=true")
+    public ApiResponse<Slice<ViewAllProductsResponse>> filterAndSortProductSlice(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "") SortField field,
+            @RequestParam(defaultValue = "") Sort.Direction direction,
+            @RequestParam(required = false) String orderBy,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view,
+            Pageable pageable
+    ) {
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice);
+        ProductSort sort = ProductSort.of(field, direction, orderBy);
+        log.info("filter: {}, sort: {}, slice", filter.cacheKey(), sort.cacheKey());
+
+        return sliceResponse(sortFilterService.filterAndSortProductsSlice(
+                filter, sort, pageable, ProductFields.of(fields, view)));
+    }
+
+    @GetMapping(value = "/sort", params = "cursor")
+    public ApiResponse<CursorPage<ViewAllProductsResponse>> filterAndSortProductByCursor(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "") SortField field,
+            @RequestParam(defaultValue = "") Sort.Direction direction,
+            @RequestParam(required = false) String orderBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view
+    ) {
+        ProductFilter filter = ProductFilter.of(category, minPrice, maxPrice);
+        ProductSort sort = ProductSort.of(field, direction, orderBy);
+        log.info("filter: {}, sort: {}, cursor: {}", filter.cacheKey(), sort.cacheKey(), cursor);
+
+        return cursorResponse(sortFilterService.filterAndSortProductsByCursor(
+                filter, sort, cursor, size, ProductFields.of(fields, view)));
+    }
+
     @GetMapping("/search")
     public ApiResponse<Page<ViewAllProductsResponse>> searchProduct(
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "") SearchSortField field,
+            @RequestParam(defaultValue = "") Sort.Direction direction,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view
     ) {
-        log.info("keyword: {}", keyword);
+        log.info("keyword: {}, field: {}, direction: {}, facets: {}", keyword, field, direction, facets);
+        ProductFields selected = ProductFields.of(fields, view);
 
-        Page<ViewAllProductsResponse> result = searchService.searchProducts(keyword, page, size, null, null);
+        if (facets) {
+            String cacheKey = cacheService.generateCacheKey(
+                    withFields("search:facets", selected), keyword, field, direction,
+                    "page", page,
+                    "size", size
+            );
+
+            return getOrLoadPage(cacheKey, PageRequest.of(page, size),
+                    () -> searchService.searchProductsWithFacets(keyword, page, size, field, direction, selected));
+        }
+
+        Page<ViewAllProductsResponse> result = searchService.searchProducts(keyword, page, size, field, direction, selected);
 
         return ApiResponse.<Page<ViewAllProductsResponse>>builder()
                 .code(200)
@@ -215,11 +487,147 @@ public class ProductController {
                 .build();
     }
 
+    @GetMapping(value = "/search", params = "slice=true")
+    public ApiResponse<Slice<ViewAllProductsResponse>> searchProductSlice(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "") SearchSortField field,
+            @RequestParam(defaultValue = "") Sort.Direction direction,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) ProductView view
+    ) {
+        log.info("keyword: {}, field: {}, direction: {}, slice", keyword, field, direction);
+
+        return sliceResponse(searchService.searchProductsSlice(
+                keyword, page, size, field, direction, ProductFields.of(fields, view)));
+    }
+
+    @GetMapping("/search/stats")
+    public ApiResponse<SearchCacheStatsResponse> searchCacheStats() {
+        return ApiResponse.<SearchCacheStatsResponse>builder()
+                .code(200)
+                .message("Success")
+                .result(searchService.getCandidateCacheStats())
+                .build();
+    }
+
 
     // HELPER PRIVATE METHOD
-    private void invalidateProductCache() {
-        String cachePattern = cacheService.generateCacheKey("*");
-        cacheService.evictCacheByPattern(cachePattern);
-        log.info("All product cache invalidated due to data modification");
+    private ApiResponse<Page<ViewAllProductsResponse>> getOrLoadPage(
+            String cacheKey,
+            Pageable pageable,
+            Supplier<Page<ViewAllProductsResponse>> loader
+    ) {
+        // Try to get from cache
+        CacheablePage<ViewAllProductsResponse> cachedResult = cacheService.getFromCache(
+                cacheKey,
+                new TypeReference<>() {
+                }
+        );
+
+        if (cachedResult != null) {
+            log.info("Cache HIT - Returning cached result for key: {}", cacheKey);
+            return ApiResponse.<Page<ViewAllProductsResponse>>builder()
+                    .code(200)
+                    .message("Success (Cached)")
+                    .result(cachedResult.toPage(pageable))
+                    .build();
+        }
+
+        // Cache MISS - Get from database
+        log.info("Cache MISS - Fetching from database for key: {}", cacheKey);
+        Page<ViewAllProductsResponse> result = loader.get();
+
+        // Save to cache (convert to CacheablePage first, facets included)
+        CacheablePage<ViewAllProductsResponse> cacheableResult = CacheablePage.from(result);
+        cacheService.saveToCache(cacheKey, cacheableResult, CACHE_TTL);
+
+        return ApiResponse.<Page<ViewAllProductsResponse>>builder()
+                .code(200)
+                .message("Success")
+                .result(result)
+                .build();
+    }
+
+    private ApiResponse<Slice<ViewAllProductsResponse>> getOrLoadSlice(
+            String cacheKey,
+            Pageable pageable,
+            Supplier<Slice<ViewAllProductsResponse>> loader
+    ) {
+        // Own key space ("...:slice") -> a cached Slice is never read back as a Page, nor the other way round
+        CacheableSlice<ViewAllProductsResponse> cachedResult = cacheService.getFromCache(
+                cacheKey,
+                new TypeReference<>() {
+                }
+        );
+
+        if (cachedResult != null) {
+            log.info("Cache HIT - Returning cached slice for key: {}", cacheKey);
+            return ApiResponse.<Slice<ViewAllProductsResponse>>builder()
+                    .code(200)
+                    .message("Success (Cached)")
+                    .result(cachedResult.toSlice(pageable))
+                    .build();
+        }
+
+        log.info("Cache MISS - Fetching slice from database for key: {}", cacheKey);
+        Slice<ViewAllProductsResponse> result = loader.get();
+        cacheService.saveToCache(cacheKey, CacheableSlice.from(result), CACHE_TTL);
+
+        return sliceResponse(result);
+    }
+
+    private ApiResponse<Slice<ViewAllProductsResponse>> sliceResponse(Slice<ViewAllProductsResponse> result) {
+        return ApiResponse.<Slice<ViewAllProductsResponse>>builder()
+                .code(200)
+                .message("Success")
+                .result(result)
+                .build();
+    }
+
+    private ApiResponse<CursorPage<ViewAllProductsResponse>> cursorResponse(CursorPage<ViewAllProductsResponse> result) {
+        // Not cached: cursors are unbounded keys, and each seek is already a short index range scan
+        return ApiResponse.<CursorPage<ViewAllProductsResponse>>builder()
+                .code(200)
+                .message("Success")
+                .result(result)
+                .build();
+    }
+
+    // Full documents keep the historical keys; other fieldsets get their own entries
+    private static String withFields(String prefix, ProductFields fields) {
+        return fields.isAll() ? prefix : prefix + ":" + fields.cacheKey();
+    }
+
+    // Accept-Encoding codings with their q-values: gzip (or *, when gzip is not listed) with q > 0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0; // malformed -> not accepted
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
     }
 }
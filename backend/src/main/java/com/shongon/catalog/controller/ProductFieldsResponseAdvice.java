@@ -0,0 +1,66 @@
+package com.shongon.catalog.controller;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.enums.ProductView;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.NonNull;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Arrays;
+
+/*
+    Sparse fieldsets on the wire: ViewAllProductsResponse gets a property filter through FilteredFields (a mixin,
+    registered in WebConfig) that writes every field, null ones included. The listings taking ?fields= / ?view=
+    replace it for their own response with one writing the requested fields only.
+ */
+@RestControllerAdvice(assignableTypes = ProductController.class)
+public class ProductFieldsResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+    public static final String FILTER = "productFields";
+    public static final FilterProvider ALL_FIELDS = new SimpleFilterProvider()
+            .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+
+    @JsonFilter(FILTER)
+    public interface FilteredFields {
+    }
+
+    // Listings only: every handler taking a fieldset takes a ProductView (and its params are validated by now)
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return super.supports(returnType, converterType)
+                && Arrays.asList(returnType.getExecutable().getParameterTypes()).contains(ProductView.class);
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(@NonNull MappingJacksonValue bodyContainer, @NonNull MediaType contentType,
+                                           @NonNull MethodParameter returnType, @NonNull ServerHttpRequest request,
+                                           @NonNull ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        ProductFields fields = fieldsOf(servletRequest.getServletRequest());
+        if (!fields.isAll()) {
+            bodyContainer.setFilters(new SimpleFilterProvider()
+                    .addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields.getNames())));
+        }
+    }
+
+    // HELPER PRIVATE METHODS
+    private static ProductFields fieldsOf(HttpServletRequest request) {
+        String view = request.getParameter("view");
+        return ProductFields.of(request.getParameter("fields"),
+                view == null || view.isBlank() ? null : ProductView.valueOf(view.trim()));
+    }
+}
@@ -1,5 +1,7 @@
 package com.shongon.catalog.dto.cache;
 
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.ProductFacets;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
@@ -22,6 +24,7 @@ public class CacheablePage<T> {
     boolean first;
     boolean last;
     boolean empty;
+    ProductFacets facets; // only set when the page was requested with facets
 
     // Convert from Spring Page to CacheablePage for Redis storage
     public static <T> CacheablePage<T> from(Page<T> page) {
@@ -34,12 +37,16 @@ public class CacheablePage<T> {
                 .first(page.isFirst())
                 .last(page.isLast())
                 .empty(page.isEmpty())
+                .facets(page instanceof FacetedPage<T> faceted ? faceted.getFacets() : null)
                 .build();
     }
 
 
      // Convert back to Spring Page for API response
     public Page<T> toPage(Pageable pageable) {
+        if (facets != null) {
+            return new FacetedPage<>(content, pageable, totalElements, facets);
+        }
         return new PageImpl<>(content, pageable, totalElements);
     }
 }
@@ -0,0 +1,35 @@
+package com.shongon.catalog.dto.cache;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+// Redis form of a Slice: like CacheablePage, but there is no total to keep
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CacheableSlice<T> {
+    List<T> content;
+    int number;
+    int size;
+    boolean hasNext;
+
+    public static <T> CacheableSlice<T> from(Slice<T> slice) {
+        return CacheableSlice.<T>builder()
+                .content(slice.getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .build();
+    }
+
+    public Slice<T> toSlice(Pageable pageable) {
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+}
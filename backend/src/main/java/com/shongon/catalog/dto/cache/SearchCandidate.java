@@ -0,0 +1,17 @@
+package com.shongon.catalog.dto.cache;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.bson.types.ObjectId;
+
+// Minimal slice of a product kept per search keyword: enough to refine and sort a search in memory
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SearchCandidate {
+    ObjectId id;
+    String name;
+    Double price;
+}
@@ -0,0 +1,57 @@
+package com.shongon.catalog.dto.request;
+
+import com.shongon.catalog.model.Product;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.query.Update;
+
+// One element of PATCH /products/bulk: absent (null) fields are left unchanged, present ones follow UpdateProductRequest
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatchProductRequest {
+    @NotBlank(message = "Product id cannot be blank")
+    private String id;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "Product name cannot be blank")
+    @Size(min = 2, max = 100, message = "Product name must be between 2 and 100 characters")
+    private String name;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "Product description cannot be blank")
+    @Size(max = 500, message = "Description cannot exceed 500 characters")
+    private String description;
+
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    @DecimalMax(value = "999999.99", message = "Price cannot exceed $999,999.99")
+    private Double price;
+
+    @Pattern(regexp = "^(ELECTRONICS|CLOTHING|FOOD|BOOKS|HOME|PREMIUM)$",
+            message = "Category must be one of: ELECTRONICS, CLOTHING, FOOD, BOOKS, HOME, PREMIUM")
+    private String category;
+
+    public boolean hasChanges() {
+        return name != null || description != null || price != null || category != null;
+    }
+
+    // { $set: only the present fields }
+    public Update toUpdate() {
+        Update update = new Update();
+        if (name != null) update.set("name", name);
+        if (description != null) update.set("description", description);
+        if (price != null) update.set("price", price);
+        if (category != null) update.set("category", category);
+        return update;
+    }
+
+    // Same patch on a document already in memory
+    public void applyTo(Product product) {
+        if (name != null) product.setName(name);
+        if (description != null) product.setDescription(description);
+        if (price != null) product.setPrice(price);
+        if (category != null) product.setCategory(category);
+    }
+}
@@ -0,0 +1,77 @@
+package com.shongon.catalog.dto.request;
+
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.ProductView;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.*;
+
+/*
+    Sparse fieldset of the product listings (?fields=name,price or ?view=SUMMARY):
+    pushed down to MongoDB as a projection (ProductProjection), and only these fields are serialized
+    (ProductFieldsResponseAdvice). "id" is always part of it -> clients can still link to the product.
+ */
+@ToString
+@EqualsAndHashCode
+public final class ProductFields {
+    // Response fields, in response order
+    private static final List<String> FIELDS = List.of("id", "name", "description", "price", "category");
+
+    public static final ProductFields ALL = new ProductFields(FIELDS);
+    public static final ProductFields SUMMARY = new ProductFields(List.of("id", "name", "price", "category"));
+
+    private final Set<String> names;
+
+    private ProductFields(Collection<String> names) {
+        Set<String> ordered = new LinkedHashSet<>();
+        FIELDS.stream().filter(names::contains).forEach(ordered::add);
+        this.names = Collections.unmodifiableSet(ordered);
+    }
+
+    // "fields" wins over "view"; neither -> every field
+    public static ProductFields of(String fields, ProductView view) {
+        if (fields == null || fields.isBlank()) {
+            return view == ProductView.SUMMARY ? SUMMARY : ALL;
+        }
+        Set<String> names = new HashSet<>(Set.of("id"));
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!FIELDS.contains(name)) {
+                throw new ProductCatalogException(ErrorCode.INVALID_FIELDS);
+            }
+            names.add(name);
+        }
+        return new ProductFields(names);
+    }
+
+    public boolean isAll() {
+        return names.size() == FIELDS.size();
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    // Drop what was only fetched for the caller (sort keys) -> neither cached nor sent
+    public ViewAllProductsResponse trim(ViewAllProductsResponse response) {
+        if (isAll()) {
+            return response;
+        }
+        if (!names.contains("name")) response.setName(null);
+        if (!names.contains("description")) response.setDescription(null);
+        if (!names.contains("price")) response.setPrice(null);
+        if (!names.contains("category")) response.setCategory(null);
+        return response;
+    }
+
+    // Part of the cache key: different fieldsets never share an entry
+    public String cacheKey() {
+        if (isAll()) {
+            return "all";
+        }
+        return equals(SUMMARY) ? "summary" : String.join(",", names);
+    }
+}
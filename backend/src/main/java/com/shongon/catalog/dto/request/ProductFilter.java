@@ -0,0 +1,114 @@
+package com.shongon.catalog.dto.request;
+
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+import java.util.TreeSet;
+
+/*
+    Typed filter of the product listings (?category=BOOKS,HOME&minPrice=10&maxPrice=50):
+    equality on category ($in for several), then a range on price -> the order of the compound indexes
+    declared in ProductIndexManager (equality, sort, range), so the filter never leaves the index.
+ */
+@ToString
+@EqualsAndHashCode
+public final class ProductFilter {
+    public static final ProductFilter NONE = new ProductFilter(List.of(), null, null);
+
+    private final List<String> categories; // distinct and sorted -> ?category=HOME,BOOKS == ?category=BOOKS,HOME
+    private final Double minPrice;
+    private final Double maxPrice;
+
+    private ProductFilter(List<String> categories, Double minPrice, Double maxPrice) {
+        this.categories = categories;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * @param category One category or a comma-separated list; null or blank for every category
+     * @param minPrice Inclusive lower bound on price; null for none
+     * @param maxPrice Inclusive upper bound on price; null for none
+     */
+    public static ProductFilter of(String category, Double minPrice, Double maxPrice) {
+        if ((minPrice != null && minPrice < 0) || (maxPrice != null && maxPrice < 0)
+                || (minPrice != null && maxPrice != null && minPrice > maxPrice)) {
+            throw new ProductCatalogException(ErrorCode.INVALID_FILTER);
+        }
+
+        TreeSet<String> categories = new TreeSet<>();
+        if (category != null) {
+            for (String value : category.split(",")) {
+                if (!value.isBlank()) {
+                    categories.add(value.trim());
+                }
+            }
+        }
+        if (categories.isEmpty() && minPrice == null && maxPrice == null) {
+            return NONE;
+        }
+        return new ProductFilter(List.copyOf(categories), minPrice, maxPrice);
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty() && !hasPriceRange();
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    /*
+        { category: "BOOKS" } | { category: { $in: ["BOOKS", "HOME"] } }
+        + { price: { $gte: minPrice, $lte: maxPrice } }, each part only when requested
+     */
+    public Criteria toCriteria() {
+        Criteria criteria = new Criteria();
+        if (categories.size() == 1) {
+            criteria = Criteria.where("category").is(categories.get(0));
+        } else if (categories.size() > 1) {
+            criteria = Criteria.where("category").in(categories);
+        }
+
+        if (hasPriceRange()) {
+            Criteria price = categories.isEmpty() ? Criteria.where("price") : criteria.and("price");
+            if (minPrice != null) {
+                price.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                price.lte(maxPrice);
+            }
+            criteria = price; // same criteria chain -> still renders the category part
+        }
+        return criteria;
+    }
+
+    // Category-only filters keep the historical key (the category itself): "BOOKS", "BOOKS,HOME", "BOOKS:price=10.0-50.0"
+    public String cacheKey() {
+        if (isEmpty()) {
+            return "none";
+        }
+        String key = String.join(",", categories);
+        if (hasPriceRange()) {
+            key += (key.isEmpty() ? "" : ":") + "price=" + (minPrice != null ? minPrice : "") + "-"
+                    + (maxPrice != null ? maxPrice : "");
+        }
+        return key;
+    }
+}
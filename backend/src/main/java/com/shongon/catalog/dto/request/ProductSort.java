@@ -0,0 +1,104 @@
+package com.shongon.catalog.dto.request;
+
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+    Sort of the product listings: ?field=PRICE&direction=ASC, or several keys with ?orderBy=PRICE:ASC,NAME:DESC.
+    The MongoDB sort always ends with a unique key -> a total order, so pages never repeat or skip a product
+    and keyset cursors can seek after the last one:
+        PRICE:ASC            -> { price: 1, _id: 1 }   (_id follows the direction of the last key)
+        PRICE:ASC,NAME:DESC  -> { price: 1, name: -1 } (names are unique, nothing after them can break a tie)
+ */
+@ToString
+@EqualsAndHashCode
+public final class ProductSort {
+    public static final ProductSort UNSORTED = new ProductSort(List.of());
+
+    private final List<Sort.Order> orders; // requested keys, cut after "name"
+
+    private ProductSort(List<Sort.Order> orders) {
+        List<Sort.Order> kept = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            kept.add(order);
+            if (SortField.NAME.getFieldName().equals(order.getProperty())) {
+                break;
+            }
+        }
+        this.orders = List.copyOf(kept);
+    }
+
+    // Single key; either part missing -> unsorted (insertion order by _id)
+    public static ProductSort of(SortField field, Sort.Direction direction) {
+        return field == null || direction == null
+                ? UNSORTED
+                : new ProductSort(List.of(new Sort.Order(direction, field.getFieldName())));
+    }
+
+    // "orderBy" wins over "field"/"direction"; a key without direction is ascending
+    public static ProductSort of(SortField field, Sort.Direction direction, String orderBy) {
+        if (orderBy == null || orderBy.isBlank()) {
+            return of(field, direction);
+        }
+        List<Sort.Order> orders = new ArrayList<>();
+        Set<SortField> seen = EnumSet.noneOf(SortField.class);
+        for (String key : orderBy.split(",")) {
+            String[] parts = key.trim().split(":");
+            try {
+                SortField sortField = SortField.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                Sort.Direction sortDirection = parts.length > 1 ? Sort.Direction.fromString(parts[1].trim()) : Sort.Direction.ASC;
+                if (parts.length > 2 || !seen.add(sortField)) {
+                    throw new ProductCatalogException(ErrorCode.INVALID_SORT);
+                }
+                orders.add(new Sort.Order(sortDirection, sortField.getFieldName()));
+            } catch (IllegalArgumentException e) {
+                throw new ProductCatalogException(ErrorCode.INVALID_SORT); // unknown field or direction
+            }
+        }
+        return new ProductSort(orders);
+    }
+
+    public boolean isSorted() {
+        return !orders.isEmpty();
+    }
+
+    // Key identifying a product within the sort: "name" when sorted by it, "_id" otherwise
+    public String uniqueKey() {
+        boolean byName = orders.stream().anyMatch(order -> SortField.NAME.getFieldName().equals(order.getProperty()));
+        return byName ? SortField.NAME.getFieldName() : "_id";
+    }
+
+    // Sort sent to MongoDB, see the examples above
+    public Sort toSort() {
+        if (orders.isEmpty()) {
+            return Sort.by(Sort.Direction.ASC, "_id");
+        }
+        Sort sort = Sort.by(orders);
+        if (!"_id".equals(uniqueKey())) {
+            return sort;
+        }
+        return sort.and(Sort.by(orders.get(orders.size() - 1).getDirection(), "_id"));
+    }
+
+    // "PRICE:ASC" for a single key, as the former field:direction cache keys
+    public String cacheKey() {
+        if (orders.isEmpty()) {
+            return "unsorted";
+        }
+        List<String> keys = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            keys.add(order.getProperty().toUpperCase(Locale.ROOT) + ":" + order.getDirection());
+        }
+        return String.join(",", keys);
+    }
+}
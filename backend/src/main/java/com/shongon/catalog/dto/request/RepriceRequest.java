@@ -0,0 +1,31 @@
+package com.shongon.catalog.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// PATCH /products/bulk/price: exactly one of percent (-10 -> 10% off) or amount (+5.0), new prices kept within 0.01..999999.99
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RepriceRequest {
+    @DecimalMin(value = "-100", inclusive = false, message = "Percent must be greater than -100")
+    @DecimalMax(value = "1000", message = "Percent cannot exceed 1000")
+    private Double percent;
+
+    @DecimalMin(value = "-999999.99", message = "Amount cannot be below -999,999.99")
+    @DecimalMax(value = "999999.99", message = "Amount cannot exceed 999,999.99")
+    private Double amount;
+
+    @JsonIgnore
+    @AssertTrue(message = "Set exactly one of percent or amount")
+    public boolean isSingleAdjustment() {
+        return (percent == null) != (amount == null);
+    }
+}
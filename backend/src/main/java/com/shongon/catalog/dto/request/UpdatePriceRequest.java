@@ -0,0 +1,21 @@
+package com.shongon.catalog.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// PUT /products/{id}/price: repricing, same bounds as UpdateProductRequest.price
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UpdatePriceRequest {
+    @NotNull(message = "Product price cannot be null")
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    @DecimalMax(value = "999999.99", message = "Price cannot exceed $999,999.99")
+    private Double price;
+}
@@ -1,10 +1,12 @@
 package com.shongon.catalog.dto.request;
 
+import com.shongon.catalog.model.Product;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.query.Update;
 
 
 @Data
@@ -29,4 +31,23 @@ public class UpdateProductRequest {
     @Pattern(regexp = "^(ELECTRONICS|CLOTHING|FOOD|BOOKS|HOME|PREMIUM)$",
             message = "Category must be one of: ELECTRONICS, CLOTHING, FOOD, BOOKS, HOME, PREMIUM")
     private String category;
+
+    // { $set: the four editable fields } -> _id and any field outside the request are never rewritten
+    public Update toUpdate() {
+        return new Update()
+                .set("name", name)
+                .set("description", description)
+                .set("price", price)
+                .set("category", category);
+    }
+
+    // The same fields set on the product as it was -> the state after toUpdate(), without reading it back
+    public Product applyTo(Product before) {
+        return before.toBuilder()
+                .name(name)
+                .description(description)
+                .price(price)
+                .category(category)
+                .build();
+    }
 }
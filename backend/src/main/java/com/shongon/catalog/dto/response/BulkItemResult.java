@@ -0,0 +1,37 @@
+package com.shongon.catalog.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.shongon.catalog.exception.ErrorCode;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkItemResult {
+    int index;          // position in the request array
+    int code;           // HTTP-like status of this item: 201 / 200 on success, the ErrorCode code otherwise
+    String id;          // product written, null when the item failed before reaching MongoDB
+    List<String> errors;
+
+    public static BulkItemResult succeeded(int index, int code, String id) {
+        return new BulkItemResult(index, code, id, null);
+    }
+
+    public static BulkItemResult failed(int index, String id, ErrorCode errorCode, List<String> errors) {
+        return new BulkItemResult(index, errorCode.getCode(), id, errors);
+    }
+
+    public static BulkItemResult failed(int index, String id, ErrorCode errorCode) {
+        return failed(index, id, errorCode, List.of(errorCode.getMessage()));
+    }
+
+    @JsonIgnore
+    public boolean isSucceeded() {
+        return errors == null;
+    }
+}
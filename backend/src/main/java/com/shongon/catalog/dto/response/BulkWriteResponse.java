@@ -0,0 +1,23 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkWriteResponse {
+    int received;
+    int succeeded;
+    int failed;
+    List<BulkItemResult> items; // in request order
+
+    public static BulkWriteResponse of(List<BulkItemResult> items) {
+        int succeeded = (int) items.stream().filter(BulkItemResult::isSucceeded).count();
+        return new BulkWriteResponse(items.size(), succeeded, items.size() - succeeded, items);
+    }
+}
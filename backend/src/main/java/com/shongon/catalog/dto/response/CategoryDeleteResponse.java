@@ -0,0 +1,14 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CategoryDeleteResponse {
+    long matched; // products of the category found batch by batch
+    long deleted; // of which this request deleted (another writer deleted or moved the others in between)
+}
@@ -0,0 +1,21 @@
+package com.shongon.catalog.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+// One page of a keyset-paginated listing: no total, just the token of the next page
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    List<T> content;
+    int size;
+    boolean hasNext;
+    String nextCursor; // null on the last page
+}
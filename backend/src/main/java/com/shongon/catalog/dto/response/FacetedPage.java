@@ -0,0 +1,24 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Page that also carries facet counts -> serialized as an extra "facets" field next to the page
+@Getter
+public class FacetedPage<T> extends PageImpl<T> {
+    private final ProductFacets facets;
+
+    public FacetedPage(List<T> content, Pageable pageable, long total, ProductFacets facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+
+    @Override
+    public <U> FacetedPage<U> map(Function<? super T, ? extends U> converter) {
+        return new FacetedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), facets);
+    }
+}
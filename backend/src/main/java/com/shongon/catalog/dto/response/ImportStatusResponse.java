@@ -0,0 +1,31 @@
+package com.shongon.catalog.dto.response;
+
+import com.shongon.catalog.enums.ImportState;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImportStatusResponse {
+    ImportState state;
+    String file;
+    Instant startedAt;
+    long resumedFrom;        // element index the run started at (0 unless resumed from a checkpoint)
+    long elementsRead;       // elements written so far, this run
+    long created;
+    long failed;             // invalid or already existing (a batch replayed after a crash fails as duplicates)
+    long bytesRead;
+    long fileSize;
+    long elapsedMs;
+    double elementsPerSecond;
+    double megabytesPerSecond;
+    long maxHeapAfterBatchMb; // highest used heap sampled after each batch, not the peak in between
+    List<BulkItemResult> failures; // first failed elements only
+    String message;
+}
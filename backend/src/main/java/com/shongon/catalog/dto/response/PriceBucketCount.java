@@ -0,0 +1,15 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PriceBucketCount {
+    Double min; // inclusive
+    Double max; // exclusive
+    long count;
+}
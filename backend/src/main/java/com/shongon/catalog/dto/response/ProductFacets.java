@@ -0,0 +1,17 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductFacets {
+    Map<String, Long> categories; // category -> count, most frequent first
+    List<PriceBucketCount> priceBuckets;
+}
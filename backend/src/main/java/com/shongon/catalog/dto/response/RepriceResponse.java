@@ -0,0 +1,14 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RepriceResponse {
+    long matched;  // products of the filter
+    long modified; // of which the price actually changed (already at a bound, or no numeric price -> unchanged)
+}
@@ -0,0 +1,21 @@
+package com.shongon.catalog.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SearchCacheStatsResponse {
+    int entries;
+    int maxEntries;
+    long lookups;
+    long hits;         // exact keyword already cached
+    long refinements;  // keyword extends a cached prefix -> filtered in memory
+    long overflows;    // keyword known to match more than max-candidates -> paged in MongoDB, no candidate scan
+    long misses;       // went to MongoDB
+    double hitRate;
+    double refinementRate;
+}
@@ -0,0 +1,29 @@
+package com.shongon.catalog.enums;
+
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import lombok.Getter;
+
+@Getter
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"), // one JSON object per line
+    CSV("text/csv;charset=UTF-8", "csv");     // header line, then RFC 4180 rows
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    // ?format=ndjson | csv, case-insensitive
+    public static ExportFormat of(String format) {
+        for (ExportFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format.trim())) {
+                return value;
+            }
+        }
+        throw new ProductCatalogException(ErrorCode.INVALID_EXPORT_FORMAT);
+    }
+}
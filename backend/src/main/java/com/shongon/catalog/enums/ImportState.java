@@ -0,0 +1,8 @@
+package com.shongon.catalog.enums;
+
+// Lifecycle of a ProductImporter run
+public enum ImportState {
+    RUNNING,
+    COMPLETED, // end of the array reached, checkpoint removed
+    FAILED     // stopped (file unreadable, MongoDB down...): the checkpoint points after the last written batch
+}
@@ -0,0 +1,8 @@
+package com.shongon.catalog.enums;
+
+// How a skip/limit page gets its total (see SortFilterServiceImpl.filterAndSortProducts)
+public enum PageCountMode {
+    SEQUENTIAL, // find, then count -> 2 round trips back to back
+    CONCURRENT, // count on the query executor while the page is fetched -> latency of the slower one
+    FACET       // 1 aggregation: $facet { page, total } -> 1 round trip, but whole documents flow through $facet
+}
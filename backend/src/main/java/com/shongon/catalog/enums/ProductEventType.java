@@ -0,0 +1,6 @@
+package com.shongon.catalog.enums;
+
+// Stored type of an outbox entry -> which ProductEvent it is read back as
+public enum ProductEventType {
+    CREATED, UPDATED, DELETED
+}
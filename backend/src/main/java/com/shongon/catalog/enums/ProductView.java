@@ -0,0 +1,6 @@
+package com.shongon.catalog.enums;
+
+public enum ProductView {
+    FULL,    // every field, description included
+    SUMMARY  // grid cards: id, name, price, category
+}
@@ -0,0 +1,16 @@
+package com.shongon.catalog.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum SearchSortField {
+    RELEVANCE(null), // engine match order, no sort stage
+    NAME("name"),
+    PRICE("price");
+
+    private final String fieldName;
+
+    SearchSortField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+}
@@ -0,0 +1,6 @@
+package com.shongon.catalog.enums;
+
+public enum WriteDurability {
+    ACCEPTED, // answered once buffered: lost if the process dies before the next flush
+    FLUSHED   // answered once the flush holding it is written: coalesced, still one bulk write per flush
+}
@@ -0,0 +1,22 @@
+package com.shongon.catalog.event;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+// Transactions and change streams exist on replica sets and sharded clusters only, never on a standalone mongod
+final class MongoTopology {
+
+    private MongoTopology() {
+    }
+
+    // Checked once at startup: a standalone would otherwise fail every write (outbox) or every reconnect (stream)
+    static void requireReplicaSet(MongoTemplate mongoTemplate, String property) {
+        Document hello = mongoTemplate.executeCommand(new Document("hello", 1));
+        boolean replicaSet = hello.containsKey("setName");
+        boolean sharded = "isdbgrid".equals(hello.getString("msg"));
+        if (!replicaSet && !sharded) {
+            throw new IllegalStateException(property + " needs a replica set or a sharded cluster, "
+                    + "MongoDB runs standalone: turn it off or deploy a (single-node) replica set");
+        }
+    }
+}
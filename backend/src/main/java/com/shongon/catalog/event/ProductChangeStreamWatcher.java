@@ -0,0 +1,292 @@
+package com.shongon.catalog.event;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.shongon.catalog.model.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Change stream on "products" (app.change-stream, replica set only): every node sees every write, whoever made it
+    (this node, another one, scripts, bulk jobs), and hands it to the product event subscribers (in-memory indexes,
+    then cache eviction), in batches of up to batch-size. The resume token of the last delivered change is stored per
+    node in "change_stream_tokens": a restart resumes where it stopped (at least once, subscribers are idempotent).
+    In-memory read models then take writes from the stream alone (ProductEventSubscriber.followsChangeStream): the
+    bus, bulk writes and the write-behind flush leave them alone, so a delayed older state never lands on a newer one.
+    Changes go out when batch-size is reached, when the cursor is idle, and at least every max-await under steady
+    traffic (the cursor is then never idle), with the resume token saved each time.
+    A change written more than resync-lag ago (by its cluster time: a bulk job, downtime): the subscribers resync
+    once (indexes rebuilt, cache evicted) and the changes written before that are only read through.
+    Token unusable (oplog rolled over, collection dropped or renamed): resync, then watch from now.
+ */
+@Slf4j
+@Component
+public class ProductChangeStreamWatcher {
+    static final String TOKENS_COLLECTION = "change_stream_tokens";
+    private static final Set<Integer> NOT_RESUMABLE = Set.of(280, 286); // ChangeStreamFatalError, ChangeStreamHistoryLost
+    private static final Set<OperationType> STREAM_ENDING =
+            Set.of(OperationType.DROP, OperationType.RENAME, OperationType.DROP_DATABASE, OperationType.INVALIDATE);
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final List<ProductEventSubscriber> subscribers; // in @Order
+    private final boolean enabled;
+    private final String nodeId;
+    private final int batchSize;
+    private final Duration resyncLag;
+    private final Duration maxAwait;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+
+    public ProductChangeStreamWatcher(
+            MongoTemplate mongoTemplate,
+            List<ProductEventSubscriber> subscribers,
+            @Value("${app.change-stream.enabled:false}") boolean enabled,
+            @Value("${app.change-stream.node-id:catalog}") String nodeId,
+            @Value("${app.change-stream.batch-size:256}") int batchSize,
+            @Value("${app.change-stream.resync-lag:1m}") Duration resyncLag,
+            @Value("${app.change-stream.max-await:1s}") Duration maxAwait
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.subscribers = List.copyOf(subscribers);
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.batchSize = batchSize;
+        this.resyncLag = resyncLag;
+        this.maxAwait = maxAwait;
+        if (enabled) {
+            MongoTopology.requireReplicaSet(mongoTemplate, "app.change-stream.enabled");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    public void start() {
+        running = true;
+        executor.execute(this::run);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false; // the loop sees it within max-await
+        executor.shutdown();
+        if (!executor.awaitTermination(maxAwait.toMillis() + 5_000, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stored resume token of this node; null when it watches from now
+    public BsonDocument loadToken() {
+        BsonDocument stored = tokens().find(Filters.eq("_id", nodeId)).first();
+        return stored == null ? null : stored.getDocument("token", null);
+    }
+
+    // HELPER PRIVATE METHODS
+    private void run() {
+        long backoff = 1_000;
+        while (running) {
+            try {
+                if (watch(loadToken())) {
+                    backoff = 1_000;
+                    continue;
+                }
+                // A subscriber could neither take a batch nor resync: reopened from the saved token, the batch replayed
+                log.warn("Product change stream rewound to the last saved token, reopening in {} ms", backoff);
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                if (NOT_RESUMABLE.contains(e.getCode())) {
+                    // Changes since the token are gone from the oplog -> nothing can tell what they were
+                    log.warn("Product change stream cannot resume ({}), resyncing and watching from now", e.getMessage());
+                    tokens().deleteOne(Filters.eq("_id", nodeId));
+                    resync();
+                    continue;
+                }
+                log.error("Product change stream failed, reopening in {} ms", backoff, e);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    // false: a batch was not taken, the token stays before it -> reopen from the saved token
+    private boolean watch(BsonDocument token) {        MongoCollection<Document> products = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class));
+        ChangeStreamIterable<Document> stream = products.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .batchSize(batchSize)
+                .maxAwaitTime(maxAwait.toMillis(), TimeUnit.MILLISECONDS);
+        if (token != null) {
+            stream = stream.resumeAfter(token);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            log.info("Watching product changes as node {} ({})", nodeId, token == null ? "from now" : "resumed");
+            List<ProductEvent> batch = new ArrayList<>(batchSize);
+            BsonDocument saved = token;
+            BsonDocument position = token;
+            long coveredUntil = 0; // epoch seconds: older changes are covered by the last resync
+            long flushAt = System.nanoTime() + maxAwait.toNanos();
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext(); // null: caught up (after max-await)
+                if (change != null) {
+                    if (STREAM_ENDING.contains(change.getOperationType())) {
+                        // Every product may be gone or elsewhere; the stream cannot go on
+                        log.warn("Product change stream ended by {}, resyncing", change.getOperationType());
+                        tokens().deleteOne(Filters.eq("_id", nodeId));
+                        resync();
+                        return true;
+                    }
+                    position = change.getResumeToken();
+                    long now = System.currentTimeMillis() / 1000;
+                    long writtenAt = change.getClusterTime() != null ? change.getClusterTime().getTime() : now;
+                    if (writtenAt >= coveredUntil) {
+                        if (now - writtenAt >= resyncLag.toSeconds()) {
+                            // Far behind (bulk job, downtime): one resync reads the current state, the changes up to
+                            // now are only read through
+                            log.info("Product change stream {} s behind, resyncing", now - writtenAt);
+                            batch.clear();
+                            resync();
+                            coveredUntil = now;
+                        } else {
+                            ProductEvent event = toEvent(change);
+                            if (event != null) {
+                                batch.add(event);
+                            }
+                        }
+                    }
+                } else {
+                    position = cursor.getResumeToken(); // advances even without changes: keeps an idle node in the oplog
+                }
+
+                // Time-bound batches: under steady traffic the cursor is never idle, changes still go out every max-await
+                if (change == null || batch.size() >= batchSize || System.nanoTime() - flushAt >= 0) {
+                    if (!batch.isEmpty()) {
+                        if (!deliver(batch)) {
+                            return false;
+                        }
+                        batch.clear();
+                    }
+                    saved = save(position, saved);
+                    flushAt = System.nanoTime() + maxAwait.toNanos();
+                }
+            }
+            return true;
+        }
+    }
+
+    private ProductEvent toEvent(ChangeStreamDocument<Document> change) {
+        Document document = change.getFullDocument();
+        switch (change.getOperationType()) {
+            case INSERT:
+                return document == null ? null : new ProductCreated(new ObjectId(), read(document));
+            case UPDATE:
+            case REPLACE:
+                // Current document (updateLookup); null -> deleted since, its delete follows. No pre-image: no before
+                return document == null ? null : new ProductUpdated(new ObjectId(), null, read(document));
+            case DELETE:
+                BsonValue id = change.getDocumentKey() == null ? null : change.getDocumentKey().get("_id");
+                return id == null || !id.isObjectId() ? null
+                        : new ProductDeleted(new ObjectId(), Product.builder().id(id.asObjectId().getValue()).build());
+            default:
+                return null;
+        }
+    }
+
+    private Product read(Document document) {
+        return mongoTemplate.getConverter().read(Product.class, document);
+    }
+
+    // No outbox behind the stream: a failing subscriber resyncs (reads the current state, the batch included), the
+    // others and the stream go on. Its resync failing too -> false, the token is not saved past the batch
+    private boolean deliver(List<ProductEvent> batch) {
+        boolean delivered = true;
+        for (ProductEventSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onEvents(batch);
+            } catch (RuntimeException e) {
+                log.error("{} failed on {} product changes, resyncing it", subscriber.getClass().getSimpleName(),
+                        batch.size(), e);
+                try {
+                    subscriber.onResync();
+                } catch (RuntimeException resyncFailure) {
+                    log.error("{} failed to resync", subscriber.getClass().getSimpleName(), resyncFailure);
+                    delivered = false;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private void resync() {
+        for (ProductEventSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onResync();
+            } catch (RuntimeException e) {
+                log.error("{} failed to resync", subscriber.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    // One upsert per delivered batch / catch-up, skipped when the token did not move
+    private BsonDocument save(BsonDocument token, BsonDocument saved) {
+        if (token == null || token.equals(saved)) {
+            return saved;
+        }
+        tokens().replaceOne(Filters.eq("_id", nodeId),
+                new BsonDocument("_id", new BsonString(nodeId))
+                        .append("token", token)
+                        .append("savedAt", new BsonDateTime(System.currentTimeMillis())),
+                new ReplaceOptions().upsert(true));
+        return token;
+    }
+
+    private MongoCollection<BsonDocument> tokens() {
+        return mongoTemplate.getCollection(TOKENS_COLLECTION).withDocumentClass(BsonDocument.class);
+    }
+}
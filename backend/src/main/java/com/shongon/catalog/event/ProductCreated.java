@@ -0,0 +1,15 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+
+public record ProductCreated(ObjectId eventId, Product after) implements ProductEvent {
+    public static ProductCreated of(Product after) {
+        return new ProductCreated(new ObjectId(), after);
+    }
+
+    @Override
+    public Product before() {
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+
+public record ProductDeleted(ObjectId eventId, Product before) implements ProductEvent {
+    public static ProductDeleted of(Product before) {
+        return new ProductDeleted(new ObjectId(), before);
+    }
+
+    @Override
+    public Product after() {
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+
+/*
+    A product write as seen by its side effects: the state before and after it (null on the side that does not exist).
+    eventId is the outbox _id -> time-ordered
+ */
+public sealed interface ProductEvent permits ProductCreated, ProductUpdated, ProductDeleted {
+    ObjectId eventId();
+
+    Product before();
+
+    Product after();
+
+    default ObjectId productId() {
+        return after() != null ? after().getId() : before().getId();
+    }
+}
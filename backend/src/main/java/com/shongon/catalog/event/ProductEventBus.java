@@ -0,0 +1,286 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.event.ProductOutbox.PendingEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+    In-process, asynchronous bus of product events (app.events). A write publishes its event (committed with it in
+    the outbox when enabled) into a bounded queue and returns: cache eviction and in-memory index updates no longer
+    add to its latency. One dispatcher thread drains the queue in batches of up to batch-size events and hands each
+    batch to every subscriber, in publish order; a batch delivered to all of them leaves the outbox.
+    Queue full: the write waits up to publish-timeout, then leaves the event to the outbox relay, which also picks up
+    events of a crashed process (for every subscriber) or of a failed subscriber (for that one only: the others
+    already hold newer states than a replay would bring). A node relays its own events only (subscribers hold
+    node-local state), and the events of a node gone for orphan-after to the subscribers shared across nodes.
+    An event failing max-attempts times is given up: the subscribers still missing it resync instead (read the
+    current state), and it leaves the outbox. Pending events are delivered on shutdown.
+ */
+@Slf4j
+@Component
+public class ProductEventBus {
+    private final List<ProductEventSubscriber> subscribers; // in @Order
+    private final ProductOutbox outbox;
+    private final int batchSize;
+    private final Duration publishTimeout;
+    private final Duration relayAfter;
+    private final Duration orphanAfter;
+    private final int maxAttempts;
+    private final Set<String> sharedSubscribers; // take orphaned events too
+    private final BlockingQueue<PendingEvent> queue;
+    private final Set<ObjectId> inFlight = ConcurrentHashMap.newKeySet(); // queued or being delivered -> not relayed
+    private final Object undeliveredLock = new Object();
+    private int undelivered; // guarded by undeliveredLock
+    private volatile boolean running = true;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-events-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductEventBus(
+            List<ProductEventSubscriber> subscribers,
+            ProductOutbox outbox,
+            @Value("${app.events.capacity:10000}") int capacity,
+            @Value("${app.events.batch-size:256}") int batchSize,
+            @Value("${app.events.publish-timeout:1s}") Duration publishTimeout,
+            @Value("${app.events.outbox.relay-interval:5s}") Duration relayInterval,
+            @Value("${app.events.outbox.relay-after:30s}") Duration relayAfter,
+            @Value("${app.events.outbox.orphan-after:10m}") Duration orphanAfter,
+            @Value("${app.events.outbox.max-attempts:10}") int maxAttempts
+    ) {
+        // Read models following the change stream take the same writes from it, in oplog order
+        this.subscribers = subscribers.stream().filter(subscriber -> !subscriber.followsChangeStream()).toList();
+        this.outbox = outbox;
+        this.batchSize = batchSize;
+        this.publishTimeout = publishTimeout;
+        this.relayAfter = relayAfter;
+        this.orphanAfter = orphanAfter;
+        this.maxAttempts = maxAttempts;
+        this.sharedSubscribers = this.subscribers.stream().filter(ProductEventSubscriber::sharedAcrossNodes)
+                .map(ProductEventSubscriber::subscriberName).collect(Collectors.toUnmodifiableSet());
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        dispatcher.execute(this::dispatch);
+        if (outbox.isEnabled()) {
+            long interval = relayInterval.toMillis();
+            relay.scheduleWithFixedDelay(this::relayQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        relay.shutdownNow();
+        running = false; // the dispatcher empties the queue, then stops
+        dispatcher.shutdown();
+        if (!dispatcher.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("{} product events not delivered on shutdown{}", queue.size(),
+                    outbox.isEnabled() ? ", left to the outbox relay" : "");
+            dispatcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a product write (through the outbox) and queues its event for the subscribers
+     * @param write The write, returning its event; its exceptions propagate and nothing is published
+     * @return The event, once committed and queued (not yet delivered)
+     */
+    public <E extends ProductEvent> E publish(Supplier<E> write) {
+        E event = outbox.record(write);
+        inFlight.add(event.eventId());
+        incrementUndelivered(1);
+        boolean queued;
+        try {
+            queued = running && queue.offer(new PendingEvent(event, null), publishTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            if (outbox.isEnabled()) {
+                log.warn("Product event queue full, event {} left to the outbox relay", event.eventId());
+                inFlight.remove(event.eventId());
+                decrementUndelivered(1);
+            } else {
+                deliver(List.of(new PendingEvent(event, null))); // no outbox to fall back on -> the write pays for its side effects
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Waits until every event published so far is delivered (or left to the relay)
+     * @return false when the timeout elapsed first
+     */
+    public boolean awaitDelivered(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (undeliveredLock) {
+            while (undelivered > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(undeliveredLock, left);
+            }
+        }
+        return true;
+    }
+
+    // Own outbox entries older than relay-after and not queued here: a crash of this node before their delivery, a
+    // full queue or a failed subscriber -> queued again, for the subscribers that missed them, without waiting for
+    // room. Other nodes' entries past orphan-after: queued for the shared subscribers only
+    public void relay() {
+        Instant now = Instant.now();
+        List<PendingEvent> pending = outbox.pending(now.minus(relayAfter), now.minus(orphanAfter), sharedSubscribers,
+                batchSize);
+        int relayed = 0;
+        for (PendingEvent entry : pending) {
+            ObjectId eventId = entry.event().eventId();
+            if (!inFlight.add(eventId)) {
+                continue;
+            }
+            incrementUndelivered(1);
+            if (!queue.offer(entry)) {
+                inFlight.remove(eventId);
+                decrementUndelivered(1);
+                break; // still full: next relay
+            }
+            relayed++;
+        }
+        if (relayed > 0) {
+            log.info("Relayed {} product events from the outbox", relayed);
+        }
+    }
+
+    // HELPER PRIVATE METHODS
+    private void dispatch() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1); // whatever piled up meanwhile -> one delivery
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Product event dispatch failed", e); // the dispatcher must outlive any batch
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Each subscriber gets the events of the batch meant for it, in order; an event leaves the outbox once all of its
+    // subscribers had it (or resynced instead, past max-attempts), otherwise it stays for the ones that failed
+    private void deliver(List<PendingEvent> batch) {
+        Set<String> failed = new HashSet<>();
+        for (ProductEventSubscriber subscriber : subscribers) {
+            String name = subscriber.subscriberName();
+            List<ProductEvent> events = batch.stream().filter(entry -> entry.isFor(name)).map(PendingEvent::event).toList();
+            if (events.isEmpty()) {
+                continue;
+            }
+            try {
+                subscriber.onEvents(events);
+            } catch (RuntimeException e) {
+                failed.add(name);
+                log.error("{} failed on {} product events, left to the outbox relay", name, events.size(), e);
+            }
+        }
+
+        List<ObjectId> delivered = new ArrayList<>();
+        Map<Set<String>, List<ObjectId>> missed = new HashMap<>();
+        Map<String, Boolean> resynced = new HashMap<>();
+        for (PendingEvent entry : batch) {
+            Set<String> missedBy = new HashSet<>(failed);
+            missedBy.removeIf(name -> !entry.isFor(name));
+            if (!missedBy.isEmpty() && entry.attempts() + 1 >= maxAttempts && resync(missedBy, resynced)) {
+                log.error("Product event {} given up after {} attempts, {} resynced instead",
+                        entry.event().eventId(), entry.attempts() + 1, missedBy);
+                missedBy.clear();
+            }
+            (missedBy.isEmpty() ? delivered : missed.computeIfAbsent(missedBy, names -> new ArrayList<>()))
+                    .add(entry.event().eventId());
+        }
+        try {
+            if (!delivered.isEmpty()) {
+                outbox.acknowledge(delivered);
+            }
+            // Held back for relay-after: newer events are relayed before it comes again
+            Instant retryAt = Instant.now().plus(relayAfter);
+            missed.forEach((names, eventIds) -> outbox.retry(eventIds, names, retryAt));
+        } catch (RuntimeException e) {
+            log.warn("Could not acknowledge {} product events, they will be delivered again", batch.size(), e);
+        } finally {
+            batch.forEach(entry -> inFlight.remove(entry.event().eventId()));
+            decrementUndelivered(batch.size());
+        }
+    }
+
+    // Once per subscriber and batch; false when one of them could not resync either -> the event is kept
+    private boolean resync(Set<String> names, Map<String, Boolean> resynced) {
+        boolean all = true;
+        for (String name : names) {
+            all &= resynced.computeIfAbsent(name, this::resync);
+        }
+        return all;
+    }
+
+    private boolean resync(String name) {
+        for (ProductEventSubscriber subscriber : subscribers) {
+            if (subscriber.subscriberName().equals(name)) {
+                try {
+                    subscriber.onResync();
+                } catch (RuntimeException e) {
+                    log.error("{} failed to resync", name, e);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void relayQuietly() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            // A failed relay must not cancel the schedule
+            log.error("Product outbox relay failed", e);
+        }
+    }
+
+    private void incrementUndelivered(int events) {
+        synchronized (undeliveredLock) {
+            undelivered += events;
+        }
+    }
+
+    private void decrementUndelivered(int events) {
+        synchronized (undeliveredLock) {
+            undelivered -= events;
+            if (undelivered <= 0) {
+                undeliveredLock.notifyAll();
+            }
+        }
+    }
+}
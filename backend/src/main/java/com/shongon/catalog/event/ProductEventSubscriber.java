@@ -0,0 +1,53 @@
+package com.shongon.catalog.event;
+
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/*
+    Side effect of product writes, run by ProductEventBus off the request thread, and by ProductChangeStreamWatcher
+    for every change of the collection, on every node. Subscribers are called in @Order:
+    in-memory read models first, cache eviction last -> a read that refills the cache already sees the new state
+ */
+public interface ProductEventSubscriber {
+    int INDEXES = 0;
+    int CACHES = 100;
+
+    /**
+     * One batch of events, in publish order, on the bus thread (or the publishing thread when the queue is full and
+     * there is no outbox). Delivery is at least once: a batch may come again after a crash or when this subscriber
+     * failed on it, never because another subscriber did
+     * @param events Up to app.events.batch-size events
+     * @throws RuntimeException The batch stays in the outbox and is relayed later, to this subscriber only; past
+     *                          app.events.outbox.max-attempts, onResync is called instead
+     */
+    void onEvents(List<ProductEvent> events);
+
+    /**
+     * True when this subscriber takes every write from the change stream alone (app.change-stream.enabled), in oplog
+     * order: the bus skips it. For in-memory read models, which must not see one product's states in two orders
+     */
+    default boolean followsChangeStream() {
+        return false;
+    }
+
+    /**
+     * True when what this subscriber acts on is shared by every node (the Redis cache): it also takes the outbox
+     * entries of a node gone before delivering them. Node-local read models only take their own node's entries
+     */
+    default boolean sharedAcrossNodes() {
+        return false;
+    }
+
+    // Key of the subscriber in the outbox: events it missed are relayed to it alone
+    default String subscriberName() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+
+    /**
+     * Too many changes to apply one by one (a bulk job seen by the change stream), or changes that cannot be known
+     * any more: everything held is rebuilt or dropped. Nothing held -> nothing to do
+     */
+    default void onResync() {
+    }
+}
@@ -0,0 +1,183 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.enums.ProductEventType;
+import com.shongon.catalog.model.ProductOutboxEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/*
+    Transactional outbox of product events (app.events.outbox.enabled): the product write and its event are committed
+    together in one MongoDB transaction (replica set only), so an event outlives a crash between the write and its
+    side effects. The bus deletes an entry once every subscriber had it, or keeps the names of the subscribers that
+    failed on it; entries left behind are relayed, to those subscribers only (all of them when it was never delivered).
+    Subscribers may hold node-local state (in-memory indexes): an entry is stamped with the node that wrote it and
+    relayed by that node alone. Past orphan-after its node is taken as gone, and any node relays it to the subscribers
+    shared across nodes (the cache); the local state of a gone node went with it.
+    A failed delivery counts an attempt and holds the entry back until retry-at, so entries that keep failing do not
+    fill every relay page ahead of newer ones; past max-attempts the bus gives up on it (ProductEventBus).
+    The transaction manager is private to the outbox: @Transactional elsewhere keeps running without transactions.
+ */
+@Slf4j
+@Component
+public class ProductOutbox {
+    private static final int MAX_ATTEMPTS = 3; // transient transaction errors (write conflicts) are retried
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final TransactionTemplate transactions;
+
+    public ProductOutbox(
+            MongoTemplate mongoTemplate,
+            MongoDatabaseFactory databaseFactory,
+            @Value("${app.events.outbox.enabled:false}") boolean enabled,
+            @Value("${app.events.outbox.node-id:catalog}") String nodeId
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.transactions = enabled ? new TransactionTemplate(new MongoTransactionManager(databaseFactory)) : null;
+        if (enabled) {
+            MongoTopology.requireReplicaSet(mongoTemplate, "app.events.outbox.enabled");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs a product write and stores the event it returns, in one transaction. Without outbox: the write alone
+     * @param write The write; runs again on a transient transaction error, so it must not have effects outside MongoDB
+     * @return The event of the committed write
+     */
+    public <E extends ProductEvent> E record(Supplier<E> write) {
+        if (!enabled) {
+            return write.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactions.execute(status -> {
+                    E event = write.get();
+                    mongoTemplate.insert(toEntry(event));
+                    return event;
+                });
+            } catch (TransientDataAccessException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Outbox transaction retried after a transient error (attempt {})", attempt, e);
+            }
+        }
+    }
+
+    // Delivered: one deleteMany
+    public void acknowledge(Collection<ObjectId> eventIds) {
+        if (enabled && !eventIds.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(eventIds)), ProductOutboxEntry.class);
+        }
+    }
+
+    // Delivered to every subscriber but these: kept for them alone, not relayed before retryAt
+    public void retry(Collection<ObjectId> eventIds, Set<String> subscribers, Instant retryAt) {
+        if (enabled && !eventIds.isEmpty()) {
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(eventIds)),
+                    new Update().set("pending", subscribers).inc("attempts", 1).set("retryAt", retryAt),
+                    ProductOutboxEntry.class);
+        }
+    }
+
+    /**
+     * Entries to relay, oldest first (ObjectId timestamps -> ranges on _id): this node's, and those of other nodes
+     * orphaned long enough that still wait for a subscriber shared across nodes; retried entries once due again
+     * @param writtenBefore Own entries written before this instant
+     * @param orphanedBefore Other nodes' entries written before this instant
+     * @param sharedSubscribers Names of the subscribers shared across nodes; empty -> own entries only
+     */
+    public List<PendingEvent> pending(Instant writtenBefore, Instant orphanedBefore, Set<String> sharedSubscribers,
+                                      int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        Criteria own = Criteria.where("node").is(nodeId).and("_id").lt(new ObjectId(Date.from(writtenBefore)));
+        Criteria ownership = sharedSubscribers.isEmpty() ? own : new Criteria().orOperator(own,
+                new Criteria().andOperator(
+                        Criteria.where("node").ne(nodeId).and("_id").lt(new ObjectId(Date.from(orphanedBefore))),
+                        new Criteria().orOperator(Criteria.where("pending").is(null),
+                                Criteria.where("pending").in(sharedSubscribers))));
+        Criteria due = new Criteria().orOperator(Criteria.where("retryAt").is(null),
+                Criteria.where("retryAt").lte(Instant.now()));
+        Query query = new Query(new Criteria().andOperator(ownership, due))
+                .with(Sort.by("_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, ProductOutboxEntry.class).stream()
+                .map(entry -> {
+                    PendingEvent pending = new PendingEvent(toEvent(entry), entry.getPending(), entry.getAttempts());
+                    return nodeId.equals(entry.getNode()) ? pending : pending.restrictedTo(sharedSubscribers);
+                })
+                .toList();
+    }
+
+    // HELPER PRIVATE METHODS
+    private ProductOutboxEntry toEntry(ProductEvent event) {
+        ProductEventType type = event instanceof ProductCreated ? ProductEventType.CREATED
+                : event instanceof ProductUpdated ? ProductEventType.UPDATED
+                : ProductEventType.DELETED;
+        return ProductOutboxEntry.builder()
+                .id(event.eventId())
+                .node(nodeId)
+                .type(type)
+                .before(event.before())
+                .after(event.after())
+                .build();
+    }
+
+    private static ProductEvent toEvent(ProductOutboxEntry entry) {
+        return switch (entry.getType()) {
+            case CREATED -> new ProductCreated(entry.getId(), entry.getAfter());
+            case UPDATED -> new ProductUpdated(entry.getId(), entry.getBefore(), entry.getAfter());
+            case DELETED -> new ProductDeleted(entry.getId(), entry.getBefore());
+        };
+    }
+
+    /**
+     * An undelivered event and who still has to receive it
+     * @param subscribers Names of the subscribers that missed it; null when it was never delivered -> all of them
+     * @param attempts Deliveries of it that failed so far
+     */
+    public record PendingEvent(ProductEvent event, Set<String> subscribers, int attempts) {
+        public PendingEvent(ProductEvent event, Set<String> subscribers) {
+            this(event, subscribers, 0);
+        }
+
+        public boolean isFor(String subscriber) {
+            return subscribers == null || subscribers.contains(subscriber);
+        }
+
+        // Orphaned entry: only the given subscribers, of those that still need it
+        PendingEvent restrictedTo(Set<String> names) {
+            Set<String> remaining = new HashSet<>(names);
+            remaining.removeIf(name -> !isFor(name));
+            return new PendingEvent(event, remaining, attempts);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.shongon.catalog.event;
+
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+
+public record ProductUpdated(ObjectId eventId, Product before, Product after) implements ProductEvent {
+    public static ProductUpdated of(Product before, Product after) {
+        return new ProductUpdated(new ObjectId(), before, after);
+    }
+}
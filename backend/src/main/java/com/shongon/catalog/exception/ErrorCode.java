@@ -15,12 +15,25 @@ public enum ErrorCode {
     JSON_PARSE_ERROR(400, HttpStatus.BAD_REQUEST, "Malformed or invalid JSON"),
     TYPE_MISMATCH(400, HttpStatus.BAD_REQUEST, "Parameter type mismatch"),
     MISSING_PARAMETER(400, HttpStatus.BAD_REQUEST, "Missing required parameter"),
+    INVALID_PRODUCT_ID(400, HttpStatus.BAD_REQUEST, "Invalid productId format. Must be a valid Mongo ObjectId"),
+    INVALID_CURSOR(400, HttpStatus.BAD_REQUEST, "Invalid or expired pagination cursor"),
+    INVALID_PAGE_SIZE(400, HttpStatus.BAD_REQUEST, "Invalid size: must be between 1 and the maximum page size (2000)"),
+    PAGINATION_CONFLICT(400, HttpStatus.BAD_REQUEST, "Use either slice=true or cursor, not both"),
+    INVALID_FIELDS(400, HttpStatus.BAD_REQUEST, "Unknown field in 'fields', allowed: id, name, description, price, category"),
+    INVALID_FILTER(400, HttpStatus.BAD_REQUEST, "Invalid filter: prices must be >= 0 and minPrice <= maxPrice"),
+    INVALID_SORT(400, HttpStatus.BAD_REQUEST, "Invalid orderBy, expected e.g. PRICE:ASC,NAME:DESC (fields: NAME, PRICE)"),
+    FILTER_REQUIRED(400, HttpStatus.BAD_REQUEST, "Filter required: set category and/or minPrice/maxPrice"),
+    INVALID_EXPORT_FORMAT(400, HttpStatus.BAD_REQUEST, "Invalid export format, allowed: ndjson, csv"),
     METHOD_NOT_ALLOWED(405, HttpStatus.METHOD_NOT_ALLOWED, "Method not allowed"),
     UNSUPPORTED_MEDIA_TYPE(415, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported media type"),
+    QUERY_TIMEOUT(503, HttpStatus.SERVICE_UNAVAILABLE, "Query exceeded its time budget, please narrow it down"),
+    WRITE_BEHIND_TIMEOUT(503, HttpStatus.SERVICE_UNAVAILABLE, "Price update not written in time: it stays buffered for a later flush"),
 
     // Domain
     PRODUCT_NOT_FOUND(404, HttpStatus.NOT_FOUND, "Product not found"),
-    PRODUCT_ALREADY_EXISTS(409, HttpStatus.CONFLICT, "Product already exists")
+    PRODUCT_ALREADY_EXISTS(409, HttpStatus.CONFLICT, "Product already exists"),
+    IMPORT_FILE_NOT_FOUND(404, HttpStatus.NOT_FOUND, "Import file not found in the import directory"),
+    IMPORT_IN_PROGRESS(409, HttpStatus.CONFLICT, "An import is already running")
     ;
 
 
@@ -2,12 +2,15 @@ package com.shongon.catalog.exception;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
-import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoExecutionTimeoutException;
 import com.shongon.catalog.dto.response.ApiErrorResponse;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -113,19 +116,31 @@ public class GlobalExceptionHandler {
                 .body(ApiErrorResponse.of(ErrorCode.METHOD_NOT_ALLOWED.getCode(), List.of(ErrorCode.METHOD_NOT_ALLOWED.getMessage())));
     }
 
-    // 409 – Key trùng (Mongo unique index)
-    @ExceptionHandler(DuplicateKeyException.class)
-    public ResponseEntity<ApiErrorResponse> handleDuplicateKey(DuplicateKeyException ex) {
+    // 409 – Key trùng (Mongo unique index): MongoTemplate dịch E11000 sang DuplicateKeyException của Spring
+    @ExceptionHandler({DuplicateKeyException.class, com.mongodb.DuplicateKeyException.class})
+    public ResponseEntity<ApiErrorResponse> handleDuplicateKey(Exception ex) {
         return ResponseEntity
                 .status(ErrorCode.PRODUCT_ALREADY_EXISTS.getStatusCode())
                 .body(ApiErrorResponse.of(ErrorCode.PRODUCT_ALREADY_EXISTS.getCode(), List.of(ErrorCode.PRODUCT_ALREADY_EXISTS.getMessage())));
     }
 
+    // 503 – Query vượt time budget (maxTimeMS của Mongo / command timeout của Redis)
+    @ExceptionHandler(DataAccessException.class)
+    public ResponseEntity<ApiErrorResponse> handleDataAccess(DataAccessException ex) {
+        if (!(ex instanceof QueryTimeoutException) && !(ex.getMostSpecificCause() instanceof MongoExecutionTimeoutException)) {
+            return handleUncategorized(ex);
+        }
+        log.warn("Query exceeded its time budget: {}", ex.getMostSpecificCause().getMessage());
+        return ResponseEntity
+                .status(ErrorCode.QUERY_TIMEOUT.getStatusCode())
+                .body(ApiErrorResponse.of(ErrorCode.QUERY_TIMEOUT.getCode(), List.of(ErrorCode.QUERY_TIMEOUT.getMessage())));
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiErrorResponse> handleInvalidObjectId(IllegalArgumentException ex) {
         ApiErrorResponse response = ApiErrorResponse.builder()
-                .code(400)
-                .errors(List.of("Invalid productId format. Must be a valid Mongo ObjectId"))
+                .code(ErrorCode.INVALID_PRODUCT_ID.getCode())
+                .errors(List.of(ErrorCode.INVALID_PRODUCT_ID.getMessage()))
                 .build();
 
         return ResponseEntity.badRequest().body(response);
@@ -4,24 +4,23 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+// Indexes are declared in code and reconciled on startup -> ProductIndexManager
 @Document(collection = "products")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class Product {
     @Id
     ObjectId id;
+
     String name;
     String description;
 
-    @Indexed
     Double price;
 
-    @Indexed
     String category;
-}
\ No newline at end of file
+}
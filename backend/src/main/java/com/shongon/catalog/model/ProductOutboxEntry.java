@@ -0,0 +1,31 @@
+package com.shongon.catalog.model;
+
+import com.shongon.catalog.enums.ProductEventType;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Set;
+
+// One undelivered product event (ProductOutbox): written with the product, deleted once every subscriber had it
+@Document(collection = "product_outbox")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductOutboxEntry {
+    @Id
+    ObjectId id; // the event id -> entries come back in write order, and by age without another index
+
+    String node; // node that wrote it (app.events.outbox.node-id): relayed by that node alone, unless orphaned
+    ProductEventType type;
+    Product before;
+    Product after;
+    Set<String> pending; // subscribers that missed it (ProductEventSubscriber.subscriberName); null -> all of them
+    int attempts;        // deliveries that failed for some subscriber
+    Instant retryAt;     // not relayed before: newer entries go first
+}
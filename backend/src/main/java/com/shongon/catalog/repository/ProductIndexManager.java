@@ -0,0 +1,288 @@
+package com.shongon.catalog.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+    Source of truth for the indexes of the "products" collection.
+    The unique name indexes are a precondition of every write (no pre-check query): ensured on the startup thread,
+    before traffic is accepted, and startup fails when they cannot be.
+    After startup (off the startup thread) the declared indexes are compared against listIndexes:
+    missing ones are built, everything else that differs is only reported -> never dropped automatically.
+    $indexStats then flags indexes that have not served a single operation for "unused-after".
+ */
+@Slf4j
+@Component
+public class ProductIndexManager {
+    static final String COLLECTION = "products";
+    private static final String ID_INDEX = "_id_";
+
+    // Query shapes served: SortFilterServiceImpl (filter / sort / cursor / facets), SearchServiceImpl, name uniqueness
+    static final List<Index> DECLARED_INDEXES = List.of(
+            // unique names; sorted by name without category
+            new Index().on("name", Sort.Direction.ASC).unique().named("name"),
+            /*
+                listing / filter / sort: every shape is an index scan without blocking SORT.
+                Keys follow equality (category, also $in) -> sort -> range (price), so a category + price range
+                filter is answered from the index under any sort: the range is checked on index keys
+             */
+            new Index().on("category", Sort.Direction.ASC).on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("category_price_id"),
+            // orderBy=PRICE,NAME: names are unique -> they end the sort; mixed directions need their own key order
+            new Index().on("category", Sort.Direction.ASC).on("price", Sort.Direction.ASC).on("name", Sort.Direction.ASC)
+                    .named("category_price_name"),
+            new Index().on("category", Sort.Direction.ASC).on("price", Sort.Direction.ASC).on("name", Sort.Direction.DESC)
+                    .named("category_price_name_desc"),
+            // names are unique -> no _id tiebreaker needed, price is there for the range
+            new Index().on("category", Sort.Direction.ASC).on("name", Sort.Direction.ASC).on("price", Sort.Direction.ASC)
+                    .named("category_name_price"),
+            new Index().on("category", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).on("price", Sort.Direction.ASC)
+                    .named("category_id_price"),
+            // price sort without category, price range included (other sorts fetch documents to check a range)
+            new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("price_id"),
+            // search sorted by price (name breaks ties), name regex checked on index keys; orderBy=PRICE,NAME
+            new Index().on("price", Sort.Direction.ASC).on("name", Sort.Direction.ASC)
+                    .named("price_name"),
+            new Index().on("price", Sort.Direction.ASC).on("name", Sort.Direction.DESC)
+                    .named("price_name_desc")
+    );
+
+    /*
+        app.indexes.case-insensitive-names: "Apple" and "apple" are the same name. Its own index: a collated "name"
+        index would no longer serve name sorts and regex searches, which run with the simple (binary) collation
+     */
+    static final Index NAME_CASE_INSENSITIVE_INDEX = new Index().on("name", Sort.Direction.ASC).unique()
+            .collation(Collation.of(Locale.ENGLISH).strength(Collation.ComparisonLevel.secondary()))
+            .named("name_ci");
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean reconcileOnStartup;
+    private final Duration unusedAfter;
+    private final List<Index> declaredIndexes;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-index-manager");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile IndexReport lastReport;
+
+    public ProductIndexManager(
+            MongoTemplate mongoTemplate,
+            @Value("${app.indexes.reconcile-on-startup:true}") boolean reconcileOnStartup,
+            @Value("${app.indexes.unused-after:7d}") Duration unusedAfter,
+            @Value("${app.indexes.case-insensitive-names:false}") boolean caseInsensitiveNames
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.unusedAfter = unusedAfter;
+        this.declaredIndexes = caseInsensitiveNames
+                ? concat(DECLARED_INDEXES, NAME_CASE_INSENSITIVE_INDEX)
+                : DECLARED_INDEXES;
+    }
+
+    // Before readiness, whatever reconcile-on-startup says: without them duplicate names would be accepted silently
+    @EventListener(ApplicationStartedEvent.class)
+    public synchronized void ensureUniqueNames() {
+        IndexOperations indexOps = mongoTemplate.indexOps(COLLECTION);
+        List<IndexInfo> existing = indexOps.getIndexInfo();
+        for (Index declared : declaredIndexes) {
+            IndexInfo expected = toIndexInfo(declared);
+            if (!expected.isUnique() || existing.stream().anyMatch(info -> sameSpec(info, expected))) {
+                continue;
+            }
+            String name = expected.getName();
+            if (findByName(existing, name) != null) {
+                throw new IllegalStateException("Index '" + name + "' differs from its declaration ("
+                        + describe(expected) + "): names are not unique until it is dropped and rebuilt");
+            }
+            try {
+                indexOps.createIndex(declared);
+                log.info("Index '{}' built on '{}' before startup completed", name, COLLECTION);
+            } catch (DataAccessException e) {
+                // e.g. names already duplicated -> an operator has to clean them up first
+                throw new IllegalStateException("Index '" + name + "' could not be built: names are not unique", e);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Index builds can take minutes on a large collection -> never hold readiness for them
+        if (reconcileOnStartup) {
+            executor.execute(this::reconcile);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Last reconciliation result; null until the first one has finished
+    public IndexReport getLastReport() {
+        return lastReport;
+    }
+
+    public synchronized IndexReport reconcile() {
+        IndexOperations indexOps = mongoTemplate.indexOps(COLLECTION);
+        List<IndexInfo> existing = indexOps.getIndexInfo();
+        Set<String> matched = new HashSet<>(Set.of(ID_INDEX));
+        List<String> missing = new ArrayList<>();
+        List<String> conflicting = new ArrayList<>();
+
+        for (Index declared : declaredIndexes) {
+            IndexInfo expected = toIndexInfo(declared);
+            IndexInfo sameName = findByName(existing, expected.getName());
+            IndexInfo sameSpec = existing.stream().filter(info -> sameSpec(info, expected)).findFirst().orElse(null);
+
+            if (sameName != null && sameSpec(sameName, expected)) {
+                matched.add(sameName.getName());
+            } else if (sameName != null) {
+                // Rebuilding means dropping first -> an operator decision, not a startup side effect
+                log.warn("Index '{}' differs from its declaration: expected {}, found {}",
+                        expected.getName(), describe(expected), describe(sameName));
+                matched.add(sameName.getName());
+                conflicting.add(expected.getName());
+            } else if (sameSpec != null) {
+                log.info("Index '{}' exists as '{}' (same keys and options)", expected.getName(), sameSpec.getName());
+                matched.add(sameSpec.getName());
+            } else {
+                missing.add(expected.getName());
+            }
+        }
+
+        List<String> undeclared = existing.stream()
+                .map(IndexInfo::getName)
+                .filter(name -> !matched.contains(name))
+                .toList();
+        undeclared.forEach(name -> log.warn("Index '{}' on '{}' is not declared in code", name, COLLECTION));
+
+        List<String> built = build(indexOps, missing);
+        List<String> unused = findUnused();
+
+        IndexReport report = new IndexReport(missing, built, conflicting, undeclared, unused);
+        lastReport = report;
+        log.info("Index reconciliation for '{}': {} declared, {} missing ({} built), {} conflicting, {} undeclared, {} unused",
+                COLLECTION, declaredIndexes.size(), missing.size(), built.size(),
+                conflicting.size(), undeclared.size(), unused.size());
+        return report;
+    }
+
+    // HELPER PRIVATE METHODS
+    private List<String> build(IndexOperations indexOps, List<String> missing) {
+        List<String> built = new ArrayList<>();
+        for (Index declared : declaredIndexes) {
+            String name = toIndexInfo(declared).getName();
+            if (!missing.contains(name)) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            log.warn("Index '{}' is missing on '{}', building it", name, COLLECTION);
+            try {
+                indexOps.createIndex(declared);
+                built.add(name);
+                log.info("Index '{}' built in {} ms", name, System.currentTimeMillis() - start);
+            } catch (DataAccessException e) {
+                // keep going with the others (the unique ones failed startup already, see ensureUniqueNames)
+                log.error("Index '{}' could not be built: {}", name, e.getMessage());
+            }
+        }
+        return built;
+    }
+
+    private List<String> findUnused() {
+        // Counters are per mongod and reset on its restart -> "since" tells how long they have been counting
+        Instant usedBefore = Instant.now().minus(unusedAfter);
+        List<String> unused = new ArrayList<>();
+        try {
+            Aggregation indexStats = Aggregation.newAggregation(context -> new Document("$indexStats", new Document()));
+            for (Document stats : mongoTemplate.aggregate(indexStats, COLLECTION, Document.class)) {
+                String name = stats.getString("name");
+                Document accesses = stats.get("accesses", Document.class);
+                if (ID_INDEX.equals(name) || accesses == null) {
+                    continue;
+                }
+                long ops = ((Number) accesses.getOrDefault("ops", 0L)).longValue();
+                Date since = accesses.getDate("since");
+                if (ops == 0 && since != null && since.toInstant().isBefore(usedBefore)) {
+                    log.warn("Index '{}' on '{}' has not been used since {}", name, COLLECTION, since.toInstant());
+                    unused.add(name);
+                }
+            }
+        } catch (DataAccessException e) {
+            // $indexStats needs the indexStats privilege -> a missing grant must not break startup
+            log.warn("Could not read $indexStats for '{}': {}", COLLECTION, e.getMessage());
+        }
+        return unused;
+    }
+
+    private static List<Index> concat(List<Index> indexes, Index index) {
+        List<Index> all = new ArrayList<>(indexes);
+        all.add(index);
+        return List.copyOf(all);
+    }
+
+    private static IndexInfo toIndexInfo(Index index) {
+        return IndexInfo.indexInfoOf(new Document(index.getIndexOptions()).append("key", index.getIndexKeys()));
+    }
+
+    private static IndexInfo findByName(List<IndexInfo> indexes, String name) {
+        return indexes.stream().filter(info -> name.equals(info.getName())).findFirst().orElse(null);
+    }
+
+    private static boolean sameSpec(IndexInfo actual, IndexInfo expected) {
+        return actual.getIndexFields().equals(expected.getIndexFields())
+                && actual.isUnique() == expected.isUnique()
+                && actual.isSparse() == expected.isSparse()
+                && Objects.equals(actual.getPartialFilterExpression(), expected.getPartialFilterExpression())
+                && sameCollation(actual.getCollation(), expected.getCollation());
+    }
+
+    // listIndexes spells out every collation default (caseLevel, alternate, version...) -> only the declared options count
+    private static boolean sameCollation(Optional<Document> actual, Optional<Document> expected) {
+        if (expected.isEmpty()) {
+            return actual.isEmpty() || "simple".equals(actual.get().getString("locale"));
+        }
+        return actual.isPresent() && expected.get().entrySet().stream()
+                .allMatch(option -> Objects.equals(actual.get().get(option.getKey()), option.getValue()));
+    }
+
+    private static String describe(IndexInfo info) {
+        return info.getIndexFields() + (info.isUnique() ? " unique" : "")
+                + info.getCollation().map(collation -> " collation " + collation.toJson()).orElse("");
+    }
+
+    public record IndexReport(
+            List<String> missing,      // declared, not found -> built
+            List<String> built,
+            List<String> conflicting,  // same name, other keys / options -> left as is
+            List<String> undeclared,   // in MongoDB, not in code
+            List<String> unused        // no operation since "unused-after"
+    ) {
+        public boolean hasDrift() {
+            return !missing.isEmpty() || !conflicting.isEmpty() || !undeclared.isEmpty();
+        }
+    }
+}
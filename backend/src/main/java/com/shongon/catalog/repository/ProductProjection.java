@@ -0,0 +1,49 @@
+package com.shongon.catalog.repository;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Sparse fieldsets pushed down to MongoDB: ProductFields names response fields, this maps them to document fields
+    and projects find queries ($project stages take documentFields).
+ */
+public final class ProductProjection {
+    // Response field -> document field
+    private static final Map<String, String> DOCUMENT_FIELDS = new LinkedHashMap<>();
+
+    static {
+        DOCUMENT_FIELDS.put("id", "_id");
+        DOCUMENT_FIELDS.put("name", "name");
+        DOCUMENT_FIELDS.put("description", "description");
+        DOCUMENT_FIELDS.put("price", "price");
+        DOCUMENT_FIELDS.put("category", "category");
+    }
+
+    private ProductProjection() {
+    }
+
+    // Document fields to project, _id excluded (MongoDB returns it unless told otherwise)
+    public static String[] documentFields(ProductFields fields) {
+        return fields.getNames().stream()
+                .map(DOCUMENT_FIELDS::get)
+                .filter(field -> !"_id".equals(field))
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Restrict the documents returned by a query to a fieldset
+     * @param query Query to project; left untouched for ProductFields.ALL
+     * @param fields Fieldset of the response
+     * @param requiredFields Document fields the caller needs on top (sort keys, unique key)
+     */
+    public static void applyTo(Query query, ProductFields fields, String... requiredFields) {
+        if (fields.isAll()) {
+            return;
+        }
+        query.fields().include(documentFields(fields));
+        query.fields().include(requiredFields);
+    }
+}
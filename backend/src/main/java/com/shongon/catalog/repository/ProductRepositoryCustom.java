@@ -0,0 +1,60 @@
+package com.shongon.catalog.repository;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Every product, reading only the fields of the fieldset, with a server-side time budget
+     * @param pageable Page, size and sort
+     * @param fields Projection; ProductFields.ALL for whole documents
+     * @param maxTime Sent as maxTimeMS on both find and count -> MongoDB aborts the query once exceeded
+     * @return Page of (partial) products
+     */
+    Page<Product> findAll(Pageable pageable, ProductFields fields, Duration maxTime);
+
+    /**
+     * { 'name': { $regex: keyword, $options: 'i' } } with a server-side time budget
+     * @param keyword Regex on name (caller escapes user input); null or blank matches every product
+     * @param pageable Page, size and sort
+     * @param fields Projection; ProductFields.ALL for whole documents
+     * @param maxTime Sent as maxTimeMS on both find and count -> MongoDB aborts the query once exceeded
+     * @return Page of matching products
+     */
+    Page<Product> searchProducts(String keyword, Pageable pageable, ProductFields fields, Duration maxTime);
+
+    /**
+     * Same as findAll(Pageable, ProductFields, Duration) without the count: reads size + 1 products to tell hasNext
+     */
+    Slice<Product> findAllSlice(Pageable pageable, ProductFields fields, Duration maxTime);
+
+    /**
+     * Same as searchProducts(String, Pageable, ProductFields, Duration) without the count:
+     * reads size + 1 products to tell hasNext
+     */
+    Slice<Product> searchProductsSlice(String keyword, Pageable pageable, ProductFields fields, Duration maxTime);
+
+    /**
+     * One atomic findAndModify: applies the update to the product and returns it as it was, in a single round trip
+     * @param id Product _id
+     * @param update Partial update ($set of the changed fields)
+     * @return The product before the update (its event's "before" state); empty when no product has this id
+     * @throws org.springframework.dao.DuplicateKeyException The update breaks a unique index (name)
+     */
+    Optional<Product> findAndUpdate(ObjectId id, Update update);
+
+    /**
+     * One atomic findAndRemove on _id: deletes the product and returns it, in a single round trip
+     * @param id Product _id
+     * @return The deleted product; empty when no product has this id
+     */
+    Optional<Product> findAndDelete(ObjectId id);
+}
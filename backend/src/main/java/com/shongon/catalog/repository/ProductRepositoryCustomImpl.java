@@ -0,0 +1,87 @@
+package com.shongon.catalog.repository;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    MongoTemplate mongoTemplate;
+
+    @Override
+    public Page<Product> findAll(Pageable pageable, ProductFields fields, Duration maxTime) {
+        return findPage(new Query().with(pageable).maxTime(maxTime), pageable, fields);
+    }
+
+    @Override
+    public Page<Product> searchProducts(String keyword, Pageable pageable, ProductFields fields, Duration maxTime) {
+        return findPage(toSearchQuery(keyword, pageable, maxTime), pageable, fields);
+    }
+
+    @Override
+    public Slice<Product> findAllSlice(Pageable pageable, ProductFields fields, Duration maxTime) {
+        return findSlice(new Query().with(pageable).maxTime(maxTime), pageable, fields);
+    }
+
+    @Override
+    public Slice<Product> searchProductsSlice(String keyword, Pageable pageable, ProductFields fields, Duration maxTime) {
+        return findSlice(toSearchQuery(keyword, pageable, maxTime), pageable, fields);
+    }
+
+    @Override
+    public Optional<Product> findAndUpdate(ObjectId id, Update update) {
+        // Previous version -> before state of the event; the after state is the update applied to it, no second read
+        return Optional.ofNullable(mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(false), Product.class));
+    }
+
+    @Override
+    public Optional<Product> findAndDelete(ObjectId id) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id)), Product.class));
+    }
+
+    // HELPER PRIVATE METHODS
+    private Query toSearchQuery(String keyword, Pageable pageable, Duration maxTime) {
+        Query query = keyword == null || keyword.isBlank()
+                ? new Query()
+                : new Query(Criteria.where("name").regex(keyword, "i"));
+        return query.with(pageable).maxTime(maxTime);
+    }
+
+    private Page<Product> findPage(Query query, Pageable pageable, ProductFields fields) {
+        // Projection -> only the requested fields leave MongoDB (the count ignores it)
+        ProductProjection.applyTo(query, fields);
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        // Count only when the page alone cannot tell the total (same maxTimeMS)
+        return PageableExecutionUtils.getPage(products, pageable,
+                () -> mongoTemplate.count(Query.of(query).skip(-1).limit(-1), Product.class));
+    }
+
+    private Slice<Product> findSlice(Query query, Pageable pageable, ProductFields fields) {
+        // size + 1 -> the extra product only tells whether a next page exists, no count at all
+        ProductProjection.applyTo(query, fields);
+        List<Product> products = mongoTemplate.find(query.limit(pageable.getPageSize() + 1), Product.class);
+
+        boolean hasNext = products.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? products.subList(0, pageable.getPageSize()) : products, pageable, hasNext);
+    }
+}
@@ -0,0 +1,50 @@
+package com.shongon.catalog.runner;
+
+import com.shongon.catalog.dto.response.ImportStatusResponse;
+import com.shongon.catalog.enums.ImportState;
+import com.shongon.catalog.repository.ProductIndexManager;
+import com.shongon.catalog.service.impl.ProductImporter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/*
+    One-shot import from the command line, then exit (status 0 when the whole file was read):
+        java -jar backend.jar --import=/data/products.json [--resume]
+    With --import, CatalogApplication starts without the web server and exits once the runners are done, with the
+    code given here. Without --import the application starts as usual.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductImportRunner implements ApplicationRunner, ExitCodeGenerator {
+    public static final String IMPORT_OPTION = "import";
+
+    private final ProductImporter productImporter;
+    private final ProductIndexManager productIndexManager;
+
+    private volatile int exitCode;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+        // Runs before ApplicationReadyEvent -> indexes first, or every batch's name lookup scans the collection
+        productIndexManager.reconcile();
+
+        Path file = Path.of(args.getOptionValues(IMPORT_OPTION).get(0));
+        ImportStatusResponse status = productImporter.run(file, args.containsOption("resume"));
+        exitCode = status.getState() == ImportState.COMPLETED ? 0 : 1;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
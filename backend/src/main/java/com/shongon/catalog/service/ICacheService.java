@@ -27,6 +27,13 @@ public interface ICacheService {
      */
     void evictCacheByPattern(String pattern);
 
+    /**
+     * Evict cache entries by pattern, failing when the cache cannot be reached (evictCacheByPattern logs and goes on)
+     * @param pattern Pattern to match (e.g., "products:*")
+     * @throws RuntimeException The cache could not be reached; the entries may still be there
+     */
+    void evictCacheByPatternOrThrow(String pattern);
+
     /**
      * Generate cache key with prefix
      * @param prefix Key prefix
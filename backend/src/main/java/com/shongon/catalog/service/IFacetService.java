@@ -0,0 +1,37 @@
+package com.shongon.catalog.service;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+
+public interface IFacetService {
+    /**
+     * Fetch one page plus category / price-bucket counts in a single $facet aggregation
+     * @param criteria Filter of the current query (empty Criteria for all products)
+     * @param sort Sort of the page, pushed before $facet so it can still use an index
+     * @param pageable Page number and size
+     * @param fields Fields of the page documents ($project inside the page facet); counts are unaffected
+     * @param maxTime Time budget of the calling endpoint, sent as maxTimeMS
+     * @return Page of products carrying the facet counts for the whole match
+     */
+    FacetedPage<ViewAllProductsResponse> findPageWithFacets(Criteria criteria, Sort sort, Pageable pageable, ProductFields fields,
+                                                          Duration maxTime);
+
+    /**
+     * Fetch one page and the total of the whole match in a single $facet aggregation, without facet counts
+     * @param criteria Filter of the current query (empty Criteria for all products)
+     * @param sort Sort of the page, pushed before $facet so it can still use an index
+     * @param pageable Page number and size
+     * @param fields Fields of the page documents
+     * @param maxTime Time budget of the calling endpoint, sent as maxTimeMS
+     * @return Page of products with its total
+     */
+    Page<ViewAllProductsResponse> findPageWithTotal(Criteria criteria, Sort sort, Pageable pageable, ProductFields fields,
+                                                    Duration maxTime);
+}
@@ -0,0 +1,64 @@
+package com.shongon.catalog.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.RepriceRequest;
+import com.shongon.catalog.dto.response.BulkItemResult;
+import com.shongon.catalog.dto.response.BulkWriteResponse;
+import com.shongon.catalog.dto.response.CategoryDeleteResponse;
+import com.shongon.catalog.dto.response.RepriceResponse;
+
+import java.io.InputStream;
+import java.util.List;
+
+public interface IProductBulkService {
+    /**
+     * Creates every product of a JSON array of CreateProductRequest, read element by element (never held whole).
+     * Per batch of app.bulk.batch-size: parallel validation, one unordered bulkWrite (taken names fail on the
+     * unique index) and one cache eviction
+     * @param json Request body; anything but an array -> JSON_PARSE_ERROR
+     * @return One result per element, in request order; a syntax error mid-array ends it with a JSON_PARSE_ERROR item
+     */
+    BulkWriteResponse createProducts(InputStream json);
+
+    /**
+     * One batch of createProducts, already parsed: the write stage shared with the file import
+     * @param offset Index of the first element in the whole array (result indexes start there)
+     * @param elements JSON objects of CreateProductRequest, at most app.bulk.batch-size of them
+     * @return One result per element, in order
+     */
+    List<BulkItemResult> createBatch(int offset, List<JsonNode> elements);
+
+    /**
+     * Applies every patch of a JSON array of PatchProductRequest (id + the fields to change), streamed like
+     * createProducts. Per batch: one $in lookup by _id, one unordered bulkWrite of $set
+     * @param json Request body, a JSON array
+     * @return One result per element, in request order (404 unknown id, 409 name taken)
+     */
+    BulkWriteResponse updateProducts(InputStream json);
+
+    /**
+     * Deletes the products of a JSON array of ids, streamed like createProducts. Per batch: one _id lookup,
+     * one deleteMany
+     * @param json Request body, a JSON array of ObjectId strings
+     * @return One result per element, in request order (404 unknown id)
+     */
+    BulkWriteResponse deleteProducts(InputStream json);
+
+    /**
+     * Deletes every product of a category, app.bulk.batch-size at a time (find _ids, deleteMany, evict)
+     * @param category Exact category
+     * @return Matched and deleted counts
+     */
+    CategoryDeleteResponse deleteProductsByCategory(String category);
+
+    /**
+     * Adjusts the price of every product of a filter inside MongoDB: one updateMany with a pipeline update
+     * (price * (1 + percent / 100) or price + amount, bounded to 0.01..999999.99, rounded to cents).
+     * Only the cache entries that can hold a matching product are evicted
+     * @param filter Products to reprice; empty -> FILTER_REQUIRED
+     * @param request Exactly one of percent or amount
+     * @return Matched and modified counts
+     */
+    RepriceResponse repriceProducts(ProductFilter filter, RepriceRequest request);
+}
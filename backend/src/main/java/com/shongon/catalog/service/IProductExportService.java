@@ -0,0 +1,21 @@
+package com.shongon.catalog.service;
+
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface IProductExportService {
+    /**
+     * Writes every product matching the filter to the stream, read from one MongoDB cursor (app.export.batch-size
+     * documents per getMore). Nothing is collected: a slow reader blocks the writes, which hold back the next
+     * getMore, so memory stays constant whatever the catalog size
+     * @param filter Category / price filter, ProductFilter.NONE for the whole catalog
+     * @param format NDJSON or CSV
+     * @param gzip Compress the stream (the caller sets Content-Encoding)
+     * @param out Response body; not closed
+     * @return Number of products written
+     */
+    long exportProducts(ProductFilter filter, ExportFormat format, boolean gzip, OutputStream out) throws IOException;
+}
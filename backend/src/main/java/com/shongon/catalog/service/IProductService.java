@@ -1,19 +1,27 @@
 package com.shongon.catalog.service;
 
 import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.ProductFields;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
 import com.shongon.catalog.dto.response.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Optional;
 
 public interface IProductService {
     // Read operations
-    Page<ViewAllProductsResponse> viewAllProducts(Pageable pageable);
+    Page<ViewAllProductsResponse> viewAllProducts(Pageable pageable, ProductFields fields);
+    Slice<ViewAllProductsResponse> viewAllProductsSlice(Pageable pageable, ProductFields fields); // no count
     GetProductResponse getProductById(String productId);
 
     // Write operations
     CreateProductResponse createProduct(CreateProductRequest request);
     UpdateProductResponse updateProduct(String productId, UpdateProductRequest request);
+    // One $set written now, or with app.write-behind buffered (see PriceWriteBehindBuffer): empty when answered
+    // before its flush (durability ACCEPTED)
+    Optional<UpdateProductResponse> updatePrice(String productId, Double price);
     void deleteProduct(String productId);
 
 }
@@ -0,0 +1,14 @@
+package com.shongon.catalog.service;
+
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+
+import java.util.List;
+
+public interface IRelatedProductService {
+    /**
+     * Related products served from the precomputed neighbor lists (no similarity query per view)
+     * @param productId Id of the product being viewed
+     * @return Most similar products of the same category and price neighborhood, most similar first
+     */
+    List<ViewAllProductsResponse> getRelatedProducts(String productId);
+}
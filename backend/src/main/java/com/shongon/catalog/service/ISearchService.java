@@ -1,11 +1,30 @@
 package com.shongon.catalog.service;
 
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.SearchCacheStatsResponse;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.SearchSortField;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 
 public interface ISearchService {
     Page<ViewAllProductsResponse> searchProducts(
-            String keyword, int page, int size, String sortBy, String direction
+            String keyword, int page, int size, SearchSortField sortBy, Sort.Direction direction, ProductFields fields
     );
+
+    // Infinite scroll: size + 1 products tell hasNext, the total is never counted
+    Slice<ViewAllProductsResponse> searchProductsSlice(
+            String keyword, int page, int size, SearchSortField sortBy, Sort.Direction direction, ProductFields fields
+    );
+
+    FacetedPage<ViewAllProductsResponse> searchProductsWithFacets(
+            String keyword, int page, int size, SearchSortField sortBy, Sort.Direction direction, ProductFields fields
+    );
+
+    // Search-as-you-type candidate cache
+    SearchCacheStatsResponse getCandidateCacheStats();
+    void evictCandidateCache();
 }
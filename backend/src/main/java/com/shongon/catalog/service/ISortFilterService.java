@@ -1,16 +1,60 @@
 package com.shongon.catalog.service;
 
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.CursorPage;
+import com.shongon.catalog.dto.response.FacetedPage;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
-import com.shongon.catalog.enums.SortField;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Slice;
 
+/*
+    Listings of /products/filter and /products/sort: a typed ProductFilter (categories + price range)
+    combined with a ProductSort (one or more keys + unique tiebreaker),
+    served as pages, faceted pages, slices or keyset cursors
+ */
 public interface ISortFilterService {
     Page<ViewAllProductsResponse> filterAndSortProducts(
-            String category,
-            SortField sortBy,
-            Sort.Direction direction,
-            Pageable pageable
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
+    );
+
+    /**
+     * Same filter, sort and page as filterAndSortProducts without the count query,
+     * for clients that never show totalElements / totalPages (infinite scroll)
+     * @return Page content and whether a next page exists, read as size + 1 keys
+     */
+    Slice<ViewAllProductsResponse> filterAndSortProductsSlice(
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
+    );
+
+    FacetedPage<ViewAllProductsResponse> filterAndSortProductsWithFacets(
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
+    );
+
+    /**
+     * Keyset pagination: seeks on the sort keys (ending with a unique key) after the cursor instead of skip/limit,
+     * so every page costs the same whatever the depth
+     * @param cursor nextCursor of the previous page; null or blank for the first page
+     * @param size Page size
+     * @param fields Fields read and returned; sort keys are read on top to build the next cursor
+     * @return Page without total, carrying the cursor of the next page
+     */
+    CursorPage<ViewAllProductsResponse> filterAndSortProductsByCursor(
+            ProductFilter filter,
+            ProductSort sort,
+            String cursor,
+            int size,
+            ProductFields fields
     );
 }
@@ -55,18 +55,23 @@ public class CacheServiceImpl implements ICacheService {
     @Override
     public void evictCacheByPattern(String pattern) {
         try {
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("Evicted {} cache entries with pattern: {}", keys.size(), pattern);
-            } else {
-                log.debug("No cache entries found for pattern: {}", pattern);
-            }
+            evictCacheByPatternOrThrow(pattern);
         } catch (Exception e) {
             log.error("Error evicting cache with pattern: {}", pattern, e);
         }
     }
 
+    @Override
+    public void evictCacheByPatternOrThrow(String pattern) {
+        Set<String> keys = redisTemplate.keys(pattern);
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+            log.info("Evicted {} cache entries with pattern: {}", keys.size(), pattern);
+        } else {
+            log.debug("No cache entries found for pattern: {}", pattern);
+        }
+    }
+
     @Override
     public String generateCacheKey(String prefix, Object... params) {
         StringBuilder keyBuilder = new StringBuilder(cachePrefix).append(prefix);
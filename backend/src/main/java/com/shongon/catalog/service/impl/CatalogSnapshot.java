@@ -0,0 +1,826 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.PriceBucketCount;
+import com.shongon.catalog.dto.response.ProductFacets;
+import com.shongon.catalog.event.ProductEvent;
+import com.shongon.catalog.event.ProductEventSubscriber;
+import com.shongon.catalog.model.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+    In-memory, columnar copy of the catalog serving the skip/limit pages of /products/filter and /products/sort
+    without a MongoDB round trip. One row per product, one primitive array per column:
+        ids[]  prices[] (NaN = no price)  categoryCodes[] -> categories[]  nameCodes[] -> names[]
+    plus row permutations presorted per (category | all) x (_id | price, _id | name), ascending: a DESC page walks
+    the same permutation backwards, a price range is a binary-searched slice of the price permutation.
+    Rows are also indexed per attribute value (category, price facet bucket) as OrdinalBitmaps: any combination of
+    filters is a bitmap AND / OR, its total and facet counts are cardinalities, and the permutation is only walked
+    until the page is full. Descriptions are not held -> pages that return them fetch the page's documents by _id.
+
+    Built off the startup thread, then patched on every create / update / delete of this instance (copy-on-write:
+    readers never lock), or with app.change-stream.enabled on every change of the collection from the change stream
+    alone (direct calls are then ignored). Replaced versions stay as dead rows until a background compaction drops
+    them. Until built, and for shapes it does not hold (multi-key sorts), callers
+    use MongoDB.
+ */
+@Slf4j
+@Component
+@Order(ProductEventSubscriber.INDEXES)
+public class CatalogSnapshot implements ProductEventSubscriber {
+    private static final int NO_CODE = -1;    // no name / no category
+    private static final int ALL = -2;        // permutation key of the unfiltered listing
+    private static final double COMPACT_RATIO = 0.25; // dead rows / rows above which the columns are compacted
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean followsChangeStream;
+    private final double[] boundaries; // price facet buckets (app.facets.price-buckets), ascending
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Published immutable -> lock-free reads; null until built
+    private volatile Columns columns;
+
+    // Guarded by "this" -> single writer
+    private Map<ObjectId, Integer> rowById = new HashMap<>();
+    private Map<String, Integer> nameCodes = new HashMap<>();
+    private List<Write> pendingWrites; // non-null while building: replayed on top of what the build read
+    private List<Write> compactionWrites; // non-null while compacting: applied now, replayed on the compacted columns
+    private int deadRows;
+    private int generation; // bumped by every publish: a compaction of older columns is dropped
+
+    public CatalogSnapshot(
+            MongoTemplate mongoTemplate,
+            @Value("${app.snapshot.enabled:false}") boolean enabled,
+            @Value("${app.facets.price-buckets}") List<Double> priceBoundaries,
+            @Value("${app.change-stream.enabled:false}") boolean followsChangeStream
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.followsChangeStream = followsChangeStream;
+        this.boundaries = priceBoundaries.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    /**
+     * Rows of a filtered, sorted page
+     * @return Products with id, name, price and category, in page order; null when the request must go to MongoDB
+     */
+    public Rows find(ProductFilter filter, ProductSort sort, Pageable pageable) {
+        Columns snapshot = columns;
+        Order order = Order.of(sort.toSort());
+        if (snapshot == null || order == null || pageable.getSort().isSorted()) {
+            return null;
+        }
+        return page(snapshot, filter, order, sort.toSort().iterator().next().isDescending(), pageable);
+    }
+
+    // Same page, plus category / price bucket counts of the whole match from bitmap cardinalities
+    public FacetedPage<Product> findWithFacets(ProductFilter filter, ProductSort sort, Pageable pageable) {
+        Columns snapshot = columns;
+        Order order = Order.of(sort.toSort());
+        if (snapshot == null || order == null || pageable.getSort().isSorted()) {
+            return null;
+        }
+        Rows rows = page(snapshot, filter, order, sort.toSort().iterator().next().isDescending(), pageable);
+        OrdinalBitmap matching = matching(snapshot, filter);
+
+        // Most frequent first, as $sortByCount
+        Map<String, Long> categories = new LinkedHashMap<>();
+        IntStream.range(0, snapshot.categories.length).boxed()
+                .map(code -> Map.entry(snapshot.categories[code], (long) matching.andCardinality(snapshot.categoryRows[code])))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> categories.put(entry.getKey(), entry.getValue()));
+
+        // Every configured bucket, empty ones included; "other" only when it has products (as FacetServiceImpl)
+        List<PriceBucketCount> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < boundaries.length - 1; bucket++) {
+            buckets.add(PriceBucketCount.builder()
+                    .min(boundaries[bucket])
+                    .max(boundaries[bucket + 1])
+                    .count(matching.andCardinality(snapshot.bucketRows[bucket]))
+                    .build());
+        }
+        int other = matching.andCardinality(snapshot.bucketRows[otherBucket()]);
+        if (other > 0) {
+            buckets.add(PriceBucketCount.builder().count(other).build());
+        }
+
+        ProductFacets facets = ProductFacets.builder().categories(categories).priceBuckets(buckets).build();
+        return new FacetedPage<>(rows.products(), pageable, rows.total(), facets);
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingWrites != null) {
+                return; // already building
+            }
+            pendingWrites = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        List<Product> products = new ArrayList<>();
+        try {
+            Query query = new Query();
+            query.fields().include("name", "price", "category"); // everything but description
+            try (Stream<Product> stream = mongoTemplate.stream(query, Product.class)) {
+                stream.forEach(products::add);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingWrites = null;
+            }
+            log.error("Catalog snapshot build failed, listings stay on MongoDB", e);
+            return;
+        }
+
+        synchronized (this) {
+            publish(products);
+            // Writes made while reading: applying them again is harmless (upsert / delete by id)
+            List<Write> writes = pendingWrites;
+            pendingWrites = null;
+            replay(writes);
+        }
+        log.info("Catalog snapshot built: {} products in {} ms", products.size(), System.currentTimeMillis() - start);
+    }
+
+    // Writes made in MongoDB without their documents (updateMany): re-read in the background, the current columns
+    // keep serving until then
+    public void refresh() {
+        if (!followsChangeStream) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public boolean followsChangeStream() {
+        return followsChangeStream;
+    }
+
+    // Single-product writes, from the event bus (or every write, from the change stream): last state per product
+    // (null -> deleted), patched in as one batch
+    @Override
+    public synchronized void onEvents(List<ProductEvent> events) {
+        Map<ObjectId, Product> changes = new LinkedHashMap<>();
+        events.forEach(event -> changes.put(event.productId(), event.after()));
+        write(changes);
+    }
+
+    @Override
+    public void onResync() {
+        scheduleRebuild();
+    }
+
+    // Direct calls (bulk writes, write-behind flush): ignored when the change stream brings the same writes
+    public synchronized void onProductSaved(Product product) {
+        if (!followsChangeStream) {
+            write(Collections.singletonMap(product.getId(), product));
+        }
+    }
+
+    public synchronized void onProductDeleted(ObjectId productId) {
+        if (!followsChangeStream) {
+            write(Collections.singletonMap(productId, null));
+        }
+    }
+
+    // Bulk writes: the whole batch in one pass over each touched permutation, whatever its size
+    public synchronized void onProductsSaved(List<Product> products) {
+        if (!followsChangeStream) {
+            Map<ObjectId, Product> changes = new LinkedHashMap<>();
+            products.forEach(product -> changes.put(product.getId(), product));
+            write(changes);
+        }
+    }
+
+    public synchronized void onProductsDeleted(Collection<ObjectId> productIds) {
+        if (!followsChangeStream) {
+            Map<ObjectId, Product> changes = new LinkedHashMap<>();
+            productIds.forEach(id -> changes.put(id, null));
+            write(changes);
+        }
+    }
+
+    // HELPER PRIVATE METHODS
+    private void scheduleRebuild() {
+        if (enabled) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    private Rows page(Columns snapshot, ProductFilter filter, Order order, boolean descending, Pageable pageable) {
+        // 1 category -> its own permutation, several -> the "all" permutation
+        int[] permutation = filter.getCategories().size() == 1
+                ? snapshot.permutation(snapshot.categoryCode(filter.getCategories().get(0)), order)
+                : snapshot.permutation(ALL, order);
+
+        // Price range under a price sort -> contiguous slice, bounds found by binary search
+        boolean priceChecked = !filter.hasPriceRange();
+        int from = 0;
+        int to = permutation.length;
+        if (order == Order.PRICE && !priceChecked) {
+            from = snapshot.firstPriceAtLeast(permutation, minPrice(filter), false);
+            to = snapshot.firstPriceAtLeast(permutation, maxPrice(filter), true);
+            priceChecked = true;
+        }
+
+        long offset = pageable.getOffset();
+        int limit = pageable.getPageSize();
+        List<Product> products = new ArrayList<>(Math.min(limit, 64));
+        if (filter.getCategories().size() <= 1 && priceChecked) {
+            // Every row of the slice matches -> total is its length, the page is read directly
+            long total = Math.max(0, to - from);
+            for (long i = offset; i < Math.min(total, offset + limit); i++) {
+                products.add(snapshot.product(permutation[descending ? (int) (to - 1 - i) : (int) (from + i)]));
+            }
+            return new Rows(products, total);
+        }
+
+        // Otherwise: rows of the whole filter as a bitmap -> total is its cardinality,
+        // the permutation is only walked until the page is full
+        OrdinalBitmap matching = matching(snapshot, filter);
+        long skipped = 0;
+        for (int i = 0; i < to - from && products.size() < limit; i++) {
+            int row = permutation[descending ? to - 1 - i : from + i];
+            if (matching.contains(row) && skipped++ >= offset) {
+                products.add(snapshot.product(row));
+            }
+        }
+        return new Rows(products, matching.cardinality());
+    }
+
+    // (category1 OR category2 ...) AND price range; every live row without a filter
+    private OrdinalBitmap matching(Columns snapshot, ProductFilter filter) {
+        OrdinalBitmap rows = null;
+        if (!filter.getCategories().isEmpty()) {
+            rows = OrdinalBitmap.EMPTY;
+            for (String category : filter.getCategories()) {
+                int code = snapshot.categoryCode(category);
+                if (code != NO_CODE) {
+                    rows = rows.or(snapshot.categoryRows[code]);
+                }
+            }
+        }
+        if (filter.hasPriceRange()) {
+            OrdinalBitmap priced = priceRows(snapshot, minPrice(filter), maxPrice(filter));
+            rows = rows == null ? priced : rows.and(priced);
+        }
+        if (rows == null) {
+            rows = OrdinalBitmap.EMPTY;
+            for (OrdinalBitmap bucket : snapshot.bucketRows) {
+                rows = rows.or(bucket); // every live row is in exactly 1 bucket
+            }
+        }
+        return rows;
+    }
+
+    // Buckets inside [min, max] are taken whole, the ones it cuts (and "other") are checked row by row
+    private OrdinalBitmap priceRows(Columns snapshot, double min, double max) {
+        OrdinalBitmap rows = OrdinalBitmap.EMPTY;
+        OrdinalBitmap.Builder partial = new OrdinalBitmap.Builder();
+        for (int bucket = 0; bucket < snapshot.bucketRows.length; bucket++) {
+            boolean other = bucket == otherBucket();
+            if (!other && (boundaries[bucket + 1] <= min || boundaries[bucket] > max)) {
+                continue; // disjoint
+            }
+            if (!other && boundaries[bucket] >= min && boundaries[bucket + 1] <= max) {
+                rows = rows.or(snapshot.bucketRows[bucket]);
+                continue;
+            }
+            for (int row : snapshot.bucketRows[bucket].toArray()) {
+                if (snapshot.prices[row] >= min && snapshot.prices[row] <= max) {
+                    partial.add(row); // NaN (no price) never matches, as $gte / $lte
+                }
+            }
+        }
+        return rows.or(partial.build());
+    }
+
+    private static double minPrice(ProductFilter filter) {
+        return filter.getMinPrice() != null ? filter.getMinPrice() : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double maxPrice(ProductFilter filter) {
+        return filter.getMaxPrice() != null ? filter.getMaxPrice() : Double.POSITIVE_INFINITY;
+    }
+
+    // Buckets [b0, b1), [b1, b2) ... then "other": no price, or outside every bucket
+    private int otherBucket() {
+        return boundaries.length - 1;
+    }
+
+    private int bucketOf(double price) {
+        if (Double.isNaN(price) || price < boundaries[0] || price >= boundaries[boundaries.length - 1]) {
+            return otherBucket();
+        }
+        int index = Arrays.binarySearch(boundaries, price);
+        return index >= 0 ? index : -index - 2; // insertion point - 1 -> the bucket starting below
+    }
+
+    private void write(Map<ObjectId, Product> changes) {
+        if (pendingWrites != null) {
+            changes.forEach((id, product) -> pendingWrites.add(new Write(id, product)));
+        } else if (columns != null) {
+            if (compactionWrites != null) {
+                changes.forEach((id, product) -> compactionWrites.add(new Write(id, product)));
+            }
+            apply(changes);
+            compactIfNeeded();
+        } // not built (disabled or failed) -> nothing to keep in sync
+    }
+
+    // Writes recorded while building / compacting: last state per product, applied as one batch
+    private void replay(List<Write> writes) {
+        Map<ObjectId, Product> changes = new LinkedHashMap<>();
+        writes.forEach(write -> changes.put(write.id(), write.product()));
+        apply(changes);
+    }
+
+    /*
+        One batch, one product at most once (null -> deleted). Old versions leave the bitmaps, new versions are
+        appended (columns are append-only, so rows published to readers never change) and join the bitmaps; the
+        old rows stay in the columns, unreachable, until compaction. Then every permutation the batch touches is
+        patched once: O(rows) copy plus O(batch x log rows) searches, instead of one full copy per product
+     */
+    private void apply(Map<ObjectId, Product> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Columns current = columns;
+        Columns next = current;
+        OrdinalBitmap[] bucketRows = current.bucketRows.clone();
+        OrdinalBitmap[] categoryRows = current.categoryRows.clone();
+        int[] leaving = new int[changes.size()];
+        int[] entering = new int[changes.size()];
+        int leavingCount = 0;
+        int enteringCount = 0;
+
+        for (Map.Entry<ObjectId, Product> change : changes.entrySet()) {
+            Integer oldRow = rowById.remove(change.getKey());
+            if (oldRow != null) {
+                leaving[leavingCount++] = oldRow;
+                int bucket = bucketOf(current.prices[oldRow]);
+                bucketRows[bucket] = bucketRows[bucket].without(oldRow);
+                if (current.categoryCodes[oldRow] != NO_CODE) {
+                    categoryRows[current.categoryCodes[oldRow]] = categoryRows[current.categoryCodes[oldRow]].without(oldRow);
+                }
+                deadRows++;
+            }
+            if (change.getValue() != null) {
+                next = next.append(change.getValue(), nameCodes);
+                int row = next.rows - 1;
+                rowById.put(change.getKey(), row);
+                entering[enteringCount++] = row;
+                int bucket = bucketOf(next.prices[row]);
+                bucketRows[bucket] = bucketRows[bucket].with(row);
+                if (next.categoryCodes[row] != NO_CODE) {
+                    if (next.categoryCodes[row] == categoryRows.length) {
+                        categoryRows = Arrays.copyOf(categoryRows, categoryRows.length + 1); // new category
+                        categoryRows[next.categoryCodes[row]] = OrdinalBitmap.EMPTY;
+                    }
+                    categoryRows[next.categoryCodes[row]] = categoryRows[next.categoryCodes[row]].with(row);
+                }
+            }
+        }
+
+        // Touched permutations: "all" and the categories rows leave or enter (next holds every row of current)
+        Set<Integer> keys = new HashSet<>();
+        for (int i = 0; i < leavingCount; i++) {
+            keys.addAll(permutationKeys(next, leaving[i]));
+        }
+        for (int i = 0; i < enteringCount; i++) {
+            keys.addAll(permutationKeys(next, entering[i]));
+        }
+        Map<Integer, int[][]> permutations = new HashMap<>(current.permutations);
+        for (int key : keys) {
+            permutations.put(key, next.patch(permutations.getOrDefault(key, Order.empty()),
+                    rowsOf(next, key, leaving, leavingCount), rowsOf(next, key, entering, enteringCount)));
+        }
+        columns = next.withIndexes(permutations, categoryRows, bucketRows);
+    }
+
+    // Off the writer: the compacted copy is built from the published columns, the writes made meanwhile replayed on it
+    private void compactIfNeeded() {
+        if (deadRows > columns.rows * COMPACT_RATIO && compactionWrites == null) {
+            compactionWrites = new ArrayList<>();
+            Columns source = columns;
+            int sourceGeneration = generation;
+            executor.execute(() -> compact(source, sourceGeneration));
+        }
+    }
+
+    private static List<Integer> permutationKeys(Columns columns, int row) {
+        int category = columns.categoryCodes[row];
+        return category != NO_CODE ? List.of(ALL, category) : List.of(ALL);
+    }
+
+    private static int[] rowsOf(Columns columns, int key, int[] rows, int count) {
+        return Arrays.stream(rows, 0, count)
+                .filter(row -> key == ALL || columns.categoryCodes[row] == key)
+                .toArray();
+    }
+
+    /*
+        Live rows only, on the snapshot thread: rows renumbered in _id order, every permutation remapped in one pass
+        (its order does not change -> no sort), bitmaps rebuilt. Readers and writers keep using the current columns;
+        under the monitor only the swap and the replay of the writes made meanwhile
+     */
+    private void compact(Columns source, int sourceGeneration) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> compactedNameCodes = new HashMap<>();
+        Map<ObjectId, Integer> compactedRowById = new HashMap<>();
+        Columns compacted = withBitmaps(source.compact(compactedNameCodes, compactedRowById));
+        synchronized (this) {
+            List<Write> writes = compactionWrites;
+            compactionWrites = null;
+            if (generation != sourceGeneration) {
+                return; // rebuilt meanwhile: nothing left to compact
+            }
+            columns = compacted;
+            rowById = compactedRowById;
+            nameCodes = compactedNameCodes;
+            deadRows = 0;
+            replay(writes);
+            compactIfNeeded();
+        }
+        log.debug("Catalog snapshot compacted: {} -> {} rows in {} ms", source.rows, compacted.rows,
+                System.currentTimeMillis() - start);
+    }
+
+    private void publish(List<Product> products) {
+        Map<String, Integer> builtNameCodes = new HashMap<>();
+        Columns built = withBitmaps(Columns.build(products, builtNameCodes));
+        Map<ObjectId, Integer> builtRowById = new HashMap<>();
+        for (int row = 0; row < built.rows; row++) {
+            builtRowById.put(built.ids[row], row);
+        }
+        rowById = builtRowById;
+        nameCodes = builtNameCodes;
+        deadRows = 0;
+        generation++;
+        columns = built;
+    }
+
+    // Row bitmaps per attribute value, every row live: rows are visited in order -> ascending adds
+    private Columns withBitmaps(Columns built) {
+        OrdinalBitmap.Builder[] buckets = Stream.generate(OrdinalBitmap.Builder::new)
+                .limit(boundaries.length).toArray(OrdinalBitmap.Builder[]::new);
+        OrdinalBitmap.Builder[] categories = Stream.generate(OrdinalBitmap.Builder::new)
+                .limit(built.categories.length).toArray(OrdinalBitmap.Builder[]::new);
+        for (int row = 0; row < built.rows; row++) {
+            buckets[bucketOf(built.prices[row])].add(row);
+            if (built.categoryCodes[row] != NO_CODE) {
+                categories[built.categoryCodes[row]].add(row);
+            }
+        }
+        return built.withIndexes(built.permutations,
+                Arrays.stream(categories).map(OrdinalBitmap.Builder::build).toArray(OrdinalBitmap[]::new),
+                Arrays.stream(buckets).map(OrdinalBitmap.Builder::build).toArray(OrdinalBitmap[]::new));
+    }
+
+    public record Rows(List<Product> products, long total) {
+    }
+
+    private record Write(ObjectId id, Product product) {
+    }
+
+    // Sorts held by the snapshot, as ProductSort.toSort() spells them
+    private enum Order {
+        ID, PRICE, NAME;
+
+        static Order of(Sort sort) {
+            List<Sort.Order> orders = sort.toList();
+            if (orders.stream().map(Sort.Order::getDirection).distinct().count() != 1) {
+                return null;
+            }
+            List<String> keys = orders.stream().map(Sort.Order::getProperty).toList();
+            if (keys.equals(List.of("_id"))) return ID;
+            if (keys.equals(List.of("price", "_id"))) return PRICE;
+            if (keys.equals(List.of("name"))) return NAME;
+            return null; // multi-key sorts
+        }
+
+        static int[][] empty() {
+            return new int[values().length][0];
+        }
+    }
+
+    /*
+        Arrays may be longer than "rows": the writer appends past the published rows, then publishes
+        a new Columns with rows + 1. Slots below "rows" are never written again.
+     */
+    private static final class Columns {
+        final int rows;
+        final ObjectId[] ids;
+        final double[] prices;
+        final int[] categoryCodes;
+        final int[] nameCodes;
+        final String[] categories;
+        final String[] names;
+        final Map<Integer, int[][]> permutations; // category code | ALL -> [Order] -> rows, ascending
+        final OrdinalBitmap[] categoryRows;       // category code -> its live rows
+        final OrdinalBitmap[] bucketRows;         // price bucket -> its live rows
+
+        private Columns(int rows, ObjectId[] ids, double[] prices, int[] categoryCodes, int[] nameCodes,
+                        String[] categories, String[] names, Map<Integer, int[][]> permutations,
+                        OrdinalBitmap[] categoryRows, OrdinalBitmap[] bucketRows) {
+            this.rows = rows;
+            this.ids = ids;
+            this.prices = prices;
+            this.categoryCodes = categoryCodes;
+            this.nameCodes = nameCodes;
+            this.categories = categories;
+            this.names = names;
+            this.permutations = permutations;
+            this.categoryRows = categoryRows;
+            this.bucketRows = bucketRows;
+        }
+
+        static Columns build(List<Product> products, Map<String, Integer> nameCodes) {
+            int rows = products.size();
+            Columns columns = new Columns(0, new ObjectId[rows], new double[rows], new int[rows], new int[rows],
+                    new String[0], new String[rows], Map.of(), new OrdinalBitmap[0], new OrdinalBitmap[0]);
+            for (Product product : products) {
+                columns = columns.append(product, nameCodes);
+            }
+
+            Map<Integer, int[][]> permutations = new HashMap<>();
+            int[][] all = new int[Order.values().length][];
+            for (Order order : Order.values()) {
+                all[order.ordinal()] = columns.sorted(IntStream.range(0, rows).toArray(), order);
+            }
+            permutations.put(ALL, all);
+            // Per category: the "all" permutations filtered -> already sorted, no second sort
+            for (int code = 0; code < columns.categories.length; code++) {
+                int[][] byCategory = new int[Order.values().length][];
+                for (Order order : Order.values()) {
+                    int category = code;
+                    int[] categoryCodes = columns.categoryCodes;
+                    byCategory[order.ordinal()] = Arrays.stream(all[order.ordinal()])
+                            .filter(row -> categoryCodes[row] == category)
+                            .toArray();
+                }
+                permutations.put(code, byCategory);
+            }
+            return columns.withIndexes(permutations, columns.categoryRows, columns.bucketRows);
+        }
+
+        // Live rows (the ones in the "all" permutation) renumbered in _id order; same categories, names re-coded
+        Columns compact(Map<String, Integer> nameCodeByName, Map<ObjectId, Integer> rowById) {
+            int[] live = permutation(ALL, Order.ID);
+            int[] renumbered = new int[rows];
+            Columns compacted = new Columns(0, new ObjectId[live.length], new double[live.length],
+                    new int[live.length], new int[live.length], categories, new String[0], Map.of(),
+                    new OrdinalBitmap[0], new OrdinalBitmap[0]);
+            for (int i = 0; i < live.length; i++) {
+                compacted = compacted.append(product(live[i]), nameCodeByName);
+                renumbered[live[i]] = i;
+                rowById.put(ids[live[i]], i);
+            }
+            Map<Integer, int[][]> remapped = new HashMap<>();
+            permutations.forEach((key, byOrder) -> {
+                int[][] rowsByOrder = new int[byOrder.length][];
+                for (int order = 0; order < byOrder.length; order++) {
+                    int[] source = byOrder[order];
+                    int[] target = new int[source.length];
+                    for (int i = 0; i < source.length; i++) {
+                        target[i] = renumbered[source[i]];
+                    }
+                    rowsByOrder[order] = target;
+                }
+                remapped.put(key, rowsByOrder);
+            });
+            return compacted.withIndexes(remapped, compacted.categoryRows, compacted.bucketRows);
+        }
+
+        Columns append(Product product, Map<String, Integer> nameCodeByName) {
+            ObjectId[] newIds = ids;
+            double[] newPrices = prices;
+            int[] newCategoryCodes = categoryCodes;
+            int[] newNameCodes = nameCodes;
+            if (rows == ids.length) {
+                int capacity = Math.max(16, rows + (rows >> 1));
+                newIds = Arrays.copyOf(ids, capacity);
+                newPrices = Arrays.copyOf(prices, capacity);
+                newCategoryCodes = Arrays.copyOf(categoryCodes, capacity);
+                newNameCodes = Arrays.copyOf(nameCodes, capacity);
+            }
+
+            // Dictionaries: a price-only update reuses the codes of its name and category
+            String[] newNames = names;
+            int nameCode = NO_CODE;
+            if (product.getName() != null) {
+                Integer known = nameCodeByName.get(product.getName());
+                if (known == null) {
+                    known = nameCodeByName.size();
+                    if (known == names.length) {
+                        newNames = Arrays.copyOf(names, Math.max(16, known + (known >> 1)));
+                    }
+                    newNames[known] = product.getName();
+                    nameCodeByName.put(product.getName(), known);
+                }
+                nameCode = known;
+            }
+            String[] newCategories = categories;
+            int categoryCode = categoryCode(product.getCategory());
+            if (product.getCategory() != null && categoryCode == NO_CODE) {
+                categoryCode = categories.length;
+                newCategories = Arrays.copyOf(categories, categories.length + 1); // few categories -> exact size
+                newCategories[categoryCode] = product.getCategory();
+            }
+
+            newIds[rows] = product.getId();
+            newPrices[rows] = product.getPrice() != null ? product.getPrice() : Double.NaN;
+            newCategoryCodes[rows] = categoryCode;
+            newNameCodes[rows] = nameCode;
+            return new Columns(rows + 1, newIds, newPrices, newCategoryCodes, newNameCodes,
+                    newCategories, newNames, permutations, categoryRows, bucketRows);
+        }
+
+        Columns withIndexes(Map<Integer, int[][]> newPermutations, OrdinalBitmap[] newCategoryRows,
+                            OrdinalBitmap[] newBucketRows) {
+            return new Columns(rows, ids, prices, categoryCodes, nameCodes, categories, names,
+                    Map.copyOf(newPermutations), newCategoryRows, newBucketRows);
+        }
+
+        int categoryCode(String category) {
+            for (int code = 0; code < categories.length; code++) {
+                if (categories[code].equals(category)) {
+                    return code;
+                }
+            }
+            return NO_CODE;
+        }
+
+        int[] permutation(int key, Order order) {
+            int[][] byOrder = permutations.get(key);
+            return byOrder != null ? byOrder[order.ordinal()] : new int[0];
+        }
+
+        Product product(int row) {
+            return Product.builder()
+                    .id(ids[row])
+                    .name(nameCodes[row] != NO_CODE ? names[nameCodes[row]] : null)
+                    .price(Double.isNaN(prices[row]) ? null : prices[row])
+                    .category(categoryCodes[row] != NO_CODE ? categories[categoryCodes[row]] : null)
+                    .build();
+        }
+
+        // Ascending MongoDB order: missing values first, ties broken by _id (names are unique)
+        int compare(Order order, int a, int b) {
+            int result = switch (order) {
+                case ID -> 0;
+                case PRICE -> comparePrices(prices[a], prices[b]);
+                case NAME -> Comparator.<String>nullsFirst(Comparator.naturalOrder()).compare(
+                        nameCodes[a] != NO_CODE ? names[nameCodes[a]] : null,
+                        nameCodes[b] != NO_CODE ? names[nameCodes[b]] : null);
+            };
+            return result != 0 ? result : ids[a].compareTo(ids[b]);
+        }
+
+        private static int comparePrices(double a, double b) {
+            if (Double.isNaN(a) || Double.isNaN(b)) {
+                return Boolean.compare(!Double.isNaN(a), !Double.isNaN(b));
+            }
+            return Double.compare(a, b);
+        }
+
+        // First position of the price permutation whose price is >= bound (> bound when strict); NaN sorts first
+        int firstPriceAtLeast(int[] permutation, double bound, boolean strict) {
+            int low = 0;
+            int high = permutation.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                double price = prices[permutation[middle]];
+                boolean below = Double.isNaN(price) || (strict ? price <= bound : price < bound);
+                if (below) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /*
+            Per order: positions of the leaving rows binary-searched, the entering rows sorted and their insertion
+            points binary-searched, then one copy of the runs in between. An entering row equal in key to a leaving
+            one (same product, key unchanged) is found at the leaving row's position -> inserted just before it
+         */
+        int[][] patch(int[][] permutation, int[] leaving, int[] entering) {
+            int[][] result = new int[permutation.length][];
+            for (Order order : Order.values()) {
+                int[] rows = permutation[order.ordinal()];
+                int[] removeAt = Arrays.stream(leaving)
+                        .map(row -> search(rows, order, row))
+                        .filter(position -> position >= 0)
+                        .sorted()
+                        .toArray();
+                int[] inserted = sorted(entering, order);
+                int[] insertAt = new int[inserted.length];
+                for (int i = 0; i < inserted.length; i++) {
+                    int position = search(rows, order, inserted[i]);
+                    insertAt[i] = position >= 0 ? position : -position - 1;
+                }
+
+                int[] patched = new int[rows.length - removeAt.length + inserted.length];
+                int from = 0;
+                int to = 0;
+                int removed = 0;
+                int added = 0;
+                while (from < rows.length || added < inserted.length) {
+                    int until = Math.min(removed < removeAt.length ? removeAt[removed] : rows.length,
+                            added < insertAt.length ? insertAt[added] : rows.length);
+                    System.arraycopy(rows, from, patched, to, until - from);
+                    to += until - from;
+                    from = until;
+                    if (added < insertAt.length && insertAt[added] == from) {
+                        patched[to++] = inserted[added++];
+                    } else if (removed < removeAt.length && removeAt[removed] == from) {
+                        from++;
+                        removed++;
+                    }
+                }
+                result[order.ordinal()] = patched;
+            }
+            return result;
+        }
+
+        // Bottom-up merge sort of row numbers in the given order: no boxing, n log n comparisons
+        int[] sorted(int[] rows, Order order) {
+            int[] result = rows.clone();
+            int[] buffer = new int[rows.length];
+            for (int width = 1; width < result.length; width <<= 1) {
+                for (int low = 0; low < result.length - width; low += width << 1) {
+                    int middle = low + width;
+                    int high = Math.min(low + (width << 1), result.length);
+                    int left = low;
+                    int right = middle;
+                    for (int i = low; i < high; i++) {
+                        buffer[i] = right >= high || (left < middle && compare(order, result[left], result[right]) <= 0)
+                                ? result[left++]
+                                : result[right++];
+                    }
+                    System.arraycopy(buffer, low, result, low, high - low);
+                }
+            }
+            return result;
+        }
+
+        // Binary search by (key, _id): unique -> exact position, or -(insertion point) - 1
+        private int search(int[] rows, Order order, int row) {
+            int low = 0;
+            int high = rows.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int compare = compare(order, rows[middle], row);
+                if (compare < 0) {
+                    low = middle + 1;
+                } else if (compare > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
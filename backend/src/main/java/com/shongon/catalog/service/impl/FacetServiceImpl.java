@@ -0,0 +1,158 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.PriceBucketCount;
+import com.shongon.catalog.dto.response.ProductFacets;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.mapper.ProductMapper;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductProjection;
+import com.shongon.catalog.service.IFacetService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FacetServiceImpl implements IFacetService {
+    private static final String OTHER_BUCKET = "other";
+
+    final MongoTemplate mongoTemplate;
+    final ProductMapper productMapper;
+
+    // Ascending bucket boundaries, e.g. [0, 25, 50] -> [0, 25), [25, 50), anything else -> "other"
+    @Value("${app.facets.price-buckets}")
+    private List<Double> priceBoundaries;
+
+    @Override
+    public FacetedPage<ViewAllProductsResponse> findPageWithFacets(Criteria criteria, Sort sort, Pageable pageable,
+                                                                     ProductFields fields, Duration maxTime) {
+        FacetOperation facet = pageAndTotal(pageable, fields)
+                .and(Aggregation.sortByCount("category")).as("categories")
+                .and(Aggregation.bucket("price")
+                        .withBoundaries(priceBoundaries.toArray())
+                        .withDefaultBucket(OTHER_BUCKET)
+                        .andOutputCount().as("count")).as("priceBuckets");
+        /*
+            db.products.aggregate([
+                { $match: {...} }, { $sort: {...} },
+                { $facet: {
+                    page: [ { $skip: n }, { $limit: size }, { $project: {...} }? ],
+                    total: [ { $count: "total" } ],
+                    categories: [ { $sortByCount: "$category" } ],
+                    priceBuckets: [ { $bucket: { groupBy: "$price", boundaries: [...], default: "other" } } ]
+                } }
+            ]) -> 1 round trip instead of find + count + 1 count per category
+         */
+        Document result = aggregate(criteria, sort, facet, maxTime);
+
+        ProductFacets facets = ProductFacets.builder()
+                .categories(toCategoryCounts(result.getList("categories", Document.class, List.of())))
+                .priceBuckets(toPriceBuckets(result.getList("priceBuckets", Document.class, List.of())))
+                .build();
+
+        return new FacetedPage<>(toContent(result), pageable, toTotal(result), facets);
+    }
+
+    @Override
+    public Page<ViewAllProductsResponse> findPageWithTotal(Criteria criteria, Sort sort, Pageable pageable,
+                                                           ProductFields fields, Duration maxTime) {
+        // Same pipeline without the facet counts -> page + total in 1 round trip
+        Document result = aggregate(criteria, sort, pageAndTotal(pageable, fields), maxTime);
+
+        return new PageImpl<>(toContent(result), pageable, toTotal(result));
+    }
+
+    // HELPER PRIVATE METHODS
+    private FacetOperation pageAndTotal(Pageable pageable, ProductFields fields) {
+        List<AggregationOperation> page = new ArrayList<>(List.of(
+                Aggregation.skip(pageable.getOffset()), Aggregation.limit(pageable.getPageSize())));
+        if (!fields.isAll()) {
+            page.add(Aggregation.project(ProductProjection.documentFields(fields))); // after $limit -> only the page is trimmed
+        }
+        return Aggregation
+                .facet(page.toArray(AggregationOperation[]::new)).as("page")
+                .and(Aggregation.count().as("total")).as("total");
+    }
+
+    private Document aggregate(Criteria criteria, Sort sort, FacetOperation facet, Duration maxTime) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(criteria));
+        if (sort.isSorted()) {
+            // $sort must sit before $facet: sub-pipelines of $facet can never use an index
+            stages.add(Aggregation.sort(sort));
+        }
+        stages.add(facet);
+
+        Aggregation aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder().maxTime(maxTime).build());
+        Document result = mongoTemplate
+                .aggregate(aggregation, Product.class, Document.class)
+                .getUniqueMappedResult();
+        return result != null ? result : new Document();
+    }
+
+    private List<ViewAllProductsResponse> toContent(Document result) {
+        return result.getList("page", Document.class, List.of()).stream()
+                .map(doc -> mongoTemplate.getConverter().read(Product.class, doc))
+                .map(productMapper::toViewAllProductsResponse)
+                .toList();
+    }
+
+    private long toTotal(Document result) {
+        return result.getList("total", Document.class, List.of()).stream()
+                .findFirst()
+                .map(doc -> ((Number) doc.get("total")).longValue())
+                .orElse(0L);
+    }
+
+    private Map<String, Long> toCategoryCounts(List<Document> docs) {
+        Map<String, Long> counts = new LinkedHashMap<>(); // keep $sortByCount order
+        for (Document doc : docs) {
+            counts.put(String.valueOf(doc.get("_id")), ((Number) doc.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    private List<PriceBucketCount> toPriceBuckets(List<Document> docs) {
+        Map<Object, Long> countByLowerBound = new HashMap<>();
+        for (Document doc : docs) {
+            Object id = doc.get("_id");
+            countByLowerBound.put(id instanceof Number n ? (Object) n.doubleValue() : id, ((Number) doc.get("count")).longValue());
+        }
+
+        // $bucket omits empty buckets -> emit every configured bucket so the UI gets a stable list
+        List<PriceBucketCount> buckets = new ArrayList<>();
+        for (int i = 0; i < priceBoundaries.size() - 1; i++) {
+            double min = priceBoundaries.get(i);
+            buckets.add(PriceBucketCount.builder()
+                    .min(min)
+                    .max(priceBoundaries.get(i + 1))
+                    .count(countByLowerBound.getOrDefault(min, 0L))
+                    .build());
+        }
+        Long other = countByLowerBound.get(OTHER_BUCKET);
+        if (other != null) {
+            buckets.add(PriceBucketCount.builder().count(other).build());
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,111 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/*
+    Opaque keyset cursor: the sort of the listing (always ending with _id) and the sort key of the last
+    product returned. The next page seeks strictly after that key instead of skipping N documents:
+        sort { price: 1, _id: 1 }, last (12.5, id) ->
+        { $or: [ { price: { $gt: 12.5 } }, { price: 12.5, _id: { $gt: id } } ] }
+    -> MongoDB starts the index scan at the key, whatever the depth.
+ */
+public record KeysetCursor(Sort sort, List<Object> lastValues) {
+
+    // Sort key of the last product of the page
+    public static KeysetCursor after(Sort sort, Product last) {
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            values.add(valueOf(last, order.getProperty()));
+        }
+        return new KeysetCursor(sort, values);
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            Document cursor = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            List<Document> orders = cursor.getList("sort", Document.class);
+            List<Object> values = cursor.getList("last", Object.class);
+            if (orders == null || values == null || orders.isEmpty() || orders.size() != values.size()) {
+                throw new ProductCatalogException(ErrorCode.INVALID_CURSOR);
+            }
+
+            List<Sort.Order> sortOrders = orders.stream()
+                    .map(order -> new Sort.Order(
+                            order.getInteger("d") < 0 ? Sort.Direction.DESC : Sort.Direction.ASC,
+                            order.getString("f")))
+                    .toList();
+            return new KeysetCursor(Sort.by(sortOrders), values);
+        } catch (ProductCatalogException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Not base64, not JSON, wrong shape -> client error, not a 500
+            throw new ProductCatalogException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public String encode() {
+        List<Document> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(new Document("f", order.getProperty()).append("d", order.isAscending() ? 1 : -1));
+        }
+        String json = new Document("sort", orders).append("last", lastValues).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Documents strictly after the last key in sort order (null sorts lowest in MongoDB)
+    public Criteria toSeekCriteria() {
+        List<Sort.Order> orders = sort.toList();
+        List<Criteria> branches = new ArrayList<>();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Criteria beyond = beyond(orders.get(i), lastValues.get(i));
+            if (beyond == null) {
+                continue; // nothing sorts after null in descending order
+            }
+            List<Criteria> branch = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                branch.add(Criteria.where(orders.get(j).getProperty()).is(lastValues.get(j)));
+            }
+            branch.add(beyond);
+            branches.add(branch.size() == 1 ? branch.get(0) : new Criteria().andOperator(branch));
+        }
+
+        return branches.size() == 1 ? branches.get(0) : new Criteria().orOperator(branches);
+    }
+
+    // HELPER PRIVATE METHODS
+    private static Criteria beyond(Sort.Order order, Object value) {
+        String field = order.getProperty();
+        if (order.isAscending()) {
+            return value == null ? Criteria.where(field).ne(null) : Criteria.where(field).gt(value);
+        }
+        if (value == null) {
+            return null;
+        }
+        if ("_id".equals(field)) {
+            return Criteria.where(field).lt(value); // never null
+        }
+        // $lt never matches null/missing (type bracketing), but those sort last in descending order
+        return new Criteria().orOperator(Criteria.where(field).lt(value), Criteria.where(field).is(null));
+    }
+
+    private static Object valueOf(Product product, String field) {
+        return switch (field) {
+            case "_id" -> product.getId();
+            case "name" -> product.getName();
+            case "price" -> product.getPrice();
+            case "category" -> product.getCategory();
+            default -> throw new IllegalStateException("Unsupported cursor field: " + field);
+        };
+    }
+}
@@ -0,0 +1,489 @@
+package com.shongon.catalog.service.impl;
+
+import java.util.Arrays;
+
+/*
+    Compressed set of non-negative ints (dense product ordinals), roaring-style: values are split by their high
+    16 bits into chunks of 65536 values; a chunk holding <= 4096 values is a sorted char[] (2 bytes per value),
+    a denser one a bitmap of 1024 longs (8 KB, 1 bit per possible value). AND / OR run chunk by chunk with the
+    cheapest algorithm for the pair of chunk kinds, and cardinalities are kept per chunk -> counts are free.
+    Immutable: with / without copy only the chunk they touch, so a bitmap can be published to lock-free readers.
+ */
+public final class OrdinalBitmap {
+    public static final OrdinalBitmap EMPTY = new OrdinalBitmap(new char[0], new Chunk[0]);
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private final char[] keys; // high 16 bits, ascending
+    private final Chunk[] chunks;
+    private final int cardinality;
+
+    private OrdinalBitmap(char[] keys, Chunk[] chunks) {
+        this.keys = keys;
+        this.chunks = chunks;
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.cardinality();
+        }
+        this.cardinality = total;
+    }
+
+    public static OrdinalBitmap of(int... values) {
+        Builder builder = new Builder();
+        for (int value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        return index >= 0 && chunks[index].contains(low(value));
+    }
+
+    public OrdinalBitmap with(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        if (index >= 0) {
+            Chunk updated = chunks[index].add(low(value));
+            return updated == chunks[index] ? this : replace(index, updated);
+        }
+        int insertAt = -index - 1;
+        char[] newKeys = new char[keys.length + 1];
+        Chunk[] newChunks = new Chunk[chunks.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertAt);
+        System.arraycopy(chunks, 0, newChunks, 0, insertAt);
+        newKeys[insertAt] = high(value);
+        newChunks[insertAt] = new ArrayChunk(new char[]{low(value)});
+        System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+        System.arraycopy(chunks, insertAt, newChunks, insertAt + 1, chunks.length - insertAt);
+        return new OrdinalBitmap(newKeys, newChunks);
+    }
+
+    public OrdinalBitmap without(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        if (index < 0) {
+            return this;
+        }
+        Chunk updated = chunks[index].remove(low(value));
+        if (updated == chunks[index]) {
+            return this;
+        }
+        if (updated.cardinality() > 0) {
+            return replace(index, updated);
+        }
+        // Last value of the chunk -> drop the chunk
+        char[] newKeys = new char[keys.length - 1];
+        Chunk[] newChunks = new Chunk[chunks.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(chunks, 0, newChunks, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(chunks, index + 1, newChunks, index, chunks.length - index - 1);
+        return new OrdinalBitmap(newKeys, newChunks);
+    }
+
+    public OrdinalBitmap and(OrdinalBitmap other) {
+        char[] newKeys = new char[Math.min(keys.length, other.keys.length)];
+        Chunk[] newChunks = new Chunk[newKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            int compare = Character.compare(keys[i], other.keys[j]);
+            if (compare == 0) {
+                Chunk chunk = chunks[i].and(other.chunks[j]);
+                if (chunk.cardinality() > 0) {
+                    newKeys[size] = keys[i];
+                    newChunks[size++] = chunk;
+                }
+                i++;
+                j++;
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new OrdinalBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newChunks, size));
+    }
+
+    // |this AND other| without building the intersection -> facet counts
+    public int andCardinality(OrdinalBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            int compare = Character.compare(keys[i], other.keys[j]);
+            if (compare == 0) {
+                count += chunks[i++].andCardinality(other.chunks[j++]);
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    public OrdinalBitmap or(OrdinalBitmap other) {
+        char[] newKeys = new char[keys.length + other.keys.length];
+        Chunk[] newChunks = new Chunk[newKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            int compare = i == keys.length ? 1 : j == other.keys.length ? -1 : Character.compare(keys[i], other.keys[j]);
+            if (compare == 0) {
+                newKeys[size] = keys[i];
+                newChunks[size++] = chunks[i++].or(other.chunks[j++]);
+            } else if (compare < 0) {
+                newKeys[size] = keys[i];
+                newChunks[size++] = chunks[i++]; // immutable -> shared
+            } else {
+                newKeys[size] = other.keys[j];
+                newChunks[size++] = other.chunks[j++];
+            }
+        }
+        return new OrdinalBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newChunks, size));
+    }
+
+    // Values in ascending order
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int offset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            offset = chunks[i].copyTo(values, offset, keys[i] << 16);
+        }
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof OrdinalBitmap bitmap && Arrays.equals(toArray(), bitmap.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "OrdinalBitmap" + Arrays.toString(toArray());
+    }
+
+    // HELPER PRIVATE METHODS
+    private OrdinalBitmap replace(int index, Chunk chunk) {
+        Chunk[] newChunks = chunks.clone();
+        newChunks[index] = chunk;
+        return new OrdinalBitmap(keys, newChunks);
+    }
+
+    private static char high(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Ordinals are non-negative: " + value);
+        }
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    // Collects values in any order, sorts and splits them into chunks once
+    public static final class Builder {
+        private int[] values = new int[16];
+        private int size;
+
+        public Builder add(int value) {
+            high(value); // validates
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1));
+            }
+            values[size++] = value;
+            return this;
+        }
+
+        public OrdinalBitmap build() {
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            char[] keys = new char[size];
+            Chunk[] chunks = new Chunk[size];
+            int count = 0;
+            int start = 0;
+            while (start < sorted.length) {
+                char key = high(sorted[start]);
+                char[] lows = new char[Math.min(sorted.length - start, 1 << 16)];
+                int distinct = 0;
+                int end = start;
+                while (end < sorted.length && high(sorted[end]) == key) {
+                    if (distinct == 0 || lows[distinct - 1] != low(sorted[end])) {
+                        lows[distinct++] = low(sorted[end]);
+                    }
+                    end++;
+                }
+                keys[count] = key;
+                chunks[count++] = chunkOf(Arrays.copyOf(lows, distinct));
+                start = end;
+            }
+            return new OrdinalBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(chunks, count));
+        }
+    }
+
+    // Sorted, distinct lows -> the smaller representation
+    private static Chunk chunkOf(char[] lows) {
+        if (lows.length <= ARRAY_MAX) {
+            return new ArrayChunk(lows);
+        }
+        long[] words = new long[WORDS];
+        for (char value : lows) {
+            words[value >>> 6] |= 1L << value;
+        }
+        return new BitmapChunk(words, lows.length);
+    }
+
+    private interface Chunk {
+        int cardinality();
+
+        boolean contains(char value);
+
+        Chunk add(char value); // this when already present
+
+        Chunk remove(char value); // this when absent
+
+        Chunk and(Chunk other);
+
+        int andCardinality(Chunk other);
+
+        Chunk or(Chunk other);
+
+        int copyTo(int[] target, int offset, int high);
+    }
+
+    private record ArrayChunk(char[] values) implements Chunk {
+        @Override
+        public int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        public Chunk add(char value) {
+            int index = Arrays.binarySearch(values, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (values.length == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            int insertAt = -index - 1;
+            char[] copy = new char[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, insertAt);
+            copy[insertAt] = value;
+            System.arraycopy(values, insertAt, copy, insertAt + 1, values.length - insertAt);
+            return new ArrayChunk(copy);
+        }
+
+        @Override
+        public Chunk remove(char value) {
+            int index = Arrays.binarySearch(values, value);
+            if (index < 0) {
+                return this;
+            }
+            char[] copy = new char[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, index);
+            System.arraycopy(values, index + 1, copy, index, values.length - index - 1);
+            return new ArrayChunk(copy);
+        }
+
+        @Override
+        public Chunk and(Chunk other) {
+            char[] result = new char[values.length];
+            int size = 0;
+            if (other instanceof ArrayChunk array) {
+                // Merge of 2 sorted arrays
+                int i = 0;
+                int j = 0;
+                while (i < values.length && j < array.values.length) {
+                    if (values[i] == array.values[j]) {
+                        result[size++] = values[i];
+                        i++;
+                        j++;
+                    } else if (values[i] < array.values[j]) {
+                        i++;
+                    } else {
+                        j++;
+                    }
+                }
+            } else {
+                for (char value : values) {
+                    if (other.contains(value)) {
+                        result[size++] = value;
+                    }
+                }
+            }
+            return new ArrayChunk(Arrays.copyOf(result, size));
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            int count = 0;
+            for (char value : values) {
+                if (other.contains(value)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk) {
+                return other.or(this);
+            }
+            char[] otherValues = ((ArrayChunk) other).values;
+            char[] result = new char[values.length + otherValues.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < values.length || j < otherValues.length) {
+                if (j == otherValues.length || (i < values.length && values[i] < otherValues[j])) {
+                    result[size++] = values[i++];
+                } else if (i == values.length || otherValues[j] < values[i]) {
+                    result[size++] = otherValues[j++];
+                } else {
+                    result[size++] = values[i++];
+                    j++;
+                }
+            }
+            return chunkOf(Arrays.copyOf(result, size));
+        }
+
+        @Override
+        public int copyTo(int[] target, int offset, int high) {
+            for (char value : values) {
+                target[offset++] = high | value;
+            }
+            return offset;
+        }
+
+        private BitmapChunk toBitmap() {
+            long[] words = new long[WORDS];
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return new BitmapChunk(words, values.length);
+        }
+    }
+
+    private record BitmapChunk(long[] words, int cardinality) implements Chunk {
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Chunk add(char value) {
+            if (contains(value)) {
+                return this;
+            }
+            long[] copy = words.clone();
+            copy[value >>> 6] |= 1L << value;
+            return new BitmapChunk(copy, cardinality + 1);
+        }
+
+        @Override
+        public Chunk remove(char value) {
+            if (!contains(value)) {
+                return this;
+            }
+            long[] copy = words.clone();
+            copy[value >>> 6] &= ~(1L << value);
+            return cardinality - 1 > ARRAY_MAX ? new BitmapChunk(copy, cardinality - 1) : toArray(copy, cardinality - 1);
+        }
+
+        @Override
+        public Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapChunk) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return count > ARRAY_MAX ? new BitmapChunk(result, count) : toArray(result, count);
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.andCardinality(this);
+            }
+            long[] otherWords = ((BitmapChunk) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayChunk array) {
+                for (char value : array.values) {
+                    result[value >>> 6] |= 1L << value;
+                }
+            } else {
+                long[] otherWords = ((BitmapChunk) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            int count = 0;
+            for (long word : result) {
+                count += Long.bitCount(word);
+            }
+            return new BitmapChunk(result, count);
+        }
+
+        @Override
+        public int copyTo(int[] target, int offset, int high) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[offset++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        private static ArrayChunk toArray(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int size = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[size++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values);
+        }
+    }
+}
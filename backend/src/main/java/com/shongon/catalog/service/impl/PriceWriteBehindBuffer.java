@@ -0,0 +1,247 @@
+package com.shongon.catalog.service.impl;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.shongon.catalog.enums.WriteDurability;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.ISearchService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Write-behind for price-only updates (app.write-behind): repricing engines update the same hot products several
+    times a second. Updates are held per product id, the last one wins, and the buffer is written as one unordered
+    bulkWrite every flush-interval or as soon as it holds max-entries products. Per flush: one bulkWrite, one $in
+    read to patch the in-memory indexes, one cache eviction -> instead of one write + one eviction per update.
+    Until its flush, a buffered price is not visible to reads. Pending updates are flushed on shutdown.
+ */
+@Slf4j
+@Component
+public class PriceWriteBehindBuffer {
+    private final MongoTemplate mongoTemplate;
+    private final RelatedProductIndex relatedProductIndex;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ICacheService cacheService;
+    private final ISearchService searchService;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final WriteDurability durability;
+    private final Duration flushedTimeout;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "price-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentHashMap<ObjectId, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public PriceWriteBehindBuffer(
+            MongoTemplate mongoTemplate,
+            RelatedProductIndex relatedProductIndex,
+            CatalogSnapshot catalogSnapshot,
+            ICacheService cacheService,
+            ISearchService searchService,
+            @Value("${app.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.write-behind.flush-interval:200ms}") Duration flushInterval,
+            @Value("${app.write-behind.max-entries:500}") int maxEntries,
+            @Value("${app.write-behind.durability:ACCEPTED}") WriteDurability durability,
+            @Value("${app.write-behind.flushed-timeout:5s}") Duration flushedTimeout
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.relatedProductIndex = relatedProductIndex;
+        this.catalogSnapshot = catalogSnapshot;
+        this.cacheService = cacheService;
+        this.searchService = searchService;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.durability = durability;
+        this.flushedTimeout = flushedTimeout;
+        if (enabled) {
+            long interval = flushInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        // Nothing scheduled any more -> the last flush runs here, before MongoTemplate goes away
+        if (!pending.isEmpty()) {
+            log.info("Flushing {} buffered price updates on shutdown", pending.size());
+            flushQuietly();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public WriteDurability getDurability() {
+        return durability;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Buffers a price update; replaces a buffered one of the same product (last write wins)
+     * @param productId Product id (invalid -> IllegalArgumentException, as for the other endpoints)
+     * @param price New price
+     * @return true when the update is already written (durability FLUSHED), false when only buffered
+     * @throws ProductCatalogException FLUSHED: PRODUCT_NOT_FOUND for an unknown id, UNCATEGORIZED when the flush failed,
+     *                                  WRITE_BEHIND_TIMEOUT when not written within flushed-timeout (it stays buffered)
+     */
+    public boolean submit(String productId, double price) {
+        ObjectId id = new ObjectId(productId);
+        CompletableFuture<Void> written = durability == WriteDurability.FLUSHED ? new CompletableFuture<>() : null;
+        pending.merge(id, new Pending(price, written == null ? List.of() : List.of(written)), Pending::replacedBy);
+
+        if (executor.isShutdown()) {
+            flushQuietly(); // shutting down: no flush is coming any more
+        } else if (pending.size() >= maxEntries && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flushQuietly);
+        }
+        if (written == null) {
+            return false;
+        }
+        try {
+            // Only this caller stops waiting: a copy times out, the flush still completes the original
+            written.copy().orTimeout(flushedTimeout.toMillis(), TimeUnit.MILLISECONDS).join();
+            return true;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ProductCatalogException(ErrorCode.WRITE_BEHIND_TIMEOUT);
+            }
+            throw e.getCause() instanceof ProductCatalogException catalog
+                    ? catalog
+                    : new ProductCatalogException(ErrorCode.UNCATEGORIZED);
+        }
+    }
+
+    /**
+     * Drops the buffered price of a product written by another path (PUT, bulk PATCH): flushed later, the older
+     * buffered price would overwrite the newer one. Waiters complete as written (superseded). Waits for a flush in
+     * progress, which may hold the product, so the caller's write lands after it
+     */
+    public synchronized void discard(ObjectId productId) {
+        Pending dropped = pending.remove(productId);
+        if (dropped != null) {
+            dropped.complete();
+        }
+    }
+
+    // Scheduled on the flushing thread (or run by the shutdown hook once it is gone) -> one flush at a time
+    public synchronized void flush() {
+        flushRequested.set(false);
+        Map<ObjectId, Pending> batch = new LinkedHashMap<>();
+        for (ObjectId id : pending.keySet()) {
+            Pending update = pending.remove(id); // atomic per key: a newer update lands in the next flush
+            if (update != null) {
+                batch.put(id, update);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            // Nobody waits forever: the updates not completed yet fail with the flush
+            batch.values().forEach(update -> update.fail(new ProductCatalogException(ErrorCode.UNCATEGORIZED)));
+            throw e;
+        }
+    }
+
+    // HELPER PRIVATE METHODS
+    private void write(Map<ObjectId, Pending> batch) {
+        long start = System.nanoTime();
+        List<ObjectId> ids = List.copyOf(batch.keySet());
+        Set<Integer> failed = new HashSet<>();
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            batch.forEach((id, update) -> bulk.updateOne(new Query(Criteria.where("_id").is(id)),
+                    new Update().set("price", update.price())));
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().stream().map(BulkWriteError::getIndex).forEach(failed::add);
+        }
+
+        // One read for the written documents: in-memory indexes patched, unknown ids told apart
+        Map<ObjectId, Product> written = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), Product.class)
+                .forEach(product -> written.put(product.getId(), product));
+        List<Product> saved = new ArrayList<>(written.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Pending update = batch.get(ids.get(i));
+            Product product = written.get(ids.get(i));
+            if (failed.contains(i)) {
+                update.fail(new ProductCatalogException(ErrorCode.UNCATEGORIZED));
+            } else if (product == null) {
+                update.fail(new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
+            } else {
+                saved.add(product);
+            }
+        }
+        if (!saved.isEmpty()) {
+            saved.forEach(relatedProductIndex::onProductSaved);
+            catalogSnapshot.onProductsSaved(saved);
+            invalidateProductCache();
+        }
+        batch.values().forEach(Pending::complete); // no-op for the ones failed above
+
+        log.info("Write-behind flush: {} products repriced ({} failed, {} unknown) in {} ms", saved.size(),
+                failed.size(), ids.size() - saved.size() - failed.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // A failed flush must not cancel the schedule
+            log.error("Write-behind flush failed", e);
+        }
+    }
+
+    private void invalidateProductCache() {
+        cacheService.evictCacheByPattern(cacheService.generateCacheKey("*"));
+        searchService.evictCandidateCache();
+    }
+
+    // Latest price of a product + everyone waiting for it (FLUSHED: the replaced updates complete with it)
+    private record Pending(double price, List<CompletableFuture<Void>> waiters) {
+        Pending replacedBy(Pending newer) {
+            List<CompletableFuture<Void>> all = new ArrayList<>(waiters);
+            all.addAll(newer.waiters);
+            return new Pending(newer.price, all);
+        }
+
+        void complete() {
+            waiters.forEach(waiter -> waiter.complete(null));
+        }
+
+        void fail(RuntimeException e) {
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+}
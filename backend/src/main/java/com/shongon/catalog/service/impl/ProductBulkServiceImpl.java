@@ -0,0 +1,496 @@
+package com.shongon.catalog.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.PatchProductRequest;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.RepriceRequest;
+import com.shongon.catalog.dto.response.BulkItemResult;
+import com.shongon.catalog.dto.response.BulkWriteResponse;
+import com.shongon.catalog.dto.response.CategoryDeleteResponse;
+import com.shongon.catalog.dto.response.RepriceResponse;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.mapper.ProductMapper;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.IProductBulkService;
+import com.shongon.catalog.service.ISearchService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/*
+    Bulk writes for catalog syncs: the request array is parsed one element at a time and written per batch, so
+    memory is bounded by the batch size whatever the request size. Each element gets its own result: one bad item
+    never rejects the others. Per batch: at most one lookup, one bulk write, one cache eviction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductBulkServiceImpl implements IProductBulkService {
+    static final int DUPLICATE_KEY = 11000;
+    static final double MIN_PRICE = 0.01;
+    static final double MAX_PRICE = 999999.99;
+
+    final MongoTemplate mongoTemplate;
+    final ObjectMapper objectMapper;
+    final Validator validator;
+    final ProductMapper productMapper;
+    final RelatedProductIndex relatedProductIndex;
+    final CatalogSnapshot catalogSnapshot;
+    final ICacheService cacheService;
+    final ISearchService searchService;
+    final PriceWriteBehindBuffer priceWriteBehindBuffer;
+
+    // Elements per lookup + bulk write + cache eviction
+    @Value("${app.bulk.batch-size}")
+    private int batchSize;
+
+    @Override
+    public BulkWriteResponse createProducts(InputStream json) {
+        return inBatches("create", json, this::createBatch);
+    }
+
+    @Override
+    public BulkWriteResponse updateProducts(InputStream json) {
+        return inBatches("update", json, this::updateBatch);
+    }
+
+    @Override
+    public BulkWriteResponse deleteProducts(InputStream json) {
+        return inBatches("delete", json, this::deleteBatch);
+    }
+
+    @Override
+    public CategoryDeleteResponse deleteProductsByCategory(String category) {
+        // Counts only: one result per product would grow with the category
+        long matched = 0;
+        long deleted = 0;
+        List<ObjectId> ids;
+        do {
+            // _id only, through the category indexes; the category is checked again by the delete itself
+            Query batch = new Query(Criteria.where("category").is(category)).limit(batchSize);
+            batch.fields().include("_id");
+            ids = mongoTemplate.find(batch, Product.class).stream().map(Product::getId).toList();
+            if (!ids.isEmpty()) {
+                long removed = mongoTemplate.remove(
+                        new Query(Criteria.where("_id").in(ids).and("category").is(category)), Product.class)
+                        .getDeletedCount();
+                matched += ids.size();
+                deleted += removed;
+                onDeleted(removed == ids.size() ? ids : gone(ids, category, removed));
+            }
+        } while (ids.size() == batchSize);
+
+        log.info("Bulk delete: {} of {} products of category {} deleted", deleted, matched, category);
+        return CategoryDeleteResponse.builder()
+                .matched(matched)
+                .deleted(deleted)
+                .build();
+    }
+
+    @Override
+    public RepriceResponse repriceProducts(ProductFilter filter, RepriceRequest request) {
+        if (filter.isEmpty()) {
+            throw new ProductCatalogException(ErrorCode.FILTER_REQUIRED);
+        }
+        // Buffered single-product prices first: the adjustment applies on top of them, not under them
+        priceWriteBehindBuffer.flush();
+
+        // Up to a batch of matches: their _ids (covered by the category/price indexes) -> the write is pinned to them
+        // and the same documents re-read to patch the in-memory indexes. More: the updateMany alone, indexes rebuilt
+        Query probe = new Query(filter.toCriteria()).limit(batchSize + 1);
+        probe.fields().include("_id");
+        List<ObjectId> ids = mongoTemplate.find(probe, Product.class).stream().map(Product::getId).toList();
+        if (ids.isEmpty()) {
+            return RepriceResponse.builder().build();
+        }
+        boolean patch = ids.size() <= batchSize;
+        Query matching = new Query(filter.toCriteria());
+        if (patch) {
+            matching.addCriteria(Criteria.where("_id").in(ids)); // the filter still applies: products changed since
+        }
+
+        UpdateResult result = mongoTemplate.updateMulti(matching,
+                AggregationUpdate.update().set("price").toValue(repricedPrice(request)), Product.class);
+
+        if (result.getModifiedCount() > 0) {
+            if (patch) {
+                List<Product> repriced = mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), Product.class);
+                repriced.forEach(relatedProductIndex::onProductSaved);
+                catalogSnapshot.onProductsSaved(repriced);
+            } else {
+                relatedProductIndex.refresh();
+                catalogSnapshot.refresh();
+            }
+            invalidateProductCache(filter);
+        }
+        log.info("Bulk reprice {}: {} matched, {} modified", filter.cacheKey(), result.getMatchedCount(),
+                result.getModifiedCount());
+        return RepriceResponse.builder()
+                .matched(result.getMatchedCount())
+                .modified(result.getModifiedCount())
+                .build();
+    }
+
+    @Override
+    public List<BulkItemResult> createBatch(int offset, List<JsonNode> elements) {
+        BulkItemResult[] results = new BulkItemResult[elements.size()];
+        CreateProductRequest[] requests = bindAll(offset, elements, CreateProductRequest.class, results)
+                .toArray(CreateProductRequest[]::new);
+
+        // Unique names: the first occurrence in the batch wins; names already stored fail on the unique index
+        Map<String, Integer> byName = new LinkedHashMap<>();
+        for (int i = 0; i < requests.length; i++) {
+            if (requests[i] != null && byName.putIfAbsent(requests[i].getName(), i) != null) {
+                results[i] = BulkItemResult.failed(offset + i, null, ErrorCode.PRODUCT_ALREADY_EXISTS);
+            }
+        }
+
+        // One unordered bulkWrite: a failing document (E11000 -> 409) does not stop the others
+        List<Integer> positions = new ArrayList<>(byName.values());
+        List<Product> products = positions.stream().map(i -> productMapper.createProduct(requests[i])).toList();
+        Map<Integer, ErrorCode> writeErrors = executeUnordered(products.size(), bulk -> bulk.insert(products));
+
+        List<Product> created = new ArrayList<>(products.size());
+        for (int k = 0; k < products.size(); k++) {
+            int i = positions.get(k);
+            ErrorCode writeError = writeErrors.get(k);
+            if (writeError != null) {
+                results[i] = BulkItemResult.failed(offset + i, null, writeError);
+            } else {
+                created.add(products.get(k));
+                results[i] = BulkItemResult.succeeded(offset + i, 201, products.get(k).getId().toHexString());
+            }
+        }
+        onSaved(created);
+        return Arrays.asList(results);
+    }
+
+    // HELPER PRIVATE METHODS
+    private BulkWriteResponse inBatches(String operation, InputStream json, BatchWriter writer) {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<JsonNode> batch = new ArrayList<>(batchSize);
+        boolean inArray = false;
+
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ProductCatalogException(ErrorCode.JSON_PARSE_ERROR);
+            }
+            inArray = true;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                // One element as a tree: a wrongly typed value fails at binding, for that element only
+                batch.add(parser.readValueAsTree());
+                if (batch.size() == batchSize) {
+                    results.addAll(writer.write(results.size(), batch));
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            if (!inArray) {
+                throw new ProductCatalogException(ErrorCode.JSON_PARSE_ERROR);
+            }
+            // Broken syntax: nothing past this point can be read -> write what was read, then report where it broke
+            if (!batch.isEmpty()) {
+                results.addAll(writer.write(results.size(), batch));
+                batch.clear();
+            }
+            log.warn("Bulk {} stopped at element {}: {}", operation, results.size(), e.getOriginalMessage());
+            String where = e.getLocation() == null ? ""
+                    : String.format(" at line %d, column %d", e.getLocation().getLineNr(), e.getLocation().getColumnNr());
+            results.add(BulkItemResult.failed(results.size(), null, ErrorCode.JSON_PARSE_ERROR,
+                    List.of("Malformed JSON" + where + "; the rest of the array was not read")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(writer.write(results.size(), batch));
+        }
+
+        BulkWriteResponse response = BulkWriteResponse.of(results);
+        log.info("Bulk {}: {} received, {} succeeded, {} failed",
+                operation, response.getReceived(), response.getSucceeded(), response.getFailed());
+        return response;
+    }
+
+    private List<BulkItemResult> updateBatch(int offset, List<JsonNode> elements) {
+        BulkItemResult[] results = new BulkItemResult[elements.size()];
+        List<PatchProductRequest> patches = bindAll(offset, elements, PatchProductRequest.class, results);
+
+        // Well-formed patches, one per product (unordered writes: two patches of one product would race)
+        Map<ObjectId, Integer> byId = new LinkedHashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            PatchProductRequest patch = patches.get(i);
+            if (patch == null) {
+                continue;
+            }
+            if (!ObjectId.isValid(patch.getId())) {
+                results[i] = BulkItemResult.failed(offset + i, patch.getId(), ErrorCode.INVALID_PRODUCT_ID);
+            } else if (!patch.hasChanges()) {
+                results[i] = BulkItemResult.failed(offset + i, patch.getId(), ErrorCode.VALIDATION_FAILED,
+                        List.of("Nothing to update: set at least one of name, description, price, category"));
+            } else if (byId.putIfAbsent(new ObjectId(patch.getId()), i) != null) {
+                results[i] = BulkItemResult.failed(offset + i, patch.getId(), ErrorCode.VALIDATION_FAILED,
+                        List.of("Product appears more than once in the batch"));
+            }
+        }
+
+        // One $in lookup by _id: tells the missing products and keeps the documents to patch the in-memory indexes
+        Map<ObjectId, Product> existing = new HashMap<>();
+        if (!byId.isEmpty()) {
+            mongoTemplate.find(new Query(Criteria.where("_id").in(List.copyOf(byId.keySet()))), Product.class)
+                    .forEach(product -> existing.put(product.getId(), product));
+        }
+        byId.entrySet().removeIf(entry -> {
+            if (existing.containsKey(entry.getKey())) {
+                return false;
+            }
+            int i = entry.getValue();
+            results[i] = BulkItemResult.failed(offset + i, patches.get(i).getId(), ErrorCode.PRODUCT_NOT_FOUND);
+            return true;
+        });
+
+        // Renames: a name wanted by two patches of the batch -> both rejected; names held by other products fail
+        // on the unique index
+        Map<String, List<Integer>> renames = new HashMap<>();
+        byId.forEach((id, i) -> {
+            String name = patches.get(i).getName();
+            if (name != null && !name.equals(existing.get(id).getName())) {
+                renames.computeIfAbsent(name, n -> new ArrayList<>()).add(i);
+            }
+        });
+        Set<Integer> conflicts = new HashSet<>();
+        renames.values().stream().filter(wanted -> wanted.size() > 1).forEach(conflicts::addAll);
+        byId.values().removeIf(i -> {
+            if (!conflicts.contains(i)) {
+                return false;
+            }
+            results[i] = BulkItemResult.failed(offset + i, patches.get(i).getId(), ErrorCode.PRODUCT_ALREADY_EXISTS);
+            return true;
+        });
+
+        // One unordered bulkWrite of { _id } -> { $set: present fields }; buffered older prices dropped first
+        List<Integer> positions = new ArrayList<>(byId.values());
+        positions.stream().filter(i -> patches.get(i).getPrice() != null)
+                .forEach(i -> priceWriteBehindBuffer.discard(new ObjectId(patches.get(i).getId())));
+        Map<Integer, ErrorCode> writeErrors = executeUnordered(positions.size(), bulk -> {
+            positions.forEach(i -> bulk.updateOne(
+                    new Query(Criteria.where("_id").is(new ObjectId(patches.get(i).getId()))), patches.get(i).toUpdate()));
+            return bulk;
+        });
+
+        List<Product> updated = new ArrayList<>(positions.size());
+        for (int k = 0; k < positions.size(); k++) {
+            int i = positions.get(k);
+            PatchProductRequest patch = patches.get(i);
+            ErrorCode writeError = writeErrors.get(k);
+            if (writeError != null) {
+                results[i] = BulkItemResult.failed(offset + i, patch.getId(), writeError);
+            } else {
+                Product product = existing.get(new ObjectId(patch.getId()));
+                patch.applyTo(product);
+                updated.add(product);
+                results[i] = BulkItemResult.succeeded(offset + i, 200, patch.getId());
+            }
+        }
+        onSaved(updated);
+        return Arrays.asList(results);
+    }
+
+    private List<BulkItemResult> deleteBatch(int offset, List<JsonNode> elements) {
+        BulkItemResult[] results = new BulkItemResult[elements.size()];
+        Map<ObjectId, Integer> byId = new LinkedHashMap<>();
+        for (int i = 0; i < elements.size(); i++) {
+            JsonNode element = elements.get(i);
+            if (!element.isTextual() || !ObjectId.isValid(element.asText())) {
+                results[i] = BulkItemResult.failed(offset + i, element.isTextual() ? element.asText() : null,
+                        ErrorCode.INVALID_PRODUCT_ID);
+            } else if (byId.putIfAbsent(new ObjectId(element.asText()), i) != null) {
+                results[i] = BulkItemResult.failed(offset + i, element.asText(), ErrorCode.VALIDATION_FAILED,
+                        List.of("Product appears more than once in the batch"));
+            }
+        }
+        if (byId.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        // _id only lookup tells the missing ones, then one deleteMany on the rest
+        Set<ObjectId> existing = new HashSet<>();
+        Query lookup = new Query(Criteria.where("_id").in(List.copyOf(byId.keySet())));
+        lookup.fields().include("_id");
+        mongoTemplate.find(lookup, Product.class).forEach(product -> existing.add(product.getId()));
+        long deleted = existing.isEmpty() ? 0
+                : mongoTemplate.remove(new Query(Criteria.where("_id").in(existing)), Product.class).getDeletedCount();
+
+        // The results come from the delete: deletedCount short of the lookup -> another writer removed some of them
+        // in between, and which ones the count does not tell: none of them is claimed as deleted by this request
+        boolean exact = deleted == existing.size();
+        byId.forEach((id, i) -> results[i] = exact && existing.contains(id)
+                ? BulkItemResult.succeeded(offset + i, 200, id.toHexString())
+                : BulkItemResult.failed(offset + i, id.toHexString(), ErrorCode.PRODUCT_NOT_FOUND));
+        if (!exact) {
+            log.warn("Bulk delete: {} of {} products deleted concurrently by another writer, batch reported as not found",
+                    existing.size() - deleted, existing.size());
+        }
+        if (!existing.isEmpty()) {
+            onDeleted(existing); // every one of them is gone, whoever deleted it
+        }
+        return Arrays.asList(results);
+    }
+
+    // deletedCount short of the batch: another writer deleted some of them, or moved them to another category (those
+    // still exist and keep their place in the in-memory indexes) -> the ones still stored are read back
+    private List<ObjectId> gone(List<ObjectId> ids, String category, long removed) {
+        log.warn("Bulk delete: {} of {} products of category {} deleted or moved by another writer in between",
+                ids.size() - removed, ids.size(), category);
+        Query lookup = new Query(Criteria.where("_id").in(ids));
+        lookup.fields().include("_id");
+        Set<ObjectId> stored = new HashSet<>();
+        mongoTemplate.find(lookup, Product.class).forEach(product -> stored.add(product.getId()));
+        return ids.stream().filter(id -> !stored.contains(id)).toList();
+    }
+
+    // Binding + bean validation in parallel: CPU only, each element writes its own slot. Failed -> null + result
+    private <T> List<T> bindAll(int offset, List<JsonNode> elements, Class<T> type, BulkItemResult[] results) {
+        Object[] bound = new Object[elements.size()];
+        IntStream.range(0, elements.size()).parallel().forEach(i -> {
+            try {
+                T request = objectMapper.treeToValue(elements.get(i), type);
+                if (request == null) {
+                    results[i] = BulkItemResult.failed(offset + i, null, ErrorCode.JSON_PARSE_ERROR);
+                    return;
+                }
+                List<String> violations = validator.validate(request).stream()
+                        .map(ConstraintViolation::getMessage)
+                        .distinct()
+                        .sorted()
+                        .toList();
+                if (violations.isEmpty()) {
+                    bound[i] = request;
+                } else {
+                    results[i] = BulkItemResult.failed(offset + i, null, ErrorCode.VALIDATION_FAILED, violations);
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                results[i] = BulkItemResult.failed(offset + i, null, ErrorCode.JSON_PARSE_ERROR, List.of(bindingError(e)));
+            }
+        });
+        return Arrays.stream(bound).map(type::cast).toList();
+    }
+
+    private Map<Integer, ErrorCode> executeUnordered(int operations, Function<BulkOperations, BulkOperations> writes) {
+        if (operations == 0) {
+            return Map.of();
+        }
+        try {
+            writes.apply(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            // Indexes of the operations that failed; a duplicate key is a name already taken (unique "name" index)
+            Map<Integer, ErrorCode> errors = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(),
+                        error.getCode() == DUPLICATE_KEY ? ErrorCode.PRODUCT_ALREADY_EXISTS : ErrorCode.UNCATEGORIZED);
+            }
+            log.warn("Bulk write: {} of {} operations rejected", errors.size(), operations);
+            return errors;
+        }
+    }
+
+    private void onSaved(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        products.forEach(relatedProductIndex::onProductSaved);
+        catalogSnapshot.onProductsSaved(products);
+        invalidateProductCache();
+    }
+
+    private void onDeleted(Collection<ObjectId> productIds) {
+        productIds.forEach(relatedProductIndex::onProductDeleted);
+        catalogSnapshot.onProductsDeleted(productIds);
+        invalidateProductCache();
+    }
+
+    /*
+        { $cond: [ { $isNumber: "$price" },
+                   { $round: [ { $min: [ MAX, { $max: [ MIN, price * factor | price + amount ] } ] }, 2 ] },
+                   "$price" ] }
+        computed per document by MongoDB; products without a numeric price are left as they are
+     */
+    private static AggregationExpression repricedPrice(RepriceRequest request) {
+        Document adjusted = request.getPercent() != null
+                ? new Document("$multiply", List.of("$price", 1 + request.getPercent() / 100))
+                : new Document("$add", List.of("$price", request.getAmount()));
+        Document bounded = new Document("$min", List.of(MAX_PRICE, new Document("$max", List.of(MIN_PRICE, adjusted))));
+        Document rounded = new Document("$round", List.of(bounded, 2));
+        return context -> new Document("$cond", List.of(new Document("$isNumber", "$price"), rounded, "$price"));
+    }
+
+    private static String bindingError(Exception e) {
+        if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+            return "Invalid value for field '" + mapping.getPath().get(mapping.getPath().size() - 1).getFieldName() + "'";
+        }
+        return ErrorCode.JSON_PARSE_ERROR.getMessage();
+    }
+
+    private void invalidateProductCache() {
+        cacheService.evictCacheByPattern(cacheService.generateCacheKey("*"));
+        searchService.evictCandidateCache();
+    }
+
+    /*
+        Only the entries that can hold a product of these categories: unfiltered listings and searches, filter/sort
+        keys without a category or with a price range (kept simple, a few too many), and the keys naming one of the
+        categories. Category-only listings of other categories keep their entries. No category -> everything
+     */
+    private void invalidateProductCache(ProductFilter filter) {
+        if (filter.getCategories().isEmpty()) {
+            invalidateProductCache();
+            return;
+        }
+        List<String> patterns = new ArrayList<>(List.of("all*", "search*"));
+        for (String family : List.of("filter", "sort")) {
+            patterns.add(family + "*:none:*");
+            patterns.add(family + "*:price=*");
+            filter.getCategories().forEach(category -> patterns.add(family + "*" + category + "*"));
+        }
+        patterns.forEach(pattern -> cacheService.evictCacheByPattern(cacheService.generateCacheKey(pattern)));
+        searchService.evictCandidateCache();
+    }
+
+    @FunctionalInterface
+    private interface BatchWriter {
+        List<BulkItemResult> write(int offset, List<JsonNode> elements);
+    }
+}
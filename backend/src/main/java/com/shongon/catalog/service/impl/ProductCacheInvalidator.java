@@ -0,0 +1,49 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.event.ProductEvent;
+import com.shongon.catalog.event.ProductEventSubscriber;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.ISearchService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Cache side of product writes (event bus, change stream): one eviction per batch of events, whatever its size. An
+// unreachable Redis fails the batch -> the outbox relays it again (the change stream resyncs this subscriber)
+@Slf4j
+@Component
+@Order(ProductEventSubscriber.CACHES)
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductCacheInvalidator implements ProductEventSubscriber {
+    ICacheService cacheService;
+    ISearchService searchService;
+
+    @Override
+    public void onEvents(List<ProductEvent> events) {
+        evictAll();
+        log.info("All product cache invalidated after {} product writes", events.size());
+    }
+
+    // Redis is the same for every node: a node gone before evicting -> another one evicts for it
+    @Override
+    public boolean sharedAcrossNodes() {
+        return true;
+    }
+
+    @Override
+    public void onResync() {
+        evictAll();
+        log.info("All product cache invalidated on resync");
+    }
+
+    private void evictAll() {
+        cacheService.evictCacheByPatternOrThrow(cacheService.generateCacheKey("*"));
+        searchService.evictCandidateCache();
+    }
+}
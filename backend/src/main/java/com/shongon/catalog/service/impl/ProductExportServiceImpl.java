@@ -0,0 +1,147 @@
+package com.shongon.catalog.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.enums.ExportFormat;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.IProductExportService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+    Catalog dumps for downstream systems: one cursor instead of ?page=n&size=1000 (skip cost grows with n, plus a
+    count per page). Documents go from the cursor batch to the output buffer one at a time; the only memory held is
+    one cursor batch + the output buffer. Natural order, no sort: a sort outside an index would be a blocking
+    in-memory sort of the whole result on the server.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductExportServiceImpl implements IProductExportService {
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final String CSV_HEADER = "id,name,description,price,category";
+
+    final MongoTemplate mongoTemplate;
+    final ObjectMapper objectMapper;
+
+    // Documents per cursor batch (getMore) -> bounds what is buffered between MongoDB and the response
+    @Value("${app.export.batch-size}")
+    private int batchSize;
+
+    @Override
+    public long exportProducts(ProductFilter filter, ExportFormat format, boolean gzip, OutputStream out)
+            throws IOException {
+        long start = System.nanoTime();
+        Query query = new Query(filter.toCriteria()).cursorBatchSize(batchSize);
+
+        // The caller owns the response stream: finish gzip / flush, never close
+        OutputStream body = gzip ? new GZIPOutputStream(nonClosing(out), BUFFER_SIZE) : nonClosing(out);
+        long written;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), BUFFER_SIZE);
+             Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            written = format == ExportFormat.CSV
+                    ? writeCsv(products.iterator(), writer)
+                    : writeNdjson(products.iterator(), writer);
+        }
+
+        log.info("Export {} {}{}: {} products in {} ms", format, filter.cacheKey(), gzip ? " (gzip)" : "", written,
+                (System.nanoTime() - start) / 1_000_000);
+        return written;
+    }
+
+    // HELPER PRIVATE METHODS
+    private long writeNdjson(Iterator<Product> products, Writer writer) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (products.hasNext()) {
+                Product product = products.next();
+                generator.writeStartObject();
+                generator.writeStringField("id", product.getId().toHexString());
+                generator.writeStringField("name", product.getName());
+                generator.writeStringField("description", product.getDescription());
+                if (product.getPrice() != null) {
+                    generator.writeNumberField("price", product.getPrice());
+                } else {
+                    generator.writeNullField("price");
+                }
+                generator.writeStringField("category", product.getCategory());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Product> products, Writer writer) throws IOException {
+        long count = 0;
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        while (products.hasNext()) {
+            Product product = products.next();
+            writer.write(product.getId().toHexString());
+            writer.write(',');
+            writeCsvField(writer, product.getName());
+            writer.write(',');
+            writeCsvField(writer, product.getDescription());
+            writer.write(',');
+            if (product.getPrice() != null) {
+                writer.write(BigDecimal.valueOf(product.getPrice()).toPlainString()); // 1.0E7 -> 10000000
+            }
+            writer.write(',');
+            writeCsvField(writer, product.getCategory());
+            writer.write("\r\n");
+            count++;
+        }
+        return count;
+    }
+
+    // RFC 4180: quoted when it holds a separator, a quote or a line break; quotes doubled; null -> empty
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length); // FilterOutputStream writes byte by byte
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,335 @@
+package com.shongon.catalog.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shongon.catalog.dto.response.BulkItemResult;
+import com.shongon.catalog.dto.response.ImportStatusResponse;
+import com.shongon.catalog.enums.ImportState;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.service.IProductBulkService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Imports JSON arrays of CreateProductRequest too large for a request body (multi-GB feeds, the seed catalog in
+    _data/products.json). The file is read through a buffered FileChannel by Jackson's streaming parser and written
+    with the POST /products/bulk pipeline (validation, one $in name check, one unordered bulkWrite per batch).
+
+    Pipelined: the next batches are parsed and held while one is written, at most PIPELINE_DEPTH of them -> memory is
+    a few batches whatever the file size.
+    Resumable: after each written batch, <file>.checkpoint records the byte offset and index of the next element; a
+    resumed run seeks there and reads the rest as an array again. A batch written but not yet checkpointed (crash in
+    between) is read again, and its elements fail as duplicates.
+ */
+@Slf4j
+@Component
+public class ProductImporter {
+    private static final int PIPELINE_DEPTH = 2;          // parsed batches waiting for the writer
+    private static final int READ_BUFFER = 1 << 20;       // 1 MiB reads from the channel
+    private static final int MAX_REPORTED_FAILURES = 100;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final IProductBulkService bulkService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int batchSize;
+    private final ExecutorService jobs = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<Job> current = new AtomicReference<>(); // running, or the last one
+
+    public ProductImporter(
+            IProductBulkService bulkService,
+            ObjectMapper objectMapper,
+            @Value("${app.import.directory}") String directory,
+            @Value("${app.bulk.batch-size}") int batchSize
+    ) {
+        this.bulkService = bulkService;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdownNow();
+    }
+
+    // Admin endpoint: a file of app.import.directory, imported in the background
+    public ImportStatusResponse start(String fileName, boolean resume) {
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new ProductCatalogException(ErrorCode.IMPORT_FILE_NOT_FOUND);
+        }
+        Job job = begin(file, resume);
+        jobs.execute(() -> execute(job));
+        return job.status();
+    }
+
+    // CLI runner: any readable file, imported on the calling thread
+    public ImportStatusResponse run(Path file, boolean resume) {
+        if (!Files.isRegularFile(file)) {
+            throw new ProductCatalogException(ErrorCode.IMPORT_FILE_NOT_FOUND);
+        }
+        Job job = begin(file.toAbsolutePath().normalize(), resume);
+        execute(job);
+        return job.status();
+    }
+
+    // Null until the first import
+    public ImportStatusResponse status() {
+        Job job = current.get();
+        return job != null ? job.status() : null;
+    }
+
+    // HELPER PRIVATE METHODS
+    private Job begin(Path file, boolean resume) {
+        Job previous = current.get();
+        Job job = new Job(file, resume ? readCheckpoint(file) : Checkpoint.START);
+        if ((previous != null && previous.state == ImportState.RUNNING) || !current.compareAndSet(previous, job)) {
+            throw new ProductCatalogException(ErrorCode.IMPORT_IN_PROGRESS);
+        }
+        return job;
+    }
+
+    private void execute(Job job) {
+        Checkpoint from = job.from;
+        log.info("Import of {} started at element {} (byte {})", job.file, from.element(), from.offset());
+        ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-import-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore pending = new Semaphore(PIPELINE_DEPTH);
+
+        // Resumed mid-array: "[" is put in front to make the rest an array again -> parser offsets are 1 byte ahead
+        long base = from.offset() > 0 ? from.offset() - 1 : 0;
+        String message = null;
+        try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.READ)) {
+            job.fileSize = channel.size();
+            channel.position(from.offset());
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER);
+            if (from.offset() > 0) {
+                in = new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}), in);
+            }
+
+            try (JsonParser parser = objectMapper.createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new ProductCatalogException(ErrorCode.JSON_PARSE_ERROR);
+                }
+                List<JsonNode> batch = new ArrayList<>(batchSize);
+                long first = from.element(); // index of the first element of batch
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null && job.failure == null) {
+                    if (batch.size() == batchSize) {
+                        // This element starts the next batch -> where a resumed run seeks once the batch is written
+                        Checkpoint next = new Checkpoint(base + parser.currentTokenLocation().getByteOffset(),
+                                first + batch.size());
+                        submit(job, writer, pending, batch, first, next);
+                        first = next.element();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                    batch.add(parser.readValueAsTree());
+                }
+                if (job.failure == null) {
+                    submit(job, writer, pending, batch, first, null); // end of the array
+                }
+            }
+        } catch (JsonProcessingException e) {
+            message = String.format("Malformed JSON at byte %d: %s",
+                    e.getLocation() != null ? base + e.getLocation().getByteOffset() : -1, e.getOriginalMessage());
+        } catch (IOException e) {
+            message = "Unreadable file: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            message = "Interrupted";
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        } finally {
+            // Batches already handed over are written (and checkpointed) before the run ends
+            writer.shutdown();
+            awaitQuietly(writer);
+        }
+
+        if (message == null && job.failure != null) {
+            message = job.failure.getMessage();
+        }
+        job.finish(message == null ? ImportState.COMPLETED : ImportState.FAILED, message);
+        ImportStatusResponse status = job.status();
+        log.info("Import of {} {}: {} elements, {} created, {} failed in {} ms ({} elements/s, {} MB/s, max heap after a batch {} MB){}",
+                job.file, status.getState(), status.getElementsRead(), status.getCreated(), status.getFailed(),
+                status.getElapsedMs(), Math.round(status.getElementsPerSecond()),
+                Math.round(status.getMegabytesPerSecond() * 10) / 10.0, status.getMaxHeapAfterBatchMb(),
+                message == null ? "" : " - " + message);
+    }
+
+    private void submit(Job job, ExecutorService writer, Semaphore pending, List<JsonNode> batch, long first,
+                        Checkpoint next) throws InterruptedException {
+        if (batch.isEmpty() && next != null) {
+            return;
+        }
+        pending.acquire(); // the parser waits here while PIPELINE_DEPTH batches are queued -> bounded memory
+        writer.execute(() -> {
+            try {
+                if (job.failure != null) {
+                    return; // an earlier batch failed: keep the checkpoint on it
+                }
+                job.record(bulkService.createBatch(Math.toIntExact(first), batch));
+                if (next != null) {
+                    writeCheckpoint(job.file, next, job.fileSize);
+                    job.bytesRead = next.offset() - job.from.offset();
+                } else {
+                    Files.deleteIfExists(checkpointOf(job.file));
+                    job.bytesRead = job.fileSize - job.from.offset();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Import of {} failed writing elements from {}", job.file, first, e);
+                job.failure = e;
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    private Checkpoint readCheckpoint(Path file) {
+        Path path = checkpointOf(file);
+        if (!Files.exists(path)) {
+            return Checkpoint.START;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+            if (Long.parseLong(properties.getProperty("size")) != Files.size(file)) {
+                log.warn("{} changed since its checkpoint, importing it from the start", file);
+                return Checkpoint.START;
+            }
+            return new Checkpoint(Long.parseLong(properties.getProperty("offset")),
+                    Long.parseLong(properties.getProperty("element")));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable checkpoint {}, importing from the start", path, e);
+            return Checkpoint.START;
+        }
+    }
+
+    // Temp file + atomic move: a crash leaves the previous checkpoint or the new one, never half of one
+    private static void writeCheckpoint(Path file, Checkpoint checkpoint, long size) throws IOException {
+        Path path = checkpointOf(file);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(checkpoint.offset()));
+        properties.setProperty("element", Long.toString(checkpoint.element()));
+        properties.setProperty("size", Long.toString(size));
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, "Product import checkpoint: next element to read");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    private static void awaitQuietly(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Byte offset of an element in the file, and its index in the array
+    private record Checkpoint(long offset, long element) {
+        static final Checkpoint START = new Checkpoint(0, 0);
+    }
+
+    // Progress, written by the writer thread only, read by status()
+    private static final class Job {
+        final Path file;
+        final Checkpoint from;
+        final Instant startedAt = Instant.now();
+        final long startNanos = System.nanoTime();
+        final List<BulkItemResult> failures = new CopyOnWriteArrayList<>();
+
+        volatile ImportState state = ImportState.RUNNING;
+        volatile Exception failure;
+        volatile String message;
+        volatile long fileSize;
+        volatile long bytesRead;
+        volatile long elementsRead;
+        volatile long created;
+        volatile long failed;
+        volatile long maxHeapAfterBatchMb;
+        volatile long elapsedNanos = -1;
+
+        Job(Path file, Checkpoint from) {
+            this.file = file;
+            this.from = from;
+        }
+
+        void record(List<BulkItemResult> results) {
+            long succeeded = results.stream().filter(BulkItemResult::isSucceeded).count();
+            elementsRead += results.size();
+            created += succeeded;
+            failed += results.size() - succeeded;
+            for (BulkItemResult result : results) {
+                if (!result.isSucceeded() && failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(result);
+                }
+            }
+            Runtime runtime = Runtime.getRuntime();
+            maxHeapAfterBatchMb = Math.max(maxHeapAfterBatchMb, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        }
+
+        void finish(ImportState state, String message) {
+            this.elapsedNanos = System.nanoTime() - startNanos;
+            this.message = message;
+            this.state = state;
+        }
+
+        ImportStatusResponse status() {
+            long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+            double seconds = Math.max(nanos / 1e9, 1e-3);
+            return ImportStatusResponse.builder()
+                    .state(state)
+                    .file(file.toString())
+                    .startedAt(startedAt)
+                    .resumedFrom(from.element())
+                    .elementsRead(elementsRead)
+                    .created(created)
+                    .failed(failed)
+                    .bytesRead(bytesRead)
+                    .fileSize(fileSize)
+                    .elapsedMs(nanos / 1_000_000)
+                    .elementsPerSecond(elementsRead / seconds)
+                    .megabytesPerSecond(bytesRead / seconds / (1 << 20))
+                    .maxHeapAfterBatchMb(maxHeapAfterBatchMb)
+                    .failures(List.copyOf(failures))
+                    .message(message)
+                    .build();
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.shongon.catalog.service.impl;
 
 import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.ProductFields;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
 import com.shongon.catalog.dto.response.CreateProductResponse;
 import com.shongon.catalog.dto.response.GetProductResponse;
 import com.shongon.catalog.dto.response.UpdateProductResponse;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.event.ProductCreated;
+import com.shongon.catalog.event.ProductDeleted;
+import com.shongon.catalog.event.ProductEventBus;
+import com.shongon.catalog.event.ProductUpdated;
 import com.shongon.catalog.exception.ErrorCode;
 import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.mapper.ProductMapper;
@@ -15,13 +20,20 @@ import com.shongon.catalog.service.IProductService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.Optional;
+
 @Service
 @Slf4j
 @Transactional
@@ -31,11 +43,25 @@ public class ProductServiceImpl implements IProductService {
 
     ProductRepository productRepository;
     ProductMapper productMapper;
+    ProductEventBus productEventBus;
+    PriceWriteBehindBuffer priceWriteBehindBuffer;
+
+    // Time budget of GET /products -> maxTimeMS on the page and its count; exceeded -> 503 QUERY_TIMEOUT
+    @NonFinal
+    @Value("${app.query-timeouts.list}")
+    Duration maxTime;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ViewAllProductsResponse> viewAllProducts(Pageable pageable, ProductFields fields) {
+        return productRepository.findAll(pageable, fields, maxTime)
+                .map(productMapper::toViewAllProductsResponse);
+    }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ViewAllProductsResponse> viewAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable)
+    public Slice<ViewAllProductsResponse> viewAllProductsSlice(Pageable pageable, ProductFields fields) {
+        return productRepository.findAllSlice(pageable, fields, maxTime)
                 .map(productMapper::toViewAllProductsResponse);
     }
 
@@ -54,10 +80,10 @@ public class ProductServiceImpl implements IProductService {
     public CreateProductResponse createProduct(CreateProductRequest request) {
         log.info("Creating new product: {}", request.getName());
 
-        validateUniqueProductName(request.getName());
-
+        // One insert: a taken name fails on the unique index (DuplicateKeyException -> 409 PRODUCT_ALREADY_EXISTS)
+        // Side effects (indexes, cache) subscribe to the event, after the response
         Product product = productMapper.createProduct(request);
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct = productEventBus.publish(() -> ProductCreated.of(productRepository.insert(product))).after();
 
         log.info("Product created successfully with id: {}", savedProduct.getId());
         return productMapper.toCreateProductResponse(savedProduct);
@@ -70,16 +96,41 @@ public class ProductServiceImpl implements IProductService {
 
         ObjectId objectId = convertToObjectId(productId);
 
-        Product existingProduct = productRepository.findById(objectId)
-                .orElseThrow(() -> new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
+        // One findAndModify: no read-check-save race, name uniqueness left to the unique index (as for creates)
+        priceWriteBehindBuffer.discard(objectId); // a buffered older price must not overwrite this one
+        Product updatedProduct = productEventBus.publish(() -> {
+            Product before = productRepository.findAndUpdate(objectId, request.toUpdate())
+                    .orElseThrow(() -> new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
+            return ProductUpdated.of(before, request.applyTo(before));
+        }).after();
 
-        if (!existingProduct.getName().equals(request.getName()) && productRepository.existsByName(request.getName()))
-            throw new ProductCatalogException(ErrorCode.PRODUCT_ALREADY_EXISTS);
+        log.info("Product updated successfully with id: {}", productId);
+        return productMapper.toUpdateProductResponse(updatedProduct);
+    }
 
-        productMapper.updateProduct(existingProduct, request);
+    @Override
+    @Transactional
+    public Optional<UpdateProductResponse> updatePrice(String productId, Double price) {
+        ObjectId objectId = convertToObjectId(productId);
 
-        log.info("Product updated successfully with id: {}", productId);
-        return productMapper.toUpdateProductResponse(productRepository.save(existingProduct));
+        if (priceWriteBehindBuffer.isEnabled()) {
+            // Coalesced per product, written + evicted once per flush; FLUSHED -> returns once its flush is written
+            if (!priceWriteBehindBuffer.submit(productId, price)) {
+                return Optional.empty();
+            }
+            return Optional.of(productMapper.toUpdateProductResponse(
+                    Product.builder().id(objectId).price(price).build()));
+        }
+
+        priceWriteBehindBuffer.discard(objectId);
+        Product updatedProduct = productEventBus.publish(() -> {
+            Product before = productRepository.findAndUpdate(objectId, new Update().set("price", price))
+                    .orElseThrow(() -> new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
+            return ProductUpdated.of(before, before.toBuilder().price(price).build());
+        }).after();
+
+        log.info("Product {} repriced to {}", productId, price);
+        return Optional.of(productMapper.toUpdateProductResponse(updatedProduct));
     }
 
     @Override
@@ -87,20 +138,12 @@ public class ProductServiceImpl implements IProductService {
     public void deleteProduct(String productId) {
         ObjectId objectId = convertToObjectId(productId);
 
-        Product productToDelete = productRepository.findById(objectId)
-                .orElseThrow(() -> new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
-
-        productRepository.delete(productToDelete);
+        productEventBus.publish(() -> ProductDeleted.of(productRepository.findAndDelete(objectId)
+                .orElseThrow(() -> new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND))));
         log.info("Product deleted successfully with id: {}", productId);
     }
 
     // HELPER PRIVATE METHODS
-    private void validateUniqueProductName(String productName) {
-        if (productRepository.existsByName(productName)) {
-            throw new ProductCatalogException(ErrorCode.PRODUCT_ALREADY_EXISTS);
-        }
-    }
-
     private ObjectId convertToObjectId(String productId) {
         return new ObjectId(productId);
     }
@@ -0,0 +1,465 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.event.ProductEvent;
+import com.shongon.catalog.event.ProductEventSubscriber;
+import com.shongon.catalog.model.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Precomputed "related products": top-k most similar products per product, by TF-IDF cosine
+    similarity over name + description, restricted to the same category and price neighborhood
+    [price / ratio, price * ratio].
+    Built once at startup, then patched incrementally on create / update / delete (product events):
+    only the written product's list, the lists that contained it and the lists it now enters are touched.
+    A write updates the documents under "this", then scores the touched lists on a copy of the documents they read,
+    without the monitor, and installs them under it again (scored again, sequentially, if another write came in
+    between). Fork-join work never runs under the monitor: the pool only scores, rebuilds run on their own thread.
+    A rebuild (resync, updateMany) builds a new index aside, without the monitor: the current one keeps serving,
+    writes made meanwhile are recorded and replayed on the new one once it is swapped in.
+    With app.change-stream.enabled, every change of the collection comes from the change stream alone (direct calls
+    are then ignored).
+ */
+@Slf4j
+@Component
+@Order(ProductEventSubscriber.INDEXES)
+public class RelatedProductIndex implements ProductEventSubscriber {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Neighbor> BY_SCORE_DESC =
+            Comparator.comparingDouble(Neighbor::score).reversed().thenComparing(Neighbor::id);
+
+    private final MongoTemplate mongoTemplate;
+    private final int topK;
+    private final double priceRatio;
+    private final boolean followsChangeStream;
+    private final ForkJoinPool pool; // parallel scoring only, never joined under "this"
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "related-products-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object rebuildLock = new Object(); // one rebuild at a time; writers never wait for it
+
+    // Index patched under "this" -> single writer; neighbor lists are published immutable for lock-free reads
+    private volatile Index index = new Index();
+    private List<Write> pendingWrites; // guarded by "this"; non-null while building: replayed on the new index
+    private volatile boolean ready;
+
+    public RelatedProductIndex(
+            MongoTemplate mongoTemplate,
+            @Value("${app.related.top-k}") int topK,
+            @Value("${app.related.price-ratio}") double priceRatio,
+            @Value("${app.related.parallelism:0}") int parallelism,
+            @Value("${app.change-stream.enabled:false}") boolean followsChangeStream
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.topK = topK;
+        this.priceRatio = priceRatio;
+        this.followsChangeStream = followsChangeStream;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Build off the startup thread -> reads return "no related products" until ready
+        rebuilds.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilds.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    // Ids of the related products, most similar first; null when the product is unknown to the index
+    public List<ObjectId> getRelatedIds(ObjectId productId) {
+        List<Neighbor> related = index.neighbors.get(productId);
+        return related == null ? null : related.stream().map(Neighbor::id).toList();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                pendingWrites = new ArrayList<>();
+            }
+
+            Index built = new Index();
+            try {
+                // Only the fields used for similarity and neighborhood
+                Query query = new Query();
+                query.fields().include("name", "description", "price", "category");
+                try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+                    products.forEach(built::addDoc);
+                }
+
+                // IDF is only known once every document is counted
+                built.docs.replaceAll((id, doc) -> doc.withWeights(built.weigh(doc)));
+                built.install(score(built.snapshot(built.docs.keySet(), null), true));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pendingWrites = null;
+                }
+                log.error("Related products index build failed, the previous index keeps serving", e);
+                return;
+            }
+
+            synchronized (this) {
+                index = built;
+                ready = true;
+                // Writes made while reading: applying them again is harmless (upsert / delete by id)
+                List<Write> writes = pendingWrites;
+                pendingWrites = null;
+                writes.forEach(this::apply);
+            }
+            log.info("Related products index built: {} products in {} ms", built.docs.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // Writes made in MongoDB without their documents (updateMany): rebuilt in the background, as at startup
+    public void refresh() {
+        if (!followsChangeStream) {
+            rebuilds.execute(this::rebuild);
+        }
+    }
+
+    @Override
+    public boolean followsChangeStream() {
+        return followsChangeStream;
+    }
+
+    // Single-product writes, from the event bus (or every write, from the change stream): the latest state of each
+    // product, in order
+    @Override
+    public void onEvents(List<ProductEvent> events) {
+        events.forEach(event -> write(new Write(event.productId(), event.after())));
+    }
+
+    @Override
+    public void onResync() {
+        rebuilds.execute(this::rebuild);
+    }
+
+    // Direct calls (bulk writes, write-behind flush): ignored when the change stream brings the same writes
+    public void onProductSaved(Product product) {
+        if (!followsChangeStream) {
+            write(new Write(product.getId(), product));
+        }
+    }
+
+    public void onProductDeleted(ObjectId productId) {
+        if (!followsChangeStream) {
+            write(new Write(productId, null));
+        }
+    }
+
+    // HELPER PRIVATE METHODS
+    private void write(Write write) {
+        Plan plan;
+        synchronized (this) {
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+                return;
+            }
+            if (!ready) {
+                return; // not built yet: the startup rebuild reads the collection after this write
+            }
+            plan = index.update(write);
+        }
+        if (plan == null) {
+            return;
+        }
+
+        Scores scores = score(plan, true);
+        synchronized (this) {
+            if (index != plan.index()) {
+                return; // rebuilt meanwhile: the new index read the collection after this write
+            }
+            if (index.generation != plan.generation()) {
+                // Documents changed since the copy: score the same lists again on the current ones
+                scores = score(index.snapshot(plan.targetIds(), plan.offered() != null
+                        ? index.docs.get(plan.offered().id()) : null), false);
+            }
+            index.install(scores);
+        }
+    }
+
+    // Under "this" (replay after a rebuild): update, score and install in one go, sequentially
+    private void apply(Write write) {
+        Plan plan = index.update(write);
+        if (plan != null) {
+            index.install(score(plan, false));
+        }
+    }
+
+    // Reads the plan's copies only -> needs no lock; parallel on the fork-join pool, never called under "this"
+    private Scores score(Plan plan, boolean parallel) {
+        Map<ObjectId, List<Neighbor>> lists = parallel
+                ? pool.submit(() -> plan.targets().parallelStream()
+                        .collect(Collectors.toConcurrentMap(Doc::id, doc -> topNeighbors(doc, plan.candidates()))))
+                        .join()
+                : plan.targets().stream()
+                        .collect(Collectors.toMap(Doc::id, doc -> topNeighbors(doc, plan.candidates())));
+
+        // Other products of the new neighborhood: the product may now enter their top-k
+        Map<ObjectId, Neighbor> offers = new HashMap<>();
+        Doc offered = plan.offered();
+        if (offered != null) {
+            for (Doc candidate : plan.candidates().getOrDefault(offered.category(), List.of())) {
+                if (!plan.targetIds().contains(candidate.id()) && inNeighborhood(candidate, offered)) {
+                    offers.put(candidate.id(), new Neighbor(offered.id(), similarity(candidate, offered)));
+                }
+            }
+        }
+        return new Scores(lists, offers);
+    }
+
+    private List<Neighbor> topNeighbors(Doc doc, Map<String, List<Doc>> candidates) {
+        PriorityQueue<Neighbor> top = new PriorityQueue<>(BY_SCORE_DESC.reversed());
+        for (Doc candidate : candidates.getOrDefault(doc.category(), List.of())) {
+            if (!inNeighborhood(doc, candidate)) {
+                continue;
+            }
+            double score = similarity(doc, candidate);
+            if (score > 0) {
+                top.offer(new Neighbor(candidate.id(), score));
+                if (top.size() > topK) {
+                    top.poll(); // drop the weakest
+                }
+            }
+        }
+        List<Neighbor> sorted = new ArrayList<>(top);
+        sorted.sort(BY_SCORE_DESC);
+        return sorted;
+    }
+
+    private static List<String> tokenize(String... texts) {
+        List<String> tokens = new ArrayList<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (token.length() > 1) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static double similarity(Doc a, Doc b) {
+        // Both term arrays are sorted -> merge join
+        double dot = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.terms().length && j < b.terms().length) {
+            int compare = Integer.compare(a.terms()[i], b.terms()[j]);
+            if (compare == 0) {
+                dot += a.weights()[i++] * b.weights()[j++];
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return dot;
+    }
+
+    // Symmetric: same category, and each price within [other / ratio, other * ratio]
+    private boolean inNeighborhood(Doc a, Doc b) {
+        if (a.id().equals(b.id()) || !Objects.equals(a.category(), b.category())) {
+            return false;
+        }
+        if (a.price() == null || b.price() == null) {
+            return true;
+        }
+        return b.price() >= a.price() / priceRatio && b.price() <= a.price() * priceRatio;
+    }
+
+    /*
+        Documents, term statistics and neighbor lists of one build. Only its builder (rebuild, before the swap) or
+        the writer holding "this" (after) modifies it; scoring reads Plan copies instead
+     */
+    private final class Index {
+        private final Map<ObjectId, Doc> docs = new HashMap<>();
+        private final Map<String, Set<ObjectId>> idsByCategory = new HashMap<>();
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final Map<Integer, Integer> documentFrequency = new HashMap<>();
+        private final Map<ObjectId, Set<ObjectId>> referencedBy = new HashMap<>();
+        private final Map<ObjectId, List<Neighbor>> neighbors = new ConcurrentHashMap<>();
+
+        private long generation; // documents changed -> scores computed on an older copy are stale
+
+        // Documents of the write applied; the lists to score again, with copies of what scoring them reads
+        private Plan update(Write write) {
+            generation++;
+            ObjectId id = write.id();
+            if (write.product() == null) {
+                if (removeDoc(id) == null) {
+                    return null;
+                }
+                setNeighbors(id, List.of());
+                neighbors.remove(id);
+
+                // Lists that contained the product lose a slot -> score them again to fill it
+                Set<ObjectId> affected = referencedBy.remove(id);
+                return affected == null || affected.isEmpty() ? null : snapshot(affected, null);
+            }
+
+            removeDoc(id);
+            Doc doc = addDoc(write.product());
+            doc = doc.withWeights(weigh(doc));
+            docs.put(id, doc);
+
+            // Lists that contained the product: its score or neighborhood changed -> score them fully again
+            Set<ObjectId> affected = new HashSet<>(referencedBy.getOrDefault(id, Set.of()));
+            affected.add(id);
+            return snapshot(affected, doc);
+        }
+
+        // Doc is immutable: the copy holds the same records, only the collections around them are new
+        private Plan snapshot(Collection<ObjectId> targetIds, Doc offered) {
+            List<Doc> targets = new ArrayList<>(targetIds.size());
+            Set<String> categories = new HashSet<>();
+            for (ObjectId targetId : targetIds) {
+                Doc target = docs.get(targetId);
+                if (target != null) {
+                    targets.add(target);
+                    categories.add(target.category());
+                }
+            }
+            if (offered != null) {
+                categories.add(offered.category());
+            }
+            Map<String, List<Doc>> candidates = new HashMap<>();
+            for (String category : categories) {
+                candidates.put(category, idsByCategory.getOrDefault(category, Set.of()).stream()
+                        .map(docs::get).toList());
+            }
+            return new Plan(this, generation, Set.copyOf(targetIds), targets, candidates, offered);
+        }
+
+        private void install(Scores scores) {
+            scores.lists().forEach(this::setNeighbors);
+            scores.offers().forEach(this::offer);
+        }
+
+        private Doc addDoc(Product product) {
+            TreeMap<Integer, Integer> counts = new TreeMap<>();
+            for (String token : tokenize(product.getName(), product.getDescription())) {
+                counts.merge(termIds.computeIfAbsent(token, t -> termIds.size()), 1, Integer::sum);
+            }
+            int[] terms = counts.keySet().stream().mapToInt(Integer::intValue).toArray();
+            int[] frequencies = counts.values().stream().mapToInt(Integer::intValue).toArray();
+            for (int term : terms) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+
+            Doc doc = new Doc(product.getId(), product.getCategory(), product.getPrice(), terms, frequencies, new double[0]);
+            docs.put(doc.id(), doc);
+            idsByCategory.computeIfAbsent(doc.category(), c -> new HashSet<>()).add(doc.id());
+            return doc;
+        }
+
+        private Doc removeDoc(ObjectId id) {
+            Doc doc = docs.remove(id);
+            if (doc == null) {
+                return null;
+            }
+            for (int term : doc.terms()) {
+                documentFrequency.computeIfPresent(term, (t, df) -> df > 1 ? df - 1 : null);
+            }
+            Set<ObjectId> categoryIds = idsByCategory.get(doc.category());
+            if (categoryIds != null) {
+                categoryIds.remove(id);
+            }
+            return doc;
+        }
+
+        // Sublinear tf * smoothed idf, L2-normalized -> cosine similarity is a plain dot product
+        private double[] weigh(Doc doc) {
+            int documents = docs.size();
+            double[] weights = new double[doc.terms().length];
+            double norm = 0;
+            for (int i = 0; i < weights.length; i++) {
+                int df = documentFrequency.getOrDefault(doc.terms()[i], 0);
+                weights[i] = (1 + Math.log(doc.frequencies()[i])) * (Math.log((1.0 + documents) / (1.0 + df)) + 1);
+                norm += weights[i] * weights[i];
+            }
+            norm = Math.sqrt(norm);
+            for (int i = 0; i < weights.length && norm > 0; i++) {
+                weights[i] /= norm;
+            }
+            return weights;
+        }
+
+        private void offer(ObjectId id, Neighbor neighbor) {
+            List<Neighbor> current = neighbors.getOrDefault(id, List.of());
+            boolean fits = current.size() < topK || BY_SCORE_DESC.compare(neighbor, current.get(current.size() - 1)) < 0;
+            if (neighbor.score() <= 0 || !fits) {
+                return;
+            }
+            List<Neighbor> updated = new ArrayList<>(current);
+            updated.add(neighbor);
+            updated.sort(BY_SCORE_DESC);
+            setNeighbors(id, updated.subList(0, Math.min(topK, updated.size())));
+        }
+
+        private void setNeighbors(ObjectId id, List<Neighbor> related) {
+            for (Neighbor previous : neighbors.getOrDefault(id, List.of())) {
+                Set<ObjectId> sources = referencedBy.get(previous.id());
+                if (sources != null) {
+                    sources.remove(id);
+                }
+            }
+            for (Neighbor neighbor : related) {
+                referencedBy.computeIfAbsent(neighbor.id(), n -> new HashSet<>()).add(id);
+            }
+            neighbors.put(id, List.copyOf(related));
+        }
+    }
+
+    private record Doc(ObjectId id, String category, Double price, int[] terms, int[] frequencies, double[] weights) {
+        Doc withWeights(double[] newWeights) {
+            return new Doc(id, category, price, terms, frequencies, newWeights);
+        }
+    }
+
+    private record Neighbor(ObjectId id, double score) {
+    }
+
+    private record Write(ObjectId id, Product product) { // product null -> deleted
+    }
+
+    // What scoring a write reads, copied under "this": the lists to compute, candidates per category, the new doc
+    private record Plan(Index index, long generation, Set<ObjectId> targetIds, List<Doc> targets,
+                        Map<String, List<Doc>> candidates, Doc offered) {
+    }
+
+    private record Scores(Map<ObjectId, List<Neighbor>> lists, Map<ObjectId, Neighbor> offers) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.mapper.ProductMapper;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductRepository;
+import com.shongon.catalog.service.IRelatedProductService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RelatedProductServiceImpl implements IRelatedProductService {
+    ProductRepository productRepository;
+    ProductMapper productMapper;
+    RelatedProductIndex relatedProductIndex;
+
+    @Override
+    public List<ViewAllProductsResponse> getRelatedProducts(String productId) {
+        ObjectId objectId = new ObjectId(productId);
+
+        List<ObjectId> relatedIds = relatedProductIndex.getRelatedIds(objectId);
+        if (relatedIds == null) {
+            // Unknown to the index: product does not exist, or the index is still warming up
+            if (!productRepository.existsById(objectId)) {
+                throw new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
+            log.debug("Related products index not ready, no related products for {}", productId);
+            return List.of();
+        }
+        if (relatedIds.isEmpty()) {
+            return List.of();
+        }
+
+        // One _id $in lookup, then restore the similarity order
+        Map<ObjectId, Product> productsById = productRepository.findAllById(relatedIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return relatedIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toViewAllProductsResponse)
+                .toList();
+    }
+}
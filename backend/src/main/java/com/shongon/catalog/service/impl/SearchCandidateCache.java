@@ -0,0 +1,141 @@
+package com.shongon.catalog.service.impl;
+
+import com.shongon.catalog.dto.cache.SearchCandidate;
+import com.shongon.catalog.dto.response.SearchCacheStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/*
+    Short-lived, bounded LRU of candidate products per normalized search keyword.
+    Search-as-you-type sends "i" -> "ip" -> "iph": every match of "iph" is also a match of "ip",
+    so "iph" can be answered by filtering the cached "ip" candidates instead of another regex scan.
+    Keywords matching more than max-candidates are remembered too (an "overflow" entry, no candidates): until it
+    expires, they go straight to the paged MongoDB query instead of scanning max-candidates + 1 documents again.
+ */
+@Slf4j
+@Component
+public class SearchCandidateCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong refinements = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SearchCandidateCache(
+            @Value("${app.search.candidate-cache.max-entries}") int maxEntries,
+            @Value("${app.search.candidate-cache.ttl}") Duration ttl
+    ) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        // access-order LinkedHashMap -> evicts the least recently used keyword once full
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SearchCandidateCache.this.maxEntries;
+            }
+        };
+    }
+
+    // Exact keyword already cached
+    public synchronized List<SearchCandidate> get(String keyword) {
+        Entry entry = getFresh(keyword);
+        if (entry == null || entry.overflows()) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.candidates;
+    }
+
+    // Keyword already known to match more than max-candidates
+    public synchronized boolean overflows(String keyword) {
+        Entry entry = getFresh(keyword);
+        if (entry == null || !entry.overflows()) {
+            return false;
+        }
+        overflows.incrementAndGet();
+        return true;
+    }
+
+    // Longest cached prefix of keyword, filtered down to keyword's matches and cached under keyword
+    public synchronized List<SearchCandidate> refine(String keyword, Predicate<SearchCandidate> matches) {
+        for (int length = keyword.length() - 1; length > 0; length--) {
+            Entry prefix = getFresh(keyword.substring(0, length));
+            if (prefix == null) {
+                continue;
+            }
+            if (prefix.overflows()) {
+                return null; // says nothing about keyword's matches, and shorter prefixes match even more
+            }
+            List<SearchCandidate> refined = prefix.candidates.stream().filter(matches).toList();
+            put(keyword, refined);
+            refinements.incrementAndGet();
+            log.debug("Refined search '{}' from cached prefix '{}': {} -> {} candidates",
+                    keyword, keyword.substring(0, length), prefix.candidates.size(), refined.size());
+            return refined;
+        }
+        return null;
+    }
+
+    public synchronized void put(String keyword, List<SearchCandidate> candidates) {
+        entries.put(keyword, new Entry(List.copyOf(candidates), System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void putOverflow(String keyword) {
+        entries.put(keyword, new Entry(null, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized SearchCacheStatsResponse stats() {
+        long hitCount = hits.get();
+        long refinementCount = refinements.get();
+        long lookups = hitCount + refinementCount + overflows.get() + misses.get();
+        return SearchCacheStatsResponse.builder()
+                .entries(entries.size())
+                .maxEntries(maxEntries)
+                .lookups(lookups)
+                .hits(hitCount)
+                .refinements(refinementCount)
+                .overflows(overflows.get())
+                .misses(misses.get())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .refinementRate(lookups == 0 ? 0 : (double) refinementCount / lookups)
+                .build();
+    }
+
+    // HELPER PRIVATE METHODS
+    private Entry getFresh(String keyword) {
+        Entry entry = entries.get(keyword);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(keyword);
+            return null;
+        }
+        return entry;
+    }
+
+    private record Entry(List<SearchCandidate> candidates, long expiresAt) { // candidates null -> overflow
+        boolean overflows() {
+            return candidates == null;
+        }
+    }
+}
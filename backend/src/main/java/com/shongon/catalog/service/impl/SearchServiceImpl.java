@@ -1,36 +1,236 @@
 package com.shongon.catalog.service.impl;
 
+import com.shongon.catalog.dto.cache.SearchCandidate;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.SearchCacheStatsResponse;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.SearchSortField;
 import com.shongon.catalog.mapper.ProductMapper;
 import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductProjection;
 import com.shongon.catalog.repository.ProductRepository;
+import com.shongon.catalog.service.IFacetService;
 import com.shongon.catalog.service.ISearchService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
-@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@FieldDefaults(level = AccessLevel.PRIVATE)
 public class SearchServiceImpl implements ISearchService {
-    ProductMapper productMapper;
-    ProductRepository productRepository;
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    final ProductMapper productMapper;
+    final ProductRepository productRepository;
+    final IFacetService facetService;
+    final MongoTemplate mongoTemplate;
+    final SearchCandidateCache candidateCache;
+
+    // Keywords matching more products than this are cached as overflowing -> paged straight from MongoDB
+    @Value("${app.search.candidate-cache.max-candidates}")
+    private int maxCandidates;
+
+    // Time budget of /products/search -> maxTimeMS on every query below
+    @Value("${app.query-timeouts.search}")
+    private Duration maxTime;
+
+    @Override
+    public Page<ViewAllProductsResponse> searchProducts(String keyword, int page, int size,
+                                                       SearchSortField sortBy, Sort.Direction direction,
+                                                       ProductFields fields) {
+        // Sort is passed down to Mongo -> served by 'name' / 'price_name' indexes, never sorted in memory
+        Pageable pageable = PageRequest.of(page, size, toSort(sortBy, direction));
+
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return productRepository.searchProducts(null, pageable, fields, maxTime)
+                    .map(productMapper::toViewAllProductsResponse);
+        }
+
+        // Search-as-you-type: serve from cached candidates (exact keyword or refined from a shorter prefix)
+        List<SearchCandidate> candidates = findCandidates(keyword.trim());
+        if (candidates != null) {
+            return toPage(candidates, sortBy, direction, PageRequest.of(page, size), fields);
+        }
+
+        return productRepository.searchProducts(escapeRegex(keyword.trim()), pageable, fields, maxTime)
+                .map(productMapper::toViewAllProductsResponse);
+    }
 
     @Override
-    public Page<ViewAllProductsResponse> searchProducts(String keyword, int page, int size, String sortBy, String direction) {
-        Pageable pageable = PageRequest.of(page, size);
+    public Slice<ViewAllProductsResponse> searchProductsSlice(String keyword, int page, int size,
+                                                             SearchSortField sortBy, Sort.Direction direction,
+                                                             ProductFields fields) {
+        Pageable pageable = PageRequest.of(page, size, toSort(sortBy, direction));
 
-        Page<Product> productPage;
         if (keyword == null || keyword.trim().isEmpty()) {
-            productPage = productRepository.findAll(pageable);
+            return productRepository.searchProductsSlice(null, pageable, fields, maxTime)
+                    .map(productMapper::toViewAllProductsResponse);
+        }
+
+        // Cached candidates already know their size -> slicing them costs no count either
+        List<SearchCandidate> candidates = findCandidates(keyword.trim());
+        if (candidates != null) {
+            Page<ViewAllProductsResponse> candidatePage = toPage(candidates, sortBy, direction, PageRequest.of(page, size), fields);
+            return new SliceImpl<>(candidatePage.getContent(), candidatePage.getPageable(), candidatePage.hasNext());
+        }
+
+        return productRepository.searchProductsSlice(escapeRegex(keyword.trim()), pageable, fields, maxTime)
+                .map(productMapper::toViewAllProductsResponse);
+    }
+
+    @Override
+    public FacetedPage<ViewAllProductsResponse> searchProductsWithFacets(String keyword, int page, int size,
+                                                                        SearchSortField sortBy, Sort.Direction direction,
+                                                                        ProductFields fields) {
+        // Same match as ProductRepository.searchProducts -> { name: { $regex: keyword, $options: 'i' } }
+        Criteria criteria = keyword == null || keyword.trim().isEmpty()
+                ? new Criteria()
+                : Criteria.where("name").regex(escapeRegex(keyword.trim()), "i");
+
+        return facetService.findPageWithFacets(criteria, toSort(sortBy, direction), PageRequest.of(page, size), fields,
+                maxTime);
+    }
+
+    @Override
+    public SearchCacheStatsResponse getCandidateCacheStats() {
+        return candidateCache.stats();
+    }
+
+    @Override
+    public void evictCandidateCache() {
+        candidateCache.clear();
+    }
+
+    // HELPER PRIVATE METHODS
+    private Sort toSort(SearchSortField sortBy, Sort.Direction direction) {
+        // RELEVANCE (default) keeps the order the engine produces matches in
+        if (sortBy == null || sortBy == SearchSortField.RELEVANCE) {
+            return Sort.unsorted();
+        }
+        Sort.Direction sortDirection = direction != null ? direction : Sort.Direction.ASC;
+        Sort sort = Sort.by(sortDirection, sortBy.getFieldName());
+        // Equal prices: unique name breaks the tie -> stable pages, still served by the 'price_name' index
+        return sortBy == SearchSortField.PRICE ? sort.and(Sort.by(sortDirection, "name")) : sort;
+    }
+
+    // Keywords are matched literally: ".*a.*b.*c" must not reach MongoDB as a backtracking pattern
+    private static String escapeRegex(String keyword) {
+        return REGEX_METACHARACTERS.matcher(keyword).replaceAll("\\\\$0");
+    }
+
+    private List<SearchCandidate> findCandidates(String keyword) {
+        // Keywords are literal substrings -> a keyword extending a cached one only narrows its matches
+        String normalized = keyword.toLowerCase(Locale.ROOT);
+        List<SearchCandidate> candidates = candidateCache.get(normalized);
+        if (candidates != null) {
+            return candidates;
+        }
+        if (candidateCache.overflows(normalized)) {
+            return null; // broad keyword seen recently: no max-candidates + 1 scan before the paged query
+        }
+
+        Pattern matcher = Pattern.compile(Pattern.quote(keyword), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        candidates = candidateCache.refine(normalized,
+                candidate -> candidate.getName() != null && matcher.matcher(candidate.getName()).find());
+        if (candidates != null) {
+            return candidates;
+        }
+
+        candidateCache.recordMiss();
+        return loadCandidates(keyword, normalized);
+    }
+
+    private List<SearchCandidate> loadCandidates(String keyword, String normalized) {
+        // Only _id, name, price -> { name: { $regex: keyword, $options: 'i' } }, limit max + 1 to detect overflow
+        Query query = new Query(Criteria.where("name").regex(escapeRegex(keyword), "i"))
+                .limit(maxCandidates + 1)
+                .maxTime(maxTime);
+        query.fields().include("name", "price");
+
+        List<Product> products = mongoTemplate.find(query, Product.class);
+        if (products.size() > maxCandidates) {
+            log.debug("Search '{}' matches more than {} products, cached as overflowing", keyword, maxCandidates);
+            candidateCache.putOverflow(normalized);
+            return null;
+        }
+
+        List<SearchCandidate> candidates = products.stream()
+                .map(product -> new SearchCandidate(product.getId(), product.getName(), product.getPrice()))
+                .toList();
+        candidateCache.put(normalized, candidates);
+        return candidates;
+    }
+
+    private Page<ViewAllProductsResponse> toPage(List<SearchCandidate> candidates, SearchSortField sortBy,
+                                                 Sort.Direction direction, Pageable pageable, ProductFields fields) {
+        // Candidate sets are bounded by maxCandidates -> cheap to sort here
+        List<SearchCandidate> ordered = new ArrayList<>(candidates);
+        Comparator<SearchCandidate> comparator = toComparator(sortBy, direction);
+        if (comparator != null) {
+            ordered.sort(comparator);
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), ordered.size());
+        int to = Math.min(from + pageable.getPageSize(), ordered.size());
+        List<ObjectId> pageIds = ordered.subList(from, to).stream().map(SearchCandidate::getId).toList();
+        if (pageIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ordered.size());
+        }
+
+        // Fetch only the documents of this page, then restore the candidate order
+        Query query = new Query(Criteria.where("_id").in(pageIds)).maxTime(maxTime);
+        ProductProjection.applyTo(query, fields);
+        Map<ObjectId, Product> productsById = new HashMap<>();
+        mongoTemplate.find(query, Product.class)
+                .forEach(product -> productsById.put(product.getId(), product));
+
+        List<ViewAllProductsResponse> content = pageIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toViewAllProductsResponse)
+                .toList();
+
+        return new PageImpl<>(content, pageable, ordered.size());
+    }
+
+    private Comparator<SearchCandidate> toComparator(SearchSortField sortBy, Sort.Direction direction) {
+        Comparator<SearchCandidate> comparator;
+        if (sortBy == SearchSortField.NAME) {
+            comparator = nullsLast(SearchCandidate::getName);
+        } else if (sortBy == SearchSortField.PRICE) {
+            comparator = nullsLast(SearchCandidate::getPrice).thenComparing(nullsLast(SearchCandidate::getName));
         } else {
-            productPage = productRepository.searchProducts(keyword.trim(), pageable);
+            return null; // RELEVANCE -> keep engine order
+        }
+        if (direction == Sort.Direction.DESC) {
+            comparator = comparator.reversed();
         }
+        return comparator.thenComparing(SearchCandidate::getId);
+    }
 
-        return productPage.map(productMapper::toViewAllProductsResponse);
+    private static <T extends Comparable<T>> Comparator<SearchCandidate> nullsLast(Function<SearchCandidate, T> key) {
+        return Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
     }
 }
@@ -1,16 +1,28 @@
 package com.shongon.catalog.service.impl;
 
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.CursorPage;
+import com.shongon.catalog.dto.response.FacetedPage;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
-import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.enums.PageCountMode;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.mapper.ProductMapper;
 import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductProjection;
+import com.shongon.catalog.service.IFacetService;
 import com.shongon.catalog.service.ISortFilterService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -18,33 +30,217 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
-@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@FieldDefaults(level = AccessLevel.PRIVATE)
 public class SortFilterServiceImpl implements ISortFilterService {
-    MongoTemplate mongoTemplate;
-    ProductMapper productMapper;
+    final MongoTemplate mongoTemplate;
+    final ProductMapper productMapper;
+    final IFacetService facetService;
+    final ExecutorService queryExecutor;
+    final CatalogSnapshot catalogSnapshot;
+
+    // Time budgets of /products/filter and /products/sort -> maxTimeMS on find, count and $facet
+    @Value("${app.query-timeouts.filter}")
+    private Duration filterMaxTime;
+
+    @Value("${app.query-timeouts.sort}")
+    private Duration sortMaxTime;
+
+    @Value("${app.query-executor.page-count-mode}")
+    private PageCountMode pageCountMode;
+
+    // Same bound as the paged endpoints' Pageable -> a cursor page is never larger than a skip/limit one
+    @Value("${spring.data.web.pageable.max-page-size:2000}")
+    private int maxPageSize;
 
     @Override
     public Page<ViewAllProductsResponse> filterAndSortProducts(
-            String category,
-            SortField sortBy,
-            Sort.Direction direction,
-            Pageable pageable
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
+    ) {
+        // In-memory snapshot first: page + total without a round trip; null while warming up or for multi-key sorts
+        CatalogSnapshot.Rows rows = catalogSnapshot.find(filter, sort, pageable);
+        if (rows != null) {
+            return new PageImpl<>(toResponses(rows.products(), fields, toMaxTime(sort)), pageable, rows.total());
+        }
+
+        if (pageCountMode == PageCountMode.FACET) {
+            // Page + total from 1 $facet aggregation -> 1 round trip
+            return facetService.findPageWithTotal(filter.toCriteria(), sort.toSort().and(pageable.getSort()),
+                    pageable, fields, toMaxTime(sort));
+        }
+
+        // Keys of this page, sorted, filtered and paginated by MongoDB
+        Query query = toKeyQuery(filter, sort, pageable);
+        String uniqueKey = sort.uniqueKey();
+
+        // Count total documents fit with filter (except pagination) -> 'totalElements' in Page
+        Query countQuery = Query.of(query) // clone query object
+                .skip(-1).limit(-1); // set page & size to default, ignore pagination to count concise total
+
+        // CONCURRENT: the count runs on the query executor while this thread fetches the page
+        Future<Long> total = pageCountMode == PageCountMode.CONCURRENT
+                ? queryExecutor.submit(() -> mongoTemplate.count(countQuery, Product.class))
+                : null;
+
+        // Execute query return Product's list (keys only), then fetch this page's documents by their unique key
+        List<Product> products;
+        try {
+            products = fetchByUniqueKey(mongoTemplate.find(query, Product.class), uniqueKey, fields,
+                    toMaxTime(sort));
+        } catch (RuntimeException e) {
+            if (total != null) {
+                total.cancel(true); // the request fails anyway -> free the executor thread and its connection
+            }
+            throw e;
+        }
+        /*
+            mongo.products.find(
+                {}, // return all products matching the query
+                {
+                    "category": categotyType, (nullable = true)
+                    "sort": sort.toSort(), (always ends with a unique key)
+                    "page": 0, (default = 0)
+                    "size": 10 (default = 10)
+                }
+            )
+         */
+
+        long totalElements = total != null ? await(total) : mongoTemplate.count(countQuery, Product.class);
+
+        // Map to response
+        var response = products.stream()
+                .map(product -> toResponse(product, fields))
+                .toList();
+
+        return new PageImpl<>(response, pageable, totalElements);
+    }
+
+    @Override
+    public Slice<ViewAllProductsResponse> filterAndSortProductsSlice(
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
+    ) {
+        CatalogSnapshot.Rows rows = catalogSnapshot.find(filter, sort, pageable);
+        if (rows != null) {
+            boolean hasNext = rows.total() > pageable.getOffset() + pageable.getPageSize();
+            return new SliceImpl<>(toResponses(rows.products(), fields, toMaxTime(sort)), pageable, hasNext);
+        }
+
+        // Same covered key query, 1 key more than the page and no count -> hasNext without scanning the whole match
+        Query query = toKeyQuery(filter, sort, pageable).limit(pageable.getPageSize() + 1);
+        List<Product> keys = mongoTemplate.find(query, Product.class);
+
+        boolean hasNext = keys.size() > pageable.getPageSize();
+        List<Product> products = fetchByUniqueKey(hasNext ? keys.subList(0, pageable.getPageSize()) : keys,
+                sort.uniqueKey(), fields, toMaxTime(sort));
+
+        return new SliceImpl<>(products.stream().map(product -> toResponse(product, fields)).toList(), pageable, hasNext);
+    }
+
+    @Override
+    public FacetedPage<ViewAllProductsResponse> filterAndSortProductsWithFacets(
+            ProductFilter filter,
+            ProductSort sort,
+            Pageable pageable,
+            ProductFields fields
     ) {
+        // Snapshot: facet counts are bitmap cardinalities, no aggregation at all
+        FacetedPage<Product> page = catalogSnapshot.findWithFacets(filter, sort, pageable);
+        if (page != null) {
+            return new FacetedPage<>(toResponses(page.getContent(), fields, toMaxTime(sort)), pageable,
+                    page.getTotalElements(), page.getFacets());
+        }
+
+        // Same filter & sort as above, but page + total + facet counts come back in 1 aggregation
+        return facetService.findPageWithFacets(filter.toCriteria(), sort.toSort().and(pageable.getSort()),
+                pageable, fields, toMaxTime(sort));
+    }
+
+    @Override
+    public CursorPage<ViewAllProductsResponse> filterAndSortProductsByCursor(
+            ProductFilter filter,
+            ProductSort sort,
+            String cursor,
+            int size,
+            ProductFields fields
+    ) {
+        // Not clamped like Pageable: 0 would leave no last row to build the next cursor from, a negative one no limit
+        if (size < 1 || size > maxPageSize) {
+            throw new ProductCatalogException(ErrorCode.INVALID_PAGE_SIZE);
+        }
+
+        // Sort ends with a unique key, so a key identifies exactly where the page ended
+        Sort keyset = sort.toSort();
+
+        Criteria criteria = filter.toCriteria();
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            if (!after.sort().equals(keyset)) {
+                throw new ProductCatalogException(ErrorCode.INVALID_CURSOR); // cursor of another listing
+            }
+            criteria = new Criteria().andOperator(criteria, after.toSeekCriteria());
+        }
+
+        // size + 1 tells whether a next page exists without counting the whole match
+        Query query = new Query(criteria)
+                .with(keyset)
+                .limit(size + 1)
+                .maxTime(toMaxTime(sort));
+        ProductProjection.applyTo(query, fields, keyset.stream().map(Sort.Order::getProperty).toArray(String[]::new)); // sort keys -> next cursor
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        boolean hasNext = products.size() > size;
+        List<Product> page = hasNext ? products.subList(0, size) : products;
+
+        return CursorPage.<ViewAllProductsResponse>builder()
+                .content(page.stream().map(product -> toResponse(product, fields)).toList())
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? KeysetCursor.after(keyset, page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    // HELPER PRIVATE METHODS
+    // Sorted requests come from /products/sort, the rest from /products/filter
+    private Duration toMaxTime(ProductSort sort) {
+        return sort.isSorted() ? sortMaxTime : filterMaxTime;
+    }
+
+    private Query toKeyQuery(ProductFilter filter, ProductSort sort, Pageable pageable) {
         // Create empty query object
         Query query = new Query();
 
         // Filter
-        if (category != null && !category.isBlank()) {
-            query.addCriteria(Criteria.where("category").is(category));
-        } // Add filter query with {"category": categoryType} to query object
+        if (!filter.isEmpty()) {
+            query.addCriteria(filter.toCriteria());
+        } // Add filter query with {"category": categoryType | {$in: [...]}, "price": {$gte, $lte}} to query object
 
-        // Sort
-        if (sortBy != null && direction != null) {
-            query.with(Sort.by(direction, sortBy.getFieldName()));
-        } // Add sort query with {"sortBy": sortBy, 1(ASC)/-1(DESC)} to query object
+        /*
+            Sort: always ends with a unique key -> stable pages and seekable cursors. Every shape has a matching index
+            (see ProductIndexManager): {category?, price, _id}, {category?, price, name(desc)?}, {category?, name, price},
+            {category?, _id, price}
+         */
+        query.with(sort.toSort()); // Add sort query with {"price": 1(ASC)/-1(DESC), ..., "_id"} to query object
+
+        // Time budget -> MongoDB aborts the query (and any count cloned from it) once exceeded
+        query.maxTime(toMaxTime(sort));
 
         // Pagination
         query.with(pageable); // Passing params "page" and "size" to query object
@@ -59,32 +255,59 @@ public class SortFilterServiceImpl implements ISortFilterService {
                 Page 3 (skip=9, limit=3) → [D10]
          */
 
-        // Execute query return Product's list
-        var products = mongoTemplate.find(query, Product.class);
-        /*
-            mongo.products.find(
-                {}, // return all products matching the query
-                {
-                    "category": categotyType, (nullable = true)
-                    "sortBy": sortBy, (nullable = true)
-                    "direction": direction (nullable = true)
-                    "page": 0, (default = 0)
-                    "size": 10 (default = 10)
-                }
-            )
-         */
+        // Covered query: only the sort keys are projected -> answered from the index alone, even for deep skips
+        query.getSortObject().keySet().forEach(field -> query.fields().include(field));
+        if (!"_id".equals(sort.uniqueKey())) {
+            query.fields().exclude("_id"); // not part of the 'name' indexes
+        }
+        return query;
+    }
 
-        // Count total documents fit with filter (except pagination) -> 'totalElements' in Page
-        long total = mongoTemplate.count(
-                Query.of(query) // clone query object
-                        .skip(-1).limit(-1) // set page & size to default, ignore pagination to count concise total
-                , Product.class);
+    private List<Product> fetchByUniqueKey(List<Product> keys, String uniqueKey, ProductFields fields, Duration maxTime) {
+        if (keys.isEmpty()) {
+            return keys;
+        }
+        Function<Product, Object> keyOf = "_id".equals(uniqueKey) ? Product::getId : Product::getName;
+        List<Object> values = keys.stream().map(keyOf).toList();
 
-        // Map to response
-        var response = products.stream()
-                .map(productMapper::toViewAllProductsResponse)
-                .toList();
+        Query query = new Query(Criteria.where(uniqueKey).in(values)).maxTime(maxTime);
+        ProductProjection.applyTo(query, fields, uniqueKey); // the key restores the order below
+        Map<Object, Product> productsByKey = new HashMap<>();
+        mongoTemplate.find(query, Product.class).forEach(product -> productsByKey.put(keyOf.apply(product), product));
+
+        // Restore the order of the covered query
+        return values.stream().map(productsByKey::get).filter(Objects::nonNull).toList();
+    }
+
+    // Rethrow what the count threw (e.g. maxTimeMS exceeded -> 503), not the ExecutionException wrapping it
+    private static long await(Future<Long> total) {
+        try {
+            return total.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Counting products failed", e.getCause());
+        } catch (InterruptedException e) {
+            total.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting products", e);
+        }
+    }
+
+    // Snapshot rows hold every field but description -> fetch the documents by _id only when it is asked for
+    private List<ViewAllProductsResponse> toResponses(List<Product> rows, ProductFields fields, Duration maxTime) {
+        List<Product> products = fields.getNames().contains("description")
+                ? fetchByUniqueKey(rows, "_id", fields, maxTime)
+                : rows;
+        return products.stream().map(product -> toResponse(product, fields)).toList();
+    }
 
-        return new PageImpl<>(response, pageable, total);
+    // Fields only read for the query's sake (sort / unique key) are not sent
+    private ViewAllProductsResponse toResponse(Product product, ProductFields fields) {
+        return fields.trim(productMapper.toViewAllProductsResponse(product));
     }
 }
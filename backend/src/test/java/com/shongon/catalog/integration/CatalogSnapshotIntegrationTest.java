@@ -0,0 +1,145 @@
+package com.shongon.catalog.integration;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.IFacetService;
+import com.shongon.catalog.service.ISortFilterService;
+import com.shongon.catalog.service.impl.CatalogSnapshot;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    The snapshot must answer exactly what MongoDB answers: same rows, same order (ties, missing prices), same totals,
+    same facet counts.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml", properties = "app.snapshot.enabled=true")
+@DisplayName("Catalog Snapshot Integration Tests")
+public class CatalogSnapshotIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ISortFilterService sortFilterService;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private IFacetService facetService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.remove(new Query(), Product.class);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            products.add(Product.builder()
+                    .id(new ObjectId())
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price(i % 7 == 0 ? null : (double) (i % 10)) // ties and missing prices
+                    .category(List.of("BOOKS", "FOOD", "HOME").get(i % 3))
+                    .build());
+        }
+        mongoTemplate.insertAll(products);
+
+        catalogSnapshot.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should serve the same pages and totals as MongoDB for every held shape")
+    void whenSnapshotReady_pagesMatchMongo() {
+        assertThat(catalogSnapshot.isReady()).isTrue();
+
+        List<ProductFilter> filters = List.of(
+                ProductFilter.NONE,
+                ProductFilter.of("BOOKS", null, null),
+                ProductFilter.of("BOOKS,HOME", 2.0, 6.0),
+                ProductFilter.of(null, null, 4.0));
+        List<ProductSort> sorts = new ArrayList<>(List.of(ProductSort.UNSORTED));
+        for (SortField field : SortField.values()) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                sorts.add(ProductSort.of(field, direction));
+            }
+        }
+
+        for (ProductFilter filter : filters) {
+            for (ProductSort sort : sorts) {
+                PageRequest pageable = PageRequest.of(1, 7);
+                Page<ViewAllProductsResponse> page =
+                        sortFilterService.filterAndSortProducts(filter, sort, pageable, ProductFields.ALL);
+
+                Query query = new Query(filter.toCriteria()).with(sort.toSort());
+                List<String> expected = mongoTemplate.find(Query.of(query).with(pageable), Product.class).stream()
+                        .map(product -> product.getId().toHexString())
+                        .toList();
+
+                assertThat(page.getContent()).as("%s %s", filter, sort)
+                        .extracting(ViewAllProductsResponse::getId).containsExactlyElementsOf(expected);
+                assertThat(page.getTotalElements()).as("%s %s", filter, sort)
+                        .isEqualTo(mongoTemplate.count(query, Product.class));
+                // descriptions are not held in memory -> fetched for the page
+                assertThat(page.getContent()).allSatisfy(product -> assertThat(product.getDescription()).isNotNull());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reflect product writes made through the service without a rebuild")
+    void whenProductWritten_snapshotIsPatched() {
+        Product cheapest = Product.builder()
+                .id(new ObjectId()).name("Cheapest").description("New").price(0.5).category("TOYS").build();
+        mongoTemplate.insert(cheapest);
+        catalogSnapshot.onProductSaved(cheapest);
+
+        Page<ViewAllProductsResponse> page = sortFilterService.filterAndSortProducts(ProductFilter.of(null, 0.1, null),
+                ProductSort.of(SortField.PRICE, Sort.Direction.ASC), PageRequest.of(0, 1), ProductFields.SUMMARY);
+
+        assertThat(page.getContent()).extracting(ViewAllProductsResponse::getName).containsExactly("Cheapest");
+    }
+
+    @Test
+    @DisplayName("Should count facets from bitmaps exactly as the $facet aggregation does")
+    void whenFacetsRequested_countsMatchAggregation() {
+        for (ProductFilter filter : List.of(
+                ProductFilter.NONE,
+                ProductFilter.of("BOOKS,HOME", null, null),
+                ProductFilter.of("FOOD", 3.0, 8.0),
+                ProductFilter.of(null, 5.0, null))) {
+            PageRequest pageable = PageRequest.of(0, 5);
+            FacetedPage<Product> fromSnapshot = catalogSnapshot.findWithFacets(filter, ProductSort.UNSORTED, pageable);
+            FacetedPage<ViewAllProductsResponse> fromMongo = facetService.findPageWithFacets(filter.toCriteria(),
+                    ProductSort.UNSORTED.toSort(), pageable, ProductFields.ALL, Duration.ofSeconds(5));
+
+            assertThat(fromSnapshot.getTotalElements()).as("%s", filter).isEqualTo(fromMongo.getTotalElements());
+            // equal counts may come back in any order from $sortByCount -> compared as maps
+            assertThat(fromSnapshot.getFacets().getCategories()).as("%s", filter)
+                    .isEqualTo(fromMongo.getFacets().getCategories());
+            assertThat(fromSnapshot.getFacets().getPriceBuckets()).as("%s", filter)
+                    .isEqualTo(fromMongo.getFacets().getPriceBuckets());
+        }
+    }
+}
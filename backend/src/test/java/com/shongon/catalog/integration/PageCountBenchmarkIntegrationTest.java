@@ -0,0 +1,137 @@
+package com.shongon.catalog.integration;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.PageCountMode;
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductIndexManager;
+import com.shongon.catalog.service.ISortFilterService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Compares the three page + total strategies of filterAndSortProducts on the same data set:
+    SEQUENTIAL (find then count), CONCURRENT (count on the query executor), FACET (1 $facet aggregation).
+    Opt-in, it seeds a few thousand products: mvn test -Dtest=PageCountBenchmarkIntegrationTest -Dbenchmark=true
+ */
+@Slf4j
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Page/Count Strategy Benchmark")
+public class PageCountBenchmarkIntegrationTest extends BaseIntegrationTest {
+    private static final int PRODUCTS = 20_000;
+    private static final List<String> CATEGORIES = List.of("BOOKS", "FOOD", "HOME", "TOYS", "CLOTHING");
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ISortFilterService sortFilterService;
+
+    @Autowired
+    private ProductIndexManager productIndexManager;
+
+    private Object target;
+    private Object configuredMode;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.remove(new Query(), Product.class);
+        productIndexManager.reconcile();
+
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            batch.add(Product.builder()
+                    .id(new ObjectId())
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price((double) (i * 37 % 1000))
+                    .category(CATEGORIES.get(i % CATEGORIES.size()))
+                    .build());
+            if (batch.size() == 1_000) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insertAll(batch);
+
+        target = AopTestUtils.getUltimateTargetObject(sortFilterService);
+        configuredMode = ReflectionTestUtils.getField(target, "pageCountMode");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(target, "pageCountMode", configuredMode);
+    }
+
+    @Test
+    @DisplayName("Should return identical pages in every mode and log p50/p95 per mode")
+    void comparePageCountModes() {
+        Map<PageCountMode, Page<ViewAllProductsResponse>> pages = new EnumMap<>(PageCountMode.class);
+
+        for (PageCountMode mode : PageCountMode.values()) {
+            ReflectionTestUtils.setField(target, "pageCountMode", mode);
+            for (int i = 0; i < WARMUP; i++) {
+                run();
+            }
+
+            long[] nanos = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                Page<ViewAllProductsResponse> page = run();
+                nanos[i] = System.nanoTime() - start;
+                if (i == 0) {
+                    pages.put(mode, page);
+                }
+            }
+
+            Arrays.sort(nanos);
+            log.info("[BENCHMARK] {} -> p50={}us, p95={}us, max={}us", mode,
+                    nanos[ITERATIONS / 2] / 1_000, nanos[ITERATIONS * 95 / 100] / 1_000, nanos[ITERATIONS - 1] / 1_000);
+        }
+
+        // Same query, same answer whatever the strategy
+        Page<ViewAllProductsResponse> expected = pages.get(PageCountMode.SEQUENTIAL);
+        assertThat(expected.getTotalElements()).isEqualTo(PRODUCTS / CATEGORIES.size());
+        for (Page<ViewAllProductsResponse> page : pages.values()) {
+            assertThat(page.getTotalElements()).isEqualTo(expected.getTotalElements());
+            assertThat(page.getContent()).extracting(ViewAllProductsResponse::getId)
+                    .containsExactlyElementsOf(expected.getContent().stream().map(ViewAllProductsResponse::getId).toList());
+        }
+    }
+
+    // Deep-ish page of a filtered price sort -> both the page and the count have real work to do
+    private Page<ViewAllProductsResponse> run() {
+        return sortFilterService.filterAndSortProducts(
+                ProductFilter.of(CATEGORIES.get(0), null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), PageRequest.of(10, 20), ProductFields.ALL);
+    }
+}
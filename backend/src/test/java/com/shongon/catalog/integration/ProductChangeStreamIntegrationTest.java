@@ -0,0 +1,150 @@
+package com.shongon.catalog.integration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.shongon.catalog.event.ProductChangeStreamWatcher;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.impl.RelatedProductIndex;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Writes made straight in MongoDB (another node, a script), never seen by this node's event bus: the change stream
+    must still reach the in-memory indexes and the cache, and leave a resume token behind.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml",
+        properties = {"app.change-stream.enabled=true", "app.change-stream.node-id=it-node"})
+@DisplayName("Product Change Stream Integration Tests")
+public class ProductChangeStreamIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ICacheService cacheService;
+
+    @Autowired
+    private RelatedProductIndex relatedProductIndex;
+
+    @Autowired
+    private ProductChangeStreamWatcher watcher;
+
+    private Product sibling;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        mongoTemplate.remove(new Query(), Product.class);
+        sibling = Product.builder()
+                .id(new ObjectId()).name("Green tea leaves").description("Loose green tea").price(10.0).category("FOOD")
+                .build();
+        mongoTemplate.insert(sibling);
+        relatedProductIndex.rebuild();
+
+        // Watching from now: a token is stored once the stream is open and caught up
+        await(() -> watcher.loadToken() != null);
+    }
+
+    @Test
+    @DisplayName("Should index a product inserted outside the service and evict the product cache")
+    void whenInsertedDirectly_indexPatchedAndCacheEvicted() throws InterruptedException {
+        String key = cacheService.generateCacheKey("all", 0, 10);
+        cacheService.saveToCache(key, List.of("stale"), Duration.ofMinutes(10));
+        BsonDocument tokenBefore = watcher.loadToken();
+
+        Product inserted = Product.builder()
+                .id(new ObjectId()).name("Green tea bags").description("Bagged green tea").price(11.0).category("FOOD")
+                .build();
+        mongoTemplate.insert(inserted);
+
+        await(() -> relatedProductIndex.getRelatedIds(inserted.getId()) != null);
+        await(() -> cacheService.getFromCache(key, new TypeReference<List<String>>() {
+        }) == null);
+        await(() -> !tokenBefore.equals(watcher.loadToken()));
+        assertThat(relatedToSibling()).contains(inserted.getId());
+    }
+
+    @Test
+    @DisplayName("Should apply updates and deletes made outside the service")
+    void whenUpdatedAndDeletedDirectly_indexFollows() throws InterruptedException {
+        Product other = Product.builder()
+                .id(new ObjectId()).name("Green tea bags").description("Bagged green tea").price(11.0).category("FOOD")
+                .build();
+        mongoTemplate.insert(other);
+        await(() -> relatedToSibling().contains(other.getId()));
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(other.getId())),
+                Update.update("category", "TOYS"), Product.class);
+        await(() -> !relatedToSibling().contains(other.getId()));
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(other.getId())),
+                Update.update("category", "FOOD"), Product.class);
+        await(() -> relatedToSibling().contains(other.getId()));
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(other.getId())), Product.class);
+        await(() -> !relatedToSibling().contains(other.getId()));
+    }
+
+    @Test
+    @DisplayName("Should deliver changes while writes keep coming, without waiting for an idle stream")
+    void whenWritesNeverPause_changesStillDelivered() throws InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<ObjectId> written = new CopyOnWriteArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; writing.get(); i++) {
+                Product product = Product.builder()
+                        .id(new ObjectId()).name("Green tea " + i).description("Green tea").price(10.0).category("FOOD")
+                        .build();
+                mongoTemplate.insert(product);
+                written.add(product.getId());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        writer.start();
+        try {
+            await(() -> written.size() > 5);
+            ObjectId early = written.get(0);
+            // The stream never goes idle: the change still arrives within a few max-await periods
+            await(() -> relatedProductIndex.getRelatedIds(early) != null);
+            assertThat(writer.isAlive()).isTrue();
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+    }
+
+    private List<ObjectId> relatedToSibling() {
+        List<ObjectId> related = relatedProductIndex.getRelatedIds(sibling.getId());
+        return related == null ? List.of() : related;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("change stream timed out").isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.shongon.catalog.integration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shongon.catalog.dto.request.CreateProductRequest;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
+import com.shongon.catalog.event.ProductEventBus;
 import com.shongon.catalog.model.Product;
 import com.shongon.catalog.repository.ProductRepository;
 import org.bson.types.ObjectId;
@@ -10,20 +11,33 @@ import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
-@TestPropertySource(locations = "classpath:application-test.yml")
+// Không reconcile nền: unique index của "name" vẫn phải được tạo trước khi app nhận request.
+// Outbox bật (container Mongo là replica set): ghi sản phẩm và event trong cùng một transaction
+@TestPropertySource(locations = "classpath:application-test.yml",
+        properties = {"app.indexes.reconcile-on-startup=false", "app.events.outbox.enabled=true"})
 @DisplayName("Product Integration Tests")
 public class ProductIntegrationTest extends BaseIntegrationTest {
 
@@ -36,6 +50,12 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // Constants - tránh lặp lại magic strings
@@ -58,6 +78,9 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
             redisTemplate.getConnectionFactory().getConnection().flushAll();
         }
         productRepository.deleteAll();
+
+        // Tên sản phẩm chỉ được kiểm tra bởi unique index -> phải có sẵn từ lúc startup, không chờ reconcile nền
+        assertUniqueNameIndex();
     }
 
     @AfterAll
@@ -76,6 +99,16 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
                 .build();
     }
 
+    private void assertUniqueNameIndex() {
+        Assertions.assertTrue(mongoTemplate.indexOps("products").getIndexInfo().stream()
+                .anyMatch(info -> "name".equals(info.getName()) && info.isUnique()));
+    }
+
+    // Cache eviction chạy bất đồng bộ trên event bus -> chờ giao xong trước khi đọc lại
+    private void awaitProductEvents() throws InterruptedException {
+        Assertions.assertTrue(productEventBus.awaitDelivered(Duration.ofSeconds(5)));
+    }
+
     private CreateProductRequest createValidProductRequest() {
         CreateProductRequest request = new CreateProductRequest();
         request.setName("New Food Product");
@@ -287,6 +320,208 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
         }
     }
 
+    @Nested
+    @DisplayName("Bulk Create Products")
+    class BulkCreateProductTests {
+
+        @Test
+        @DisplayName("Should create valid items and report each failed one")
+        void whenMixedItems_createValidOnesAndReportPerItem() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+
+            CreateProductRequest valid = createValidProductRequest();
+            CreateProductRequest existing = createValidProductRequest();
+            existing.setName("Existing Product");
+            CreateProductRequest invalid = createValidProductRequest();
+            invalid.setName("Invalid Product");
+            invalid.setCategory("TOY");
+
+            mockMvc.perform(post(PRODUCTS_URL + "/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(valid, existing, invalid, valid))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.received").value(4))
+                    .andExpect(jsonPath("$.result.succeeded").value(1))
+                    .andExpect(jsonPath("$.result.items[*].code").value(contains(201, 409, 400, 409)))
+                    .andExpect(jsonPath("$.result.items[0].id").isNotEmpty());
+
+            Assertions.assertEquals(2, productRepository.count());
+            Assertions.assertTrue(productRepository.existsByName(valid.getName()));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when the body is not a JSON array")
+        void whenNotAnArray_return400() throws Exception {
+            mockMvc.perform(post(PRODUCTS_URL + "/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(createValidProductRequest())))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.code").value(400));
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk Update and Delete Products")
+    class BulkUpdateDeleteProductTests {
+
+        @Test
+        @DisplayName("Should patch only the given fields and report unknown ids")
+        void whenPatches_updateGivenFieldsOnly() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+            String body = "[{\"id\":\"" + VALID_PRODUCT_ID + "\",\"price\":42.5},"
+                    + "{\"id\":\"" + NOT_FOUND_PRODUCT_ID + "\",\"price\":1}]";
+
+            mockMvc.perform(patch(PRODUCTS_URL + "/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.items[*].code").value(contains(200, 404)));
+
+            Product updated = productRepository.findById(new ObjectId(VALID_PRODUCT_ID)).orElseThrow();
+            Assertions.assertEquals(42.5, updated.getPrice());
+            Assertions.assertEquals("Existing Product", updated.getName());
+            Assertions.assertEquals("Sample Description", updated.getDescription());
+        }
+
+        @Test
+        @DisplayName("Should delete by ids, then by category")
+        void whenDeleteByIdsOrCategory_removeProducts() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+            productRepository.save(createSampleProduct(NOT_FOUND_PRODUCT_ID, "Other Product"));
+            productRepository.save(Product.builder().name("Book").description("Book Description").price(5.0)
+                    .category("BOOKS").build());
+
+            mockMvc.perform(delete(PRODUCTS_URL + "/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[\"" + VALID_PRODUCT_ID + "\",\"" + INVALID_PRODUCT_ID + "\"]"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.items[*].code").value(contains(200, 400)));
+
+            mockMvc.perform(delete(PRODUCTS_URL + "/bulk").param("category", "FOOD"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.matched").value(1))
+                    .andExpect(jsonPath("$.result.deleted").value(1));
+
+            Assertions.assertEquals(1, productRepository.count());
+        }
+
+        @Test
+        @DisplayName("Should reprice a category inside MongoDB and keep the cache of other categories")
+        void whenRepriceCategory_updatePricesAndEvictOnlyItsScopes() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+            Product book = productRepository.save(Product.builder().name("Book").description("Book Description")
+                    .price(5.0).category("BOOKS").build());
+
+            // Warm up cache cho cả hai category
+            for (String category : List.of("FOOD", "BOOKS")) {
+                mockMvc.perform(get(PRODUCTS_URL + "/filter").param("category", category))
+                        .andExpect(status().isOk());
+            }
+
+            mockMvc.perform(patch(PRODUCTS_URL + "/bulk/price").param("category", "FOOD")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"percent\":-10}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.matched").value(1))
+                    .andExpect(jsonPath("$.result.modified").value(1));
+
+            Assertions.assertEquals(9.0, productRepository.findById(new ObjectId(VALID_PRODUCT_ID)).orElseThrow().getPrice());
+            Assertions.assertEquals(5.0, productRepository.findById(book.getId()).orElseThrow().getPrice());
+
+            // FOOD -> MISS với giá mới; BOOKS vẫn HIT
+            mockMvc.perform(get(PRODUCTS_URL + "/filter").param("category", "FOOD"))
+                    .andExpect(jsonPath("$.message").value("Success"))
+                    .andExpect(jsonPath("$.result.content[0].price").value(9.0));
+            mockMvc.perform(get(PRODUCTS_URL + "/filter").param("category", "BOOKS"))
+                    .andExpect(jsonPath("$.message").value("Success (Cached)"));
+        }
+
+        @Test
+        @DisplayName("Should return 400 without a filter or with both percent and amount")
+        void whenRepriceInvalid_return400() throws Exception {
+            mockMvc.perform(patch(PRODUCTS_URL + "/bulk/price")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"percent\":-10}"))
+                    .andExpect(status().isBadRequest());
+
+            mockMvc.perform(patch(PRODUCTS_URL + "/bulk/price").param("category", "FOOD")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"percent\":-10,\"amount\":1}"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.code").value(400));
+        }
+    }
+
+    @Nested
+    @DisplayName("Export Products")
+    class ExportProductTests {
+
+        @Test
+        @DisplayName("Should stream the filtered catalog as NDJSON, one product per line")
+        void whenNdjson_streamOneLinePerProduct() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+            productRepository.save(Product.builder().name("Book").description("Book Description").price(5.0)
+                    .category("BOOKS").build());
+
+            MvcResult started = mockMvc.perform(get(PRODUCTS_URL + "/export").param("category", "FOOD"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            String body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson"))
+                    .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("products.ndjson")))
+                    .andReturn().getResponse().getContentAsString();
+
+            Assertions.assertEquals("{\"id\":\"" + VALID_PRODUCT_ID + "\",\"name\":\"Existing Product\","
+                    + "\"description\":\"Sample Description\",\"price\":10.0,\"category\":\"FOOD\"}\n", body);
+        }
+
+        @Test
+        @DisplayName("Should gzip the CSV when the client accepts it")
+        void whenCsvAndAcceptGzip_streamCompressedCsv() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing, Product"));
+
+            MvcResult started = mockMvc.perform(get(PRODUCTS_URL + "/export").param("format", "csv")
+                            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                    .andReturn();
+
+            byte[] body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                Assertions.assertEquals("id,name,description,price,category\r\n"
+                                + VALID_PRODUCT_ID + ",\"Existing, Product\",Sample Description,10.0,FOOD\r\n",
+                        new String(csv.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        @Test
+        @DisplayName("Should stream uncompressed when the client refuses gzip")
+        void whenGzipRefused_streamUncompressed() throws Exception {
+            productRepository.save(createSampleProduct(VALID_PRODUCT_ID, "Existing Product"));
+
+            MvcResult started = mockMvc.perform(get(PRODUCTS_URL + "/export")
+                            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(content().string(containsString("\"name\":\"Existing Product\"")));
+        }
+
+        @Test
+        @DisplayName("Should return 400 for an unknown format, before streaming")
+        void whenUnknownFormat_return400() throws Exception {
+            mockMvc.perform(get(PRODUCTS_URL + "/export").param("format", "xml"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.code").value(400));
+        }
+    }
+
     @Nested
     @DisplayName("Update Product")
     class UpdateProductTests {
@@ -426,6 +661,7 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(objectMapper.writeValueAsString(request)))
                     .andExpect(status().isCreated());
+            awaitProductEvents();
 
             // GET again -> should MISS and reload from DB
             mockMvc.perform(get(PRODUCTS_URL).param("page", "0").param("size", "10"))
@@ -449,6 +685,7 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(objectMapper.writeValueAsString(updateReq)))
                     .andExpect(status().isOk());
+            awaitProductEvents();
 
             // GET again -> MISS and reload
             mockMvc.perform(get(PRODUCTS_URL).param("page", "0").param("size", "10"))
@@ -469,6 +706,7 @@ public class ProductIntegrationTest extends BaseIntegrationTest {
             // Delete product
             mockMvc.perform(delete(PRODUCT_BY_ID_URL, VALID_PRODUCT_ID))
                     .andExpect(status().isOk());
+            awaitProductEvents();
 
             // GET again -> MISS
             mockMvc.perform(get(PRODUCTS_URL).param("page", "0").param("size", "10"))
@@ -1,7 +1,10 @@
 package com.shongon.catalog.integration;
 
 import com.shongon.catalog.model.Product;
+import org.bson.Document;
+import com.shongon.catalog.repository.ProductIndexManager;
 import com.shongon.catalog.repository.ProductRepository;
+import com.shongon.catalog.service.ISearchService;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
@@ -11,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
@@ -18,7 +22,9 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -38,6 +44,15 @@ public class SearchProductIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ISearchService searchService;
+
+    @Autowired
+    private ProductIndexManager productIndexManager;
+
     private static final String SEARCH_URL = "/products/search";
 
     // Helper method to create products for testing
@@ -63,8 +78,9 @@ public class SearchProductIntegrationTest extends BaseIntegrationTest {
             redisTemplate.getConnectionFactory().getConnection().flushAll();
         }
 
-        // Clean up MongoDB and seed with test data
+        // Clean up MongoDB and seed with test data (written behind the API -> drop search candidates too)
         productRepository.deleteAll();
+        searchService.evictCandidateCache();
         List<Product> products = List.of(
                 createProduct("Apple iPhone 15 Pro", "ELECTRONICS"),
                 createProduct("Apple MacBook Pro 16-inch", "ELECTRONICS"),
@@ -73,6 +89,9 @@ public class SearchProductIntegrationTest extends BaseIntegrationTest {
                 createProduct("A Brief History of Time", "BOOKS")
         );
         productRepository.saveAll(products);
+
+        // Index được build nền sau khi app ready -> build đồng bộ ở đây để explain phản ánh đúng production
+        productIndexManager.reconcile();
     }
 
     @AfterAll
@@ -169,4 +188,101 @@ public class SearchProductIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.result.totalElements").value(2))
                 .andExpect(jsonPath("$.result.content.length()").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should sort search results by price DESC")
+    void whenSearchSortedByPriceDesc_thenReturnSortedProducts() throws Exception {
+        List<Product> apples = productRepository.findAll().stream()
+                .filter(p -> p.getName().startsWith("Apple"))
+                .sorted((a, b) -> Double.compare(b.getPrice(), a.getPrice()))
+                .toList();
+
+        mockMvc.perform(get(SEARCH_URL)
+                        .param("keyword", "apple")
+                        .param("field", "PRICE")
+                        .param("direction", "DESC")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.content[0].name").value(apples.get(0).getName()))
+                .andExpect(jsonPath("$.result.content[1].name").value(apples.get(1).getName()));
+    }
+
+    @Test
+    @DisplayName("Should sort search results by name ASC")
+    void whenSearchSortedByNameAsc_thenReturnSortedProducts() throws Exception {
+        mockMvc.perform(get(SEARCH_URL)
+                        .param("keyword", "Pro")
+                        .param("field", "NAME")
+                        .param("direction", "ASC")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.content[0].name").value("Apple MacBook Pro 16-inch"))
+                .andExpect(jsonPath("$.result.content[1].name").value("Apple iPhone 15 Pro"));
+    }
+
+    @Test
+    @DisplayName("Should return 400 when invalid search sort field provided")
+    void whenSearchWithInvalidSortField_return400() throws Exception {
+        mockMvc.perform(get(SEARCH_URL)
+                        .param("keyword", "Pro")
+                        .param("field", "WRONG"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value("Parameter 'field' has invalid value 'WRONG'"));
+    }
+
+    @Test
+    @DisplayName("Sorted search should be served by an index, never by an in-memory SORT stage")
+    void whenSearchSorted_thenExplainHasNoBlockingSort() {
+        Document filter = new Document("name", new Document("$regex", "Pro").append("$options", "i"));
+
+        for (String field : List.of("name", "price")) {
+            for (int direction : List.of(1, -1)) {
+                Document explain = mongoTemplate.getCollection("products")
+                        .find(filter)
+                        .sort(new Document(field, direction))
+                        .explain();
+
+                String winningPlan = explain.get("queryPlanner", Document.class)
+                        .get("winningPlan", Document.class)
+                        .toJson();
+
+                assertThat(winningPlan)
+                        .as("sort by %s %d", field, direction)
+                        .contains("IXSCAN")
+                        .doesNotContain("\"stage\": \"SORT\"");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should refine search-as-you-type keywords from the cached prefix")
+    void whenKeywordExtendsPreviousKeyword_thenRefinedFromCache() throws Exception {
+        for (String keyword : List.of("ap", "app", "appl")) {
+            mockMvc.perform(get(SEARCH_URL).param("keyword", keyword))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.totalElements").value(2));
+        }
+        mockMvc.perform(get(SEARCH_URL).param("keyword", "apple mac"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(1))
+                .andExpect(jsonPath("$.result.content[0].name").value("Apple MacBook Pro 16-inch"));
+
+        mockMvc.perform(get(SEARCH_URL + "/stats"))
+                .andExpect(status().isOk())
+                // counters are cumulative across the shared application context
+                .andExpect(jsonPath("$.result.refinements").value(greaterThanOrEqualTo(3)));
+    }
+
+    @Test
+    @DisplayName("Should match regex metacharacters in the keyword literally")
+    void whenKeywordIsRegexPattern_thenMatchedLiterally() throws Exception {
+        // ".*" would match every product as a regex; as a literal it matches none
+        mockMvc.perform(get(SEARCH_URL).param("keyword", ".*a.*b.*c"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(0));
+
+        mockMvc.perform(get(SEARCH_URL).param("keyword", "16-inch"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(1));
+    }
+}
@@ -0,0 +1,200 @@
+package com.shongon.catalog.integration;
+
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.CursorPage;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.repository.ProductIndexManager;
+import com.shongon.catalog.service.ISortFilterService;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/*
+    Every query shape SortFilterServiceImpl can send (categories? x price range? x sort keys/directions x page/cursor/facets)
+    must be an index scan without a blocking in-memory SORT; the key queries of skip/limit pages must be covered.
+    Price ranges without a category are left out: only a price sort keeps them on an index (see ProductIndexManager).
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml")
+@DisplayName("Sort/Filter Index Usage Integration Tests")
+public class SortFilterIndexIntegrationTest extends BaseIntegrationTest {
+    private static final String BLOCKING_SORT = "\"stage\": \"SORT\"";
+
+    @MockitoSpyBean
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ISortFilterService sortFilterService;
+
+    @Autowired
+    private ProductIndexManager productIndexManager;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.remove(new Query(), Product.class);
+
+        // Enough documents (with price ties) for the planner to prefer indexes for real
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            products.add(Product.builder()
+                    .id(new ObjectId())
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price((double) (i % 20))
+                    .category(i % 2 == 0 ? "BOOKS" : "FOOD")
+                    .build());
+        }
+        mongoTemplate.insertAll(products);
+
+        productIndexManager.reconcile();
+
+        clearInvocations(mongoTemplate);
+    }
+
+    static Stream<Arguments> queryShapes() {
+        List<ProductFilter> filters = List.of(
+                ProductFilter.NONE,
+                ProductFilter.of("BOOKS", null, null),
+                ProductFilter.of("BOOKS,FOOD", null, null),        // $in -> SORT_MERGE of index scans
+                ProductFilter.of("BOOKS", 5.0, 15.0),              // range checked on index keys
+                ProductFilter.of("BOOKS,FOOD", 5.0, null));
+        List<ProductSort> sorts = new ArrayList<>(List.of(ProductSort.UNSORTED));
+        for (SortField field : SortField.values()) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                sorts.add(ProductSort.of(field, direction));
+            }
+        }
+        // Multi-key: every direction combination of price then name
+        for (Sort.Direction price : Sort.Direction.values()) {
+            for (Sort.Direction name : Sort.Direction.values()) {
+                sorts.add(ProductSort.of(null, null, "PRICE:" + price + ",NAME:" + name));
+            }
+        }
+        List<Arguments> shapes = new ArrayList<>();
+        for (ProductFilter filter : filters) {
+            for (ProductSort sort : sorts) {
+                shapes.add(Arguments.of(filter, sort));
+            }
+        }
+        return shapes.stream();
+    }
+
+    @ParameterizedTest(name = "filter={0}, sort={1}")
+    @MethodSource("queryShapes")
+    @DisplayName("Skip/limit pages: covered key query + fetch by key, no blocking sort")
+    void whenPagedListing_thenCoveredIndexScan(ProductFilter filter, ProductSort sort) {
+        sortFilterService.filterAndSortProducts(filter, sort, PageRequest.of(5, 10), ProductFields.ALL);
+
+        List<Query> queries = capturedFinds();
+        assertThat(queries).hasSize(2);
+
+        Document keyQuery = explain(queries.get(0));
+        assertIndexScanWithoutBlockingSort(keyQuery);
+        // Covered: no document fetched to produce the keys
+        assertThat(keyQuery.get("executionStats", Document.class).getInteger("totalDocsExamined")).isZero();
+
+        assertIndexScanWithoutBlockingSort(explain(queries.get(1)));
+    }
+
+    @ParameterizedTest(name = "filter={0}, sort={1}")
+    @MethodSource("queryShapes")
+    @DisplayName("Cursor pages: first page and seek page, no blocking sort")
+    void whenCursorListing_thenIndexScan(ProductFilter filter, ProductSort sort) {
+        CursorPage<ViewAllProductsResponse> first =
+                sortFilterService.filterAndSortProductsByCursor(filter, sort, null, 10, ProductFields.ALL);
+        sortFilterService.filterAndSortProductsByCursor(filter, sort, first.getNextCursor(), 10, ProductFields.ALL);
+
+        List<Query> queries = capturedFinds();
+        assertThat(queries).hasSize(2);
+        queries.forEach(query -> assertIndexScanWithoutBlockingSort(explain(query)));
+    }
+
+    @ParameterizedTest(name = "filter={0}, sort={1}")
+    @MethodSource("queryShapes")
+    @DisplayName("Faceted pages: $match + $sort before $facet run on an index")
+    void whenFacetedListing_thenIndexScan(ProductFilter filter, ProductSort sort) {
+        sortFilterService.filterAndSortProductsWithFacets(filter, sort, PageRequest.of(1, 10), ProductFields.ALL);
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Product.class), eq(Document.class));
+        List<Document> pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Document explain = mongoTemplate.getCollection("products")
+                .aggregate(pipeline)
+                .explain(ExplainVerbosity.QUERY_PLANNER);
+        assertIndexScanWithoutBlockingSort(explain);
+    }
+
+    // HELPER METHODS
+    private List<Query> capturedFinds() {
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeast(0)).find(captor.capture(), eq(Product.class));
+        return captor.getAllValues();
+    }
+
+    private Document explain(Query query) {
+        FindIterable<Document> find = mongoTemplate.getCollection("products")
+                .find(query.getQueryObject())
+                .projection(query.getFieldsObject())
+                .sort(query.getSortObject())
+                .skip((int) query.getSkip())
+                .limit(query.getLimit());
+        return find.explain(ExplainVerbosity.EXECUTION_STATS);
+    }
+
+    private void assertIndexScanWithoutBlockingSort(Document explain) {
+        // Only the winning plan(s) matter: rejected candidates may well contain a SORT
+        List<Document> winningPlans = new ArrayList<>();
+        collectWinningPlans(explain, winningPlans);
+        assertThat(winningPlans).isNotEmpty();
+
+        for (Document winningPlan : winningPlans) {
+            String plan = winningPlan.toJson();
+            assertThat(plan).contains("IXSCAN");
+            assertThat(plan).doesNotContain(BLOCKING_SORT, "COLLSCAN");
+        }
+    }
+
+    // find explain: queryPlanner.winningPlan; aggregate explain: nested under stages[0].$cursor
+    private void collectWinningPlans(Object node, List<Document> winningPlans) {
+        if (node instanceof Document document) {
+            document.forEach((key, value) -> {
+                if ("winningPlan".equals(key) && value instanceof Document plan) {
+                    winningPlans.add(plan);
+                } else {
+                    collectWinningPlans(value, winningPlans);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectWinningPlans(item, winningPlans));
+        }
+    }
+}
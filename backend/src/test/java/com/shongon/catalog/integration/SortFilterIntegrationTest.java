@@ -1,7 +1,9 @@
 package com.shongon.catalog.integration;
 
+import com.shongon.catalog.exception.ErrorCode;
 import com.shongon.catalog.model.Product;
 import com.shongon.catalog.repository.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -184,4 +187,231 @@ public class SortFilterIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.result.totalElements").value(3));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should return category and price-bucket facets with the page when facets=true")
+    void whenFacetsRequested_returnFacetCounts() throws Exception {
+        mockMvc.perform(get(SORT_URL)
+                        .param("field", "PRICE")
+                        .param("direction", "ASC")
+                        .param("facets", "true")
+                        .param("page", "0")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(4))
+                .andExpect(jsonPath("$.result.content.length()").value(2))
+                .andExpect(jsonPath("$.result.content[0].price").value(5.0))
+                .andExpect(jsonPath("$.result.facets.categories.BOOKS").value(3))
+                .andExpect(jsonPath("$.result.facets.categories.FOOD").value(1))
+                .andExpect(jsonPath("$.result.facets.priceBuckets[0].min").value(0.0))
+                .andExpect(jsonPath("$.result.facets.priceBuckets[0].count").value(3)) // 5, 10, 15
+                .andExpect(jsonPath("$.result.facets.priceBuckets[1].count").value(1)); // 20
+    }
+
+    @Test
+    @DisplayName("Should cache faceted filter results together with their facets")
+    void givenFacetedFilter_whenSecondCall_thenFacetsServedFromCache() throws Exception {
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("facets", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success"));
+
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("facets", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success (Cached)"))
+                .andExpect(jsonPath("$.result.facets.categories.BOOKS").value(3));
+    }
+
+    @Test
+    @DisplayName("Should crawl every product exactly once with keyset cursors")
+    void whenPagingWithCursor_returnEveryProductInSortOrder() throws Exception {
+        List<String> names = new ArrayList<>();
+        String cursor = ""; // empty cursor -> first page
+        do {
+            String body = mockMvc.perform(get(SORT_URL)
+                            .param("field", "PRICE")
+                            .param("direction", "DESC")
+                            .param("cursor", cursor)
+                            .param("size", "3"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            names.addAll(JsonPath.read(body, "$.result.content[*].name"));
+            cursor = JsonPath.read(body, "$.result.nextCursor");
+        } while (cursor != null);
+
+        Assertions.assertEquals(List.of("Book B", "Book C", "Book A", "Food A"), names);
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor issued for another sort")
+    void whenCursorDoesNotMatchSort_return400() throws Exception {
+        String body = mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.content.length()").value(1))
+                .andExpect(jsonPath("$.result.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(body, "$.result.nextCursor");
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("field", "NAME")
+                        .param("direction", "ASC")
+                        .param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should reject cursor page sizes outside 1..max-page-size")
+    void whenCursorSizeOutOfRange_return400() throws Exception {
+        for (String size : List.of("0", "-1", "2001")) {
+            mockMvc.perform(get(SORT_URL)
+                            .param("field", "PRICE")
+                            .param("direction", "ASC")
+                            .param("cursor", "")
+                            .param("size", size))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.code").value(400))
+                    .andExpect(jsonPath("$.errors[0]").value(ErrorCode.INVALID_PAGE_SIZE.getMessage()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject slice=true together with a cursor instead of failing on ambiguous handlers")
+    void whenSliceAndCursorTogether_return400() throws Exception {
+        for (String url : List.of("/products", FILTER_URL, SORT_URL)) {
+            mockMvc.perform(get(url)
+                            .param("slice", "true")
+                            .param("cursor", ""))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.code").value(400))
+                    .andExpect(jsonPath("$.errors[0]").value(ErrorCode.PAGINATION_CONFLICT.getMessage()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should return only the requested fields and cache each fieldset separately")
+    void whenSparseFieldsetRequested_returnOnlyThoseFields() throws Exception {
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("view", "SUMMARY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success"))
+                .andExpect(jsonPath("$.result.content[0].id").exists())
+                .andExpect(jsonPath("$.result.content[0].name").exists())
+                .andExpect(jsonPath("$.result.content[0].description").doesNotExist());
+
+        // full documents are a different cache entry -> MISS, description is back
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success"))
+                .andExpect(jsonPath("$.result.content[0].description").exists());
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("field", "PRICE")
+                        .param("direction", "ASC")
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.content[0].name").value("Food A"))
+                .andExpect(jsonPath("$.result.content[0].price").doesNotExist())
+                .andExpect(jsonPath("$.result.content[0].category").doesNotExist());
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("fields", "name,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should page without a total when slice=true and cache slices apart from pages")
+    void whenSliceRequested_returnContentWithoutTotal() throws Exception {
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("slice", "true")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success"))
+                .andExpect(jsonPath("$.result.content.length()").value(2))
+                .andExpect(jsonPath("$.result.last").value(false))
+                .andExpect(jsonPath("$.result.totalElements").doesNotExist());
+
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("slice", "true")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success (Cached)"));
+
+        // same page as a Page -> own cache entry, counted total
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Success"))
+                .andExpect(jsonPath("$.result.totalElements").value(3));
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("field", "PRICE")
+                        .param("direction", "DESC")
+                        .param("slice", "true")
+                        .param("page", "1")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.content.length()").value(1))
+                .andExpect(jsonPath("$.result.content[0].name").value("Food A"))
+                .andExpect(jsonPath("$.result.last").value(true));
+    }
+
+    @Test
+    @DisplayName("Should filter by several categories and a price range, with any sort")
+    void whenCategoriesAndPriceRange_returnMatchingProducts() throws Exception {
+        mockMvc.perform(get(SORT_URL)
+                        .param("category", "FOOD,BOOKS")
+                        .param("minPrice", "5")
+                        .param("maxPrice", "15")
+                        .param("field", "PRICE")
+                        .param("direction", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(3))
+                .andExpect(jsonPath("$.result.content[0].name").value("Book C"))
+                .andExpect(jsonPath("$.result.content[1].name").value("Book A"))
+                .andExpect(jsonPath("$.result.content[2].name").value("Food A"));
+
+        mockMvc.perform(get(FILTER_URL)
+                        .param("minPrice", "12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(2)); // Book B, Book C
+
+        mockMvc.perform(get(FILTER_URL)
+                        .param("category", "BOOKS")
+                        .param("minPrice", "30")
+                        .param("maxPrice", "10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should sort by several keys, ties broken by the next key")
+    void whenOrderByPriceThenName_returnStableOrder() throws Exception {
+        productRepository.saveAll(List.of(
+                createProduct("Book D", 15.0, "BOOKS"),
+                createProduct("Book E", 15.0, "BOOKS")));
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("category", "BOOKS")
+                        .param("orderBy", "PRICE:ASC,NAME:DESC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.totalElements").value(5))
+                .andExpect(jsonPath("$.result.content[0].name").value("Book A"))
+                .andExpect(jsonPath("$.result.content[1].name").value("Book E"))
+                .andExpect(jsonPath("$.result.content[2].name").value("Book D"))
+                .andExpect(jsonPath("$.result.content[3].name").value("Book C"))
+                .andExpect(jsonPath("$.result.content[4].name").value("Book B"));
+
+        mockMvc.perform(get(SORT_URL)
+                        .param("orderBy", "RATING:ASC"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -17,6 +18,7 @@ import java.time.Duration;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -90,6 +92,16 @@ class CacheServiceImplTest {
         verify(redisTemplate).delete(Set.of("product-catalog-test:1", "product-catalog-test:2"));
     }
 
+    @Test
+    void testEvictCacheByPattern_RedisDown_LoggedOrThrownByVariant() {
+        when(redisTemplate.keys("product-catalog-test:*")).thenThrow(new RedisConnectionFailureException("down"));
+
+        cacheService.evictCacheByPattern("product-catalog-test:*");
+
+        assertThatThrownBy(() -> cacheService.evictCacheByPatternOrThrow("product-catalog-test:*"))
+                .isInstanceOf(RedisConnectionFailureException.class);
+    }
+
     @Test
     void testGenerateCacheKey() {
         String key = cacheService.generateCacheKey("all", "page", 1, "size", 10);
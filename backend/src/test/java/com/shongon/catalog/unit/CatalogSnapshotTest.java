@@ -0,0 +1,298 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.PriceBucketCount;
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.event.ProductCreated;
+import com.shongon.catalog.event.ProductDeleted;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.impl.CatalogSnapshot;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private static final List<Double> BOUNDARIES = List.of(0.0, 12.0, 18.0); // [0, 12), [12, 18), other
+
+    private CatalogSnapshot snapshot;
+
+    private Product bookA, bookB, bookC, foodA, noPrice;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new CatalogSnapshot(mongoTemplate, true, BOUNDARIES, false);
+
+        // ObjectIds increase with creation -> _id order is declaration order
+        bookA = createProduct("Book A", 10.0, "BOOKS");
+        bookB = createProduct("Book B", 20.0, "BOOKS");
+        bookC = createProduct("Book C", 15.0, "BOOKS");
+        foodA = createProduct("Food A", 15.0, "FOOD");
+        noPrice = createProduct("Home A", null, "HOME");
+
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenAnswer(invocation -> List.of(bookC, foodA, bookA, noPrice, bookB).stream());
+        snapshot.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshot.shutdown();
+    }
+
+    // Helper methods
+    private Product createProduct(String name, Double price, String category) {
+        return Product.builder()
+                .id(new ObjectId())
+                .name(name)
+                .price(price)
+                .category(category)
+                .build();
+    }
+
+    private List<String> names(CatalogSnapshot.Rows rows) {
+        return rows.products().stream().map(Product::getName).toList();
+    }
+
+    private CatalogSnapshot.Rows find(ProductFilter filter, ProductSort sort, int page, int size) {
+        return snapshot.find(filter, sort, PageRequest.of(page, size));
+    }
+
+    @Test
+    void testFind_SortedPagesAndTotals() {
+        assertThat(snapshot.isReady()).isTrue();
+
+        // Unsorted -> _id order
+        assertThat(names(find(ProductFilter.NONE, ProductSort.UNSORTED, 0, 10)))
+                .containsExactly("Book A", "Book B", "Book C", "Food A", "Home A");
+        // Missing price first, equal prices by _id, DESC walks the same permutation backwards
+        assertThat(names(find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.ASC), 0, 10)))
+                .containsExactly("Home A", "Book A", "Book C", "Food A", "Book B");
+        CatalogSnapshot.Rows page = find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 1, 2);
+        assertThat(names(page)).containsExactly("Book C", "Book A");
+        assertThat(page.total()).isEqualTo(5);
+        assertThat(page.products().get(0).getCategory()).isEqualTo("BOOKS");
+        assertThat(page.products().get(0).getPrice()).isEqualTo(15.0);
+    }
+
+    @Test
+    void testFind_CategoriesAndPriceRange() {
+        CatalogSnapshot.Rows books = find(ProductFilter.of("BOOKS", null, null),
+                ProductSort.of(SortField.NAME, Sort.Direction.DESC), 0, 2);
+        assertThat(names(books)).containsExactly("Book C", "Book B");
+        assertThat(books.total()).isEqualTo(3);
+
+        // Price range on the price permutation: binary-searched bounds, inclusive
+        CatalogSnapshot.Rows range = find(ProductFilter.of(null, 15.0, 20.0),
+                ProductSort.of(SortField.PRICE, Sort.Direction.ASC), 0, 10);
+        assertThat(names(range)).containsExactly("Book C", "Food A", "Book B");
+
+        // Several categories + range under another sort: checked row by row, no price never matches
+        CatalogSnapshot.Rows mixed = find(ProductFilter.of("FOOD,HOME,BOOKS", 12.0, null), ProductSort.UNSORTED, 0, 10);
+        assertThat(names(mixed)).containsExactly("Book B", "Book C", "Food A");
+        assertThat(mixed.total()).isEqualTo(3);
+
+        assertThat(find(ProductFilter.of("TOYS", null, null), ProductSort.UNSORTED, 0, 10).total()).isZero();
+    }
+
+    @Test
+    void testFindWithFacets_CountsFromBitmapCardinalities() {
+        FacetedPage<Product> page = snapshot.findWithFacets(ProductFilter.of("BOOKS,FOOD", 12.0, null),
+                ProductSort.of(SortField.NAME, Sort.Direction.ASC), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).extracting(Product::getName).containsExactly("Book B", "Book C");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        // Counts within the filter, most frequent first
+        assertThat(page.getFacets().getCategories()).containsExactly(entry("BOOKS", 2L), entry("FOOD", 1L));
+        assertThat(page.getFacets().getPriceBuckets()).containsExactly(
+                new PriceBucketCount(0.0, 12.0, 0),
+                new PriceBucketCount(12.0, 18.0, 2),
+                new PriceBucketCount(null, null, 1)); // Book B: 20 is past the last boundary
+
+        // No filter: the missing price lands in "other" too
+        FacetedPage<Product> all = snapshot.findWithFacets(ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 1));
+        assertThat(all.getFacets().getPriceBuckets()).extracting(PriceBucketCount::getCount).containsExactly(1L, 2L, 2L);
+        assertThat(all.getFacets().getCategories()).containsExactly(entry("BOOKS", 3L), entry("FOOD", 1L), entry("HOME", 1L));
+    }
+
+    @Test
+    void testFind_UnsupportedShapesGoToMongo() {
+        assertThat(snapshot.find(ProductFilter.NONE, ProductSort.of(null, null, "PRICE:ASC,NAME:DESC"),
+                PageRequest.of(0, 10))).isNull();
+        assertThat(snapshot.find(ProductFilter.NONE, ProductSort.UNSORTED,
+                PageRequest.of(0, 10, Sort.by("name")))).isNull();
+
+        CatalogSnapshot warming = new CatalogSnapshot(mongoTemplate, true, BOUNDARIES, false);
+        assertThat(warming.find(ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 10))).isNull();
+        warming.shutdown();
+    }
+
+    @Test
+    void testOnProductSaved_PatchesPermutations() {
+        Product toy = createProduct("Toy A", 12.0, "TOYS");
+        snapshot.onProductSaved(toy);
+
+        // Update: category and price change, the old version leaves every permutation
+        bookB.setPrice(5.0);
+        bookB.setCategory("FOOD");
+        snapshot.onProductSaved(bookB);
+
+        assertThat(names(find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.ASC), 0, 10)))
+                .containsExactly("Home A", "Book B", "Book A", "Toy A", "Book C", "Food A");
+        assertThat(names(find(ProductFilter.of("BOOKS", null, null), ProductSort.UNSORTED, 0, 10)))
+                .containsExactly("Book A", "Book C");
+        assertThat(names(find(ProductFilter.of("FOOD", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), 0, 10)))
+                .containsExactly("Book B", "Food A");
+        assertThat(names(find(ProductFilter.of("TOYS", null, null), ProductSort.UNSORTED, 0, 10)))
+                .containsExactly("Toy A");
+    }
+
+    @Test
+    void testOnProductsSavedAndDeleted_LargeBatchPatchedInOnePass() {
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(createProduct(String.format("Toy %03d", i), 100.0 + i, "TOYS"));
+        }
+        bookA.setPrice(500.0);
+        batch.add(bookA); // updates in the batch replace the held row
+
+        snapshot.onProductsSaved(batch);
+
+        CatalogSnapshot.Rows toys = find(ProductFilter.of("TOYS", null, null),
+                ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 2);
+        assertThat(names(toys)).containsExactly("Toy 099", "Toy 098");
+        assertThat(toys.total()).isEqualTo(100);
+        assertThat(names(find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 1)))
+                .containsExactly("Book A");
+        assertThat(find(ProductFilter.NONE, ProductSort.UNSORTED, 0, 1).total()).isEqualTo(105);
+
+        snapshot.onProductsDeleted(batch.stream().map(Product::getId).toList());
+        assertThat(names(find(ProductFilter.NONE, ProductSort.UNSORTED, 0, 10)))
+                .containsExactly("Book B", "Book C", "Food A", "Home A");
+    }
+
+    @Test
+    void testOnEvents_MixedBatchMergedIntoPermutations() {
+        Product toy = createProduct("Toy A", 15.0, "TOYS");
+        Product bookD = createProduct("Book D", 15.0, "BOOKS");
+        bookC.setName("Book CC");     // same price: the new version takes the old one's place in the price order
+        foodA.setCategory("BOOKS");   // moves between categories
+        foodA.setPrice(1.0);
+
+        snapshot.onEvents(List.of(ProductCreated.of(toy), ProductCreated.of(bookC), ProductDeleted.of(bookB),
+                ProductCreated.of(bookD), ProductCreated.of(foodA), ProductDeleted.of(noPrice)));
+
+        assertThat(names(find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.ASC), 0, 10)))
+                .containsExactly("Food A", "Book A", "Book CC", "Toy A", "Book D");
+        assertThat(names(find(ProductFilter.NONE, ProductSort.of(SortField.NAME, Sort.Direction.ASC), 0, 10)))
+                .containsExactly("Book A", "Book CC", "Book D", "Food A", "Toy A");
+        assertThat(names(find(ProductFilter.of("BOOKS", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 10)))
+                .containsExactly("Book D", "Book CC", "Book A", "Food A");
+        assertThat(find(ProductFilter.of("FOOD", null, null), ProductSort.UNSORTED, 0, 10).total()).isZero();
+        assertThat(find(ProductFilter.of("HOME", null, null), ProductSort.UNSORTED, 0, 10).total()).isZero();
+        assertThat(find(ProductFilter.of(null, 12.0, 16.0), ProductSort.UNSORTED, 0, 10).total()).isEqualTo(3);
+    }
+
+    @Test
+    void testOnProductDeleted_RemovedAndCompactedAfterManyWrites() {
+        snapshot.onProductDeleted(bookA.getId());
+        snapshot.onProductDeleted(new ObjectId()); // unknown -> ignored
+
+        assertThat(find(ProductFilter.of("BOOKS", null, null), ProductSort.UNSORTED, 0, 10).total()).isEqualTo(2);
+
+        // Many updates of the same product -> dead rows pile up, then get compacted away; results stay the same
+        for (int i = 0; i < 20; i++) {
+            foodA.setPrice(100.0 + i);
+            snapshot.onProductSaved(foodA);
+        }
+        CatalogSnapshot.Rows all = find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 10);
+        assertThat(names(all)).containsExactly("Food A", "Book B", "Book C", "Home A");
+        assertThat(all.products().get(0).getPrice()).isEqualTo(119.0);
+    }
+
+    @Test
+    void testCompaction_InBackgroundWritesMeanwhileKept() throws InterruptedException {
+        // Compactions run on the snapshot thread while updates keep coming: none of them may be lost
+        List<Product> toys = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            Product toy = createProduct(String.format("Toy %02d", round), 200.0 + round, "TOYS");
+            toys.add(toy);
+            snapshot.onProductSaved(toy);
+            for (int i = 0; i < 10; i++) {
+                bookC.setPrice(15.0 + round + i);
+                snapshot.onProductSaved(bookC);
+            }
+            if (round % 10 == 0) {
+                Thread.sleep(5);
+            }
+        }
+        snapshot.onProductDeleted(toys.get(0).getId());
+        Thread.sleep(100); // let the last compaction finish
+
+        CatalogSnapshot.Rows toyRows = find(ProductFilter.of("TOYS", null, null),
+                ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 2);
+        assertThat(names(toyRows)).containsExactly("Toy 49", "Toy 48");
+        assertThat(toyRows.total()).isEqualTo(49);
+        assertThat(names(find(ProductFilter.of("BOOKS", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 10)))
+                .containsExactly("Book C", "Book B", "Book A");
+        assertThat(find(ProductFilter.NONE, ProductSort.UNSORTED, 0, 1).total()).isEqualTo(54);
+        assertThat(find(ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.DESC), 0, 1)
+                .products().get(0).getPrice()).isEqualTo(249.0);
+    }
+
+    @Test
+    void testFollowsChangeStream_OnlyStreamEventsApplied() {
+        CatalogSnapshot streamed = new CatalogSnapshot(mongoTemplate, true, BOUNDARIES, true);
+        streamed.rebuild();
+        Product toy = createProduct("Toy A", 12.0, "TOYS");
+
+        streamed.onProductSaved(toy);  // bulk / write-behind path: the stream brings it
+        streamed.onProductsDeleted(List.of(bookA.getId()));
+        assertThat(streamed.find(ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 10)).total()).isEqualTo(5);
+
+        streamed.onEvents(List.of(ProductCreated.of(toy), ProductDeleted.of(bookA)));
+        assertThat(names(streamed.find(ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 10))))
+                .containsExactly("Book B", "Book C", "Food A", "Home A", "Toy A");
+        streamed.shutdown();
+    }
+
+    @Test
+    void testRebuild_WritesDuringBuildAreReplayed() {
+        Product late = createProduct("Late A", 1.0, "BOOKS");
+        CatalogSnapshot building = new CatalogSnapshot(mongoTemplate, true, BOUNDARIES, false);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            building.onProductSaved(late);          // written while the collection is read
+            building.onProductDeleted(bookA.getId());
+            return List.of(bookA, bookB).stream();
+        });
+
+        building.rebuild();
+
+        assertThat(names(building.find(ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 10))))
+                .containsExactly("Book B", "Late A");
+        building.shutdown();
+    }
+}
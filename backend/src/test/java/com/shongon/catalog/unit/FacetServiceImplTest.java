@@ -0,0 +1,140 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.PriceBucketCount;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.mapper.ProductMapper;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.impl.FacetServiceImpl;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacetServiceImplTest {
+
+    @InjectMocks
+    private FacetServiceImpl facetService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setup() {
+        // inject private field priceBoundaries
+        ReflectionTestUtils.setField(facetService, "priceBoundaries", List.of(0.0, 50.0, 100.0));
+    }
+
+    @Test
+    void findPageWithFacets_mapsPageTotalAndFacets() {
+        Document productDoc = new Document("_id", new ObjectId()).append("name", "Book A");
+        Document result = new Document("page", List.of(productDoc))
+                .append("total", List.of(new Document("total", 7)))
+                .append("categories", List.of(
+                        new Document("_id", "BOOKS").append("count", 5),
+                        new Document("_id", "FOOD").append("count", 2)))
+                .append("priceBuckets", List.of(
+                        new Document("_id", 0.0).append("count", 6),
+                        new Document("_id", "other").append("count", 1)));
+
+        Product product = Product.builder().name("Book A").build();
+        ViewAllProductsResponse response = new ViewAllProductsResponse();
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(result), new Document()));
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(Product.class, productDoc)).thenReturn(product);
+        when(productMapper.toViewAllProductsResponse(product)).thenReturn(response);
+
+        FacetedPage<ViewAllProductsResponse> page = facetService.findPageWithFacets(
+                Criteria.where("category").is("BOOKS"), Sort.unsorted(), PageRequest.of(0, 1), ProductFields.ALL,
+                Duration.ofSeconds(2));
+
+        assertThat(page.getContent()).containsExactly(response);
+        assertThat(page.getTotalElements()).isEqualTo(7);
+        assertThat(page.getTotalPages()).isEqualTo(7);
+        assertThat(page.getFacets().getCategories()).containsExactly(
+                entry("BOOKS", 5L),
+                entry("FOOD", 2L));
+        // Empty bucket [50, 100) is still reported with count 0
+        assertThat(page.getFacets().getPriceBuckets()).containsExactly(
+                new PriceBucketCount(0.0, 50.0, 6),
+                new PriceBucketCount(50.0, 100.0, 0),
+                new PriceBucketCount(null, null, 1));
+    }
+
+    @Test
+    void findPageWithFacets_sortIsPlacedBeforeFacet() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        FacetedPage<ViewAllProductsResponse> page = facetService.findPageWithFacets(
+                new Criteria(), Sort.by(Sort.Direction.DESC, "price"), PageRequest.of(2, 10), ProductFields.ALL,
+                Duration.ofSeconds(3));
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Product.class), eq(Document.class));
+        List<Document> pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        // $match -> $sort -> $facet: sort stays outside $facet so it can be served by an index
+        assertThat(pipeline).hasSize(3);
+        assertThat(pipeline.get(1).toJson()).contains("\"$sort\": {\"price\": -1}");
+        assertThat(pipeline.get(2).toJson()).contains("\"$skip\": 20", "\"$limit\": 10", "$sortByCount", "$bucket");
+        // Endpoint time budget -> maxTimeMS of the aggregate command
+        assertThat(captor.getValue().getOptions().getMaxTime()).isEqualTo(Duration.ofSeconds(3));
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    void findPageWithTotal_pageAndCountOnlyInOneAggregation() {
+        Document result = new Document("page", List.of())
+                .append("total", List.of(new Document("total", 25)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(result), new Document()));
+
+        Page<ViewAllProductsResponse> page = facetService.findPageWithTotal(
+                new Criteria(), Sort.by(Sort.Direction.ASC, "_id"), PageRequest.of(1, 10), ProductFields.SUMMARY,
+                Duration.ofSeconds(2));
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Product.class), eq(Document.class));
+        String facet = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(2).toJson();
+
+        assertThat(facet).contains("\"$skip\": 10", "\"$limit\": 10", "$count", "$project");
+        assertThat(facet).doesNotContain("$sortByCount", "$bucket");
+        assertThat(page.getTotalElements()).isEqualTo(25);
+    }
+}
@@ -0,0 +1,72 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.impl.KeysetCursor;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    private static final Sort PRICE_ASC = Sort.by("price").and(Sort.by("_id"));
+    private static final Sort PRICE_DESC = Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.DESC, "_id"));
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        Product last = Product.builder().id(new ObjectId()).name("Book A").price(10.5).build();
+
+        KeysetCursor cursor = KeysetCursor.after(PRICE_DESC, last);
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertThat(decoded.sort()).isEqualTo(PRICE_DESC);
+        assertThat(decoded.lastValues()).containsExactly(10.5, last.getId());
+        // opaque + URL safe
+        assertThat(cursor.encode()).doesNotContain("+", "/", "=", "{");
+    }
+
+    @Test
+    void testDecode_InvalidToken() {
+        for (String token : List.of("%%%", "bm90LWpzb24", "e30")) { // not base64, "not-json", "{}"
+            ProductCatalogException ex = assertThrows(ProductCatalogException.class, () -> KeysetCursor.decode(token));
+            assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    @Test
+    void testToSeekCriteria_Ascending() {
+        ObjectId id = new ObjectId();
+        String json = new KeysetCursor(PRICE_ASC, List.of(10.5, id)).toSeekCriteria().getCriteriaObject().toJson();
+
+        assertThat(json).isEqualTo("{\"$or\": [{\"price\": {\"$gt\": 10.5}}, {\"$and\": [{\"price\": 10.5}, "
+                + "{\"_id\": {\"$gt\": {\"$oid\": \"" + id.toHexString() + "\"}}}]}]}");
+    }
+
+    @Test
+    void testToSeekCriteria_DescendingIncludesNullsAfterLastValue() {
+        ObjectId id = new ObjectId();
+        String json = new KeysetCursor(PRICE_DESC, List.of(10.5, id)).toSeekCriteria().getCriteriaObject().toJson();
+
+        assertThat(json).contains("{\"price\": {\"$lt\": 10.5}}", "{\"price\": null}");
+    }
+
+    @Test
+    void testToSeekCriteria_NullLastValue() {
+        ObjectId id = new ObjectId();
+
+        // ASC: after null come the remaining nulls (by _id) and every non-null value
+        String asc = new KeysetCursor(PRICE_ASC, Arrays.asList(null, id)).toSeekCriteria().getCriteriaObject().toJson();
+        assertThat(asc).contains("{\"price\": {\"$ne\": null}}", "{\"price\": null}");
+
+        // DESC: nulls come last -> only the remaining nulls
+        String desc = new KeysetCursor(PRICE_DESC, Arrays.asList(null, id)).toSeekCriteria().getCriteriaObject().toJson();
+        assertThat(desc).isEqualTo("{\"$and\": [{\"price\": null}, {\"_id\": {\"$lt\": {\"$oid\": \"" + id.toHexString() + "\"}}}]}");
+    }
+}
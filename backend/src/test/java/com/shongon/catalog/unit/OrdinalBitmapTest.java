@@ -0,0 +1,108 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.service.impl.OrdinalBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrdinalBitmapTest {
+
+    @Test
+    void of_unsortedWithDuplicates_sortedDistinctAcrossChunks() {
+        OrdinalBitmap bitmap = OrdinalBitmap.of(70_000, 3, 65_535, 3, 0, 200_000);
+
+        assertThat(bitmap.toArray()).containsExactly(0, 3, 65_535, 70_000, 200_000);
+        assertThat(bitmap.cardinality()).isEqualTo(5);
+        assertThat(bitmap.contains(65_535)).isTrue();
+        assertThat(bitmap.contains(65_536)).isFalse();
+        assertThrows(IllegalArgumentException.class, () -> OrdinalBitmap.of(-1));
+    }
+
+    @Test
+    void withAndWithout_immutableAndChunkDroppedWhenEmpty() {
+        OrdinalBitmap bitmap = OrdinalBitmap.of(1, 2);
+
+        OrdinalBitmap added = bitmap.with(100_000);
+        OrdinalBitmap removed = added.without(100_000).without(1);
+
+        assertThat(bitmap.toArray()).containsExactly(1, 2);
+        assertThat(added.toArray()).containsExactly(1, 2, 100_000);
+        assertThat(removed.toArray()).containsExactly(2);
+        // no-ops return the same instance
+        assertThat(bitmap.with(1)).isSameAs(bitmap);
+        assertThat(bitmap.without(7)).isSameAs(bitmap);
+    }
+
+    @Test
+    void denseChunk_switchesToBitmapAndBack() {
+        OrdinalBitmap bitmap = OrdinalBitmap.EMPTY;
+        for (int value = 0; value < 5_000; value++) {
+            bitmap = bitmap.with(value * 2); // > 4096 values in chunk 0 -> bitmap chunk
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(5_000);
+        assertThat(bitmap.contains(9_998)).isTrue();
+        assertThat(bitmap.contains(9_999)).isFalse();
+
+        for (int value = 0; value < 1_000; value++) {
+            bitmap = bitmap.without(value * 2); // back under the threshold -> array chunk
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(4_000);
+        assertThat(bitmap.toArray()).startsWith(2_000, 2_002).endsWith(9_998);
+    }
+
+    @Test
+    void andOr_matchBitSetOnRandomMixedChunks() {
+        Random random = new Random(42);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        OrdinalBitmap.Builder builderA = new OrdinalBitmap.Builder();
+        OrdinalBitmap.Builder builderB = new OrdinalBitmap.Builder();
+        for (int i = 0; i < 30_000; i++) {
+            int dense = random.nextInt(20_000);           // chunk 0: dense in both -> bitmap chunks
+            int sparse = 65_536 + random.nextInt(500_000); // other chunks: sparse -> array chunks
+            a.set(dense);
+            builderA.add(dense);
+            if (i % 3 == 0) {
+                a.set(sparse);
+                builderA.add(sparse);
+            } else {
+                b.set(sparse);
+                builderB.add(sparse);
+            }
+            int other = random.nextInt(20_000);
+            b.set(other);
+            builderB.add(other);
+        }
+        OrdinalBitmap bitmapA = builderA.build();
+        OrdinalBitmap bitmapB = builderB.build();
+
+        BitSet and = (BitSet) a.clone();
+        and.and(b);
+        BitSet or = (BitSet) a.clone();
+        or.or(b);
+
+        assertThat(bitmapA.cardinality()).isEqualTo(a.cardinality());
+        assertThat(bitmapA.and(bitmapB).toArray()).containsExactly(and.stream().toArray());
+        assertThat(bitmapA.andCardinality(bitmapB)).isEqualTo(and.cardinality());
+        assertThat(bitmapA.or(bitmapB).toArray()).containsExactly(or.stream().toArray());
+        assertThat(bitmapA.or(OrdinalBitmap.EMPTY)).isEqualTo(bitmapA);
+        assertThat(bitmapA.and(OrdinalBitmap.EMPTY).isEmpty()).isTrue();
+    }
+
+    @Test
+    void or_ofSparseArrays_becomesDenseWhenLarge() {
+        OrdinalBitmap evens = OrdinalBitmap.of(IntStream.range(0, 3_000).map(i -> i * 2).toArray());
+        OrdinalBitmap odds = OrdinalBitmap.of(IntStream.range(0, 3_000).map(i -> i * 2 + 1).toArray());
+
+        OrdinalBitmap union = evens.or(odds);
+
+        assertThat(union.cardinality()).isEqualTo(6_000);
+        assertThat(union.toArray()).containsExactly(IntStream.range(0, 6_000).toArray());
+        assertThat(union.and(evens)).isEqualTo(evens);
+    }
+}
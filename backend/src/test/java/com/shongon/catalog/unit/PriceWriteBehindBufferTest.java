@@ -0,0 +1,192 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.enums.WriteDurability;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.ISearchService;
+import com.shongon.catalog.service.impl.CatalogSnapshot;
+import com.shongon.catalog.service.impl.PriceWriteBehindBuffer;
+import com.shongon.catalog.service.impl.RelatedProductIndex;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PriceWriteBehindBufferTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private RelatedProductIndex relatedProductIndex;
+
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+
+    @Mock
+    private ICacheService cacheService;
+
+    @Mock
+    private ISearchService searchService;
+
+    private PriceWriteBehindBuffer buffer;
+
+    private final ObjectId apple = new ObjectId();
+    private final ObjectId pear = new ObjectId();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        buffer.shutdown();
+    }
+
+    // Helper methods
+    private PriceWriteBehindBuffer buffer(boolean scheduled, Duration interval, int maxEntries, WriteDurability durability) {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), any(Update.class))).thenReturn(bulkOperations);
+        buffer = new PriceWriteBehindBuffer(mongoTemplate, relatedProductIndex, catalogSnapshot, cacheService,
+                searchService, scheduled, interval, maxEntries, durability, Duration.ofMillis(500));
+        return buffer;
+    }
+
+    private void givenStored(ObjectId... ids) {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(
+                List.of(ids).stream().map(id -> Product.builder().id(id).name(id.toHexString()).price(1.0).build()).toList());
+    }
+
+    @Test
+    void flush_lastWriteWinsPerProduct_oneBulkWriteAndOneEviction() {
+        buffer(false, Duration.ofHours(1), 100, WriteDurability.ACCEPTED);
+        givenStored(apple, pear);
+
+        assertThat(buffer.submit(apple.toHexString(), 1.0)).isFalse();
+        buffer.submit(apple.toHexString(), 2.0);
+        buffer.submit(pear.toHexString(), 5.0);
+        buffer.submit(apple.toHexString(), 3.0);
+        assertThat(buffer.size()).isEqualTo(2);
+
+        buffer.flush();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(query.capture(), update.capture());
+        Map<Object, Object> written = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            written.put(query.getAllValues().get(i).getQueryObject().get("_id"),
+                    update.getAllValues().get(i).getUpdateObject().get("$set", Document.class).get("price"));
+        }
+        assertThat(written).isEqualTo(Map.of(apple, 3.0, pear, 5.0));
+        verify(bulkOperations).execute();
+        verify(catalogSnapshot).onProductsSaved(anyList());
+        verify(relatedProductIndex, times(2)).onProductSaved(any(Product.class));
+        verify(cacheService).evictCacheByPattern(any());
+        verify(searchService).evictCandidateCache();
+        assertThat(buffer.size()).isZero();
+
+        // Nothing buffered -> no write at all
+        buffer.flush();
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void submit_maxEntriesReached_flushesWithoutWaitingForInterval() {
+        buffer(true, Duration.ofHours(1), 2, WriteDurability.ACCEPTED);
+        givenStored(apple, pear);
+
+        buffer.submit(apple.toHexString(), 1.0);
+        verify(bulkOperations, after(100).never()).execute();
+        buffer.submit(pear.toHexString(), 2.0);
+
+        verify(bulkOperations, timeout(2_000)).execute();
+    }
+
+    @Test
+    void submit_flushedDurability_answersOnceWrittenAndReportsUnknownIds() {
+        buffer(true, Duration.ofMillis(20), 100, WriteDurability.FLUSHED);
+        givenStored(apple);
+
+        assertThat(buffer.submit(apple.toHexString(), 4.0)).isTrue();
+        verify(bulkOperations).execute(); // already written when submit returns
+
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> buffer.submit(pear.toHexString(), 4.0));
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.PRODUCT_NOT_FOUND);
+        assertThrows(IllegalArgumentException.class, () -> buffer.submit("123", 4.0));
+    }
+
+    @Test
+    void submit_flushedDurability_failedFlushFailsWaiters() {
+        buffer(true, Duration.ofMillis(20), 100, WriteDurability.FLUSHED);
+        when(bulkOperations.execute()).thenThrow(new org.springframework.dao.DataAccessResourceFailureException("down"));
+
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> buffer.submit(apple.toHexString(), 4.0));
+
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.UNCATEGORIZED);
+        verifyNoInteractions(catalogSnapshot, cacheService);
+    }
+
+    @Test
+    void submit_flushedDurability_noFlushInTime_timesOutAndStaysBuffered() {
+        buffer(false, Duration.ofHours(1), 100, WriteDurability.FLUSHED); // nothing scheduled -> never flushed
+
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> buffer.submit(apple.toHexString(), 4.0));
+
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.WRITE_BEHIND_TIMEOUT);
+        assertThat(buffer.size()).isEqualTo(1);
+        verifyNoInteractions(bulkOperations);
+    }
+
+    @Test
+    void discard_dropsBufferedPriceOfProductWrittenElsewhere() {
+        buffer(false, Duration.ofHours(1), 100, WriteDurability.ACCEPTED);
+        buffer.submit(apple.toHexString(), 1.0);
+
+        buffer.discard(apple);
+        buffer.flush();
+
+        assertThat(buffer.size()).isZero();
+        verifyNoInteractions(bulkOperations);
+    }
+
+    @Test
+    void shutdown_flushesPendingUpdates() throws InterruptedException {
+        buffer(true, Duration.ofHours(1), 100, WriteDurability.ACCEPTED);
+        givenStored(apple);
+        buffer.submit(apple.toHexString(), 9.0);
+
+        buffer.shutdown();
+
+        verify(bulkOperations).execute();
+        verify(catalogSnapshot).onProductsSaved(anyList());
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -0,0 +1,376 @@
+package com.shongon.catalog.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.RepriceRequest;
+import com.shongon.catalog.dto.response.BulkItemResult;
+import com.shongon.catalog.dto.response.BulkWriteResponse;
+import com.shongon.catalog.dto.response.CategoryDeleteResponse;
+import com.shongon.catalog.dto.response.RepriceResponse;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.mapper.ProductMapper;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.ISearchService;
+import com.shongon.catalog.service.impl.CatalogSnapshot;
+import com.shongon.catalog.service.impl.PriceWriteBehindBuffer;
+import com.shongon.catalog.service.impl.ProductBulkServiceImpl;
+import com.shongon.catalog.service.impl.RelatedProductIndex;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBulkServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private RelatedProductIndex relatedProductIndex;
+
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+
+    @Mock
+    private ICacheService cacheService;
+
+    @Mock
+    private ISearchService searchService;
+
+    @Mock
+    private PriceWriteBehindBuffer priceWriteBehindBuffer;
+
+    private ProductBulkServiceImpl bulkService;
+
+    @BeforeEach
+    void setUp() {
+        bulkService = new ProductBulkServiceImpl(mongoTemplate, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), Mappers.getMapper(ProductMapper.class),
+                relatedProductIndex, catalogSnapshot, cacheService, searchService, priceWriteBehindBuffer);
+        ReflectionTestUtils.setField(bulkService, "batchSize", 3);
+    }
+
+    // Helper methods
+    private static String item(String name, Object price) {
+        return String.format("{\"name\":\"%s\",\"description\":\"Description\",\"price\":%s,\"category\":\"FOOD\"}",
+                name, price);
+    }
+
+    private static ByteArrayInputStream json(String... elements) {
+        return new ByteArrayInputStream(("[" + String.join(",", elements) + "]").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BulkWriteResponse create(String... items) {
+        return bulkService.createProducts(json(items));
+    }
+
+    private void stubUpdate() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), any(Update.class))).thenReturn(bulkOperations);
+    }
+
+    private void stubInsert() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void createProducts_mixedBatch_perItemResultsAndOnlyValidItemsInserted() {
+        stubInsert();
+        BulkOperationException rejected = mock(BulkOperationException.class);
+        when(rejected.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(rejected);
+
+        BulkWriteResponse response = create(
+                item("Apple", 1.5),
+                item("Stored", 2.0),      // already in the collection -> E11000
+                item("Apple", 3.0),       // same name earlier in the batch
+                item("Bad", "\"abc\""),   // wrong type
+                item("X", -1));           // too short + negative price
+
+        assertThat(response.getReceived()).isEqualTo(5);
+        assertThat(response.getSucceeded()).isEqualTo(1);
+        assertThat(response.getItems()).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(201, 409, 409, 400, 400);
+        assertThat(response.getItems().get(0).getId()).isNotNull();
+        assertThat(response.getItems().get(3).getErrors()).containsExactly("Invalid value for field 'price'");
+        assertThat(response.getItems().get(4).getErrors()).hasSize(2);
+
+        // No name lookup: the unique index rejects the stored name; the second batch has no valid item -> no write
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Product.class));
+        ArgumentCaptor<List<Product>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(inserted.capture());
+        assertThat(inserted.getValue()).extracting(Product::getName).containsExactly("Apple", "Stored");
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(catalogSnapshot).onProductsSaved(saved.capture());
+        assertThat(saved.getValue()).extracting(Product::getName).containsExactly("Apple");
+        verify(relatedProductIndex).onProductSaved(saved.getValue().get(0));
+        verify(cacheService).evictCacheByPattern(any()); // only the batch that created something
+        verify(searchService).evictCandidateCache();
+    }
+
+    @Test
+    void createProducts_manyItems_oneBulkWriteAndEvictionPerBatch() {
+        stubInsert();
+
+        BulkWriteResponse response = create(
+                item("P1", 1), item("P2", 1), item("P3", 1), item("P4", 1), item("P5", 1), item("P6", 1), item("P7", 1));
+
+        assertThat(response.getSucceeded()).isEqualTo(7);
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Product.class));
+        verify(bulkOperations, times(3)).execute();
+        verify(cacheService, times(3)).evictCacheByPattern(any());
+    }
+
+    @Test
+    void createProducts_duplicateKeyOnInsert_onlyThatItemFails() {
+        stubInsert();
+        BulkOperationException rejected = mock(BulkOperationException.class);
+        when(rejected.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(rejected);
+
+        BulkWriteResponse response = create(item("P1", 1), item("P2", 1), item("P3", 1));
+
+        // Unordered: the documents around the rejected one are inserted
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(201, 409, 201);
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(catalogSnapshot).onProductsSaved(saved.capture());
+        assertThat(saved.getValue()).extracting(Product::getName).containsExactly("P1", "P3");
+    }
+
+    @Test
+    void createProducts_malformedJson_rejectedOrCutShort() {
+        assertThrows(ProductCatalogException.class, () -> bulkService.createProducts(
+                new ByteArrayInputStream(item("P1", 1).getBytes(StandardCharsets.UTF_8))));
+        assertThrows(ProductCatalogException.class, () -> bulkService.createProducts(
+                new ByteArrayInputStream("nope".getBytes(StandardCharsets.UTF_8))));
+
+        // Syntax error mid-array: what was read is written, then one item reports where reading stopped
+        stubInsert();
+        String truncated = "[" + item("P1", 1) + "," + item("P2", 1) + ",{\"name\":";
+
+        BulkWriteResponse response = bulkService.createProducts(
+                new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(201, 201, 400);
+        assertThat(response.getItems().get(2).getErrors().get(0)).startsWith("Malformed JSON");
+    }
+
+    @Test
+    void updateProducts_patchesBatchWithOneLookupAndOneBulkWrite() {
+        Product apple = Product.builder().id(new ObjectId()).name("Apple").price(1.0).category("FOOD").build();
+        Product pear = Product.builder().id(new ObjectId()).name("Pear").price(2.0).category("FOOD").build();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(apple, pear)); // by _id
+        stubUpdate();
+        BulkOperationException rejected = mock(BulkOperationException.class);
+        when(rejected.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(rejected); // "Stored" is held by another product
+        String unknown = new ObjectId().toHexString();
+
+        BulkWriteResponse response = bulkService.updateProducts(json(
+                "{\"id\":\"" + apple.getId() + "\",\"price\":1.25}",
+                "{\"id\":\"" + pear.getId() + "\",\"name\":\"Stored\"}",
+                "{\"id\":\"" + unknown + "\",\"price\":3}",
+                "{\"id\":\"nope\",\"price\":3}",
+                "{\"id\":\"" + apple.getId() + "\"}"));
+
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(200, 409, 404, 400, 400);
+        assertThat(response.getItems().get(4).getErrors().get(0)).startsWith("Nothing to update");
+
+        // Only the present fields are $set
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), update.capture());
+        assertThat(update.getAllValues().get(0).getUpdateObject().toJson()).contains("\"price\": 1.25").doesNotContain("name");
+        verify(mongoTemplate).find(any(Query.class), eq(Product.class));
+        verify(bulkOperations).execute();
+        // A buffered write-behind price of apple would overwrite this one -> dropped
+        verify(priceWriteBehindBuffer).discard(apple.getId());
+        verify(priceWriteBehindBuffer, never()).discard(pear.getId());
+        // The in-memory indexes get the patched document
+        verify(catalogSnapshot).onProductsSaved(List.of(apple));
+        assertThat(apple.getPrice()).isEqualTo(1.25);
+        verify(cacheService).evictCacheByPattern(any());
+    }
+
+    @Test
+    void deleteProducts_unknownDuplicateAndInvalidIdsReported_restDeletedAtOnce() {
+        ObjectId stored = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(Product.builder().id(stored).build()));
+        when(mongoTemplate.remove(any(Query.class), eq(Product.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        BulkWriteResponse response = bulkService.deleteProducts(json(
+                "\"" + stored + "\"", "\"" + stored + "\"", "\"" + new ObjectId() + "\""));
+
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(200, 400, 404);
+        assertThat(response.getItems().get(1).getErrors()).containsExactly("Product appears more than once in the batch");
+        assertThat(bulkService.deleteProducts(json("\"nope\"", "42")).getItems())
+                .extracting(BulkItemResult::getCode).containsExactly(400, 400);
+        verify(mongoTemplate).remove(any(Query.class), eq(Product.class));
+        verify(catalogSnapshot).onProductsDeleted(Set.of(stored));
+        verify(relatedProductIndex).onProductDeleted(stored);
+    }
+
+    @Test
+    void deleteProducts_deletedConcurrentlyAfterLookup_notClaimedAsDeleted() {
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(Product.builder().id(first).build(), Product.builder().id(second).build()));
+        // Another writer removed one of them between the lookup and the deleteMany
+        when(mongoTemplate.remove(any(Query.class), eq(Product.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        BulkWriteResponse response = bulkService.deleteProducts(json("\"" + first + "\"", "\"" + second + "\""));
+
+        assertThat(response.getSucceeded()).isZero();
+        assertThat(response.getItems()).extracting(BulkItemResult::getCode).containsExactly(404, 404);
+        // Both are gone either way: the in-memory indexes drop both
+        verify(catalogSnapshot).onProductsDeleted(Set.of(first, second));
+    }
+
+    @Test
+    void deleteProductsByCategory_deletesBatchByBatchUntilNoneLeft() {
+        List<Product> firstBatch = List.of(Product.builder().id(new ObjectId()).build(),
+                Product.builder().id(new ObjectId()).build(), Product.builder().id(new ObjectId()).build());
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(firstBatch)
+                .thenReturn(List.of(Product.builder().id(new ObjectId()).build()));
+        when(mongoTemplate.remove(any(Query.class), eq(Product.class)))
+                .thenReturn(DeleteResult.acknowledged(3))
+                .thenReturn(DeleteResult.acknowledged(1));
+
+        CategoryDeleteResponse response = bulkService.deleteProductsByCategory("FOOD");
+
+        assertThat(response.getMatched()).isEqualTo(4);
+        assertThat(response.getDeleted()).isEqualTo(4);
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(Product.class));
+        verify(cacheService, times(2)).evictCacheByPattern(any());
+    }
+
+    @Test
+    void deleteProductsByCategory_movedConcurrently_notCountedAndKeptInIndexes() {
+        ObjectId deleted = new ObjectId();
+        ObjectId moved = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(Product.builder().id(deleted).build(), Product.builder().id(moved).build()))
+                .thenReturn(List.of(Product.builder().id(moved).build())); // still stored, in another category
+        when(mongoTemplate.remove(any(Query.class), eq(Product.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        CategoryDeleteResponse response = bulkService.deleteProductsByCategory("FOOD");
+
+        assertThat(response.getMatched()).isEqualTo(2);
+        assertThat(response.getDeleted()).isEqualTo(1);
+        verify(catalogSnapshot).onProductsDeleted(List.of(deleted));
+        verify(relatedProductIndex, never()).onProductDeleted(moved);
+    }
+
+    @Test
+    void repriceProducts_fewMatches_oneUpdateManyPinnedToIdsAndScopedEviction() {
+        Product shirt = Product.builder().id(new ObjectId()).name("Shirt").price(18.0).category("CLOTHING").build();
+        Product scarf = Product.builder().id(new ObjectId()).name("Scarf").price(9.0).category("CLOTHING").build();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(shirt, scarf))  // _id probe
+                .thenReturn(List.of(shirt, scarf)); // re-read after the write
+        when(mongoTemplate.updateMulti(any(Query.class), any(AggregationUpdate.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+        when(cacheService.generateCacheKey(anyString())).thenAnswer(invocation -> "product-catalog:" + invocation.getArgument(0));
+
+        RepriceResponse response = bulkService.repriceProducts(ProductFilter.of("CLOTHING", null, null),
+                RepriceRequest.builder().percent(-10.0).build());
+
+        assertThat(response.getMatched()).isEqualTo(2);
+        assertThat(response.getModified()).isEqualTo(2);
+        verify(priceWriteBehindBuffer).flush();
+
+        // Computed by MongoDB: price * 0.9, bounded and rounded, only on the probed ids still in the category
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(Product.class));
+        assertThat(query.getValue().getQueryObject().toJson()).contains("\"category\": \"CLOTHING\"", "$in");
+        assertThat(update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString())
+                .contains("$multiply=[$price, 0.9]", "$round", "$isNumber");
+
+        verify(relatedProductIndex, times(2)).onProductSaved(any(Product.class));
+        verify(catalogSnapshot).onProductsSaved(List.of(shirt, scarf));
+        verify(catalogSnapshot, never()).refresh();
+        // Listings of other categories keep their entries
+        verify(cacheService).evictCacheByPattern("product-catalog:filter*CLOTHING*");
+        verify(cacheService).evictCacheByPattern("product-catalog:all*");
+        verify(cacheService, never()).evictCacheByPattern("product-catalog:*");
+        verify(searchService).evictCandidateCache();
+    }
+
+    @Test
+    void repriceProducts_moreMatchesThanBatch_filterOnlyAndIndexesRebuilt() {
+        List<Product> probe = List.of(Product.builder().id(new ObjectId()).build(), Product.builder().id(new ObjectId()).build(),
+                Product.builder().id(new ObjectId()).build(), Product.builder().id(new ObjectId()).build());
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(probe); // batch size 3 + 1
+        when(mongoTemplate.updateMulti(any(Query.class), any(AggregationUpdate.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(5_000_000, 4_999_000L, null));
+
+        RepriceResponse response = bulkService.repriceProducts(ProductFilter.of(null, 10.0, 20.0),
+                RepriceRequest.builder().amount(2.5).build());
+
+        assertThat(response.getModified()).isEqualTo(4_999_000L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(Product.class));
+        assertThat(query.getValue().getQueryObject().toJson()).doesNotContain("$in").contains("$gte");
+        assertThat(update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString()).contains("$add=[$price, 2.5]");
+        // Documents not re-read: the in-memory indexes rebuild in the background
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Product.class));
+        verify(relatedProductIndex).refresh();
+        verify(catalogSnapshot).refresh();
+        verify(relatedProductIndex, never()).onProductSaved(any());
+        // A price range alone can match any category -> every entry
+        verify(cacheService).evictCacheByPattern(any());
+    }
+
+    @Test
+    void repriceProducts_noFilterOrNoMatch_nothingWritten() {
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class, () ->
+                bulkService.repriceProducts(ProductFilter.NONE, RepriceRequest.builder().percent(5.0).build()));
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.FILTER_REQUIRED);
+
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+        RepriceResponse response = bulkService.repriceProducts(ProductFilter.of("TOYS", null, null),
+                RepriceRequest.builder().percent(5.0).build());
+
+        assertThat(response.getMatched()).isZero();
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(AggregationUpdate.class), eq(Product.class));
+        verifyNoInteractions(cacheService);
+    }
+}
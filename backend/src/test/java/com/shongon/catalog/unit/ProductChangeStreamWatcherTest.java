@@ -0,0 +1,197 @@
+package com.shongon.catalog.unit;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.shongon.catalog.event.ProductChangeStreamWatcher;
+import com.shongon.catalog.event.ProductCreated;
+import com.shongon.catalog.event.ProductEvent;
+import com.shongon.catalog.event.ProductEventSubscriber;
+import com.shongon.catalog.model.Product;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductChangeStreamWatcherTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> products;
+
+    @Mock
+    private MongoCollection<Document> rawTokens;
+
+    @Mock
+    private MongoCollection<BsonDocument> tokens;
+
+    @Mock
+    private FindIterable<BsonDocument> storedToken;
+
+    @Mock
+    private ChangeStreamIterable<Document> stream;
+
+    @Mock
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    private final List<List<ProductEvent>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger resyncs = new AtomicInteger();
+    private final AtomicInteger failingBatches = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private ProductChangeStreamWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("products");
+        when(mongoTemplate.getCollection("products")).thenReturn(products);
+        when(mongoTemplate.getCollection("change_stream_tokens")).thenReturn(rawTokens);
+        when(rawTokens.withDocumentClass(BsonDocument.class)).thenReturn(tokens);
+        when(tokens.find(any(Bson.class))).thenReturn(storedToken); // no stored token -> watching from now
+        when(products.watch()).thenReturn(stream);
+        when(stream.fullDocument(FullDocument.UPDATE_LOOKUP)).thenReturn(stream);
+        when(stream.batchSize(anyInt())).thenReturn(stream);
+        when(stream.maxAwaitTime(anyLong(), any(TimeUnit.class))).thenReturn(stream);
+        when(stream.cursor()).thenReturn(cursor);
+        lenient().when(cursor.getResumeToken()).thenReturn(token(0));
+
+        ProductEventSubscriber subscriber = new ProductEventSubscriber() {
+            @Override
+            public void onEvents(List<ProductEvent> events) {
+                if (failingBatches.getAndDecrement() > 0) {
+                    throw new IllegalStateException("subscriber down");
+                }
+                batches.add(List.copyOf(events));
+            }
+
+            @Override
+            public void onResync() {
+                resyncs.incrementAndGet();
+            }
+        };
+        // batch-size never reached in these tests: only max-await (100 ms) flushes a busy stream
+        watcher = new ProductChangeStreamWatcher(mongoTemplate, List.of(subscriber), false, "node-1", 10_000,
+                Duration.ofMinutes(1), Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        watcher.shutdown();
+    }
+
+    // Helper methods
+    private static BsonDocument token(long position) {
+        return new BsonDocument("_data", new BsonInt64(position));
+    }
+
+    private ChangeStreamDocument<Document> inserted(long secondsAgo) {
+        ObjectId id = new ObjectId();
+        long position = sequence.incrementAndGet();
+        int writtenAt = (int) (System.currentTimeMillis() / 1000 - secondsAgo);
+        return new ChangeStreamDocument<>("insert", token(position), null, null,
+                new Document("_id", id).append("name", "Product " + position), null,
+                new BsonDocument("_id", new BsonObjectId(id)), new BsonTimestamp(writtenAt, 1),
+                null, null, null, null, null, null);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("watcher timed out").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void steadyTraffic_deliveredEveryMaxAwaitAndTokenSaved() throws InterruptedException {
+        // Never idle: a change every 5 ms, tryNext never returns null
+        when(cursor.tryNext()).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            return inserted(0);
+        });
+
+        watcher.start();
+        await(() -> batches.size() >= 3);
+
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).isNotEmpty().hasSizeLessThan(10_000));
+        assertThat(batches.get(0).get(0)).isInstanceOf(ProductCreated.class);
+        assertThat(batches.get(0).get(0).after().getName()).isEqualTo("Product 1");
+        assertThat(resyncs).hasValue(0);
+        verify(tokens, atLeastOnce()).replaceOne(any(Bson.class), any(BsonDocument.class), any());
+    }
+
+    @Test
+    void changesWrittenLongAgo_oneResyncThenRecentChangesDelivered() throws InterruptedException {
+        // A bulk job 10 minutes ago (steady, past resync-lag), then live traffic, then idle
+        AtomicInteger calls = new AtomicInteger();
+        when(cursor.tryNext()).thenAnswer(invocation -> {
+            int call = calls.incrementAndGet();
+            if (call <= 500) {
+                return inserted(600);
+            }
+            if (call <= 503) {
+                return inserted(0);
+            }
+            Thread.sleep(10); // idle: max-await elapses
+            return null;
+        });
+
+        watcher.start();
+        await(() -> batches.stream().mapToInt(List::size).sum() >= 3);
+
+        assertThat(resyncs).hasValue(1);
+        assertThat(batches.stream().flatMap(List::stream).map(event -> event.after().getName()))
+                .containsExactly("Product 501", "Product 502", "Product 503");
+    }
+
+    @Test
+    void subscriberFailsOnBatch_resyncedInsteadOfMissingIt() throws InterruptedException {
+        failingBatches.set(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(cursor.tryNext()).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                return inserted(0);
+            }
+            Thread.sleep(10);
+            return calls.get() == 3 ? inserted(0) : null;
+        });
+
+        watcher.start();
+        await(() -> batches.stream().flatMap(List::stream).anyMatch(event -> "Product 3".equals(event.after().getName())));
+
+        // The first batch failed: the subscriber read the current state instead, the stream went on
+        assertThat(resyncs).hasValue(1);
+    }
+}
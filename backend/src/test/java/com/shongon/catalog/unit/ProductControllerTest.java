@@ -2,14 +2,25 @@ package com.shongon.catalog.unit;
 
 import com.shongon.catalog.controller.ProductController;
 import com.shongon.catalog.dto.cache.CacheablePage;
+import com.shongon.catalog.dto.cache.CacheableSlice;
 import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.request.RepriceRequest;
+import com.shongon.catalog.dto.request.UpdatePriceRequest;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
 import com.shongon.catalog.dto.response.*;
+import com.shongon.catalog.enums.ExportFormat;
+import com.shongon.catalog.enums.ProductView;
 import com.shongon.catalog.enums.SortField;
 import com.shongon.catalog.exception.ErrorCode;
 import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.service.ICacheService;
+import com.shongon.catalog.service.IProductBulkService;
+import com.shongon.catalog.service.IProductExportService;
 import com.shongon.catalog.service.IProductService;
+import com.shongon.catalog.service.IRelatedProductService;
 import com.shongon.catalog.service.ISearchService;
 import com.shongon.catalog.service.ISortFilterService;
 import jakarta.validation.ConstraintViolationException;
@@ -22,9 +33,22 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
-
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -47,6 +71,15 @@ public class ProductControllerTest {
     @Mock
     private ISearchService searchService;
 
+    @Mock
+    private IRelatedProductService relatedProductService;
+
+    @Mock
+    private IProductBulkService productBulkService;
+
+    @Mock
+    private IProductExportService productExportService;
+
     private final String VALID_ID = "68aae2cfcb79c11df8cda5ed";
     private final String INVALID_ID = "123";
     private ViewAllProductsResponse product1, product2;
@@ -55,6 +88,7 @@ public class ProductControllerTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(productController, "exportTimeout", Duration.ofHours(1));
         // Setup test data
         product1 = createViewAllProduct("68aae2cfcb79c11df8cda5ed", "Test Food Product 1", "Test Food Description 1", 10.0, "FOOD");
         product2 = createViewAllProduct("68aae2cfce79c11df8cda5ed", "Test Food Product 2", "Test Food Description 2", 10.0, "FOOD");
@@ -96,25 +130,25 @@ public class ProductControllerTest {
     @Test
     void getAllProducts_validRequest_returnsProducts() {
         Page<ViewAllProductsResponse> productPage = new PageImpl<>(List.of(product1, product2));
-        when(productService.viewAllProducts(any())).thenReturn(productPage);
+        when(productService.viewAllProducts(any(), eq(ProductFields.ALL))).thenReturn(productPage);
 
-        ApiResponse<Page<ViewAllProductsResponse>> response = productController.getAllProducts(PageRequest.of(0, 20));
+        ApiResponse<Page<ViewAllProductsResponse>> response = productController.getAllProducts(null, null, PageRequest.of(0, 20));
 
         assertEquals(200, response.getCode());
         assertEquals("Success", response.getMessage());
         assertEquals(2, response.getResult().getContent().size());
-        verify(productService).viewAllProducts(any());
+        verify(productService).viewAllProducts(any(), eq(ProductFields.ALL));
     }
 
     @Test
     void getAllProducts_validRequest_returnEmpty() {
-        when(productService.viewAllProducts(any())).thenReturn(Page.empty());
+        when(productService.viewAllProducts(any(), eq(ProductFields.ALL))).thenReturn(Page.empty());
 
-        ApiResponse<Page<ViewAllProductsResponse>> response = productController.getAllProducts(PageRequest.of(0, 20));
+        ApiResponse<Page<ViewAllProductsResponse>> response = productController.getAllProducts(null, null, PageRequest.of(0, 20));
 
         assertEquals(200, response.getCode());
         assertTrue(response.getResult().isEmpty());
-        verify(productService).viewAllProducts(any());
+        verify(productService).viewAllProducts(any(), eq(ProductFields.ALL));
     }
 
     // GET BY ID TESTS
@@ -254,6 +288,46 @@ public class ProductControllerTest {
                 () -> productController.createProduct(createRequest));
     }
 
+    // BULK CREATE TESTS
+    @Test
+    void createProducts_streamedBody_perItemResultsWithoutControllerEviction() {
+        InputStream body = new ByteArrayInputStream("[]".getBytes());
+        BulkWriteResponse bulkResponse = BulkWriteResponse.of(List.of(BulkItemResult.succeeded(0, 201, VALID_ID)));
+        when(productBulkService.createProducts(body)).thenReturn(bulkResponse);
+
+        ApiResponse<BulkWriteResponse> result = productController.createProducts(body);
+
+        assertEquals(200, result.getCode());
+        assertEquals(1, result.getResult().getSucceeded());
+        // the bulk service evicts once per batch it wrote
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void deleteProductsByCategory_delegatesToBulkService() {
+        CategoryDeleteResponse deleteResponse = CategoryDeleteResponse.builder().matched(1).deleted(1).build();
+        when(productBulkService.deleteProductsByCategory("FOOD")).thenReturn(deleteResponse);
+
+        ApiResponse<CategoryDeleteResponse> result = productController.deleteProductsByCategory("FOOD");
+
+        assertEquals(200, result.getCode());
+        assertEquals(1, result.getResult().getDeleted());
+    }
+
+    @Test
+    void repriceProducts_filterFromParams_delegatesWithoutControllerEviction() {
+        RepriceRequest request = RepriceRequest.builder().percent(-10.0).build();
+        when(productBulkService.repriceProducts(ProductFilter.of("CLOTHING", null, 100.0), request))
+                .thenReturn(RepriceResponse.builder().matched(3).modified(2).build());
+
+        ApiResponse<RepriceResponse> result = productController.repriceProducts("CLOTHING", null, 100.0, request);
+
+        assertEquals(200, result.getCode());
+        assertEquals(2, result.getResult().getModified());
+        // the bulk service evicts only the affected scopes
+        verifyNoInteractions(cacheService);
+    }
+
     // UPDATE PRODUCT TESTS
     @Test
     void updateProduct_validRequest() {
@@ -394,17 +468,17 @@ public class ProductControllerTest {
         Page<ViewAllProductsResponse> page =
                 new PageImpl<>(List.of(product1, product2), pageable, 2);
 
-        when(sortFilterService.filterAndSortProducts(eq("FOOD"), isNull(), isNull(), eq(pageable)))
+        when(sortFilterService.filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)), eq(ProductSort.UNSORTED), eq(pageable), eq(ProductFields.ALL)))
                 .thenReturn(page);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.filterProductsByCategory("FOOD", pageable);
+                productController.filterProductsByCategory("FOOD", null, null, false, null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success", response.getMessage());
         assertEquals(2, response.getResult().getContent().size());
 
-        verify(sortFilterService).filterAndSortProducts(eq("FOOD"), isNull(), isNull(), eq(pageable));
+        verify(sortFilterService).filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)), eq(ProductSort.UNSORTED), eq(pageable), eq(ProductFields.ALL));
     }
 
     // SORT PRODUCTS
@@ -414,23 +488,23 @@ public class ProductControllerTest {
         Page<ViewAllProductsResponse> page =
                 new PageImpl<>(List.of(product1), pageable, 1);
 
-        when(sortFilterService.filterAndSortProducts(eq("FOOD"),
-                eq(SortField.PRICE),
-                eq(Sort.Direction.DESC),
-                eq(pageable)))
+        when(sortFilterService.filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)),
+                eq(ProductSort.of(SortField.PRICE, Sort.Direction.DESC)),
+                eq(pageable),
+                eq(ProductFields.ALL)))
                 .thenReturn(page);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.filterAndSortProduct("FOOD", SortField.PRICE, Sort.Direction.DESC, pageable);
+                productController.filterAndSortProduct("FOOD", null, null, SortField.PRICE, Sort.Direction.DESC, null, false, null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success", response.getMessage());
         assertEquals(1, response.getResult().getContent().size());
 
-        verify(sortFilterService).filterAndSortProducts(eq("FOOD"),
-                eq(SortField.PRICE),
-                eq(Sort.Direction.DESC),
-                eq(pageable));
+        verify(sortFilterService).filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)),
+                eq(ProductSort.of(SortField.PRICE, Sort.Direction.DESC)),
+                eq(pageable),
+                eq(ProductFields.ALL));
     }
 
     // CACHE TESTS
@@ -447,14 +521,14 @@ public class ProductControllerTest {
         when(cacheService.getFromCache(eq("cache-key"), any())).thenReturn(cachedPage);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.getAllProducts(pageable);
+                productController.getAllProducts(null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success (Cached)", response.getMessage());
         assertEquals(1, response.getResult().getContent().size());
 
         // Không gọi DB service khi cache hit
-        verify(productService, never()).viewAllProducts(any());
+        verify(productService, never()).viewAllProducts(any(), any());
     }
 
     @Test
@@ -466,16 +540,16 @@ public class ProductControllerTest {
         when(cacheService.generateCacheKey(any(), any(), any(), any(), any()))
                 .thenReturn("cache-key");
         when(cacheService.getFromCache(eq("cache-key"), any())).thenReturn(null);
-        when(productService.viewAllProducts(pageable)).thenReturn(page);
+        when(productService.viewAllProducts(pageable, ProductFields.ALL)).thenReturn(page);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.getAllProducts(pageable);
+                productController.getAllProducts(null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success", response.getMessage());
         assertEquals(2, response.getResult().getContent().size());
 
-        verify(productService).viewAllProducts(pageable);
+        verify(productService).viewAllProducts(pageable, ProductFields.ALL);
         verify(cacheService).saveToCache(eq("cache-key"), any(CacheablePage.class), any());
     }
 
@@ -494,7 +568,7 @@ public class ProductControllerTest {
         when(cacheService.getFromCache(eq("filter-key"), any())).thenReturn(cachedPage);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.filterProductsByCategory("FOOD", pageable);
+                productController.filterProductsByCategory("FOOD", null, null, false, null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success (Cached)", response.getMessage());
@@ -514,56 +588,54 @@ public class ProductControllerTest {
                 .when(cacheService)
                 .generateCacheKey(any(), any(), any(), any(), any(), any());
         when(cacheService.getFromCache(eq("filter-key"), any())).thenReturn(null);
-        when(sortFilterService.filterAndSortProducts(eq("FOOD"), isNull(), isNull(), eq(pageable)))
+        when(sortFilterService.filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)), eq(ProductSort.UNSORTED), eq(pageable), eq(ProductFields.ALL)))
                 .thenReturn(page);
 
         ApiResponse<Page<ViewAllProductsResponse>> response =
-                productController.filterProductsByCategory("FOOD", pageable);
+                productController.filterProductsByCategory("FOOD", null, null, false, null, null, pageable);
 
         assertEquals(200, response.getCode());
         assertEquals("Success", response.getMessage());
         assertEquals(2, response.getResult().getContent().size());
 
-        verify(sortFilterService).filterAndSortProducts(eq("FOOD"), isNull(), isNull(), eq(pageable));
+        verify(sortFilterService).filterAndSortProducts(eq(ProductFilter.of("FOOD", null, null)), eq(ProductSort.UNSORTED), eq(pageable), eq(ProductFields.ALL));
         verify(cacheService).saveToCache(eq("filter-key"), any(CacheablePage.class), any());
     }
 
+    // Cache eviction of single-product writes: ProductCacheInvalidator, on the event bus after the response
     @Test
-    void createProduct_shouldEvictCache() {
+    void createProduct_shouldLeaveEvictionToEventBus() {
         CreateProductResponse createResp = new CreateProductResponse();
         createResp.setMessage("Created!");
         when(productService.createProduct(createRequest)).thenReturn(createResp);
-        when(cacheService.generateCacheKey("*")).thenReturn("pattern");
 
         ApiResponse<CreateProductResponse> response = productController.createProduct(createRequest);
 
         assertEquals(201, response.getCode());
-        verify(cacheService).evictCacheByPattern("pattern");
+        verifyNoInteractions(cacheService, searchService);
     }
 
     @Test
-    void updateProduct_shouldEvictCache() {
+    void updateProduct_shouldLeaveEvictionToEventBus() {
         UpdateProductResponse updateResp = new UpdateProductResponse();
         updateResp.setMessage("Updated!");
         when(productService.updateProduct(VALID_ID, updateRequest)).thenReturn(updateResp);
-        when(cacheService.generateCacheKey("*")).thenReturn("pattern");
 
         ApiResponse<UpdateProductResponse> response =
                 productController.updateProduct(VALID_ID, updateRequest);
 
         assertEquals(200, response.getCode());
-        verify(cacheService).evictCacheByPattern("pattern");
+        verifyNoInteractions(cacheService, searchService);
     }
 
     @Test
-    void deleteProduct_shouldEvictCache() {
+    void deleteProduct_shouldLeaveEvictionToEventBus() {
         doNothing().when(productService).deleteProduct(VALID_ID);
-        when(cacheService.generateCacheKey("*")).thenReturn("pattern");
 
         ApiResponse<Void> response = productController.deleteProduct(VALID_ID);
 
         assertEquals(200, response.getCode());
-        verify(cacheService).evictCacheByPattern("pattern");
+        verifyNoInteractions(cacheService, searchService);
     }
 
     // SEARCH PRODUCTS TESTS
@@ -578,12 +650,12 @@ public class ProductControllerTest {
         Page<ViewAllProductsResponse> expectedPage = new PageImpl<>(List.of(product1, product2));
 
         // Giả lập rằng khi searchService.searchProducts được gọi với các tham số này...
-        when(searchService.searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull()))
+        when(searchService.searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL)))
                 // ...thì sẽ trả về trang kết quả đã chuẩn bị ở trên
                 .thenReturn(expectedPage);
 
         // Act - Gọi phương thức cần test trong controller
-        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(keyword, page, size);
+        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(keyword, page, size, null, null, false, null, null);
 
         // Assert - Kiểm tra kết quả
         assertEquals(200, response.getCode());
@@ -593,7 +665,7 @@ public class ProductControllerTest {
         assertEquals("Test Food Product 1", response.getResult().getContent().get(0).getName());
 
         // Verify - Đảm bảo rằng phương thức searchProducts đã được gọi đúng 1 lần với đúng tham số
-        verify(searchService).searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull());
+        verify(searchService).searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL));
     }
 
     @Test
@@ -604,11 +676,11 @@ public class ProductControllerTest {
         int size = 10;
 
         // Giả lập service trả về một trang rỗng
-        when(searchService.searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull()))
+        when(searchService.searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL)))
                 .thenReturn(Page.empty());
 
         // Act
-        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(keyword, page, size);
+        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(keyword, page, size, null, null, false, null, null);
 
         // Assert
         assertEquals(200, response.getCode());
@@ -616,7 +688,7 @@ public class ProductControllerTest {
         assertTrue(response.getResult().isEmpty()); // Quan trọng: kiểm tra kết quả là rỗng
 
         // Verify
-        verify(searchService).searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull());
+        verify(searchService).searchProducts(eq(keyword), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL));
     }
 
     @Test
@@ -630,11 +702,11 @@ public class ProductControllerTest {
 
         // Mock the searchService: when it receives a null keyword,
         // it should return the full list of products.
-        when(searchService.searchProducts(isNull(), eq(page), eq(size), isNull(), isNull()))
+        when(searchService.searchProducts(isNull(), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL)))
                 .thenReturn(allProductsPage);
 
         // Act
-        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(null, page, size);
+        ApiResponse<Page<ViewAllProductsResponse>> response = productController.searchProduct(null, page, size, null, null, false, null, null);
 
         // Assert
         assertEquals(200, response.getCode());
@@ -643,6 +715,313 @@ public class ProductControllerTest {
         assertEquals("Test Food Product 1", response.getResult().getContent().get(0).getName());
 
         // Verify
-        verify(searchService).searchProducts(isNull(), eq(page), eq(size), isNull(), isNull());
+        verify(searchService).searchProducts(isNull(), eq(page), eq(size), isNull(), isNull(), eq(ProductFields.ALL));
+    }
+
+    // FACETS TESTS
+    @Test
+    void filterProductsByCategory_withFacets_cacheMiss_fetchesFacetsAndSaves() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        ProductFacets facets = ProductFacets.builder()
+                .categories(Map.of("FOOD", 2L))
+                .priceBuckets(List.of(new PriceBucketCount(0.0, 25.0, 2)))
+                .build();
+        FacetedPage<ViewAllProductsResponse> page =
+                new FacetedPage<>(List.of(product1, product2), pageable, 2, facets);
+
+        doReturn("facet-key")
+                .when(cacheService)
+                .generateCacheKey(any(), any(), any(), any(), any(), any());
+        when(cacheService.getFromCache(eq("facet-key"), any())).thenReturn(null);
+        when(sortFilterService.filterAndSortProductsWithFacets(eq(ProductFilter.of("FOOD", null, null)), eq(ProductSort.UNSORTED), eq(pageable), eq(ProductFields.ALL)))
+                .thenReturn(page);
+
+        ApiResponse<Page<ViewAllProductsResponse>> response =
+                productController.filterProductsByCategory("FOOD", null, null, true, null, null, pageable);
+
+        assertEquals("Success", response.getMessage());
+        assertEquals(facets, ((FacetedPage<ViewAllProductsResponse>) response.getResult()).getFacets());
+        verify(sortFilterService, never()).filterAndSortProducts(any(), any(), any(), any());
+        verify(cacheService).generateCacheKey(eq("filter:facets"), eq("FOOD"), any(), any(), any(), any());
+        verify(cacheService).saveToCache(eq("facet-key"), any(CacheablePage.class), any());
+    }
+
+    @Test
+    void searchProducts_withFacets_cacheHit_returnsCachedFacets() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        ProductFacets facets = ProductFacets.builder()
+                .categories(Map.of("FOOD", 1L))
+                .priceBuckets(List.of())
+                .build();
+        CacheablePage<ViewAllProductsResponse> cachedPage =
+                CacheablePage.from(new FacetedPage<>(List.of(product1), pageable, 1, facets));
+
+        doReturn("search-key")
+                .when(cacheService)
+                .generateCacheKey(any(), any(), any(), any(), any(), any(), any(), any());
+        when(cacheService.getFromCache(eq("search-key"), any())).thenReturn(cachedPage);
+
+        ApiResponse<Page<ViewAllProductsResponse>> response =
+                productController.searchProduct("Test", 0, 10, null, null, true, null, null);
+
+        assertEquals("Success (Cached)", response.getMessage());
+        assertInstanceOf(FacetedPage.class, response.getResult());
+        assertEquals(facets, ((FacetedPage<ViewAllProductsResponse>) response.getResult()).getFacets());
+        verifyNoInteractions(searchService);
+    }
+
+    @Test
+    void searchCacheStats_returnsStats() {
+        SearchCacheStatsResponse stats = SearchCacheStatsResponse.builder().lookups(4).hits(2).hitRate(0.5).build();
+        when(searchService.getCandidateCacheStats()).thenReturn(stats);
+
+        ApiResponse<SearchCacheStatsResponse> response = productController.searchCacheStats();
+
+        assertEquals(200, response.getCode());
+        assertEquals(stats, response.getResult());
+    }
+
+    @Test
+    void getRelatedProducts_returnsPrecomputedNeighbors() {
+        when(relatedProductService.getRelatedProducts(VALID_ID)).thenReturn(List.of(product2));
+
+        ApiResponse<List<ViewAllProductsResponse>> response = productController.getRelatedProducts(VALID_ID);
+
+        assertEquals(200, response.getCode());
+        assertEquals(List.of(product2), response.getResult());
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void getRelatedProducts_productNotFound_throwsException() {
+        when(relatedProductService.getRelatedProducts(VALID_ID))
+                .thenThrow(new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND));
+
+        assertThrows(ProductCatalogException.class, () -> productController.getRelatedProducts(VALID_ID));
+    }
+
+    @Test
+    void filterAndSortProductByCursor_returnsCursorPageWithoutCache() {
+        CursorPage<ViewAllProductsResponse> page = CursorPage.<ViewAllProductsResponse>builder()
+                .content(List.of(product1))
+                .size(1)
+                .hasNext(true)
+                .nextCursor("next")
+                .build();
+        when(sortFilterService.filterAndSortProductsByCursor(ProductFilter.of("FOOD", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), "abc", 1, ProductFields.ALL))
+                .thenReturn(page);
+
+        ApiResponse<CursorPage<ViewAllProductsResponse>> response =
+                productController.filterAndSortProductByCursor("FOOD", null, null, SortField.PRICE, Sort.Direction.ASC, null, "abc", 1, null, null);
+
+        assertEquals(200, response.getCode());
+        assertEquals("next", response.getResult().getNextCursor());
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void getAllProductsByCursor_firstPage_delegatesWithoutFilterOrSort() {
+        CursorPage<ViewAllProductsResponse> page = CursorPage.<ViewAllProductsResponse>builder()
+                .content(List.of(product1, product2))
+                .size(20)
+                .build();
+        when(sortFilterService.filterAndSortProductsByCursor(ProductFilter.NONE, ProductSort.UNSORTED, "", 20, ProductFields.ALL)).thenReturn(page);
+
+        ApiResponse<CursorPage<ViewAllProductsResponse>> response = productController.getAllProductsByCursor("", 20, null, null);
+
+        assertEquals(2, response.getResult().getContent().size());
+        assertNull(response.getResult().getNextCursor());
+    }
+
+    // SPARSE FIELDSETS
+    @Test
+    void getAllProducts_summaryView_hasItsOwnCacheKey() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        Page<ViewAllProductsResponse> page = new PageImpl<>(List.of(product1), pageable, 1);
+        when(cacheService.generateCacheKey("all:summary", "page", 0, "size", 10)).thenReturn("summary-key");
+        when(productService.viewAllProducts(pageable, ProductFields.SUMMARY)).thenReturn(page);
+
+        ApiResponse<Page<ViewAllProductsResponse>> response =
+                productController.getAllProducts(null, ProductView.SUMMARY, pageable);
+
+        assertEquals(1, response.getResult().getContent().size());
+        verify(cacheService).saveToCache(eq("summary-key"), any(CacheablePage.class), any());
+    }
+
+    @Test
+    void filterAndSortProduct_fields_passesFieldsetToService() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        ProductFields namePrice = ProductFields.of("name,price", null);
+        when(sortFilterService.filterAndSortProducts(ProductFilter.of("FOOD", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), pageable, namePrice))
+                .thenReturn(Page.empty());
+
+        productController.filterAndSortProduct("FOOD", null, null, SortField.PRICE, Sort.Direction.ASC, null, false,
+                "name, price", ProductView.SUMMARY, pageable); // "fields" wins over "view"
+
+        verify(sortFilterService).filterAndSortProducts(ProductFilter.of("FOOD", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), pageable, namePrice);
+    }
+
+    @Test
+    void searchProduct_unknownField_throwsInvalidFields() {
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> productController.searchProduct("Test", 0, 10, null, null, false, "name,secret", null));
+
+        assertEquals(ErrorCode.INVALID_FIELDS, exception.getErrorCode());
+        verifyNoInteractions(searchService);
+    }
+
+    // SLICE (NO COUNT)
+    @Test
+    void getAllProductsSlice_cacheMiss_savesUnderSliceKey() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        Slice<ViewAllProductsResponse> slice = new SliceImpl<>(List.of(product1, product2), pageable, true);
+        when(cacheService.generateCacheKey("all:slice", "page", 0, "size", 10)).thenReturn("slice-key");
+        when(productService.viewAllProductsSlice(pageable, ProductFields.ALL)).thenReturn(slice);
+
+        ApiResponse<Slice<ViewAllProductsResponse>> response = productController.getAllProductsSlice(null, null, pageable);
+
+        assertEquals("Success", response.getMessage());
+        assertTrue(response.getResult().hasNext());
+        verify(cacheService).saveToCache(eq("slice-key"), any(CacheableSlice.class), any());
+        verify(productService, never()).viewAllProducts(any(), any());
+    }
+
+    @Test
+    void filterProductsByCategorySlice_cacheHit_returnsCachedSlice() {
+        PageRequest pageable = PageRequest.of(1, 10);
+        CacheableSlice<ViewAllProductsResponse> cached =
+                CacheableSlice.from(new SliceImpl<>(List.of(product1), pageable, false));
+        when(cacheService.generateCacheKey("filter:slice", "FOOD", "page", 1, "size", 10)).thenReturn("filter-slice-key");
+        when(cacheService.getFromCache(eq("filter-slice-key"), any())).thenReturn(cached);
+
+        ApiResponse<Slice<ViewAllProductsResponse>> response =
+                productController.filterProductsByCategorySlice("FOOD", null, null, null, null, pageable);
+
+        assertEquals("Success (Cached)", response.getMessage());
+        assertEquals(1, response.getResult().getNumber());
+        assertFalse(response.getResult().hasNext());
+        verifyNoInteractions(sortFilterService);
+    }
+
+    @Test
+    void searchProductSlice_delegatesWithoutCache() {
+        Slice<ViewAllProductsResponse> slice = new SliceImpl<>(List.of(product1), PageRequest.of(0, 10), false);
+        when(searchService.searchProductsSlice("Test", 0, 10, null, null, ProductFields.ALL)).thenReturn(slice);
+
+        ApiResponse<Slice<ViewAllProductsResponse>> response =
+                productController.searchProductSlice("Test", 0, 10, null, null, null, null);
+
+        assertEquals(1, response.getResult().getContent().size());
+        verifyNoInteractions(cacheService);
+    }
+
+    // TYPED FILTER
+    @Test
+    void filterProductsByCategory_categoriesAndPriceRange_cachedUnderFilterKey() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        ProductFilter filter = ProductFilter.of("BOOKS,HOME", 10.0, 50.0);
+        when(cacheService.generateCacheKey("filter", "BOOKS,HOME:price=10.0-50.0", "page", 0, "size", 10))
+                .thenReturn("range-key");
+        when(sortFilterService.filterAndSortProducts(filter, ProductSort.UNSORTED, pageable, ProductFields.ALL))
+                .thenReturn(new PageImpl<>(List.of(product1), pageable, 1));
+
+        ApiResponse<Page<ViewAllProductsResponse>> response =
+                productController.filterProductsByCategory("HOME,BOOKS", 10.0, 50.0, false, null, null, pageable);
+
+        assertEquals(1, response.getResult().getContent().size());
+        verify(cacheService).saveToCache(eq("range-key"), any(CacheablePage.class), any());
+    }
+
+    @Test
+    void filterAndSortProduct_invertedPriceRange_throwsInvalidFilter() {
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> productController.filterAndSortProduct(null, 50.0, 10.0, SortField.PRICE, Sort.Direction.ASC, null,
+                        false, null, null, PageRequest.of(0, 10)));
+
+        assertEquals(ErrorCode.INVALID_FILTER, exception.getErrorCode());
+        verifyNoInteractions(sortFilterService);
+    }
+
+    @Test
+    void rejectSliceWithCursor_throwsPaginationConflict() {
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> productController.rejectSliceWithCursor());
+
+        assertEquals(ErrorCode.PAGINATION_CONFLICT, exception.getErrorCode());
+        verifyNoInteractions(sortFilterService, productService);
+    }
+
+    // EXPORT
+    @Test
+    void exportProducts_csvWithGzip_headersThenStreamsThroughService() throws Exception {
+        ProductFilter filter = ProductFilter.of("FOOD", null, null);
+
+        AsyncWebRequest asyncRequest = mock(AsyncWebRequest.class);
+
+        ResponseEntity<StreamingResponseBody> response =
+                productController.exportProducts("csv", "FOOD", null, null, "gzip, deflate, br", asyncRequest);
+
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("attachment; filename=\"products.csv\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        verify(asyncRequest).setTimeout(Duration.ofHours(1).toMillis()); // this request only, not the global default
+        verifyNoInteractions(productExportService); // nothing read until the body is written
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(productExportService).exportProducts(filter, ExportFormat.CSV, true, out);
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void exportProducts_gzipRefusedOrNotListed_streamsUncompressed() throws Exception {
+        for (String acceptEncoding : new String[]{"gzip;q=0", "br, gzip; q=0.0, *;q=1", "deflate", "*;q=0"}) {
+            ResponseEntity<StreamingResponseBody> response = productController.exportProducts(
+                    "ndjson", null, null, null, acceptEncoding, mock(AsyncWebRequest.class));
+
+            assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), acceptEncoding);
+        }
+        ResponseEntity<StreamingResponseBody> wildcard = productController.exportProducts(
+                "ndjson", null, null, null, "br;q=1, *;q=0.5", mock(AsyncWebRequest.class));
+        assertEquals("gzip", wildcard.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void exportProducts_invalidFormatOrFilter_throwsBeforeStreaming() {
+        ProductCatalogException format = assertThrows(ProductCatalogException.class,
+                () -> productController.exportProducts("xml", null, null, null, null, mock(AsyncWebRequest.class)));
+        ProductCatalogException filter = assertThrows(ProductCatalogException.class,
+                () -> productController.exportProducts("ndjson", null, 50.0, 10.0, null, mock(AsyncWebRequest.class)));
+
+        assertEquals(ErrorCode.INVALID_EXPORT_FORMAT, format.getErrorCode());
+        assertEquals(ErrorCode.INVALID_FILTER, filter.getErrorCode());
+        verifyNoInteractions(productExportService);
+    }
+
+    // PRICE UPDATES
+    @Test
+    void updatePrice_written_returns200WithResponse() {
+        when(productService.updatePrice(VALID_ID, 12.5))
+                .thenReturn(Optional.of(new UpdateProductResponse("Update product successfully!")));
+
+        ResponseEntity<ApiResponse<UpdateProductResponse>> response =
+                productController.updatePrice(VALID_ID, new UpdatePriceRequest(12.5));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Update product successfully!", response.getBody().getResult().getMessage());
+        verifyNoInteractions(cacheService); // evicted by the product event, or by the flush
+    }
+
+    @Test
+    void updatePrice_onlyBuffered_returns202() {
+        when(productService.updatePrice(VALID_ID, 12.5)).thenReturn(Optional.empty());
+
+        ResponseEntity<ApiResponse<UpdateProductResponse>> response =
+                productController.updatePrice(VALID_ID, new UpdatePriceRequest(12.5));
+
+        assertEquals(202, response.getStatusCode().value());
+        assertEquals(202, response.getBody().getCode());
+        verifyNoInteractions(cacheService); // written and evicted by the flush
     }
-}
\ No newline at end of file
+}
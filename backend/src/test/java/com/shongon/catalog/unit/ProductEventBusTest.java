@@ -0,0 +1,276 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.event.*;
+import com.shongon.catalog.event.ProductOutbox.PendingEvent;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductEventBusTest {
+
+    @Mock
+    private ProductOutbox outbox;
+
+    private ProductEventBus bus;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    // Helper methods
+    private ProductEventBus bus(int capacity, boolean outboxEnabled, ProductEventSubscriber... subscribers) {
+        when(outbox.isEnabled()).thenReturn(outboxEnabled);
+        lenient().when(outbox.record(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        // relay far away: tests call relay() themselves
+        bus = new ProductEventBus(List.of(subscribers), outbox, capacity, 4, Duration.ofMillis(50),
+                Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofMinutes(10), 3);
+        return bus;
+    }
+
+    private static ProductCreated created(String name) {
+        return ProductCreated.of(Product.builder().id(new ObjectId()).name(name).build());
+    }
+
+    private void awaitDelivered() throws InterruptedException {
+        assertThat(bus.awaitDelivered(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void publish_deliversBatchesInOrderToEverySubscriberThenAcknowledges() throws InterruptedException {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        List<ProductEvent> received = new CopyOnWriteArrayList<>();
+        ProductEventBus bus = bus(100, true,
+                events -> {
+                    calls.add("indexes");
+                    received.addAll(events);
+                    assertThat(events).hasSizeLessThanOrEqualTo(4);
+                },
+                events -> calls.add("caches"));
+
+        List<ProductEvent> published = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String name = "Product " + i;
+            published.add(bus.publish(() -> created(name)));
+        }
+        awaitDelivered();
+
+        assertThat(received).containsExactlyElementsOf(published);
+        // each batch: first subscriber, then the second
+        for (int i = 0; i < calls.size(); i += 2) {
+            assertThat(calls.subList(i, i + 2)).containsExactly("indexes", "caches");
+        }
+        ArgumentCaptor<Collection<ObjectId>> acknowledged = ArgumentCaptor.forClass(Collection.class);
+        verify(outbox, atLeastOnce()).acknowledge(acknowledged.capture());
+        assertThat(acknowledged.getAllValues().stream().flatMap(Collection::stream).toList())
+                .containsExactlyElementsOf(published.stream().map(ProductEvent::eventId).toList());
+    }
+
+    @Test
+    void failingSubscriber_othersStillServedAndEventLeftInOutboxForItAlone() throws InterruptedException {
+        List<ProductEvent> received = new CopyOnWriteArrayList<>();
+        ProductEventSubscriber failing = events -> {
+            throw new IllegalStateException("Redis down");
+        };
+        ProductEventBus bus = bus(100, true, failing, received::addAll);
+
+        ProductEvent event = bus.publish(() -> created("Apple"));
+        awaitDelivered();
+
+        assertThat(received).containsExactly(event);
+        verify(outbox, never()).acknowledge(any());
+        verify(outbox).retry(eq(List.of(event.eventId())), eq(Set.of(failing.subscriberName())), any());
+    }
+
+    @Test
+    void relayAfterFailedInvalidation_onlyInvalidatorServedAndLaterUpdateWins() throws InterruptedException {
+        ObjectId productId = new ObjectId();
+        Map<ObjectId, Product> index = new ConcurrentHashMap<>();
+        List<ProductEvent> invalidated = new CopyOnWriteArrayList<>();
+        AtomicBoolean redisDown = new AtomicBoolean(true);
+        ProductEventSubscriber indexes = events -> events.forEach(event -> index.put(event.productId(), event.after()));
+        ProductEventSubscriber invalidator = events -> {
+            if (redisDown.get()) {
+                throw new IllegalStateException("Redis down");
+            }
+            invalidated.addAll(events);
+        };
+        ProductEventBus bus = bus(100, true, indexes, invalidator);
+        Product original = Product.builder().id(productId).name("Apple").price(1.0).build();
+
+        ProductEvent first = bus.publish(() -> ProductUpdated.of(original, original.toBuilder().price(2.0).build()));
+        awaitDelivered();
+        redisDown.set(false);
+        ProductEvent second = bus.publish(() -> ProductUpdated.of(first.after(), first.after().toBuilder().price(3.0).build()));
+        awaitDelivered();
+
+        verify(outbox).retry(eq(List.of(first.eventId())), eq(Set.of(invalidator.subscriberName())), any());
+        when(outbox.pending(any(), any(), any(), eq(4)))
+                .thenReturn(List.of(new PendingEvent(first, Set.of(invalidator.subscriberName()))));
+        bus.relay();
+        awaitDelivered();
+
+        assertThat(index.get(productId).getPrice()).isEqualTo(3.0); // not rolled back to 2.0
+        assertThat(invalidated).containsExactly(second, first);
+        verify(outbox).acknowledge(List.of(first.eventId()));
+    }
+
+    @Test
+    void subscriberFollowingChangeStream_skippedByBus() throws InterruptedException {
+        List<ProductEvent> received = new CopyOnWriteArrayList<>();
+        ProductEventSubscriber readModel = new ProductEventSubscriber() {
+            @Override
+            public void onEvents(List<ProductEvent> events) {
+                received.addAll(events);
+            }
+
+            @Override
+            public boolean followsChangeStream() {
+                return true;
+            }
+        };
+        List<ProductEvent> evicted = new CopyOnWriteArrayList<>();
+        ProductEventBus bus = bus(100, true, readModel, evicted::addAll);
+
+        ProductEvent event = bus.publish(() -> created("Apple"));
+        awaitDelivered();
+
+        assertThat(received).isEmpty();
+        assertThat(evicted).containsExactly(event);
+        verify(outbox).acknowledge(List.of(event.eventId()));
+    }
+
+    @Test
+    void failedWrite_nothingPublished() throws InterruptedException {
+        ProductEventSubscriber subscriber = mock(ProductEventSubscriber.class);
+        ProductEventBus bus = bus(100, true, subscriber);
+
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class, () -> bus.publish(() -> {
+            throw new ProductCatalogException(ErrorCode.PRODUCT_NOT_FOUND);
+        }));
+        awaitDelivered();
+
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.PRODUCT_NOT_FOUND);
+        verify(subscriber, never()).onEvents(any());
+    }
+
+    @Test
+    void relay_queuesOutboxLeftoversOnceAndAcknowledgesThem() throws InterruptedException {
+        List<ProductEvent> received = new CopyOnWriteArrayList<>();
+        ProductEventBus bus = bus(100, true, received::addAll);
+        ProductEvent leftover = created("Left behind by a crash");
+        when(outbox.pending(any(), any(), any(), eq(4))).thenReturn(List.of(new PendingEvent(leftover, null)));
+
+        bus.relay();
+        awaitDelivered();
+
+        assertThat(received).containsExactly(leftover);
+        verify(outbox).acknowledge(List.of(leftover.eventId()));
+    }
+
+    @Test
+    void queueFullWithoutOutbox_publisherDeliversItself() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        ProductEventBus bus = bus(1, false, events -> {
+            threads.add(Thread.currentThread().getName());
+            if (threads.size() == 1) {
+                try {
+                    release.await(5, TimeUnit.SECONDS); // the dispatcher holds the first event
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        bus.publish(() -> created("First"));
+        while (threads.isEmpty()) {
+            Thread.onSpinWait();
+        }
+        bus.publish(() -> created("Queued"));      // fills the queue (capacity 1)
+        bus.publish(() -> created("Overflowing")); // waits 50ms for room, then runs on this thread
+        release.countDown();
+        awaitDelivered();
+
+        assertThat(threads).hasSize(3).contains(Thread.currentThread().getName());
+    }
+
+    @Test
+    void relay_orphanedEntryDeliveredToSharedSubscribersOnly() throws InterruptedException {
+        List<ProductEvent> indexed = new CopyOnWriteArrayList<>();
+        List<ProductEvent> evicted = new CopyOnWriteArrayList<>();
+        ProductEventSubscriber cache = new ProductEventSubscriber() {
+            @Override
+            public void onEvents(List<ProductEvent> events) {
+                evicted.addAll(events);
+            }
+
+            @Override
+            public boolean sharedAcrossNodes() {
+                return true;
+            }
+        };
+        ProductEventBus bus = bus(100, true, indexed::addAll, cache);
+        ProductEvent orphaned = created("Written by a node gone since");
+        when(outbox.pending(any(), any(), eq(Set.of(cache.subscriberName())), eq(4)))
+                .thenReturn(List.of(new PendingEvent(orphaned, Set.of(cache.subscriberName()))));
+
+        bus.relay();
+        awaitDelivered();
+
+        assertThat(indexed).isEmpty();
+        assertThat(evicted).containsExactly(orphaned);
+        verify(outbox).acknowledge(List.of(orphaned.eventId()));
+    }
+
+    @Test
+    void relay_eventFailingMaxAttempts_subscriberResyncedAndEventDropped() throws InterruptedException {
+        List<String> resynced = new CopyOnWriteArrayList<>();
+        ProductEventSubscriber poisoned = new ProductEventSubscriber() {
+            @Override
+            public void onEvents(List<ProductEvent> events) {
+                throw new IllegalStateException("Cannot apply");
+            }
+
+            @Override
+            public void onResync() {
+                resynced.add("poisoned");
+            }
+        };
+        ProductEventBus bus = bus(100, true, poisoned);
+        ProductEvent poison = created("Fails every time");
+        when(outbox.pending(any(), any(), any(), eq(4)))
+                .thenReturn(List.of(new PendingEvent(poison, Set.of(poisoned.subscriberName()), 2)));
+
+        bus.relay(); // third failure, max-attempts 3
+        awaitDelivered();
+
+        assertThat(resynced).containsExactly("poisoned");
+        verify(outbox).acknowledge(List.of(poison.eventId()));
+        verify(outbox, never()).retry(any(), any(), any());
+    }
+}
@@ -0,0 +1,138 @@
+package com.shongon.catalog.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.enums.ExportFormat;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.impl.ProductExportServiceImpl;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductExportServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private ProductExportServiceImpl exportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean cursorClosed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ProductExportServiceImpl(mongoTemplate, objectMapper);
+        ReflectionTestUtils.setField(exportService, "batchSize", 500);
+    }
+
+    // Helper methods
+    private void givenProducts(Product... products) {
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenReturn(Stream.of(products).onClose(() -> cursorClosed.set(true)));
+    }
+
+    private static Product product(String name, String description, Double price) {
+        return Product.builder().id(new ObjectId()).name(name).description(description).price(price).category("FOOD")
+                .build();
+    }
+
+    @Test
+    void exportProducts_ndjson_oneObjectPerLineFromOneCursor() throws Exception {
+        Product first = product("Apple", "Red \"fresh\"\napples", 1.5);
+        Product second = product("Bread", null, null);
+        givenProducts(first, second);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportProducts(ProductFilter.of("FOOD", 1.0, null), ExportFormat.NDJSON, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode line = objectMapper.readTree(lines[0]);
+        assertThat(line.get("id").asText()).isEqualTo(first.getId().toHexString());
+        assertThat(line.get("description").asText()).isEqualTo("Red \"fresh\"\napples");
+        assertThat(line.get("price").asDouble()).isEqualTo(1.5);
+        assertThat(objectMapper.readTree(lines[1]).get("price").isNull()).isTrue();
+        assertThat(cursorClosed).isTrue();
+
+        // The filter, as the /filter listings send it, read in cursor batches of app.export.batch-size
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Product.class));
+        assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("category", "FOOD").append("price", new Document("$gte", 1.0)));
+        assertThat(query.getValue().getMeta().getCursorBatchSize()).isEqualTo(500);
+        assertThat(query.getValue().getSortObject()).isEmpty();
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    void exportProducts_csv_quotesOnlyFieldsThatNeedIt() throws Exception {
+        Product quoted = product("Apple, red", "Says \"hi\"", 10_000_000.0);
+        Product plain = product("Bread", "Plain", null);
+        givenProducts(quoted, plain);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportProducts(ProductFilter.NONE, ExportFormat.CSV, false, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\r\n")).containsExactly(
+                "id,name,description,price,category",
+                quoted.getId().toHexString() + ",\"Apple, red\",\"Says \"\"hi\"\"\",10000000,FOOD",
+                plain.getId().toHexString() + ",Bread,Plain,,FOOD");
+    }
+
+    @Test
+    void exportProducts_gzip_finishesStreamWithoutClosingIt() throws Exception {
+        givenProducts(product("Apple", "Red", 1.0));
+        AtomicBoolean responseClosed = new AtomicBoolean();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                responseClosed.set(true);
+            }
+        };
+
+        exportService.exportProducts(ProductFilter.NONE, ExportFormat.CSV, true, out);
+
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(new String(csv.readAllBytes(), StandardCharsets.UTF_8))
+                    .startsWith("id,name,description,price,category\r\n").endsWith(",Apple,Red,1.0,FOOD\r\n");
+        }
+        assertThat(responseClosed).isFalse();
+    }
+
+    @Test
+    void exportFormat_of_caseInsensitive_unknownRejected() {
+        assertThat(ExportFormat.of("ndjson")).isEqualTo(ExportFormat.NDJSON);
+        assertThat(ExportFormat.of(" CSV ")).isEqualTo(ExportFormat.CSV);
+
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class, () -> ExportFormat.of("xml"));
+
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.INVALID_EXPORT_FORMAT);
+    }
+}
@@ -0,0 +1,97 @@
+package com.shongon.catalog.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shongon.catalog.controller.ProductController;
+import com.shongon.catalog.controller.ProductFieldsResponseAdvice;
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.ProductView;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.repository.ProductProjection;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductFieldsTest {
+
+    @Test
+    void of_noFieldsNoView_isAllAndProjectsNothing() {
+        ProductFields fields = ProductFields.of(null, null);
+        Query query = new Query();
+        ProductProjection.applyTo(query, fields, "price");
+
+        assertThat(fields).isEqualTo(ProductFields.ALL);
+        assertThat(fields.cacheKey()).isEqualTo("all");
+        assertThat(query.getFieldsObject()).isEmpty();
+    }
+
+    @Test
+    void of_summaryView_leavesDescriptionOut() {
+        ProductFields fields = ProductFields.of(" ", ProductView.SUMMARY);
+
+        assertThat(fields.getNames()).containsExactly("id", "name", "price", "category");
+        assertThat(fields.cacheKey()).isEqualTo("summary");
+    }
+
+    @Test
+    void of_fields_alwaysIncludesIdInResponseOrder() {
+        ProductFields fields = ProductFields.of("price, name", ProductView.FULL);
+
+        assertThat(fields.getNames()).containsExactly("id", "name", "price");
+        assertThat(ProductProjection.documentFields(fields)).containsExactly("name", "price");
+        assertThat(fields.cacheKey()).isEqualTo("id,name,price");
+        // same fieldset, same cache key
+        assertThat(ProductFields.of("name,price,id", null)).isEqualTo(fields);
+    }
+
+    @Test
+    void of_unknownField_throwsInvalidFields() {
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
+                () -> ProductFields.of("name,_class", null));
+
+        assertEquals(ErrorCode.INVALID_FIELDS, exception.getErrorCode());
+    }
+
+    @Test
+    void trim_dropsFieldsOutsideTheFieldset() {
+        ViewAllProductsResponse response = new ViewAllProductsResponse("id-1", "Book", "Long text", 10.0, "BOOKS");
+
+        ProductFields.of("name", null).trim(response);
+
+        assertThat(response).isEqualTo(new ViewAllProductsResponse("id-1", "Book", null, null, null));
+    }
+
+    @Test
+    void responseAdvice_fullListingKeepsNullFields_fieldsetWritesOnlyItsFields() throws Exception {
+        ObjectMapper mapper = new ObjectMapper()
+                .addMixIn(ViewAllProductsResponse.class, ProductFieldsResponseAdvice.FilteredFields.class)
+                .setFilterProvider(ProductFieldsResponseAdvice.ALL_FIELDS);
+        ViewAllProductsResponse response = new ViewAllProductsResponse("id-1", "Book", null, 10.0, "BOOKS");
+
+        assertThat(mapper.writeValueAsString(response)).contains("\"description\":null");
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("fields", "name");
+        MethodParameter returnType = new MethodParameter(ProductController.class.getMethod(
+                "getAllProducts", String.class, ProductView.class, Pageable.class), -1);
+        MappingJacksonValue body = (MappingJacksonValue) new ProductFieldsResponseAdvice().beforeBodyWrite(response,
+                returnType, MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(request), new ServletServerHttpResponse(new MockHttpServletResponse()));
+
+        assertThat(mapper.writer(body.getFilters()).writeValueAsString(body.getValue()))
+                .isEqualTo("{\"id\":\"id-1\",\"name\":\"Book\"}");
+    }
+}
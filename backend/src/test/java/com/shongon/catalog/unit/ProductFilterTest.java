@@ -0,0 +1,62 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductFilterTest {
+
+    @Test
+    void of_nothing_isNone() {
+        ProductFilter filter = ProductFilter.of(" , ", null, null);
+
+        assertThat(filter).isSameAs(ProductFilter.NONE);
+        assertThat(filter.isEmpty()).isTrue();
+        assertThat(filter.toCriteria().getCriteriaObject()).isEmpty();
+    }
+
+    @Test
+    void of_singleCategory_equalityWithHistoricalCacheKey() {
+        ProductFilter filter = ProductFilter.of("BOOKS", null, null);
+
+        assertThat(filter.toCriteria().getCriteriaObject()).isEqualTo(Document.parse("{category: 'BOOKS'}"));
+        assertThat(filter.cacheKey()).isEqualTo("BOOKS");
+    }
+
+    @Test
+    void of_categoriesAndPriceRange_inThenRange() {
+        ProductFilter filter = ProductFilter.of("HOME, BOOKS,HOME", 10.0, 50.0);
+
+        Query query = new Query().addCriteria(filter.toCriteria());
+
+        assertThat(query.getQueryObject()).isEqualTo(
+                Document.parse("{category: {$in: ['BOOKS', 'HOME']}, price: {$gte: 10.0, $lte: 50.0}}"));
+        // order and duplicates of the request do not matter
+        assertThat(filter).isEqualTo(ProductFilter.of("BOOKS,HOME", 10.0, 50.0));
+        assertThat(filter.cacheKey()).isEqualTo("BOOKS,HOME:price=10.0-50.0");
+    }
+
+    @Test
+    void of_openPriceRange_onlyTheGivenBound() {
+        ProductFilter filter = ProductFilter.of(null, null, 20.0);
+
+        assertThat(filter.toCriteria().getCriteriaObject()).isEqualTo(Document.parse("{price: {$lte: 20.0}}"));
+        assertThat(filter.cacheKey()).isEqualTo("price=-20.0");
+    }
+
+    @Test
+    void of_invalidPriceRange_throwsInvalidFilter() {
+        ProductCatalogException inverted = assertThrows(ProductCatalogException.class,
+                () -> ProductFilter.of("BOOKS", 50.0, 10.0));
+        assertEquals(ErrorCode.INVALID_FILTER, inverted.getErrorCode());
+
+        assertThrows(ProductCatalogException.class, () -> ProductFilter.of(null, -1.0, null));
+    }
+}
@@ -0,0 +1,140 @@
+package com.shongon.catalog.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shongon.catalog.dto.response.BulkItemResult;
+import com.shongon.catalog.dto.response.ImportStatusResponse;
+import com.shongon.catalog.enums.ImportState;
+import com.shongon.catalog.exception.ProductCatalogException;
+import com.shongon.catalog.service.IProductBulkService;
+import com.shongon.catalog.service.impl.ProductImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImporterTest {
+
+    @Mock
+    private IProductBulkService bulkService;
+
+    @TempDir
+    private Path directory;
+
+    private ProductImporter importer;
+
+    private final List<String> written = new CopyOnWriteArrayList<>(); // names handed to the write stage, in order
+    private volatile String failAt;
+
+    @BeforeEach
+    void setUp() {
+        importer = new ProductImporter(bulkService, new ObjectMapper(), directory.toString(), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+    }
+
+    // Helper methods
+    private Path writeFile(int products) throws IOException {
+        String json = IntStream.range(0, products)
+                .mapToObj(i -> String.format("  {\"name\": \"P%02d\", \"price\": %d, \"category\": \"FOOD\"}", i, i + 1))
+                .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+        return Files.writeString(directory.resolve("products.json"), json);
+    }
+
+    // Batches starting at failAt throw, as if MongoDB went away
+    private void stubWrites() {
+        when(bulkService.createBatch(anyInt(), anyList())).thenAnswer(invocation -> {
+            int offset = invocation.getArgument(0);
+            List<JsonNode> elements = invocation.getArgument(1);
+            if (!elements.isEmpty() && elements.get(0).get("name").asText().equals(failAt)) {
+                throw new IllegalStateException("MongoDB unavailable");
+            }
+            elements.forEach(element -> written.add(element.get("name").asText()));
+            return IntStream.range(0, elements.size())
+                    .mapToObj(i -> BulkItemResult.succeeded(offset + i, 201, "id"))
+                    .toList();
+        });
+    }
+
+    @Test
+    void run_wholeFile_batchedInOrderAndCheckpointRemoved() throws IOException {
+        Path file = writeFile(10);
+        stubWrites();
+
+        ImportStatusResponse status = importer.run(file, false);
+
+        assertThat(status.getState()).isEqualTo(ImportState.COMPLETED);
+        assertThat(status.getElementsRead()).isEqualTo(10);
+        assertThat(status.getCreated()).isEqualTo(10);
+        assertThat(status.getBytesRead()).isEqualTo(Files.size(file));
+        assertThat(written).containsExactlyElementsOf(IntStream.range(0, 10).mapToObj(i -> String.format("P%02d", i)).toList());
+        assertThat(directory.resolve("products.json.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void run_failedBatch_resumesFromCheckpointOfLastWrittenBatch() throws IOException {
+        Path file = writeFile(10);
+        stubWrites();
+        failAt = "P04"; // second batch
+
+        ImportStatusResponse failed = importer.run(file, false);
+
+        assertThat(failed.getState()).isEqualTo(ImportState.FAILED);
+        assertThat(failed.getMessage()).isEqualTo("MongoDB unavailable");
+        assertThat(written).containsExactly("P00", "P01", "P02", "P03");
+        assertThat(directory.resolve("products.json.checkpoint")).exists();
+
+        // Resumed: seeks to the first element of the failed batch, indexes continue from there
+        written.clear();
+        failAt = null;
+        ImportStatusResponse resumed = importer.run(file, true);
+
+        assertThat(resumed.getState()).isEqualTo(ImportState.COMPLETED);
+        assertThat(resumed.getResumedFrom()).isEqualTo(4);
+        assertThat(written).containsExactly("P04", "P05", "P06", "P07", "P08", "P09");
+        assertThat(directory.resolve("products.json.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void start_fileOutsideImportDirectory_rejected() throws IOException {
+        writeFile(1);
+
+        assertThrows(ProductCatalogException.class, () -> importer.start("../products.json", false));
+        assertThrows(ProductCatalogException.class, () -> importer.start("missing.json", false));
+        assertThat(importer.status()).isNull();
+    }
+
+    @Test
+    void run_malformedJson_failsAfterWritingWhatWasRead() throws IOException {
+        Path file = Files.writeString(directory.resolve("broken.json"),
+                "[{\"name\": \"P00\"}, {\"name\": \"P01\"}, {\"name\": \"P02\"}, {\"name\": \"P03\"}, {\"name\": ");
+        stubWrites();
+
+        ImportStatusResponse status = importer.run(file, false);
+
+        assertThat(status.getState()).isEqualTo(ImportState.FAILED);
+        assertThat(status.getMessage()).startsWith("Malformed JSON");
+        assertThat(written).containsExactly("P00", "P01", "P02", "P03");
+    }
+}
@@ -0,0 +1,262 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.repository.ProductIndexManager;
+import com.shongon.catalog.repository.ProductIndexManager.IndexReport;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductIndexManagerTest {
+
+    private static final List<String> DECLARED = List.of(
+            "name", "category_price_id", "category_price_name", "category_price_name_desc", "category_name_price",
+            "category_id_price", "price_id", "price_name", "price_name_desc");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOps;
+
+    private ProductIndexManager indexManager;
+
+    @BeforeEach
+    void setUp() {
+        indexManager = new ProductIndexManager(mongoTemplate, true, Duration.ofDays(7), false);
+        when(mongoTemplate.indexOps("products")).thenReturn(indexOps);
+        lenient().when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+    }
+
+    @Test
+    void reconcile_emptyCollection_buildsEveryDeclaredIndex() {
+        when(indexOps.getIndexInfo()).thenReturn(List.of(index("_id_", "{_id: 1}", false)));
+
+        IndexReport report = indexManager.reconcile();
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps, times(DECLARED.size())).createIndex(created.capture());
+        assertThat(created.getAllValues())
+                .extracting(definition -> definition.getIndexOptions().getString("name"))
+                .containsExactlyElementsOf(DECLARED);
+        assertThat(created.getAllValues().get(0).getIndexOptions().getBoolean("unique")).isTrue();
+        assertThat(report.missing()).containsExactlyElementsOf(DECLARED);
+        assertThat(report.built()).containsExactlyElementsOf(DECLARED);
+        assertThat(report.hasDrift()).isTrue();
+        assertThat(indexManager.getLastReport()).isEqualTo(report);
+    }
+
+    @Test
+    void reconcile_allPresent_buildsNothing() {
+        when(indexOps.getIndexInfo()).thenReturn(declaredIndexes());
+
+        IndexReport report = indexManager.reconcile();
+
+        verify(indexOps, never()).createIndex(any());
+        assertThat(report.hasDrift()).isFalse();
+        assertThat(report.undeclared()).isEmpty();
+    }
+
+    @Test
+    void reconcile_reportsConflictingAndUndeclaredWithoutDropping() {
+        List<IndexInfo> existing = new ArrayList<>(declaredIndexes());
+        existing.removeIf(info -> info.getName().equals("name"));
+        existing.add(index("name", "{name: 1}", false)); // declared unique
+        existing.add(index("description_1", "{description: 1}", false));
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        IndexReport report = indexManager.reconcile();
+
+        verify(indexOps, never()).createIndex(any());
+        verify(indexOps, never()).dropIndex(any());
+        assertThat(report.conflicting()).containsExactly("name");
+        assertThat(report.undeclared()).containsExactly("description_1");
+        assertThat(report.missing()).isEmpty();
+    }
+
+    @Test
+    void reconcile_sameKeysUnderAnotherName_isNotRebuilt() {
+        List<IndexInfo> existing = new ArrayList<>(declaredIndexes());
+        existing.removeIf(info -> info.getName().equals("price_id"));
+        existing.add(index("price_1__id_1", "{price: 1, _id: 1}", false));
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        IndexReport report = indexManager.reconcile();
+
+        verify(indexOps, never()).createIndex(any());
+        assertThat(report.hasDrift()).isFalse();
+    }
+
+    @Test
+    void reconcile_buildFailure_keepsGoing() {
+        when(indexOps.getIndexInfo()).thenReturn(List.of(index("_id_", "{_id: 1}", false)));
+        when(indexOps.createIndex(any()))
+                .thenThrow(new DataAccessResourceFailureException("E11000 duplicate key"))
+                .thenReturn("ok");
+
+        IndexReport report = indexManager.reconcile();
+
+        verify(indexOps, times(DECLARED.size())).createIndex(any());
+        assertThat(report.built()).containsExactlyElementsOf(DECLARED.subList(1, DECLARED.size()));
+    }
+
+    @Test
+    void reconcile_warnsAboutIndexesUnusedLongEnough() {
+        when(indexOps.getIndexInfo()).thenReturn(declaredIndexes());
+        Date longAgo = Date.from(Instant.now().minus(Duration.ofDays(30)));
+        Date recently = Date.from(Instant.now().minus(Duration.ofHours(1)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        indexStats("_id_", 0, longAgo),
+                        indexStats("price_name", 0, longAgo),     // unused for 30 days
+                        indexStats("price_id", 0, recently),      // counters reset an hour ago -> unknown yet
+                        indexStats("category_id_price", 42, longAgo)    // in use
+                ), new Document()));
+
+        IndexReport report = indexManager.reconcile();
+
+        assertThat(report.unused()).containsExactly("price_name");
+    }
+
+    @Test
+    void reconcile_indexStatsNotPermitted_stillReports() {
+        when(indexOps.getIndexInfo()).thenReturn(declaredIndexes());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenThrow(new UncategorizedMongoDbException("not authorized", null));
+
+        IndexReport report = indexManager.reconcile();
+
+        assertThat(report.unused()).isEmpty();
+        assertThat(report.hasDrift()).isFalse();
+    }
+
+    @Test
+    void reconcile_caseInsensitiveNames_buildsCollatedIndexThenMatchesServerDefaults() {
+        indexManager = new ProductIndexManager(mongoTemplate, true, Duration.ofDays(7), true);
+        when(indexOps.getIndexInfo()).thenReturn(declaredIndexes());
+
+        indexManager.reconcile();
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps).createIndex(created.capture());
+        Document options = created.getValue().getIndexOptions();
+        assertThat(options.getString("name")).isEqualTo("name_ci");
+        assertThat(options.getBoolean("unique")).isTrue();
+        assertThat(options.get("collation", Document.class)).isEqualTo(new Document("locale", "en").append("strength", 2));
+
+        // listIndexes answers with every collation option spelled out
+        List<IndexInfo> existing = new ArrayList<>(declaredIndexes());
+        existing.add(IndexInfo.indexInfoOf(new Document("name", "name_ci").append("key", new Document("name", 1))
+                .append("unique", true)
+                .append("collation", new Document("locale", "en").append("caseLevel", false).append("caseFirst", "off")
+                        .append("strength", 2).append("numericOrdering", false).append("version", "57.1"))));
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        IndexReport report = indexManager.reconcile();
+
+        verifyNoMoreInteractions(indexOps);
+        assertThat(report.hasDrift()).isFalse();
+    }
+
+    @Test
+    void ensureUniqueNames_missing_buildsOnlyTheUniqueOnes() {
+        indexManager = new ProductIndexManager(mongoTemplate, false, Duration.ofDays(7), true);
+        when(indexOps.getIndexInfo()).thenReturn(List.of(index("_id_", "{_id: 1}", false)));
+
+        indexManager.ensureUniqueNames();
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps, times(2)).createIndex(created.capture());
+        assertThat(created.getAllValues())
+                .extracting(definition -> definition.getIndexOptions().getString("name"))
+                .containsExactly("name", "name_ci");
+    }
+
+    @Test
+    void ensureUniqueNames_present_buildsNothing() {
+        when(indexOps.getIndexInfo()).thenReturn(declaredIndexes());
+
+        indexManager.ensureUniqueNames();
+
+        verify(indexOps, never()).createIndex(any());
+    }
+
+    @Test
+    void ensureUniqueNames_buildFailure_failsStartup() {
+        when(indexOps.getIndexInfo()).thenReturn(List.of(index("_id_", "{_id: 1}", false)));
+        when(indexOps.createIndex(any())).thenThrow(new DataAccessResourceFailureException("E11000 duplicate key"));
+
+        assertThatThrownBy(() -> indexManager.ensureUniqueNames())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("'name'");
+    }
+
+    @Test
+    void ensureUniqueNames_nonUniqueNameIndex_failsStartupWithoutDropping() {
+        List<IndexInfo> existing = new ArrayList<>(declaredIndexes());
+        existing.removeIf(info -> info.getName().equals("name"));
+        existing.add(index("name", "{name: 1}", false));
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        assertThatThrownBy(() -> indexManager.ensureUniqueNames())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("differs from its declaration");
+        verify(indexOps, never()).createIndex(any());
+        verify(indexOps, never()).dropIndex(any());
+    }
+
+    // HELPER METHODS
+    private static List<IndexInfo> declaredIndexes() {
+        return List.of(
+                index("_id_", "{_id: 1}", false),
+                index("name", "{name: 1}", true),
+                index("category_price_id", "{category: 1, price: 1, _id: 1}", false),
+                index("category_price_name", "{category: 1, price: 1, name: 1}", false),
+                index("category_price_name_desc", "{category: 1, price: 1, name: -1}", false),
+                index("category_name_price", "{category: 1, name: 1, price: 1}", false),
+                index("category_id_price", "{category: 1, _id: 1, price: 1}", false),
+                index("price_id", "{price: 1, _id: 1}", false),
+                // listIndexes may report key directions as doubles
+                IndexInfo.indexInfoOf(new Document("name", "price_name")
+                        .append("key", new Document("price", 1.0).append("name", 1.0))),
+                index("price_name_desc", "{price: 1, name: -1}", false)
+        );
+    }
+
+    private static IndexInfo index(String name, String keys, boolean unique) {
+        Document document = new Document("name", name).append("key", Document.parse(keys));
+        if (unique) {
+            document.append("unique", true);
+        }
+        return IndexInfo.indexInfoOf(document);
+    }
+
+    private static Document indexStats(String name, long ops, Date since) {
+        return new Document("name", name).append("accesses", new Document("ops", ops).append("since", since));
+    }
+}
@@ -1,30 +1,45 @@
 package com.shongon.catalog.unit;
 
 import com.shongon.catalog.dto.request.CreateProductRequest;
+import com.shongon.catalog.dto.request.ProductFields;
 import com.shongon.catalog.dto.request.UpdateProductRequest;
 import com.shongon.catalog.dto.response.CreateProductResponse;
 import com.shongon.catalog.dto.response.GetProductResponse;
 import com.shongon.catalog.dto.response.UpdateProductResponse;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.event.*;
+import com.shongon.catalog.exception.ErrorCode;
 import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.mapper.ProductMapper;
 import com.shongon.catalog.model.Product;
 import com.shongon.catalog.repository.ProductRepository;
+import com.shongon.catalog.service.impl.PriceWriteBehindBuffer;
 import com.shongon.catalog.service.impl.ProductServiceImpl;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
@@ -43,14 +58,29 @@ public class ProductServiceImplTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private ProductEventBus productEventBus;
+
+    @Mock
+    private PriceWriteBehindBuffer priceWriteBehindBuffer;
+
+    private static final Duration MAX_TIME = Duration.ofSeconds(2);
     private final String VALID_ID = "68ad8b8f1f76bd5e1eb753cd";
     private final String INVALID_ID = "123";
     private Product product;
     private CreateProductRequest createRequest;
     private UpdateProductRequest updateRequest;
+    private final List<ProductEvent> published = new ArrayList<>();
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(productService, "maxTime", MAX_TIME);
+        // The bus runs the write and keeps its event; delivery to the subscribers is ProductEventBusTest's
+        lenient().when(productEventBus.publish(any())).thenAnswer(invocation -> {
+            ProductEvent event = ((Supplier<ProductEvent>) invocation.getArgument(0)).get();
+            published.add(event);
+            return event;
+        });
         product = Product.builder()
                 .id(new ObjectId(VALID_ID))
                 .name("Test Food Product")
@@ -89,13 +119,29 @@ public class ProductServiceImplTest {
         Page<Product> productPage = new PageImpl<>(List.of(product));
         ViewAllProductsResponse response = new ViewAllProductsResponse();
 
-        when(productRepository.findAll(pageable)).thenReturn(productPage);
+        when(productRepository.findAll(pageable, ProductFields.ALL, MAX_TIME)).thenReturn(productPage);
         when(productMapper.toViewAllProductsResponse(any())).thenReturn(response);
 
-        Page<ViewAllProductsResponse> result = productService.viewAllProducts(pageable);
+        Page<ViewAllProductsResponse> result = productService.viewAllProducts(pageable, ProductFields.ALL);
 
         assertThat(result).isNotNull();
-        verify(productRepository).findAll(pageable);
+        verify(productRepository).findAll(pageable, ProductFields.ALL, MAX_TIME);
+    }
+
+    @Test
+    void viewAllProductsSlice_shouldReturnSliceWithoutCount() {
+        Pageable pageable = PageRequest.of(0, 10);
+        ViewAllProductsResponse response = new ViewAllProductsResponse();
+
+        when(productRepository.findAllSlice(pageable, ProductFields.SUMMARY, MAX_TIME))
+                .thenReturn(new SliceImpl<>(List.of(product), pageable, true));
+        when(productMapper.toViewAllProductsResponse(product)).thenReturn(response);
+
+        Slice<ViewAllProductsResponse> result = productService.viewAllProductsSlice(pageable, ProductFields.SUMMARY);
+
+        assertThat(result.getContent()).containsExactly(response);
+        assertThat(result.hasNext()).isTrue();
+        verify(productRepository, never()).findAll(any(Pageable.class), any(ProductFields.class), any(Duration.class));
     }
 
     // GET PRODUCT BY ID TESTS
@@ -131,90 +177,146 @@ public class ProductServiceImplTest {
     // CREATE PRODUCT TESTS
     @Test
     void createProduct_shouldReturnProduct() {
-        when(productRepository.existsByName(anyString())).thenReturn(false);
         when(productMapper.createProduct(createRequest)).thenReturn(product);
-        when(productRepository.save(any(Product.class))).thenReturn(product);
+        when(productRepository.insert(product)).thenReturn(product);
         when(productMapper.toCreateProductResponse(product)).thenReturn(new CreateProductResponse());
 
         CreateProductResponse result = productService.createProduct(createRequest);
 
         assertThat(result).isNotNull();
-        verify(productRepository).save(any(Product.class));
+        // a single insert, no name pre-check
+        verify(productRepository).insert(product);
+        verifyNoMoreInteractions(productRepository);
+        assertThat(published).singleElement().isInstanceOfSatisfying(ProductCreated.class,
+                event -> assertThat(event.after()).isSameAs(product));
     }
 
     @Test
     void createProduct_whenNameExists_shouldThrowException() {
-        when(productRepository.existsByName(anyString())).thenReturn(true);
+        when(productMapper.createProduct(createRequest)).thenReturn(product);
+        when(productRepository.insert(product))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error collection: products index: name"));
 
-        assertThrows(ProductCatalogException.class,
+        // mapped to 409 PRODUCT_ALREADY_EXISTS by GlobalExceptionHandler
+        assertThrows(DuplicateKeyException.class,
                 () -> productService.createProduct(createRequest));
-        verify(productRepository, never()).save(any(Product.class));
+        assertThat(published).isEmpty();
     }
 
     // UPDATE PRODUCT TESTS
     @Test
     void updateProduct_shouldReturnProduct() {
-        when(productRepository.findById(any(ObjectId.class))).thenReturn(Optional.of(product));
-        when(productRepository.existsByName(anyString())).thenReturn(false);
-        when(productRepository.save(any(Product.class))).thenReturn(product);
-        when(productMapper.toUpdateProductResponse(product)).thenReturn(new UpdateProductResponse());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        when(productRepository.findAndUpdate(eq(new ObjectId(VALID_ID)), update.capture())).thenReturn(Optional.of(product));
+        when(productMapper.toUpdateProductResponse(any(Product.class))).thenReturn(new UpdateProductResponse());
 
         UpdateProductResponse result = productService.updateProduct(VALID_ID, updateRequest);
 
         assertThat(result).isNotNull();
-        verify(productMapper).updateProduct(any(Product.class), eq(updateRequest));
-        verify(productRepository).save(any(Product.class));
+        // one partial $set, no read before it
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$set", new Document("name", "New Food Product")
+                .append("description", "New Food Description").append("price", 1000.0).append("category", "FOOD")));
+        verify(productRepository, never()).findById(any(ObjectId.class));
+        verify(productRepository, never()).existsByName(anyString());
+        verify(productRepository, never()).save(any(Product.class));
+        // before: as returned by findAndModify; after: the update applied to it
+        assertThat(published).singleElement().isInstanceOfSatisfying(ProductUpdated.class, event -> {
+            assertThat(event.before()).isSameAs(product);
+            assertThat(event.after().getName()).isEqualTo("New Food Product");
+            assertThat(event.after().getId()).isEqualTo(product.getId());
+        });
+        verify(productMapper).toUpdateProductResponse(published.get(0).after());
     }
 
     @Test
     void updateProduct_whenNameExists_shouldThrowException() {
-        when(productRepository.findById(any(ObjectId.class))).thenReturn(Optional.of(product));
-        when(productRepository.existsByName(anyString())).thenReturn(true);
+        when(productRepository.findAndUpdate(any(ObjectId.class), any(Update.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error collection: products index: name"));
 
-        assertThrows(ProductCatalogException.class,
+        // mapped to 409 PRODUCT_ALREADY_EXISTS by GlobalExceptionHandler
+        assertThrows(DuplicateKeyException.class,
                 () -> productService.updateProduct(VALID_ID, updateRequest));
-        verify(productRepository, never()).save(any(Product.class));
+        assertThat(published).isEmpty();
     }
 
     @Test
     void updateProduct_whenProductNotFound_shouldThrowException() {
-        when(productRepository.findById(any(ObjectId.class))).thenReturn(Optional.empty());
+        when(productRepository.findAndUpdate(any(ObjectId.class), any(Update.class))).thenReturn(Optional.empty());
 
-        assertThrows(ProductCatalogException.class,
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
                 () -> productService.updateProduct(VALID_ID, updateRequest));
-        verify(productRepository, never()).save(any(Product.class));
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.PRODUCT_NOT_FOUND);
+        assertThat(published).isEmpty();
     }
 
     @Test
     void updateProduct_whenProductIdInvalid_shouldThrowException() {
         assertThrows(IllegalArgumentException.class,
                 () -> productService.updateProduct(INVALID_ID, updateRequest));
-        verify(productRepository, never()).findById(any(ObjectId.class));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void updatePrice_setsPriceOnlyAfterDroppingBufferedOne() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        when(productRepository.findAndUpdate(eq(new ObjectId(VALID_ID)), update.capture())).thenReturn(Optional.of(product));
+        when(productMapper.toUpdateProductResponse(any(Product.class))).thenReturn(new UpdateProductResponse());
+
+        assertThat(productService.updatePrice(VALID_ID, 12.5)).isPresent();
+
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$set", new Document("price", 12.5)));
+        InOrder order = inOrder(priceWriteBehindBuffer, productRepository);
+        order.verify(priceWriteBehindBuffer).discard(new ObjectId(VALID_ID));
+        order.verify(productRepository).findAndUpdate(any(ObjectId.class), any(Update.class));
+        assertThat(published).singleElement().satisfies(event -> {
+            assertThat(event.before().getPrice()).isEqualTo(10.0);
+            assertThat(event.after().getPrice()).isEqualTo(12.5);
+        });
+    }
+
+    @Test
+    void updatePrice_writeBehindEnabled_submittedToBufferOnly() {
+        when(priceWriteBehindBuffer.isEnabled()).thenReturn(true);
+        when(priceWriteBehindBuffer.submit(VALID_ID, 12.5)).thenReturn(false, true); // ACCEPTED, then FLUSHED
+        UpdateProductResponse written = new UpdateProductResponse("Update product successfully!");
+        when(productMapper.toUpdateProductResponse(any(Product.class))).thenReturn(written);
+
+        assertThat(productService.updatePrice(VALID_ID, 12.5)).isEmpty();
+        assertThat(productService.updatePrice(VALID_ID, 12.5)).containsSame(written); // same body as a direct write
+
+        verifyNoInteractions(productRepository);
+        verify(priceWriteBehindBuffer, never()).discard(any());
+        assertThat(published).isEmpty();
     }
 
     // DELETE PRODUCT TESTS
     @Test
     void deleteProduct_shouldDeleteProduct() {
-        when(productRepository.findById(any(ObjectId.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAndDelete(new ObjectId(VALID_ID))).thenReturn(Optional.of(product));
 
         productService.deleteProduct(VALID_ID);
 
-        verify(productRepository).delete(any(Product.class));
+        verify(productRepository, never()).findById(any(ObjectId.class));
+        assertThat(published).singleElement().isInstanceOfSatisfying(ProductDeleted.class, event -> {
+            assertThat(event.before()).isSameAs(product);
+            assertThat(event.productId()).isEqualTo(new ObjectId(VALID_ID));
+        });
     }
 
     @Test
     void deleteProduct_whenProductNotFound_shouldThrowException() {
-        when(productRepository.findById(any(ObjectId.class))).thenReturn(Optional.empty());
+        when(productRepository.findAndDelete(any(ObjectId.class))).thenReturn(Optional.empty());
 
-        assertThrows(ProductCatalogException.class,
+        ProductCatalogException exception = assertThrows(ProductCatalogException.class,
                 () -> productService.deleteProduct(VALID_ID));
-        verify(productRepository, never()).delete(any(Product.class));
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.PRODUCT_NOT_FOUND);
+        assertThat(published).isEmpty();
     }
 
     @Test
     void deleteProduct_whenProductIdInvalid_shouldThrowException() {
         assertThrows(IllegalArgumentException.class,
                 () -> productService.deleteProduct(INVALID_ID));
-        verify(productRepository, never()).findById(any(ObjectId.class));
+        verifyNoInteractions(productRepository);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductSortTest {
+
+    @Test
+    void of_missingFieldOrDirection_isUnsortedById() {
+        ProductSort sort = ProductSort.of(SortField.PRICE, null, " ");
+
+        assertThat(sort).isSameAs(ProductSort.UNSORTED);
+        assertThat(sort.isSorted()).isFalse();
+        assertThat(sort.toSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "_id"));
+        assertThat(sort.cacheKey()).isEqualTo("unsorted");
+    }
+
+    @Test
+    void of_singleNonUniqueKey_idTiebreakerInSameDirection() {
+        ProductSort sort = ProductSort.of(SortField.PRICE, Sort.Direction.DESC);
+
+        assertThat(sort.toSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "price", "_id"));
+        assertThat(sort.uniqueKey()).isEqualTo("_id");
+        assertThat(sort.cacheKey()).isEqualTo("PRICE:DESC");
+    }
+
+    @Test
+    void of_orderBy_winsOverFieldAndEndsAtUniqueName() {
+        ProductSort sort = ProductSort.of(SortField.NAME, Sort.Direction.ASC, "price:asc, NAME:DESC");
+
+        // name is unique -> already a total order, no _id appended
+        assertThat(sort.toSort()).isEqualTo(
+                Sort.by(Sort.Direction.ASC, "price").and(Sort.by(Sort.Direction.DESC, "name")));
+        assertThat(sort.uniqueKey()).isEqualTo("name");
+        assertThat(sort.cacheKey()).isEqualTo("PRICE:ASC,NAME:DESC");
+        // a key without direction is ascending
+        assertThat(ProductSort.of(null, null, "PRICE,NAME:DESC")).isEqualTo(sort);
+    }
+
+    @Test
+    void of_keysAfterName_areDropped() {
+        ProductSort sort = ProductSort.of(null, null, "NAME:DESC,PRICE:ASC");
+
+        assertThat(sort.toSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "name"));
+        assertThat(sort).isEqualTo(ProductSort.of(SortField.NAME, Sort.Direction.DESC));
+    }
+
+    @Test
+    void of_invalidOrderBy_throwsInvalidSort() {
+        ProductCatalogException unknownField = assertThrows(ProductCatalogException.class,
+                () -> ProductSort.of(null, null, "RATING:ASC"));
+        assertEquals(ErrorCode.INVALID_SORT, unknownField.getErrorCode());
+
+        assertThrows(ProductCatalogException.class, () -> ProductSort.of(null, null, "PRICE:UP"));
+        assertThrows(ProductCatalogException.class, () -> ProductSort.of(null, null, "PRICE:ASC,PRICE:DESC"));
+        assertThrows(ProductCatalogException.class, () -> ProductSort.of(null, null, "PRICE:ASC:NAME"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.impl.RelatedProductIndex;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RelatedProductIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private RelatedProductIndex index;
+
+    private Product iphone, iphoneCase, pixel, laptop, book, cheapPhone;
+
+    @BeforeEach
+    void setUp() {
+        index = new RelatedProductIndex(mongoTemplate, 2, 2.0, 2, false);
+
+        iphone = createProduct("Apple iPhone 15 Pro", "Smartphone with titanium frame", 999.0, "ELECTRONICS");
+        iphoneCase = createProduct("Apple iPhone 15 Pro Leather Case", "Leather case for smartphone", 599.0, "ELECTRONICS");
+        pixel = createProduct("Google Pixel 8", "Android smartphone with great camera", 799.0, "ELECTRONICS");
+        laptop = createProduct("Dell XPS 13", "Thin laptop", 1200.0, "ELECTRONICS");
+        book = createProduct("Apple iPhone 15 Pro Guide", "Book about the smartphone", 900.0, "BOOKS");
+        cheapPhone = createProduct("Apple iPhone 15 Pro Replica", "Smartphone", 100.0, "ELECTRONICS");
+
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenAnswer(invocation -> List.of(iphone, iphoneCase, pixel, laptop, book, cheapPhone).stream());
+        index.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    // Helper methods
+    private Product createProduct(String name, String description, double price, String category) {
+        return Product.builder()
+                .id(new ObjectId())
+                .name(name)
+                .description(description)
+                .price(price)
+                .category(category)
+                .build();
+    }
+
+    @Test
+    void testRebuild_TopKBySimilarityWithinCategoryAndPriceRange() {
+        assertThat(index.isReady()).isTrue();
+        // book: other category, cheapPhone: outside [999 / 2, 999 * 2], laptop: nothing in common
+        assertThat(index.getRelatedIds(iphone.getId())).containsExactly(iphoneCase.getId(), pixel.getId());
+        assertThat(index.getRelatedIds(book.getId())).isEmpty();
+        assertThat(index.getRelatedIds(new ObjectId())).isNull();
+    }
+
+    @Test
+    void testOnProductSaved_NewProductEntersNeighborLists() {
+        Product iphonePlus = createProduct("Apple iPhone 15 Pro Max", "Smartphone with titanium frame", 1099.0, "ELECTRONICS");
+
+        index.onProductSaved(iphonePlus);
+
+        assertThat(index.getRelatedIds(iphonePlus.getId())).startsWith(iphone.getId());
+        assertThat(index.getRelatedIds(iphone.getId())).startsWith(iphonePlus.getId()).hasSize(2);
+    }
+
+    @Test
+    void testOnProductSaved_UpdateMovesProductOutOfNeighborhood() {
+        iphoneCase.setCategory("ACCESSORIES");
+
+        index.onProductSaved(iphoneCase);
+
+        assertThat(index.getRelatedIds(iphone.getId())).containsExactly(pixel.getId());
+        assertThat(index.getRelatedIds(iphoneCase.getId())).isEmpty();
+    }
+
+    @Test
+    void testOnProductDeleted_ListsAreRefilled() {
+        index.onProductDeleted(pixel.getId());
+
+        assertThat(index.getRelatedIds(pixel.getId())).isNull();
+        assertThat(index.getRelatedIds(iphone.getId())).containsExactly(iphoneCase.getId());
+        assertThat(index.getRelatedIds(iphoneCase.getId())).doesNotContain(pixel.getId());
+    }
+
+    @Test
+    void testRebuild_OldIndexServesAndWritesDuringBuildAreReplayed() {
+        Product iphonePlus = createProduct("Apple iPhone 15 Pro Max", "Smartphone with titanium frame", 1099.0, "ELECTRONICS");
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            // Written while the collection is read: no lock to wait for, the previous index still answers
+            index.onProductSaved(iphonePlus);
+            index.onProductDeleted(pixel.getId());
+            assertThat(index.getRelatedIds(iphone.getId())).containsExactly(iphoneCase.getId(), pixel.getId());
+            return List.of(iphone, iphoneCase, pixel, laptop).stream();
+        });
+
+        index.rebuild();
+
+        assertThat(index.getRelatedIds(pixel.getId())).isNull();
+        assertThat(index.getRelatedIds(iphone.getId())).containsExactly(iphonePlus.getId(), iphoneCase.getId());
+        assertThat(index.getRelatedIds(book.getId())).isNull(); // gone from the collection
+    }
+
+    @Test
+    void testWritesDuringQueuedRebuilds_SingleWorkerPool_NoDeadlock() {
+        RelatedProductIndex singleWorker = new RelatedProductIndex(mongoTemplate, 2, 2.0, 1, false);
+        singleWorker.rebuild();
+        Product iphonePlus = createProduct("Apple iPhone 15 Pro Max", "Smartphone with titanium frame", 1099.0, "ELECTRONICS");
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                ExecutorService writers = Executors.newFixedThreadPool(2);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    singleWorker.refresh(); // rebuilds queued behind the writes, on their own thread
+                    futures.add(writers.submit(() -> singleWorker.onProductSaved(iphonePlus)));
+                    futures.add(writers.submit(() -> singleWorker.onProductDeleted(laptop.getId())));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                writers.shutdown();
+            });
+        } finally {
+            singleWorker.shutdown();
+        }
+        assertThat(singleWorker.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,105 @@
+package com.shongon.catalog.unit;
+
+import com.shongon.catalog.dto.cache.SearchCandidate;
+import com.shongon.catalog.dto.response.SearchCacheStatsResponse;
+import com.shongon.catalog.service.impl.SearchCandidateCache;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCandidateCacheTest {
+
+    private final SearchCandidate iphone = new SearchCandidate(new ObjectId(), "Apple iPhone 15", 999.0);
+    private final SearchCandidate ipad = new SearchCandidate(new ObjectId(), "Apple iPad Air", 599.0);
+
+    @Test
+    void testGet_HitAfterPut() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMinutes(1));
+        cache.put("ip", List.of(iphone, ipad));
+
+        assertThat(cache.get("ip")).containsExactly(iphone, ipad);
+        assertThat(cache.get("other")).isNull();
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefine_FiltersLongestCachedPrefix() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMinutes(1));
+        cache.put("i", List.of(iphone, ipad));
+        cache.put("ip", List.of(iphone, ipad));
+
+        List<SearchCandidate> refined = cache.refine("iph", c -> c.getName().toLowerCase().contains("iph"));
+
+        assertThat(refined).containsExactly(iphone);
+        // refined set is cached under the new keyword -> "iph" is now an exact hit
+        assertThat(cache.get("iph")).containsExactly(iphone);
+        assertThat(cache.stats().getRefinements()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefine_NoCachedPrefix() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMinutes(1));
+        cache.put("mac", List.of(iphone));
+
+        assertThat(cache.refine("iph", c -> true)).isNull();
+    }
+
+    @Test
+    void testPutOverflow_KnownBroadKeywordNeverRefined() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMinutes(1));
+        cache.put("a", List.of(iphone, ipad));
+        cache.putOverflow("ap");
+
+        assertThat(cache.get("ap")).isNull();
+        assertThat(cache.overflows("ap")).isTrue();
+        assertThat(cache.overflows("a")).isFalse();
+        // "app" may match few products, but its longest cached prefix cannot tell -> MongoDB decides
+        assertThat(cache.refine("app", c -> true)).isNull();
+        assertThat(cache.stats().getOverflows()).isEqualTo(1);
+        assertThat(cache.stats().getHits()).isZero();
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        SearchCandidateCache cache = new SearchCandidateCache(2, Duration.ofMinutes(1));
+        cache.put("a", List.of(iphone));
+        cache.put("b", List.of(ipad));
+        cache.get("a"); // "b" becomes least recently used
+        cache.put("c", List.of());
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.stats().getEntries()).isEqualTo(2);
+    }
+
+    @Test
+    void testGet_ExpiredEntry() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMillis(-1));
+        cache.put("ip", List.of(iphone));
+
+        assertThat(cache.get("ip")).isNull();
+        assertThat(cache.refine("iph", c -> true)).isNull();
+    }
+
+    @Test
+    void testStats_Rates() {
+        SearchCandidateCache cache = new SearchCandidateCache(10, Duration.ofMinutes(1));
+        cache.recordMiss();
+        cache.put("ip", List.of(iphone));
+        cache.refine("iph", c -> true);
+        cache.get("iph");
+        cache.get("iph");
+
+        SearchCacheStatsResponse stats = cache.stats();
+        assertThat(stats.getLookups()).isEqualTo(4);
+        assertThat(stats.getHitRate()).isEqualTo(0.5);
+        assertThat(stats.getRefinementRate()).isEqualTo(0.25);
+
+        cache.clear();
+        assertThat(cache.stats().getEntries()).isZero();
+    }
+}
@@ -1,12 +1,19 @@
 package com.shongon.catalog.unit;
 
+import com.shongon.catalog.dto.cache.SearchCandidate;
+import com.shongon.catalog.dto.request.ProductFields;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.SearchSortField;
 import com.shongon.catalog.mapper.ProductMapper;
 import com.shongon.catalog.model.Product;
 import com.shongon.catalog.repository.ProductRepository;
+import com.shongon.catalog.service.impl.SearchCandidateCache;
 import com.shongon.catalog.service.impl.SearchServiceImpl;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -14,11 +21,23 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,40 +51,61 @@ public class SearchProductImplTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SearchCandidateCache candidateCache;
+
+    private static final Duration MAX_TIME = Duration.ofSeconds(2);
+
+    @BeforeEach
+    void setup() {
+        // inject private field maxCandidates
+        ReflectionTestUtils.setField(searchService, "maxCandidates", 100);
+        ReflectionTestUtils.setField(searchService, "maxTime", MAX_TIME);
+        // Mockito trả về List rỗng theo mặc định -> cache rỗng phải trả về null (miss)
+        lenient().when(candidateCache.get(anyString())).thenReturn(null);
+        lenient().when(candidateCache.refine(anyString(), any())).thenReturn(null);
+    }
+
+    // Helper methods
+    private Product createProduct(String name, double price) {
+        return Product.builder().id(new ObjectId()).name(name).price(price).build();
+    }
+
+    private ViewAllProductsResponse toResponse(Product product) {
+        ViewAllProductsResponse response = new ViewAllProductsResponse();
+        response.setName(product.getName());
+        response.setPrice(product.getPrice());
+        return response;
+    }
+
     @Test
     void whenSearchWithKeyword_thenReturnsMatchingProducts() {
         // Arrange (Given) - Chuẩn bị dữ liệu và định nghĩa hành vi của mock
         String keyword = "Laptop";
-        int page = 0;
-        int size = 10;
-        Pageable pageable = PageRequest.of(page, size);
-
-        // Tạo dữ liệu giả
-        Product product = new Product(); // Giả sử Product có constructor rỗng hoặc dùng builder
-        product.setName("Laptop Gaming");
+        Product product = createProduct("Laptop Gaming", 1000.0);
+        ViewAllProductsResponse responseDto = toResponse(product);
 
-        ViewAllProductsResponse responseDto = new ViewAllProductsResponse(); // Tương tự cho DTO
-
-        Page<Product> productPage = new PageImpl<>(List.of(product), pageable, 1);
-
-        // Định nghĩa hành vi cho mock:
-        // 1. Khi repository.searchProducts được gọi với keyword và pageable này...
-        when(productRepository.searchProducts(keyword, pageable)).thenReturn(productPage);
-        // 2. Khi mapper.toViewAllProductsResponse được gọi với product này...
+        // Cache miss -> 1 query lấy candidates (_id, name, price), 1 query lấy document của trang
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(product));
         when(productMapper.toViewAllProductsResponse(product)).thenReturn(responseDto);
 
         // Act (When) - Gọi phương thức cần test
-        Page<ViewAllProductsResponse> result = searchService.searchProducts(keyword, page, size, null, null);
+        Page<ViewAllProductsResponse> result = searchService.searchProducts(keyword, 0, 10, null, null, ProductFields.ALL);
 
         // Assert (Then) - Kiểm tra kết quả
         assertNotNull(result);
         assertEquals(1, result.getTotalElements()); // Kiểm tra số lượng phần tử
         assertEquals(responseDto, result.getContent().get(0)); // Kiểm tra nội dung
 
-        // Verify: Xác minh rằng các phương thức mock đã được gọi đúng
-        verify(productRepository).searchProducts(keyword, pageable); // Đảm bảo searchProducts được gọi
-        verify(productRepository, never()).findAll(any(Pageable.class)); // Đảm bảo findAll không bao giờ được gọi
-        verify(productMapper).toViewAllProductsResponse(product); // Đảm bảo mapper được gọi
+        // Verify: candidates được cache theo keyword đã chuẩn hoá, không cần count query
+        verify(candidateCache).recordMiss();
+        verify(candidateCache).put(eq("laptop"), any());
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(Product.class));
+        verify(productRepository, never()).searchProducts(anyString(), any(Pageable.class), any(ProductFields.class), any(Duration.class));
+        verify(productRepository, never()).searchProducts(any(), any(Pageable.class), any(ProductFields.class), any(Duration.class)); // Đảm bảo fallback không bao giờ được gọi
     }
 
     @Test
@@ -82,19 +122,20 @@ public class SearchProductImplTest {
         Page<Product> productPage = new PageImpl<>(List.of(product), pageable, 1);
 
         // Định nghĩa hành vi cho mock repository khi keyword là null
-        when(productRepository.findAll(pageable)).thenReturn(productPage);
+        when(productRepository.searchProducts(null, pageable, ProductFields.ALL, MAX_TIME)).thenReturn(productPage);
         when(productMapper.toViewAllProductsResponse(any(Product.class))).thenReturn(responseDto);
 
         // Act (When)
-        Page<ViewAllProductsResponse> result = searchService.searchProducts(null, page, size, null, null);
+        Page<ViewAllProductsResponse> result = searchService.searchProducts(null, page, size, null, null, ProductFields.ALL);
 
         // Assert (Then)
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
 
         // Verify: Quan trọng nhất là xác minh phương thức nào được gọi
-        verify(productRepository).findAll(pageable); // Đảm bảo findAll được gọi
-        verify(productRepository, never()).searchProducts(anyString(), any(Pageable.class)); // Đảm bảo searchProducts không bao giờ được gọi
+        verify(productRepository).searchProducts(null, pageable, ProductFields.ALL, MAX_TIME); // Không có keyword -> match tất cả, vẫn có time budget
+        verify(productRepository, never()).searchProducts(anyString(), any(Pageable.class), any(ProductFields.class), any(Duration.class)); // Đảm bảo không có regex nào được gửi
+        verifyNoInteractions(candidateCache);
     }
 
     @Test
@@ -109,14 +150,154 @@ public class SearchProductImplTest {
         Page<Product> productPage = new PageImpl<>(List.of(product), pageable, 1);
 
         // Logic tương tự như trường hợp keyword là null
-        when(productRepository.findAll(pageable)).thenReturn(productPage);
+        when(productRepository.searchProducts(null, pageable, ProductFields.ALL, MAX_TIME)).thenReturn(productPage);
         // Không cần mock mapper nữa nếu chỉ muốn verify luồng gọi repository
 
         // Act (When)
-        searchService.searchProducts(blankKeyword, page, size, null, null);
+        searchService.searchProducts(blankKeyword, page, size, null, null, ProductFields.ALL);
 
         // Assert (Then) - Chỉ cần verify là đủ
-        verify(productRepository).findAll(pageable);
-        verify(productRepository, never()).searchProducts(anyString(), any(Pageable.class));
+        verify(productRepository).searchProducts(null, pageable, ProductFields.ALL, MAX_TIME);
+        verify(productRepository, never()).searchProducts(anyString(), any(Pageable.class), any(ProductFields.class), any(Duration.class));
+    }
+
+    @Test
+    void whenKeywordExtendsCachedPrefix_thenRefinesWithoutCandidateQuery() {
+        // Arrange (Given) - "iph" được lọc từ candidates của "ip" đã cache
+        Product iphone = createProduct("Apple iPhone 15", 999.0);
+        SearchCandidate candidate = new SearchCandidate(iphone.getId(), iphone.getName(), iphone.getPrice());
+
+        when(candidateCache.refine(eq("iph"), any())).thenReturn(List.of(candidate));
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(iphone));
+        when(productMapper.toViewAllProductsResponse(iphone)).thenReturn(toResponse(iphone));
+
+        // Act (When)
+        Page<ViewAllProductsResponse> result = searchService.searchProducts("iPh", 0, 10, null, null, ProductFields.ALL);
+
+        // Assert (Then) - chỉ 1 query lấy document của trang, không regex scan lại
+        assertEquals(1, result.getTotalElements());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Product.class));
+        verify(candidateCache, never()).recordMiss();
+    }
+
+    @Test
+    void whenSearchSortedByPriceDesc_thenCandidatesAreSortedBeforePaging() {
+        // Arrange (Given)
+        Product cheap = createProduct("Laptop Basic", 300.0);
+        Product expensive = createProduct("Laptop Pro", 2000.0);
+        List<SearchCandidate> candidates = List.of(
+                new SearchCandidate(cheap.getId(), cheap.getName(), cheap.getPrice()),
+                new SearchCandidate(expensive.getId(), expensive.getName(), expensive.getPrice()));
+
+        when(candidateCache.get("laptop")).thenReturn(candidates);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(expensive));
+        ViewAllProductsResponse expensiveResponse = toResponse(expensive);
+        when(productMapper.toViewAllProductsResponse(expensive)).thenReturn(expensiveResponse);
+
+        // Act (When) - trang đầu, size 1 -> sản phẩm đắt nhất
+        Page<ViewAllProductsResponse> result =
+                searchService.searchProducts("Laptop", 0, 1, SearchSortField.PRICE, Sort.Direction.DESC, ProductFields.ALL);
+
+        // Assert (Then)
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(expensiveResponse), result.getContent());
+    }
+
+    @Test
+    void whenKeywordMatchesTooManyProducts_thenSortIsPushedToRepository() {
+        // Arrange (Given) - vượt ngưỡng candidates -> không cache, phân trang + sort trong Mongo
+        ReflectionTestUtils.setField(searchService, "maxCandidates", 1);
+        String keyword = "Laptop";
+        Pageable sortedPageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "price", "name"));
+
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(createProduct("Laptop A", 1.0), createProduct("Laptop B", 2.0)));
+        when(productRepository.searchProducts(keyword, sortedPageable, ProductFields.ALL, MAX_TIME))
+                .thenReturn(new PageImpl<>(List.of(), sortedPageable, 0));
+
+        // Act (When)
+        searchService.searchProducts(keyword, 0, 10, SearchSortField.PRICE, Sort.Direction.DESC, ProductFields.ALL);
+
+        // Assert (Then) - sort phải nằm trong Pageable gửi xuống Mongo, không sort trong bộ nhớ
+        verify(productRepository).searchProducts(keyword, sortedPageable, ProductFields.ALL, MAX_TIME);
+        verify(candidateCache, never()).put(anyString(), any());
+        verify(candidateCache).putOverflow("laptop");
+    }
+
+    @Test
+    void whenKeywordKnownToOverflow_thenNoCandidateScan() {
+        // Arrange (Given) - từ khóa rộng đã được ghi nhận -> không quét max-candidates + 1 document lần nữa
+        String keyword = "Laptop";
+        Pageable pageable = PageRequest.of(0, 10);
+        when(candidateCache.overflows("laptop")).thenReturn(true);
+        when(productRepository.searchProducts(keyword, pageable, ProductFields.ALL, MAX_TIME))
+                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        // Act (When)
+        searchService.searchProducts(keyword, 0, 10, null, null, ProductFields.ALL);
+
+        // Assert (Then)
+        verify(productRepository).searchProducts(keyword, pageable, ProductFields.ALL, MAX_TIME);
+        verifyNoInteractions(mongoTemplate);
+        verify(candidateCache, never()).refine(anyString(), any());
+    }
+
+    @Test
+    void whenKeywordHasRegexMetacharacters_thenItIsMatchedLiterally() {
+        // Arrange (Given) - ".*a.*b.*c" không được tới Mongo như một pattern backtracking
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+
+        // Act (When)
+        Page<ViewAllProductsResponse> result =
+                searchService.searchProducts(".*a.*b.*c", 0, 10, SearchSortField.RELEVANCE, Sort.Direction.ASC, ProductFields.ALL);
+
+        // Assert (Then) - regex đã được escape, query mang maxTimeMS của endpoint
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Product.class));
+        Query candidateQuery = captor.getValue();
+        assertEquals("\\.\\*a\\.\\*b\\.\\*c", candidateQuery.getQueryObject().get("name", Pattern.class).pattern());
+        assertEquals(MAX_TIME.toMillis(), candidateQuery.getMeta().getMaxTimeMsec());
+        assertEquals(0, result.getTotalElements());
+        verify(productRepository, never()).searchProducts(any(), any(Pageable.class), any(ProductFields.class), any(Duration.class));
+    }
+
+    @Test
+    void whenSliceRequested_thenRepositorySliceIsUsedWithoutCount() {
+        // Arrange (Given) - vượt ngưỡng candidates -> phân trang trong Mongo, nhưng không count
+        ReflectionTestUtils.setField(searchService, "maxCandidates", 1);
+        Pageable pageable = PageRequest.of(1, 10);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(createProduct("Laptop A", 1.0), createProduct("Laptop B", 2.0)));
+        when(productRepository.searchProductsSlice("Laptop", pageable, ProductFields.ALL, MAX_TIME))
+                .thenReturn(new SliceImpl<>(List.of(), pageable, true));
+
+        // Act (When)
+        Slice<ViewAllProductsResponse> result =
+                searchService.searchProductsSlice("Laptop", 1, 10, null, null, ProductFields.ALL);
+
+        // Assert (Then)
+        assertTrue(result.hasNext());
+        verify(productRepository, never()).searchProducts(any(), any(Pageable.class), any(ProductFields.class), any(Duration.class));
+    }
+
+    @Test
+    void whenSliceOfCachedCandidates_thenHasNextComesFromCandidates() {
+        // Arrange (Given) - 2 candidates, size 1 -> còn trang sau
+        Product cheap = createProduct("Laptop Basic", 300.0);
+        Product expensive = createProduct("Laptop Pro", 2000.0);
+        when(candidateCache.get("laptop")).thenReturn(List.of(
+                new SearchCandidate(cheap.getId(), cheap.getName(), cheap.getPrice()),
+                new SearchCandidate(expensive.getId(), expensive.getName(), expensive.getPrice())));
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(cheap));
+        when(productMapper.toViewAllProductsResponse(cheap)).thenReturn(toResponse(cheap));
+
+        // Act (When)
+        Slice<ViewAllProductsResponse> result =
+                searchService.searchProductsSlice("Laptop", 0, 1, SearchSortField.PRICE, Sort.Direction.ASC, ProductFields.ALL);
+
+        // Assert (Then)
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.hasNext());
+        verifyNoInteractions(productRepository);
     }
 }
@@ -1,11 +1,26 @@
 package com.shongon.catalog.unit;
 
+import com.shongon.catalog.dto.request.ProductFields;
+import com.shongon.catalog.dto.request.ProductFilter;
+import com.shongon.catalog.dto.request.ProductSort;
+import com.shongon.catalog.dto.response.CursorPage;
+import com.shongon.catalog.dto.response.FacetedPage;
+import com.shongon.catalog.dto.response.ProductFacets;
 import com.shongon.catalog.dto.response.ViewAllProductsResponse;
+import com.shongon.catalog.enums.PageCountMode;
 import com.shongon.catalog.enums.SortField;
+import com.shongon.catalog.exception.ErrorCode;
+import com.shongon.catalog.exception.ProductCatalogException;
 import com.shongon.catalog.mapper.ProductMapper;
 import com.shongon.catalog.model.Product;
+import com.shongon.catalog.service.IFacetService;
+import com.shongon.catalog.service.impl.CatalogSnapshot;
+import com.shongon.catalog.service.impl.KeysetCursor;
 import com.shongon.catalog.service.impl.SortFilterServiceImpl;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -14,12 +29,24 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -36,6 +63,30 @@ public class SortFilterServiceImplTest {
     @Mock
     ProductMapper productMapper;
 
+    @Mock
+    IFacetService facetService;
+
+    @Mock
+    CatalogSnapshot catalogSnapshot; // not ready unless stubbed -> MongoDB path
+
+    ExecutorService queryExecutor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        // inject private time budgets of /filter and /sort
+        ReflectionTestUtils.setField(filterSortService, "filterMaxTime", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(filterSortService, "sortMaxTime", Duration.ofSeconds(3));
+        // default mode: count on the query executor next to the page fetch
+        ReflectionTestUtils.setField(filterSortService, "queryExecutor", queryExecutor);
+        ReflectionTestUtils.setField(filterSortService, "pageCountMode", PageCountMode.CONCURRENT);
+        ReflectionTestUtils.setField(filterSortService, "maxPageSize", 2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryExecutor.shutdownNow();
+    }
+
     @Test
     void filterAndSortProducts_baseCase_returnsPageOfProducts() {
         // Given
@@ -130,12 +181,13 @@ public class SortFilterServiceImplTest {
         // When
         Page<ViewAllProductsResponse> result = mockServiceImpl(null, SortField.NAME, Sort.Direction.ASC, 0, 3);
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
                 .contains("\"name\": 1"); // ASC
+        assertThat(builtQuery.getMeta().getMaxTimeMsec()).isEqualTo(3000L); // /sort time budget
         assertThat(result.getTotalElements()).isEqualTo(30); // total suitable product = 30
         assertThat(result.getContent()).hasSize(3);
         assertThat(result.getContent()).containsExactly(res1, res2, res3);
@@ -168,8 +220,8 @@ public class SortFilterServiceImplTest {
         // When
         Page<ViewAllProductsResponse> result = mockServiceImpl(null, SortField.NAME, Sort.Direction.DESC, 0, 3);
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
@@ -209,8 +261,8 @@ public class SortFilterServiceImplTest {
         // When
         Page<ViewAllProductsResponse> result = mockServiceImpl(null, SortField.PRICE, Sort.Direction.ASC, 0, 3);
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
@@ -251,8 +303,8 @@ public class SortFilterServiceImplTest {
         Page<ViewAllProductsResponse> result = mockServiceImpl(null, SortField.PRICE, Sort.Direction.DESC, 0, 3);
 
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
@@ -292,8 +344,8 @@ public class SortFilterServiceImplTest {
         // When
         Page<ViewAllProductsResponse> result = mockServiceImpl("BOOKS",SortField.PRICE, Sort.Direction.ASC, 0, 3);
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
@@ -302,7 +354,7 @@ public class SortFilterServiceImplTest {
         assertThat(result.getContent()).hasSize(3);
         assertThat(result.getContent()).containsExactly(res1, res2, res3);
 
-        verify(mongoTemplate, times(1))
+        verify(mongoTemplate, times(2))
                 .find(any(Query.class), eq(Product.class));
     }
 
@@ -336,8 +388,8 @@ public class SortFilterServiceImplTest {
         // When
         Page<ViewAllProductsResponse> result = mockServiceImpl("BOOKS",SortField.PRICE, Sort.Direction.DESC, 0, 3);
         ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
-        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
-        Query builtQuery = queryCaptor.getValue();
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class)); // covered key query + fetch by key
+        Query builtQuery = queryCaptor.getAllValues().get(0);
 
         // Then
         assertThat(builtQuery.getSortObject().toJson())
@@ -346,7 +398,7 @@ public class SortFilterServiceImplTest {
         assertThat(result.getContent()).hasSize(3);
         assertThat(result.getContent()).containsExactly(res3, res2, res1);
 
-        verify(mongoTemplate, times(1))
+        verify(mongoTemplate, times(2))
                 .find(any(Query.class), eq(Product.class));
     }
 
@@ -360,13 +412,406 @@ public class SortFilterServiceImplTest {
         assertThat(result.getContent()).isEmpty();
     }
 
+    @Test
+    void filterAndSortProducts_sortByName_projectsKeysThenFetchesByUniqueName() {
+        // Given
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        Product product2 = createSampleProduct("Test Product 2", "Test Description 2", 12.0);
+        Product key1 = Product.builder().name(product1.getName()).build();
+        Product key2 = Product.builder().name(product2.getName()).build();
+
+        // 1st find: covered key query (name only), 2nd find: documents, in any order
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(key1, key2))
+                .thenReturn(List.of(product2, product1));
+        ViewAllProductsResponse res1 = viewAllProductsResponse(product1);
+        ViewAllProductsResponse res2 = viewAllProductsResponse(product2);
+        convertToMapper(product1, res1);
+        convertToMapper(product2, res2);
+
+        // When
+        Page<ViewAllProductsResponse> result = mockServiceImpl("BOOKS", SortField.NAME, Sort.Direction.ASC, 4, 2);
+
+        // Then
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class));
+        Query keyQuery = queryCaptor.getAllValues().get(0);
+        Query fetchQuery = queryCaptor.getAllValues().get(1);
+
+        // name is unique -> no _id tiebreaker, _id not projected (not in the name index)
+        assertThat(keyQuery.getSortObject().toJson()).isEqualTo("{\"name\": 1}");
+        assertThat(keyQuery.getFieldsObject().toJson()).isEqualTo("{\"name\": 1, \"_id\": 0}");
+        assertThat(keyQuery.getSkip()).isEqualTo(8);
+        assertThat(fetchQuery.getQueryObject().toJson()).contains("\"name\": {\"$in\": [\"Test Product 1\", \"Test Product 2\"]}");
+        // order of the key query is kept
+        assertThat(result.getContent()).containsExactly(res1, res2);
+    }
+
+    @Test
+    void filterAndSortProducts_unsorted_sortsAndProjectsById() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+
+        mockServiceImpl("BOOKS", null, null, 0, 3);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class)); // no key -> no fetch query
+        assertThat(queryCaptor.getValue().getSortObject().toJson()).isEqualTo("{\"_id\": 1}");
+        assertThat(queryCaptor.getValue().getFieldsObject().toJson()).isEqualTo("{\"_id\": 1}");
+    }
+
+    @Test
+    void filterAndSortProducts_multiKeySort_endsAtUniqueNameAndStaysCovered() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+
+        filterSortService.filterAndSortProducts(ProductFilter.of("BOOKS", null, null),
+                ProductSort.of(null, null, "PRICE:DESC,NAME:ASC"), PageRequest.of(1, 10), ProductFields.ALL);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        // served by category_price_name_desc walked backwards, keys only -> covered
+        assertThat(queryCaptor.getValue().getSortObject()).isEqualTo(Document.parse("{price: -1, name: 1}"));
+        assertThat(queryCaptor.getValue().getFieldsObject()).isEqualTo(Document.parse("{price: 1, name: 1, _id: 0}"));
+    }
+
+    @Test
+    void filterAndSortProducts_summary_projectsFetchQueryWithoutDescription() {
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(Product.builder().id(product1.getId()).build()))
+                .thenReturn(List.of(product1));
+        convertToMapper(product1, viewAllProductsResponse(product1));
+
+        filterSortService.filterAndSortProducts(ProductFilter.of("BOOKS", null, null), ProductSort.UNSORTED, PageRequest.of(0, 3), ProductFields.SUMMARY);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getAllValues().get(1).getFieldsObject())
+                .isEqualTo(Document.parse("{name: 1, price: 1, category: 1, _id: 1}"));
+    }
+
+    @Test
+    void filterAndSortProductsByCursor_fields_readsSortKeysButDoesNotReturnThem() {
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        Product product2 = createSampleProduct("Test Product 2", "Test Description 2", 12.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(product1, product2));
+        convertToMapper(product1, viewAllProductsResponse(product1));
+
+        CursorPage<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsByCursor(
+                ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.ASC), null, 1, ProductFields.of("name", null));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        // price is the sort key -> read for the next cursor
+        assertThat(queryCaptor.getValue().getFieldsObject()).isEqualTo(Document.parse("{name: 1, price: 1, _id: 1}"));
+        ViewAllProductsResponse response = result.getContent().get(0);
+        assertThat(response.getName()).isEqualTo("Test Product 1");
+        assertThat(response.getPrice()).isNull();
+        assertThat(response.getDescription()).isNull();
+        assertThat(KeysetCursor.decode(result.getNextCursor()).lastValues()).containsExactly(10.0, product1.getId());
+    }
+
+    // PAGE + COUNT EXECUTION MODES
+    @Test
+    void filterAndSortProducts_concurrent_countsOnQueryExecutor() {
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(Product.builder().id(product1.getId()).build()))
+                .thenReturn(List.of(product1));
+        Thread caller = Thread.currentThread();
+        List<Thread> countThreads = new CopyOnWriteArrayList<>();
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            countThreads.add(Thread.currentThread());
+            return 42L;
+        });
+        convertToMapper(product1, viewAllProductsResponse(product1));
+
+        Page<ViewAllProductsResponse> result = mockServiceImpl("BOOKS", null, null, 0, 1);
+
+        assertThat(result.getTotalElements()).isEqualTo(42);
+        assertThat(countThreads).hasSize(1).doesNotContain(caller);
+    }
+
+    @Test
+    void filterAndSortProducts_sequential_countsOnCallerThread() {
+        ReflectionTestUtils.setField(filterSortService, "pageCountMode", PageCountMode.SEQUENTIAL);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+        Thread caller = Thread.currentThread();
+        List<Thread> countThreads = new CopyOnWriteArrayList<>();
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            countThreads.add(Thread.currentThread());
+            return 0L;
+        });
+
+        mockServiceImpl("BOOKS", null, null, 0, 1);
+
+        assertThat(countThreads).containsExactly(caller);
+    }
+
+    @Test
+    void filterAndSortProducts_countFails_rethrowsOriginalException() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+        UncategorizedMongoDbException timeout = new UncategorizedMongoDbException("operation exceeded time limit", null);
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenThrow(timeout);
+
+        // not wrapped in an ExecutionException -> still mapped to 503 by GlobalExceptionHandler
+        UncategorizedMongoDbException thrown = assertThrows(UncategorizedMongoDbException.class,
+                () -> mockServiceImpl("BOOKS", null, null, 0, 1));
+        assertThat(thrown).isSameAs(timeout);
+    }
+
+    @Test
+    void filterAndSortProducts_pageFails_cancelsRunningCount() throws InterruptedException {
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch countInterrupted = new CountDownLatch(1);
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            countStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                countInterrupted.countDown();
+            }
+            return 0L;
+        });
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            countStarted.await(5, TimeUnit.SECONDS);
+            throw new UncategorizedMongoDbException("page failed", null);
+        });
+
+        assertThrows(UncategorizedMongoDbException.class, () -> mockServiceImpl("BOOKS", null, null, 0, 1));
+
+        assertThat(countInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void filterAndSortProducts_facetMode_singleAggregation() {
+        ReflectionTestUtils.setField(filterSortService, "pageCountMode", PageCountMode.FACET);
+        Page<ViewAllProductsResponse> page = Page.empty();
+        when(facetService.findPageWithTotal(any(), eq(Sort.by(Sort.Direction.DESC, "price", "_id")),
+                eq(PageRequest.of(0, 3)), eq(ProductFields.ALL), eq(Duration.ofSeconds(3))))
+                .thenReturn(page);
+
+        Page<ViewAllProductsResponse> result = mockServiceImpl("BOOKS", SortField.PRICE, Sort.Direction.DESC, 0, 3);
+
+        assertThat(result).isSameAs(page);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void filterAndSortProducts_categoriesAndPriceRange_filterKeyAndCountQueries() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenReturn(0L);
+
+        filterSortService.filterAndSortProducts(ProductFilter.of("HOME,BOOKS", 10.0, 50.0),
+                ProductSort.of(SortField.NAME, Sort.Direction.ASC), PageRequest.of(0, 10), ProductFields.ALL);
+
+        Document expected = Document.parse("{category: {$in: ['BOOKS', 'HOME']}, price: {$gte: 10.0, $lte: 50.0}}");
+        ArgumentCaptor<Query> findCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(findCaptor.capture(), eq(Product.class));
+        assertThat(findCaptor.getValue().getQueryObject()).isEqualTo(expected);
+        ArgumentCaptor<Query> countCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).count(countCaptor.capture(), eq(Product.class));
+        assertThat(countCaptor.getValue().getQueryObject()).isEqualTo(expected);
+    }
+
+    // SLICE TESTS
+    @Test
+    void filterAndSortProductsSlice_readsSizePlusOneKeysAndNeverCounts() {
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        Product product2 = createSampleProduct("Test Product 2", "Test Description 2", 12.0);
+        Product product3 = createSampleProduct("Test Product 3", "Test Description 3", 15.0);
+        // keys of 3 products for a page of 2 -> the 3rd is only read to tell hasNext, never fetched
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(product1, product2, product3))
+                .thenReturn(List.of(product2, product1));
+        ViewAllProductsResponse res1 = viewAllProductsResponse(product1);
+        ViewAllProductsResponse res2 = viewAllProductsResponse(product2);
+        convertToMapper(product1, res1);
+        convertToMapper(product2, res2);
+
+        Slice<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsSlice(
+                ProductFilter.of("BOOKS", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), PageRequest.of(2, 2), ProductFields.ALL);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queryCaptor.capture(), eq(Product.class));
+        Query keyQuery = queryCaptor.getAllValues().get(0);
+        assertThat(keyQuery.getSkip()).isEqualTo(4);
+        assertThat(keyQuery.getLimit()).isEqualTo(3);
+        assertThat(keyQuery.getFieldsObject()).isEqualTo(Document.parse("{price: 1, _id: 1}")); // still covered
+        assertThat(queryCaptor.getAllValues().get(1).getQueryObject().toJson())
+                .doesNotContain(product3.getId().toHexString());
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Product.class));
+
+        assertThat(result.getContent()).containsExactly(res1, res2);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getNumber()).isEqualTo(2);
+    }
+
+    @Test
+    void filterAndSortProductsSlice_lastSlice_hasNoNext() {
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(product1))
+                .thenReturn(List.of(product1));
+        convertToMapper(product1, viewAllProductsResponse(product1));
+
+        Slice<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsSlice(
+                ProductFilter.NONE, ProductSort.UNSORTED, PageRequest.of(0, 2), ProductFields.ALL);
+
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.hasNext()).isFalse();
+        verifyNoInteractions(facetService);
+    }
+
+    // IN-MEMORY SNAPSHOT TESTS
+    @Test
+    void filterAndSortProducts_snapshotReady_servedWithoutMongo() {
+        Product row = Product.builder().id(new ObjectId()).name("Book A").price(10.0).category("BOOKS").build();
+        Pageable pageable = PageRequest.of(0, 10);
+        ProductSort sort = ProductSort.of(SortField.PRICE, Sort.Direction.ASC);
+        when(catalogSnapshot.find(ProductFilter.NONE, sort, pageable))
+                .thenReturn(new CatalogSnapshot.Rows(List.of(row), 41));
+        ViewAllProductsResponse response = viewAllProductsResponse(row);
+        convertToMapper(row, response);
+
+        Page<ViewAllProductsResponse> result =
+                filterSortService.filterAndSortProducts(ProductFilter.NONE, sort, pageable, ProductFields.SUMMARY);
+
+        // No description asked -> the snapshot row is the whole answer, total included
+        assertThat(result.getContent()).containsExactly(response);
+        assertThat(result.getTotalElements()).isEqualTo(41);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void filterAndSortProductsSlice_snapshotReadyWithDescription_fetchesPageById() {
+        Product row = Product.builder().id(new ObjectId()).name("Book A").price(10.0).category("BOOKS").build();
+        Product document = createSampleProduct("Book A", "Description A", 10.0);
+        document.setId(row.getId());
+        Pageable pageable = PageRequest.of(2, 1);
+        when(catalogSnapshot.find(ProductFilter.NONE, ProductSort.UNSORTED, pageable))
+                .thenReturn(new CatalogSnapshot.Rows(List.of(row), 4)); // a 4th product after this page
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(document));
+        ViewAllProductsResponse response = viewAllProductsResponse(document);
+        convertToMapper(document, response);
+
+        Slice<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsSlice(
+                ProductFilter.NONE, ProductSort.UNSORTED, pageable, ProductFields.ALL);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject().toJson()).contains("\"_id\": {\"$in\"");
+        assertThat(result.getContent()).containsExactly(response);
+        assertThat(result.hasNext()).isTrue();
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void filterAndSortProductsWithFacets_snapshotReady_noAggregation() {
+        Product row = Product.builder().id(new ObjectId()).name("Book A").price(10.0).category("BOOKS").build();
+        Pageable pageable = PageRequest.of(0, 10);
+        ProductFacets facets = ProductFacets.builder().categories(Map.of("BOOKS", 1L)).priceBuckets(List.of()).build();
+        when(catalogSnapshot.findWithFacets(ProductFilter.NONE, ProductSort.UNSORTED, pageable))
+                .thenReturn(new FacetedPage<>(List.of(row), pageable, 1, facets));
+        ViewAllProductsResponse response = viewAllProductsResponse(row);
+        convertToMapper(row, response);
+
+        FacetedPage<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsWithFacets(
+                ProductFilter.NONE, ProductSort.UNSORTED, pageable, ProductFields.SUMMARY);
+
+        assertThat(result.getContent()).containsExactly(response);
+        assertThat(result.getFacets()).isSameAs(facets);
+        verifyNoInteractions(facetService, mongoTemplate);
+    }
+
+    // CURSOR (KEYSET) PAGINATION TESTS
+    @Test
+    void filterAndSortProductsByCursor_firstPage_fetchesSizePlusOneAndReturnsNextCursor() {
+        // Given - size 2, Mongo trả về 3 -> còn trang sau
+        Product product1 = createSampleProduct("Test Product 1", "Test Description 1", 10.0);
+        Product product2 = createSampleProduct("Test Product 2", "Test Description 2", 12.0);
+        Product product3 = createSampleProduct("Test Product 3", "Test Description 3", 15.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(product1, product2, product3));
+        ViewAllProductsResponse res1 = viewAllProductsResponse(product1);
+        ViewAllProductsResponse res2 = viewAllProductsResponse(product2);
+        convertToMapper(product1, res1);
+        convertToMapper(product2, res2);
+
+        // When
+        CursorPage<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsByCursor(
+                ProductFilter.of("BOOKS", null, null), ProductSort.of(SortField.PRICE, Sort.Direction.ASC), null, 2,
+                ProductFields.ALL);
+
+        // Then - sort (price, _id), limit size + 1, không có count query
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query builtQuery = queryCaptor.getValue();
+        assertThat(builtQuery.getSortObject().toJson()).isEqualTo("{\"price\": 1, \"_id\": 1}");
+        assertThat(builtQuery.getLimit()).isEqualTo(3);
+        assertThat(builtQuery.getSkip()).isZero();
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Product.class));
+
+        assertThat(result.getContent()).containsExactly(res1, res2);
+        assertThat(result.isHasNext()).isTrue();
+        KeysetCursor next = KeysetCursor.decode(result.getNextCursor());
+        assertThat(next.lastValues()).containsExactly(12.0, product2.getId());
+    }
+
+    @Test
+    void filterAndSortProductsByCursor_nextPage_seeksAfterCursorKey() {
+        // Given
+        ObjectId lastId = new ObjectId();
+        String cursor = new KeysetCursor(Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.DESC, "_id")),
+                List.of(12.0, lastId)).encode();
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+
+        // When
+        CursorPage<ViewAllProductsResponse> result = filterSortService.filterAndSortProductsByCursor(
+                ProductFilter.NONE, ProductSort.of(SortField.PRICE, Sort.Direction.DESC), cursor, 2,
+                ProductFields.ALL);
+
+        // Then - $or: price < 12 (hoặc null) | price = 12 và _id < lastId
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        String queryJson = queryCaptor.getValue().getQueryObject().toJson();
+        assertThat(queryJson).contains("\"$lt\": 12.0", "\"$lt\": {\"$oid\": \"" + lastId.toHexString() + "\"}");
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void filterAndSortProductsByCursor_cursorOfAnotherSort_throwsInvalidCursor() {
+        // Cursor của /sort?field=PRICE không dùng được cho /sort?field=NAME
+        String cursor = new KeysetCursor(Sort.by("price").and(Sort.by("_id")), List.of(12.0, new ObjectId())).encode();
+
+        ProductCatalogException ex = assertThrows(ProductCatalogException.class, () ->
+                filterSortService.filterAndSortProductsByCursor(ProductFilter.NONE, ProductSort.of(SortField.NAME, Sort.Direction.ASC), cursor, 2, ProductFields.ALL));
+        assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_CURSOR);
+
+        assertThrows(ProductCatalogException.class, () ->
+                filterSortService.filterAndSortProductsByCursor(ProductFilter.NONE, ProductSort.UNSORTED, "not-a-cursor", 2, ProductFields.ALL));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void filterAndSortProductsByCursor_sizeOutOfRange_throwsInvalidPageSize() {
+        // size=0 không có dòng cuối để tạo cursor, size âm bỏ mất limit, size quá lớn vượt giới hạn của Pageable
+        for (int size : new int[]{0, -1, 2001}) {
+            ProductCatalogException ex = assertThrows(ProductCatalogException.class, () ->
+                    filterSortService.filterAndSortProductsByCursor(ProductFilter.NONE, ProductSort.UNSORTED, null, size, ProductFields.ALL));
+            assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_PAGE_SIZE);
+        }
+        verifyNoInteractions(mongoTemplate);
+    }
+
     // HELPER METHODS
     private Page<ViewAllProductsResponse> mockServiceImpl(String category, SortField sortBy, Sort.Direction direction, int page, int size) {
         return filterSortService.filterAndSortProducts(
-                category,
-                sortBy,
-                direction,
-                PageRequest.of(page, size)
+                ProductFilter.of(category, null, null),
+                ProductSort.of(sortBy, direction),
+                PageRequest.of(page, size),
+                ProductFields.ALL
         );
     }
 